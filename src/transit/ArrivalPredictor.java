@@ -0,0 +1,363 @@
+/**
+ * This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ * This class predicts when Buses will arrive at their upcoming Stops. Every live VehiclePosition is matched to the
+ * Trip the Bus is serving (by the reported trip_id, or otherwise by the Bus's block), then projected onto the line
+ * between two consecutive Stops of that Trip. Comparing the report's time to the scheduled time at that point gives
+ * the Bus's current delay, which is carried forward to every Stop the Bus has not reached yet.
+ *
+ * Each Bus remembers which hop of its Trip it was last matched to, so a new position is only compared against a few
+ * hops from there instead of the whole Trip. Predictions are stored as small immutable snapshots holding the
+ * Timetable they were made against, so they can be read from any thread while the PositionFeed keeps delivering
+ * updates, even across a reload.
+ */
+package transit;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class ArrivalPredictor implements PositionListener {
+	//number of hops ahead of the last match compared against each new position
+	private static final int SEARCH_WINDOW = 8;
+
+	//a Trip is considered for a block if the report is within this many seconds of the Trip's schedule
+	private static final int BLOCK_MATCH_SLACK = 15 * 60;
+
+	//a report after midnight may belong to a Trip of the previous service day, scheduled this much later
+	private static final int SECONDS_PER_DAY = 24 * 60 * 60;
+
+	private final TransitData transitData;
+	private volatile ZoneId timeZone = ZoneId.systemDefault();
+
+	//Timetable positions are matched against, along with the Trips of each block in that Timetable. Only the
+	//thread applying positions uses these, readers go through the Timetable of each Prediction instead
+	private Timetable timetable;
+	private HashMap<String, ArrayList<Integer>> tripsPerBlock = new HashMap<>();
+
+	private final ConcurrentHashMap<String, Prediction> predictions = new ConcurrentHashMap<>();
+
+	/**
+	 * Creates a predictor for the Trips of the given TransitData.
+	 *
+	 * @param transitData the data store holding the current Timetable
+	 */
+	public ArrivalPredictor(TransitData transitData) {
+		this.transitData = transitData;
+	}
+
+	/**
+	 * Updates the predictions of every Bus in the batch.
+	 *
+	 * @param positions the newly applied VehiclePositions
+	 */
+	@Override
+	public void positionsUpdated(List<VehiclePosition> positions) {
+		Timetable currentTimetable = transitData.getTimetable();
+		for (VehiclePosition position : positions) {
+			applyPosition(currentTimetable, position);
+		}
+	}
+
+	/**
+	 * This method updates the prediction of a single Bus from one position report.
+	 *
+	 * @param currentTimetable the Timetable to match the position against
+	 * @param position the position report
+	 */
+	void applyPosition(Timetable currentTimetable, VehiclePosition position) {
+		//predictions made against an older Timetable no longer make sense
+		if (currentTimetable != timetable) {
+			timetable = currentTimetable;
+			tripsPerBlock = groupTripsByBlock(currentTimetable);
+			predictions.clear();
+		}
+
+		LocalDateTime localTime = Instant.ofEpochSecond(position.getTimestamp()).atZone(timeZone).toLocalDateTime();
+		int clockTime = localTime.toLocalTime().toSecondOfDay();
+		LocalDate date = localTime.toLocalDate();
+		Prediction previous = predictions.get(position.getBusID());
+		if (previous != null && previous.timetable != timetable) {
+			previous = null;
+		}
+		int trip = matchTrip(position, clockTime, date, previous);
+		if (trip < 0) {
+			predictions.remove(position.getBusID());
+			return;
+		}
+		int observedTime = toTripTime(trip, clockTime, date);
+		if (observedTime < 0) {
+			//a Trip reported by trip_id may not be running on the report's day, so take the report's time as it is
+			observedTime = clockTime;
+		}
+
+		//stay close to the previous match when the Bus is still on the same Trip
+		int firstStopTime = timetable.getFirstStopTime(trip);
+		int lastHop = timetable.getEndStopTime(trip) - 2;
+		int searchFrom = firstStopTime;
+		int searchTo = lastHop;
+		if (previous != null && previous.trip == trip) {
+			searchFrom = previous.hop;
+			searchTo = Math.min(lastHop, previous.hop + SEARCH_WINDOW);
+		}
+
+		int bestHop = -1;
+		double bestFraction = 0;
+		double bestDistance = Double.MAX_VALUE;
+		for (int hop = searchFrom; hop <= searchTo; hop++) {
+			double[] projection = project(hop, position.getLatitude(), position.getLongitude());
+			if (projection[1] < bestDistance) {
+				bestDistance = projection[1];
+				bestFraction = projection[0];
+				bestHop = hop;
+			}
+		}
+
+		//a single-Stop Trip has no hops, the Bus can only be waiting at that Stop
+		int scheduledTime;
+		if (bestHop < 0) {
+			bestHop = firstStopTime;
+			scheduledTime = timetable.getDeparture(firstStopTime);
+		} else {
+			int departure = timetable.getDeparture(bestHop);
+			int nextArrival = timetable.getArrival(bestHop + 1);
+			scheduledTime = departure + (int) Math.round(bestFraction * (nextArrival - departure));
+		}
+
+		predictions.put(position.getBusID(), new Prediction(timetable, trip, bestHop, observedTime,
+				observedTime - scheduledTime));
+	}
+
+	/**
+	 * Finds the Trip a position belongs to: the reported trip_id if known, otherwise the Bus's current Trip if the
+	 * report is still within its schedule, otherwise the Trip of the Bus's block closest in time to the report. Only
+	 * Trips running on the report's service day are matched by schedule.
+	 *
+	 * @param clockTime time of the report in seconds since midnight, before 24:00
+	 * @param date calendar date of the report
+	 */
+	private int matchTrip(VehiclePosition position, int clockTime, LocalDate date, Prediction previous) {
+		if (position.getTripID() != null && !position.getTripID().isEmpty()) {
+			int trip = timetable.indexOfTrip(position.getTripID());
+			if (trip >= 0) {
+				return trip;
+			}
+		}
+
+		if (previous != null) {
+			int tripTime = toTripTime(previous.trip, clockTime, date);
+			if (tripTime >= 0 && scheduleGap(previous.trip, tripTime) <= BLOCK_MATCH_SLACK) {
+				return previous.trip;
+			}
+		}
+
+		ArrayList<Integer> blockTrips = tripsPerBlock.get(position.getBusID());
+		int bestTrip = -1;
+		int bestGap = Integer.MAX_VALUE;
+		if (blockTrips != null) {
+			for (int trip : blockTrips) {
+				int tripTime = toTripTime(trip, clockTime, date);
+				if (tripTime < 0) {
+					continue;
+				}
+				int gap = scheduleGap(trip, tripTime);
+				if (gap < bestGap && gap <= BLOCK_MATCH_SLACK) {
+					bestGap = gap;
+					bestTrip = trip;
+				}
+			}
+		}
+		return bestTrip;
+	}
+
+	/**
+	 * Works out how many seconds a time falls before the start or after the end of a Trip's schedule.
+	 *
+	 * @return 0 if the time is within the schedule
+	 */
+	private int scheduleGap(int trip, int time) {
+		int start = timetable.getDeparture(timetable.getFirstStopTime(trip));
+		int end = timetable.getArrival(timetable.getEndStopTime(trip) - 1);
+		return time < start ? start - time : Math.max(0, time - end);
+	}
+
+	/**
+	 * Turns the time of a report into the time of a Trip's service day. Trips running past midnight are scheduled
+	 * at 24:00 and later, so a report after midnight is also tried as a time of the previous service day. Only the
+	 * service days the Trip runs on are tried, and if it runs on both, whichever is closer to its schedule is kept.
+	 *
+	 * @param trip the Trip the report is compared with
+	 * @param clockTime time of the report in seconds since midnight, before 24:00
+	 * @param date calendar date of the report
+	 * @return the time of the report in seconds since the start of the Trip's service day, or -1 if the Trip runs
+	 * on neither day
+	 */
+	private int toTripTime(int trip, int clockTime, LocalDate date) {
+		int previousDayTime = clockTime + SECONDS_PER_DAY;
+		boolean runsToday = timetable.isTripActive(trip, date);
+		boolean ranYesterday = timetable.isTripActive(trip, date.minusDays(1));
+		if (runsToday && ranYesterday) {
+			return scheduleGap(trip, previousDayTime) < scheduleGap(trip, clockTime) ? previousDayTime : clockTime;
+		}
+		if (runsToday) {
+			return clockTime;
+		}
+		return ranYesterday ? previousDayTime : -1;
+	}
+
+	/**
+	 * Projects a point onto the straight line between the two Stops of a hop. Distances are measured on a flat
+	 * (equirectangular) approximation, which is accurate enough over the length of a single hop.
+	 *
+	 * @return {fraction of the hop travelled (0 to 1), squared distance from the point to the hop}
+	 */
+	private double[] project(int hop, double latitude, double longitude) {
+		int fromStop = timetable.getStopIndex(hop);
+		int toStop = timetable.getStopIndex(hop + 1);
+		double scale = Math.cos(Math.toRadians(latitude));
+		double fromX = timetable.getStopLongitude(fromStop) * scale;
+		double fromY = timetable.getStopLatitude(fromStop);
+		double hopX = timetable.getStopLongitude(toStop) * scale - fromX;
+		double hopY = timetable.getStopLatitude(toStop) - fromY;
+		double pointX = longitude * scale - fromX;
+		double pointY = latitude - fromY;
+
+		double lengthSquared = hopX * hopX + hopY * hopY;
+		double fraction = lengthSquared == 0 ? 0 : (pointX * hopX + pointY * hopY) / lengthSquared;
+		fraction = Math.max(0, Math.min(1, fraction));
+		double offsetX = pointX - fraction * hopX;
+		double offsetY = pointY - fraction * hopY;
+		return new double[]{fraction, offsetX * offsetX + offsetY * offsetY};
+	}
+
+	/**
+	 * Lists the Trips of every block in the Timetable, keyed by "block_id".
+	 */
+	private static HashMap<String, ArrayList<Integer>> groupTripsByBlock(Timetable timetable) {
+		HashMap<String, ArrayList<Integer>> blocks = new HashMap<>();
+		for (int t = 0; t < timetable.getTripCount(); t++) {
+			String blockID = timetable.getTrip(t).getBlockID();
+			if (blockID != null && !blockID.isEmpty()) {
+				blocks.computeIfAbsent(blockID, k -> new ArrayList<>()).add(t);
+			}
+		}
+		return blocks;
+	}
+
+	/**
+	 * This method predicts the arrival time of a Bus at every Stop it has yet to reach on its current Trip.
+	 *
+	 * @param busID the ID of the Bus
+	 * @return stop_id(s) of the upcoming Stops mapped to predicted arrival times (seconds since the start of the
+	 * service day), empty if the Bus has not been matched to a Trip
+	 */
+	public LinkedHashMap<String, Integer> predictArrivals(String busID) {
+		LinkedHashMap<String, Integer> arrivals = new LinkedHashMap<>();
+		Prediction prediction = predictions.get(busID);
+		if (prediction == null) {
+			return arrivals;
+		}
+		Timetable predictedTimetable = prediction.timetable;
+		for (int s = prediction.hop + 1; s < predictedTimetable.getEndStopTime(prediction.trip); s++) {
+			arrivals.put(predictedTimetable.getStopID(predictedTimetable.getStopIndex(s)),
+					prediction.predict(predictedTimetable.getArrival(s)));
+		}
+		return arrivals;
+	}
+
+	/**
+	 * This method predicts when each tracked Bus will next arrive at a Stop.
+	 *
+	 * @param stopID the ID of the Stop
+	 * @return bus IDs mapped to predicted arrival times (seconds since the start of the service day)
+	 */
+	public HashMap<String, Integer> predictArrivalsAtStop(String stopID) {
+		HashMap<String, Integer> arrivals = new HashMap<>();
+		for (Map.Entry<String, Prediction> entry : predictions.entrySet()) {
+			Prediction prediction = entry.getValue();
+			Timetable predictedTimetable = prediction.timetable;
+			int stopIndex = predictedTimetable.indexOfStop(stopID);
+			if (stopIndex < 0) {
+				continue;
+			}
+			for (int s = prediction.hop + 1; s < predictedTimetable.getEndStopTime(prediction.trip); s++) {
+				if (predictedTimetable.getStopIndex(s) == stopIndex) {
+					arrivals.put(entry.getKey(), prediction.predict(predictedTimetable.getArrival(s)));
+					break;
+				}
+			}
+		}
+		return arrivals;
+	}
+
+	/**
+	 * @param busID the ID of a Bus
+	 * @return the Bus's current delay in seconds (negative when early), or null if the Bus is not being tracked
+	 */
+	public Integer getDelay(String busID) {
+		Prediction prediction = predictions.get(busID);
+		return prediction == null ? null : prediction.delay;
+	}
+
+	/**
+	 * @param busID the ID of a Bus
+	 * @return the Trip the Bus was matched to, or null if the Bus is not being tracked
+	 */
+	public Trip getMatchedTrip(String busID) {
+		Prediction prediction = predictions.get(busID);
+		return prediction == null ? null : prediction.timetable.getTrip(prediction.trip);
+	}
+
+	/**
+	 * Sets the time zone used to turn report timestamps into times of the service day.
+	 *
+	 * @param timeZone the time zone of the feed's agency
+	 */
+	public void setTimeZone(ZoneId timeZone) {
+		this.timeZone = timeZone;
+	}
+
+	/**
+	 * Latest matched Trip, hop and delay of a single Bus, along with the Timetable the Trip and hop indexes refer to.
+	 */
+	private static final class Prediction {
+		private final Timetable timetable;
+		private final int trip;
+		private final int hop;
+		private final int observedTime;
+		private final int delay;
+
+		private Prediction(Timetable timetable, int trip, int hop, int observedTime, int delay) {
+			this.timetable = timetable;
+			this.trip = trip;
+			this.hop = hop;
+			this.observedTime = observedTime;
+			this.delay = delay;
+		}
+
+		/**
+		 * A Bus that is late stays late by the same amount, but it can never arrive before the time it was seen.
+		 */
+		private int predict(int scheduledArrival) {
+			return Math.max(observedTime, scheduledArrival + delay);
+		}
+	}
+}
@@ -0,0 +1,174 @@
+/**
+ * This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ * This class runs the searches of one search bar away from the JavaFX thread, so the window keeps responding while a
+ * search runs on a big feed. The query runs on a background thread of the search bar's own, so a slow search of one
+ * bar never holds up another, and its result is handed back to the JavaFX thread to be displayed, along with how
+ * long the search took. A spinner is shown while the search runs.
+ *
+ * Only the newest search of a search bar matters: starting a search cancels the one before it. A cancelled search
+ * that has not started yet never runs, one already running is interrupted, and a result that arrives after a newer
+ * search has started is thrown away, so typing quickly never leaves stale searches queued up or stale results shown.
+ *
+ * Every method must be called on the JavaFX thread.
+ */
+package transit;
+
+import javafx.application.Platform;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressIndicator;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+
+public class BackgroundSearch {
+	private final ExecutorService executor;
+	private final ProgressIndicator spinner;
+	private final Label timingLabel;
+
+	//the search in flight, if any, and the number of searches started so far (which identifies the newest one)
+	private Future<?> running;
+	private long searchCount;
+
+	//number of data changes waiting for the searches to end, and the newest search asked for in the meantime
+	private int suspendCount;
+	private Runnable pending;
+
+	/**
+	 * @param threadName name of the thread the searches run on
+	 * @param spinner spinner shown while a search runs
+	 * @param timingLabel label showing how long the last search took
+	 */
+	public BackgroundSearch(String threadName, ProgressIndicator spinner, Label timingLabel) {
+		this.executor = Executors.newSingleThreadExecutor(runnable -> {
+			Thread thread = new Thread(runnable, threadName);
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.spinner = spinner;
+		this.timingLabel = timingLabel;
+	}
+
+	/**
+	 * This method starts a search, cancelling the search still in flight. Once the query has run, its result is
+	 * displayed on the JavaFX thread, unless a newer search was started in the meantime. A query that fails is
+	 * logged and reported with the given display. While the data is being changed, the search only starts once the
+	 * change is done.
+	 *
+	 * @param query the search to run in the background
+	 * @param display shows the result of the search, on the JavaFX thread
+	 * @param failure shows why the search failed, on the JavaFX thread
+	 * @param <T> type of the search's result
+	 */
+	public <T> void start(Callable<T> query, Consumer<T> display, Consumer<Exception> failure) {
+		cancel();
+		spinner.setVisible(true);
+		timingLabel.setText("Searching...");
+		if (suspendCount > 0) {
+			pending = () -> start(query, display, failure);
+			return;
+		}
+		long searchNumber = searchCount;
+		long startTime = System.nanoTime();
+		running = executor.submit(() -> {
+			try {
+				T result = query.call();
+				Platform.runLater(() -> {
+					if (finish(searchNumber, startTime)) {
+						display.accept(result);
+					}
+				});
+			} catch (Exception e) {
+				Platform.runLater(() -> {
+					if (finish(searchNumber, startTime)) {
+						TransitController.LOGGER.log(Level.WARNING, "Search failed.", e);
+						failure.accept(e);
+					}
+				});
+			}
+		});
+	}
+
+	/**
+	 * This method cancels the search in flight, if any, so its result is never displayed.
+	 */
+	public void cancel() {
+		searchCount++;
+		pending = null;
+		if (running != null) {
+			running.cancel(true);
+			running = null;
+		}
+		spinner.setVisible(false);
+	}
+
+	/**
+	 * This method cancels the given searches and runs a change to the data they read once none of them is still
+	 * running, without making the JavaFX thread wait. Each search bar runs one task at a time, in the order they were
+	 * submitted, so an empty task is only reached once every search submitted before it has ended, including a query
+	 * that carries on for a while after being interrupted. Searches started before the change is done wait for it.
+	 *
+	 * @param change the change to the data, run on the JavaFX thread
+	 * @param searches searches reading the data
+	 */
+	public static void cancelThen(Runnable change, BackgroundSearch... searches) {
+		CompletableFuture<?>[] ended = new CompletableFuture<?>[searches.length];
+		for (int i = 0; i < searches.length; i++) {
+			searches[i].cancel();
+			searches[i].suspendCount++;
+			ended[i] = CompletableFuture.runAsync(() -> { }, searches[i].executor);
+		}
+		CompletableFuture.allOf(ended).whenComplete((ignored, error) -> Platform.runLater(() -> {
+			try {
+				change.run();
+			} finally {
+				for (BackgroundSearch search : searches) {
+					search.resume();
+				}
+			}
+		}));
+	}
+
+	/**
+	 * Starts the search asked for while the data was being changed, once no change is left.
+	 */
+	private void resume() {
+		suspendCount--;
+		if (suspendCount == 0 && pending != null) {
+			Runnable search = pending;
+			pending = null;
+			search.run();
+		}
+	}
+
+	/**
+	 * Hides the spinner and shows how long a search took, if it is still the newest search.
+	 *
+	 * @return true if the search's result should be displayed
+	 */
+	private boolean finish(long searchNumber, long startTime) {
+		if (searchNumber != searchCount) {
+			return false;
+		}
+		running = null;
+		spinner.setVisible(false);
+		timingLabel.setText(String.format("%.1f ms", (System.nanoTime() - startTime) / 1e6));
+		return true;
+	}
+}
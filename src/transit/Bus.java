@@ -18,9 +18,10 @@ package transit;
 
 public class Bus {
 	private String busID;
-	private Route currentRoute;
-	private double latitude;
-	private double longitude;
+	//written by the live position feed and read by the GUI, so changes must be visible across threads
+	private volatile Route currentRoute;
+	//replaced as a whole, so a reader never sees the latitude of one position with the longitude of another
+	private volatile Location location;
 
 	/**
 	 * Basic constructor for a Bus object.
@@ -33,8 +34,7 @@ public class Bus {
 	public Bus(String busID, Route currentRoute, double latitude, double longitude){
 		this.busID = busID;
 		this.currentRoute = currentRoute;
-		this.latitude = latitude;
-		this.longitude = longitude;
+		this.location = new Location(latitude, longitude);
 	}
 
 	/**
@@ -44,4 +44,38 @@ public class Bus {
 	public void updateCurrentRoute(Route route){
 		currentRoute = route;
 	}
+
+	/**
+	 * Moves the Bus to its most recently reported location.
+	 * @param latitude new latitude
+	 * @param longitude new longitude
+	 */
+	public void updateLocation(double latitude, double longitude){
+		location = new Location(latitude, longitude);
+	}
+
+	//getters
+	public String getBusID() { return busID; }
+	public Route getCurrentRoute() { return currentRoute; }
+	public Location getLocation() { return location; }
+	public double getLatitude() { return location.getLatitude(); }
+	public double getLongitude() { return location.getLongitude(); }
+
+	/**
+	 * A single reported location of a Bus. Read both coordinates from the same Location, since the Bus may move
+	 * between two calls to "getLatitude()" and "getLongitude()".
+	 */
+	public static final class Location {
+		private final double latitude;
+		private final double longitude;
+
+		private Location(double latitude, double longitude) {
+			this.latitude = latitude;
+			this.longitude = longitude;
+		}
+
+		//getters
+		public double getLatitude() { return latitude; }
+		public double getLongitude() { return longitude; }
+	}
 }
\ No newline at end of file
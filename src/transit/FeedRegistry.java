@@ -0,0 +1,306 @@
+/**
+ * This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ * This class holds several GTFS feeds at once, such as one feed per agency. Each feed is loaded into its own
+ * TransitData, named after the folder it was loaded from, so feeds never share Routes, Trips or Stops and IDs that
+ * happen to repeat between agencies do not clash. Feeds are loaded in parallel, one thread per feed.
+ *
+ * Queries either target a single feed or span all of them. An ID can be namespaced by putting the feed's name and
+ * a colon in front of it (for example "GTFS_LAX:1234"), which limits a query to that feed; IDs without a namespace
+ * are looked up in every feed. Results spanning several feeds are merged into one, with namespaced IDs as keys.
+ * Every feed is queried on its own, so queries never wait on a lock shared between feeds.
+ */
+package transit;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class FeedRegistry {
+	//separates a feed's name from an ID in namespaced IDs
+	public static final char NAMESPACE_SEPARATOR = ':';
+
+	//every loaded feed by name, kept sorted so results spanning several feeds are always in the same order
+	private final ConcurrentSkipListMap<String, TransitData> feeds = new ConcurrentSkipListMap<>();
+
+	/**
+	 * This method loads a feed from each folder at the same time, each into its own TransitData named after its
+	 * folder. A feed replaces any loaded feed with the same name once it has finished loading.
+	 *
+	 * @param feedFolders folders holding the GTFS text files of each feed
+	 * @return the loaded feeds by name
+	 * @throws IOException thrown if any of the feeds cannot be read
+	 */
+	public Map<String, TransitData> loadFeeds(Collection<File> feedFolders) throws IOException {
+		ArrayList<Callable<TransitData>> loaders = new ArrayList<>();
+		for (File feedFolder : feedFolders) {
+			loaders.add(() -> loadFeed(feedFolder.getName(), feedFolder));
+		}
+
+		LinkedHashMap<String, TransitData> loadedFeeds = new LinkedHashMap<>();
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, loaders.size()));
+		try {
+			List<Future<TransitData>> results = executor.invokeAll(loaders);
+			int i = 0;
+			for (File feedFolder : feedFolders) {
+				loadedFeeds.put(feedFolder.getName(), results.get(i++).get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Loading feeds was interrupted.", e);
+		} catch (ExecutionException e) {
+			throw e.getCause() instanceof IOException ? (IOException) e.getCause()
+					: new IOException("Loading feeds failed.", e.getCause());
+		} finally {
+			executor.shutdown();
+		}
+		return loadedFeeds;
+	}
+
+	/**
+	 * This method loads a single feed into a new TransitData. The files are parsed in the same order as an import
+	 * (Routes, Trips, Stops, StopTimes, then the optional calendars), and files the folder does not have are skipped.
+	 * Problems found in the feed's files are reported together once the feed is loaded.
+	 *
+	 * @param feedName name of the feed, used as the namespace of its IDs
+	 * @param feedFolder folder holding the GTFS text files of the feed
+	 * @return the loaded feed
+	 * @throws FileNotFoundException thrown if the folder does not exist
+	 */
+	public TransitData loadFeed(String feedName, File feedFolder) throws FileNotFoundException {
+		if (feedName.indexOf(NAMESPACE_SEPARATOR) >= 0) {
+			throw new IllegalArgumentException("Feed names cannot contain '" + NAMESPACE_SEPARATOR + "': " + feedName);
+		}
+		if (!feedFolder.isDirectory()) {
+			throw new FileNotFoundException("No feed folder at " + feedFolder);
+		}
+
+		TransitData feed = TransitData.createStore();
+		feed.startLoad();
+		try {
+			for (String fileName : GtfsExporter.FILE_NAMES) {
+				File file = new File(feedFolder, fileName);
+				if (file.isFile()) {
+					parseFile(feed, fileName, file);
+				}
+			}
+			File calendar = new File(feedFolder, "calendar.txt");
+			if (calendar.isFile()) {
+				feed.parseCalendar(calendar);
+			}
+			File calendarDates = new File(feedFolder, "calendar_dates.txt");
+			if (calendarDates.isFile()) {
+				feed.parseCalendarDates(calendarDates);
+			}
+		} finally {
+			feed.finishLoad();
+		}
+		feeds.put(feedName, feed);
+		return feed;
+	}
+
+	/**
+	 * Parses one of the four main GTFS files into a feed.
+	 */
+	private static void parseFile(TransitData feed, String fileName, File file) throws FileNotFoundException {
+		switch (fileName) {
+			case "routes.txt":
+				feed.parseRoutes(file);
+				break;
+			case "trips.txt":
+				feed.parseTrips(file);
+				break;
+			case "stops.txt":
+				feed.parseStops(file);
+				break;
+			case "stop_times.txt":
+				feed.parseStopTimes(file);
+				break;
+		}
+	}
+
+	/**
+	 * @param feedName name of a feed
+	 * @return the feed, or null if no feed has that name
+	 */
+	public TransitData getFeed(String feedName) {
+		return feeds.get(feedName);
+	}
+
+	/**
+	 * @param feedName name of a feed
+	 * @return the removed feed, or null if no feed has that name
+	 */
+	public TransitData removeFeed(String feedName) {
+		return feeds.remove(feedName);
+	}
+
+	/**
+	 * @return names of every loaded feed, in sorted order
+	 */
+	public Set<String> getFeedNames() {
+		return Collections.unmodifiableSet(feeds.keySet());
+	}
+
+	/**
+	 * @param feedName name of a feed
+	 * @param id an ID within that feed
+	 * @return the ID with the feed's name as its namespace
+	 */
+	public static String qualify(String feedName, String id) {
+		return feedName + NAMESPACE_SEPARATOR + id;
+	}
+
+	/**
+	 * Finds the feeds an ID should be looked up in: the feed named by its namespace, or every feed when the ID has
+	 * no namespace (or its namespace is not the name of a loaded feed, since GTFS IDs may contain colons).
+	 *
+	 * @return the ID without its namespace for each feed to query, by feed name
+	 */
+	private LinkedHashMap<String, String> resolve(String id) {
+		LinkedHashMap<String, String> targets = new LinkedHashMap<>();
+		int separator = id.indexOf(NAMESPACE_SEPARATOR);
+		if (separator > 0 && feeds.containsKey(id.substring(0, separator))) {
+			targets.put(id.substring(0, separator), id.substring(separator + 1));
+			return targets;
+		}
+		for (String feedName : feeds.keySet()) {
+			targets.put(feedName, id);
+		}
+		return targets;
+	}
+
+	/**
+	 * This method finds every Route with a certain Stop, in one feed or in every feed that has the Stop.
+	 *
+	 * @param stopID a stop_id, optionally namespaced
+	 * @return the Routes found, keyed by namespaced route_id
+	 */
+	public LinkedHashMap<String, Route> findRoutesWithStop(String stopID) {
+		LinkedHashMap<String, Route> routes = new LinkedHashMap<>();
+		for (Map.Entry<String, String> target : resolve(stopID).entrySet()) {
+			TransitData feed = feeds.get(target.getKey());
+			if (feed != null) {
+				for (Route route : feed.findRoutesWithStop(target.getValue())) {
+					routes.put(qualify(target.getKey(), route.getRouteID()), route);
+				}
+			}
+		}
+		return routes;
+	}
+
+	/**
+	 * This method finds every Trip arriving at a Stop after a certain time on a certain date, in one feed or in
+	 * every feed that has the Stop, merged in order of arrival.
+	 *
+	 * @param stopID a stop_id, optionally namespaced
+	 * @param date the date to look at
+	 * @param afterTime number of seconds since midnight; only arrivals after this time are included
+	 * @return the arrivals found, ordered by arrival time
+	 */
+	public ArrayList<Arrival> findUpcomingTrips(String stopID, LocalDate date, int afterTime) {
+		ArrayList<Arrival> arrivals = new ArrayList<>();
+		for (Map.Entry<String, String> target : resolve(stopID).entrySet()) {
+			TransitData feed = feeds.get(target.getKey());
+			if (feed != null) {
+				ArrayList<Integer> arrivalTimes = new ArrayList<>();
+				ArrayList<Trip> trips = feed.findUpcomingTrips(target.getValue(), date, afterTime, arrivalTimes);
+				for (int i = 0; i < trips.size(); i++) {
+					arrivals.add(new Arrival(target.getKey(), trips.get(i), arrivalTimes.get(i)));
+				}
+			}
+		}
+
+		//each feed's arrivals are already in order, and a stable sort keeps feeds in name order on ties
+		arrivals.sort(Comparator.comparingInt(Arrival::getArrivalTime));
+		return arrivals;
+	}
+
+	/**
+	 * This method finds every Stop that can be reached from a Stop within a number of minutes on a certain date,
+	 * in one feed or in every feed that has the Stop. Feeds are searched separately, so transfers between agencies
+	 * are not taken into account.
+	 *
+	 * @param stopID a stop_id, optionally namespaced
+	 * @param date the service date
+	 * @param startTime number of seconds since the start of the service day at which the rider starts
+	 * @param budgetMinutes number of minutes the rider is willing to travel
+	 * @return namespaced stop_id(s) of the reachable Stops mapped to their earliest arrival time (in seconds),
+	 *         ordered by arrival
+	 */
+	public LinkedHashMap<String, Integer> findReachableStops(String stopID, LocalDate date, int startTime,
+															 int budgetMinutes) {
+		ArrayList<Map.Entry<String, Integer>> reachable = new ArrayList<>();
+		for (Map.Entry<String, String> target : resolve(stopID).entrySet()) {
+			TransitData feed = feeds.get(target.getKey());
+			if (feed != null) {
+				for (Map.Entry<String, Integer> stop : feed.findReachableStops(target.getValue(), date, startTime,
+						budgetMinutes).entrySet()) {
+					reachable.add(new AbstractMap.SimpleImmutableEntry<>(
+							qualify(target.getKey(), stop.getKey()), stop.getValue()));
+				}
+			}
+		}
+		reachable.sort(Map.Entry.comparingByValue());
+
+		LinkedHashMap<String, Integer> reachableStops = new LinkedHashMap<>();
+		for (Map.Entry<String, Integer> stop : reachable) {
+			reachableStops.put(stop.getKey(), stop.getValue());
+		}
+		return reachableStops;
+	}
+
+	/**
+	 * A Trip arriving at a Stop, along with the feed it belongs to.
+	 */
+	public static final class Arrival {
+		private final String feedName;
+		private final Trip trip;
+		private final int arrivalTime;
+
+		private Arrival(String feedName, Trip trip, int arrivalTime) {
+			this.feedName = feedName;
+			this.trip = trip;
+			this.arrivalTime = arrivalTime;
+		}
+
+		/**
+		 * @return the Trip's trip_id, namespaced by its feed
+		 */
+		public String getQualifiedTripID() {
+			return qualify(feedName, trip.getTripID());
+		}
+
+		//getters
+		public String getFeedName() { return feedName; }
+		public Trip getTrip() { return trip; }
+		public int getArrivalTime() { return arrivalTime; }
+	}
+}
@@ -0,0 +1,90 @@
+/**
+ * This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ * This class numbers the distinct values of a GTFS column, so objects can keep a small int code instead of their own
+ * copy of a String. It suits columns with few distinct values that are repeated on many lines, such as the
+ * "pickup_type" of every StopTime: a feed with millions of StopTimes usually has fewer than ten different values.
+ *
+ * Codes are handed out in the order values are first seen and are never taken back. Only handing out a new code is
+ * synchronized; encoding a value that has been seen before and decoding are lock free, so several feeds can be
+ * parsed at the same time without waiting on each other.
+ */
+package transit;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class FieldDictionary {
+	//code of the empty String, which every dictionary starts with
+	public static final int EMPTY = 0;
+
+	private final ConcurrentHashMap<String, Integer> codes = new ConcurrentHashMap<>();
+	private volatile String[] values = new String[16];
+	private int size;
+
+	/**
+	 * Creates a dictionary holding only the empty String.
+	 */
+	public FieldDictionary() {
+		addValue("");
+	}
+
+	/**
+	 * This method finds the code of a value, giving it the next free code if it has not been seen before.
+	 *
+	 * @param value the value to encode (null is treated as empty)
+	 * @return the code of the value
+	 */
+	public int encode(String value) {
+		if (value == null || value.isEmpty()) {
+			return EMPTY;
+		}
+		Integer code = codes.get(value);
+		return code != null ? code : addValue(value);
+	}
+
+	/**
+	 * Stores a value under the next free code, unless another thread stored it first. The value is published in
+	 * the array before its code, so any thread that can see the code can also decode it.
+	 */
+	private synchronized int addValue(String value) {
+		Integer code = codes.get(value);
+		if (code != null) {
+			return code;
+		}
+		String[] currentValues = values;
+		if (size == currentValues.length) {
+			currentValues = Arrays.copyOf(currentValues, size * 2);
+		}
+		currentValues[size] = value;
+		values = currentValues;
+		codes.put(value, size);
+		return size++;
+	}
+
+	/**
+	 * @param code a code returned by "encode()"
+	 * @return the value with that code
+	 */
+	public String decode(int code) {
+		return values[code];
+	}
+
+	/**
+	 * @return number of distinct values, including the empty String
+	 */
+	public synchronized int size() {
+		return size;
+	}
+}
@@ -0,0 +1,229 @@
+/**
+ * This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ * This class describes the walking transfers between Stops. GTFS feeds often leave out "transfers.txt", so Stops on
+ * opposite sides of the same street would otherwise look completely unrelated. The graph is generated from Stop
+ * coordinates whenever Stops are parsed, linking every pair of Stops within a walking radius of each other.
+ *
+ * Stops are bucketed into a grid whose cells are at least one walking radius wide, so each Stop only has to be
+ * compared against the Stops in its own and its 8 surrounding cells instead of every other Stop. The resulting
+ * edges are stored as compact adjacency arrays (CSR layout): the neighbors of Stop "i" are found in
+ * neighbors[offsets[i]] to neighbors[offsets[i + 1] - 1].
+ */
+package transit;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+public class FootpathGraph {
+	//default walking radius in meters and average walking speed in meters/second
+	public static final double DEFAULT_WALKING_RADIUS = 250.0;
+	public static final double WALKING_SPEED = 1.33;
+
+	//approximate number of meters in a single degree of latitude
+	private static final double METERS_PER_DEGREE = 111320.0;
+
+	private final double walkingRadius;
+	private final String[] stopIDs;
+	private final HashMap<String, Integer> stopIndexes;
+
+	//CSR adjacency arrays
+	private final int[] offsets;
+	private final int[] neighbors;
+	private final float[] distances;
+
+	/**
+	 * Builds the walking graph for a list of Stops. Stop indexes in the graph match the order of the given list.
+	 *
+	 * @param stops every known Stop
+	 * @param walkingRadius maximum walking distance between two linked Stops in meters
+	 */
+	public FootpathGraph(List<Stop> stops, double walkingRadius) {
+		this.walkingRadius = walkingRadius;
+		int numStops = stops.size();
+
+		//copy coordinates into primitive arrays so the inner loops do not chase object references
+		double[] latitudes = new double[numStops];
+		double[] longitudes = new double[numStops];
+		stopIDs = new String[numStops];
+		stopIndexes = new HashMap<>(numStops * 2);
+		double maxAbsLatitude = 0;
+		for (int i = 0; i < numStops; i++) {
+			Stop stop = stops.get(i);
+			latitudes[i] = stop.getLatitude();
+			longitudes[i] = stop.getLongitude();
+			stopIDs[i] = stop.getStopID();
+			stopIndexes.put(stop.getStopID(), i);
+			maxAbsLatitude = Math.max(maxAbsLatitude, Math.abs(latitudes[i]));
+		}
+
+		/*
+		 * Size the grid cells in degrees so that a cell is at least one walking radius wide everywhere in the feed.
+		 * Degrees of longitude shrink towards the poles, so the widest latitude in the feed decides the longitude size.
+		 */
+		double cellLatSize = Math.max(walkingRadius, 1.0) / METERS_PER_DEGREE;
+		double cellLonSize = cellLatSize / Math.max(Math.cos(Math.toRadians(Math.min(maxAbsLatitude, 89.0))), 0.01);
+
+		//give every Stop a cell key and sort the Stops by that key so each cell is a contiguous run
+		long[] cellKeys = new long[numStops];
+		for (int i = 0; i < numStops; i++) {
+			cellKeys[i] = cellKey((int) Math.floor(latitudes[i] / cellLatSize),
+					(int) Math.floor(longitudes[i] / cellLonSize));
+		}
+		Integer[] boxedOrder = new Integer[numStops];
+		for (int i = 0; i < numStops; i++) {
+			boxedOrder[i] = i;
+		}
+		Arrays.sort(boxedOrder, (a, b) -> Long.compare(cellKeys[a], cellKeys[b]));
+		int[] sortedStops = new int[numStops];
+		long[] sortedKeys = new long[numStops];
+		for (int i = 0; i < numStops; i++) {
+			sortedStops[i] = boxedOrder[i];
+			sortedKeys[i] = cellKeys[boxedOrder[i]];
+		}
+
+		//collect each linked pair once (i < j) into growable edge buffers
+		int[] edgeFrom = new int[Math.max(16, numStops)];
+		int[] edgeTo = new int[edgeFrom.length];
+		float[] edgeDistance = new float[edgeFrom.length];
+		int numEdges = 0;
+		int[] degree = new int[numStops];
+
+		for (int i = 0; i < numStops; i++) {
+			int cellLat = (int) Math.floor(latitudes[i] / cellLatSize);
+			int cellLon = (int) Math.floor(longitudes[i] / cellLonSize);
+
+			//only the 3x3 block of cells around a Stop can contain Stops within the walking radius
+			for (int dLat = -1; dLat <= 1; dLat++) {
+				for (int dLon = -1; dLon <= 1; dLon++) {
+					long key = cellKey(cellLat + dLat, cellLon + dLon);
+					int position = lowerBound(sortedKeys, key);
+					while (position < numStops && sortedKeys[position] == key) {
+						int j = sortedStops[position];
+						position++;
+						if (j <= i) {
+							continue;
+						}
+
+						double meters = Trip.calcCoordinateDistance(latitudes[i], longitudes[i],
+								latitudes[j], longitudes[j]) * 1000;
+						if (meters <= walkingRadius) {
+							if (numEdges == edgeFrom.length) {
+								edgeFrom = Arrays.copyOf(edgeFrom, numEdges * 2);
+								edgeTo = Arrays.copyOf(edgeTo, numEdges * 2);
+								edgeDistance = Arrays.copyOf(edgeDistance, numEdges * 2);
+							}
+							edgeFrom[numEdges] = i;
+							edgeTo[numEdges] = j;
+							edgeDistance[numEdges] = (float) meters;
+							numEdges++;
+							degree[i]++;
+							degree[j]++;
+						}
+					}
+				}
+			}
+		}
+
+		//lay the undirected edges out in both directions as CSR arrays
+		offsets = new int[numStops + 1];
+		for (int i = 0; i < numStops; i++) {
+			offsets[i + 1] = offsets[i] + degree[i];
+		}
+		neighbors = new int[offsets[numStops]];
+		distances = new float[offsets[numStops]];
+		int[] nextSlot = Arrays.copyOf(offsets, numStops);
+		for (int e = 0; e < numEdges; e++) {
+			int from = edgeFrom[e];
+			int to = edgeTo[e];
+			neighbors[nextSlot[from]] = to;
+			distances[nextSlot[from]++] = edgeDistance[e];
+			neighbors[nextSlot[to]] = from;
+			distances[nextSlot[to]++] = edgeDistance[e];
+		}
+	}
+
+	/**
+	 * Packs a pair of grid cell coordinates into a single sortable key.
+	 */
+	private static long cellKey(int cellLat, int cellLon) {
+		return ((long) cellLat << 32) | (cellLon & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Finds the first position in a sorted array whose value is greater than or equal to the given key.
+	 */
+	private static int lowerBound(long[] sortedKeys, long key) {
+		int low = 0;
+		int high = sortedKeys.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (sortedKeys[mid] < key) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * This method finds the stop_id(s) of every Stop within walking distance of the given Stop.
+	 *
+	 * @param stopID the ID of the Stop to walk from
+	 * @return stop_id(s) of the reachable Stops, empty if the Stop is unknown
+	 */
+	public String[] findWalkableStops(String stopID) {
+		Integer stopIndex = stopIndexes.get(stopID);
+		if (stopIndex == null) {
+			return new String[0];
+		}
+		String[] walkable = new String[getDegree(stopIndex)];
+		for (int e = offsets[stopIndex]; e < offsets[stopIndex + 1]; e++) {
+			walkable[e - offsets[stopIndex]] = stopIDs[neighbors[e]];
+		}
+		return walkable;
+	}
+
+	/**
+	 * Number of seconds it takes to walk the given footpath at the average walking speed.
+	 *
+	 * @param edge position of the footpath in the adjacency arrays
+	 * @return walking time in whole seconds
+	 */
+	public int getWalkingSeconds(int edge) {
+		return (int) Math.ceil(distances[edge] / WALKING_SPEED);
+	}
+
+	/**
+	 * @param stopID the ID of a Stop
+	 * @return the Stop's index in the graph or -1 if it is not in the graph
+	 */
+	public int indexOf(String stopID) {
+		Integer stopIndex = stopIndexes.get(stopID);
+		return stopIndex == null ? -1 : stopIndex;
+	}
+
+	//getters
+	public double getWalkingRadius() { return walkingRadius; }
+	public int getStopCount() { return stopIDs.length; }
+	public int getEdgeCount() { return neighbors.length; }
+	public String getStopID(int stopIndex) { return stopIDs[stopIndex]; }
+	public int getDegree(int stopIndex) { return offsets[stopIndex + 1] - offsets[stopIndex]; }
+	public int getFirstEdge(int stopIndex) { return offsets[stopIndex]; }
+	public int getEndEdge(int stopIndex) { return offsets[stopIndex + 1]; }
+	public int getNeighbor(int edge) { return neighbors[edge]; }
+	public float getDistance(int edge) { return distances[edge]; }
+}
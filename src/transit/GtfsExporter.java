@@ -0,0 +1,276 @@
+/**
+ * This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ * This class writes the Routes, Trips, Stops and StopTimes of a TransitData back out as GTFS text files that can be
+ * imported again. Rows are written one at a time straight from the objects through a buffered writer, so no file is
+ * ever held in memory as a whole and exporting takes the same small amount of memory no matter how big the feed is.
+ *
+ * When exporting to separate files, the four files are written at the same time on their own threads. A zip
+ * archive can only be written one entry after another, so zipped exports write the files in turn.
+ */
+package transit;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+public class GtfsExporter {
+	//size of the buffer between the rows and the file
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	//names of the exported files, in the order they are parsed
+	public static final String[] FILE_NAMES = {"routes.txt", "trips.txt", "stops.txt", "stop_times.txt"};
+
+	//route_type of a bus Route
+	private static final String BUS_ROUTE_TYPE = "3";
+
+	//header written at the top of each file
+	static final String ROUTE_FIRST_LINE = "route_id,route_short_name,route_long_name,route_type,route_color";
+	static final String TRIP_FIRST_LINE = "route_id,service_id,trip_id,trip_headsign,direction_id,block_id,shape_id";
+	static final String STOP_FIRST_LINE = "stop_id,stop_name,stop_desc,stop_lat,stop_lon";
+	static final String STOP_TIME_FIRST_LINE = "trip_id,arrival_time,departure_time,stop_id,stop_sequence,stop_headsign,pickup_type,drop_off_type";
+
+	private final TransitData transitData;
+
+	/**
+	 * Creates an exporter for the data of the given TransitData.
+	 *
+	 * @param transitData the data store to export
+	 */
+	public GtfsExporter(TransitData transitData) {
+		this.transitData = transitData;
+	}
+
+	/**
+	 * This method writes each GTFS file to the matching target file, chosen by name (for example, Routes are
+	 * written to the target named "routes.txt"). Targets with any other name are ignored and left untouched. Every
+	 * file is written on its own thread.
+	 *
+	 * @param targetFiles the files to write
+	 * @throws IOException thrown if any of the files cannot be written
+	 */
+	public void exportFiles(List<File> targetFiles) throws IOException {
+		ArrayList<Callable<Void>> writers = new ArrayList<>();
+		for (File targetFile : targetFiles) {
+			String fileName = targetFile.getName().toLowerCase();
+			if (!Arrays.asList(FILE_NAMES).contains(fileName)) {
+				continue;
+			}
+			writers.add(() -> {
+				try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(
+						Files.newOutputStream(targetFile.toPath()), StandardCharsets.UTF_8), BUFFER_SIZE)) {
+					writeFile(fileName, writer);
+				}
+				return null;
+			});
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, writers.size()));
+		try {
+			for (Future<Void> result : executor.invokeAll(writers)) {
+				result.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("GTFS export was interrupted.", e);
+		} catch (ExecutionException e) {
+			throw e.getCause() instanceof IOException ? (IOException) e.getCause()
+					: new IOException("GTFS export failed.", e.getCause());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * This method writes all four GTFS files into a single zip archive.
+	 *
+	 * @param zipFile the archive to write
+	 * @throws IOException thrown if the archive cannot be written
+	 */
+	public void exportZip(File zipFile) throws IOException {
+		try (OutputStream fileStream = Files.newOutputStream(zipFile.toPath());
+			 ZipOutputStream zipStream = new ZipOutputStream(fileStream)) {
+			//the writer must not close the zip stream between entries, only flush into it
+			BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(zipStream, StandardCharsets.UTF_8),
+					BUFFER_SIZE);
+			for (String fileName : FILE_NAMES) {
+				zipStream.putNextEntry(new ZipEntry(fileName));
+				writeFile(fileName, writer);
+				zipStream.closeEntry();
+			}
+		}
+	}
+
+	/**
+	 * Writes the rows of the GTFS file with the given name, then flushes the writer.
+	 */
+	private void writeFile(String fileName, BufferedWriter writer) throws IOException {
+		switch (fileName) {
+			case "routes.txt":
+				writeRoutes(writer);
+				break;
+			case "trips.txt":
+				writeTrips(writer);
+				break;
+			case "stops.txt":
+				writeStops(writer);
+				break;
+			case "stop_times.txt":
+				writeStopTimes(writer);
+				break;
+		}
+		writer.flush();
+	}
+
+	/**
+	 * Writes "routes.txt", with only the columns a Route keeps. GTFS needs a route_type and at least one of the two
+	 * names, so a Route without a route_type is written as a bus Route and one without names is named by its
+	 * route_id.
+	 */
+	private void writeRoutes(BufferedWriter writer) throws IOException {
+		writer.write(ROUTE_FIRST_LINE);
+		writer.newLine();
+		for (Route route : new ArrayList<>(transitData.getAllRoutes())) {
+			boolean unnamed = route.getShortName().isEmpty() && route.getLongName().isEmpty();
+			writeField(writer, route.getRouteID());
+			writer.write(',');
+			writeField(writer, unnamed ? route.getRouteID() : route.getShortName());
+			writer.write(',');
+			writeField(writer, route.getLongName());
+			writer.write(',');
+			writeField(writer, route.getRouteType().isEmpty() ? BUS_ROUTE_TYPE : route.getRouteType());
+			writer.write(',');
+			writeField(writer, route.getColorHex());
+			writer.newLine();
+		}
+	}
+
+	/**
+	 * Writes "trips.txt".
+	 */
+	private void writeTrips(BufferedWriter writer) throws IOException {
+		writer.write(TRIP_FIRST_LINE);
+		writer.newLine();
+		for (Trip trip : new ArrayList<>(transitData.getAllTrips())) {
+			writeField(writer, trip.getRouteID());
+			writer.write(',');
+			writeField(writer, trip.getServiceID());
+			writer.write(',');
+			writeField(writer, trip.getTripID());
+			writer.write(',');
+			writeField(writer, trip.getTripHeadsign());
+			writer.write(',');
+			writer.write(Integer.toString(trip.getDirectionID()));
+			writer.write(',');
+			writeField(writer, trip.getBlockID());
+			writer.write(',');
+			writeField(writer, trip.getShapeID());
+			writer.newLine();
+		}
+	}
+
+	/**
+	 * Writes "stops.txt".
+	 */
+	private void writeStops(BufferedWriter writer) throws IOException {
+		writer.write(STOP_FIRST_LINE);
+		writer.newLine();
+		for (Stop stop : new ArrayList<>(transitData.getAllStops())) {
+			writeField(writer, stop.getStopID());
+			writer.write(',');
+			writeField(writer, stop.getName());
+			writer.write(',');
+			writeField(writer, stop.getDesc());
+			writer.write(',');
+			writer.write(Double.toString(stop.getLatitude()));
+			writer.write(',');
+			writer.write(Double.toString(stop.getLongitude()));
+			writer.newLine();
+		}
+	}
+
+	/**
+	 * Writes "stop_times.txt", one Trip's StopTimes after another.
+	 */
+	private void writeStopTimes(BufferedWriter writer) throws IOException {
+		writer.write(STOP_TIME_FIRST_LINE);
+		writer.newLine();
+		for (Trip trip : new ArrayList<>(transitData.getAllTrips())) {
+			for (StopTime stopTime : trip.getStopSequence()) {
+				writeField(writer, stopTime.getTripID());
+				writer.write(',');
+				writeField(writer, stopTime.getArrivalTime());
+				writer.write(',');
+				writeField(writer, stopTime.getDepartureTime());
+				writer.write(',');
+				writeField(writer, stopTime.getStopID());
+				writer.write(',');
+				writeField(writer, stopTime.getStopSequence());
+				writer.write(',');
+				writeField(writer, stopTime.getStopHeadsign());
+				writer.write(',');
+				writeField(writer, stopTime.getPickupType());
+				writer.write(',');
+				writeField(writer, stopTime.getDropoffType());
+				writer.newLine();
+			}
+		}
+	}
+
+	/**
+	 * Writes a single CSV field. Fields are kept exactly as parsed when they are already quoted; otherwise, fields
+	 * containing commas, quotes or line breaks are quoted with any inner quotes doubled.
+	 */
+	static void writeField(Writer writer, String value) throws IOException {
+		if (value == null || value.isEmpty()) {
+			return;
+		}
+		boolean alreadyQuoted = value.length() >= 2 && value.charAt(0) == '"' && value.charAt(value.length() - 1) == '"';
+		boolean needsQuotes = false;
+		if (!alreadyQuoted) {
+			for (int i = 0; i < value.length() && !needsQuotes; i++) {
+				char character = value.charAt(i);
+				needsQuotes = character == ',' || character == '"' || character == '\n' || character == '\r';
+			}
+		}
+		if (!needsQuotes) {
+			writer.write(value);
+			return;
+		}
+		writer.write('"');
+		for (int i = 0; i < value.length(); i++) {
+			char character = value.charAt(i);
+			if (character == '"') {
+				writer.write('"');
+			}
+			writer.write(character);
+		}
+		writer.write('"');
+	}
+}
@@ -0,0 +1,179 @@
+/**
+ * This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ * This class maps the columns a GTFS file happens to have onto the columns the program uses. GTFS only names the
+ * columns in the first line of each file; feeds are free to put them in any order and to add columns of their own.
+ * The header is read once per file to find where each wanted column is, and every row after that is scanned a single
+ * time, only cutting out the wanted columns. Columns that are not wanted are skipped without being copied, and the
+ * scan stops as soon as the last wanted column has been read, so wide files cost little more than narrow ones.
+ *
+ * Wanted columns are either required (a file without them cannot be used) or optional (left empty when missing).
+ * Rows are returned with the required columns first, followed by the optional ones, in the order they were asked for.
+ */
+package transit;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+public class GtfsSchema {
+	//columns used from each file, required ones first
+	public static final String[] ROUTE_REQUIRED = {"route_id"};
+	public static final String[] ROUTE_OPTIONAL = {"route_color", "route_short_name", "route_long_name",
+			"route_type"};
+	public static final String[] TRIP_REQUIRED = {"route_id", "service_id", "trip_id"};
+	public static final String[] TRIP_OPTIONAL = {"trip_headsign", "direction_id", "block_id", "shape_id"};
+	public static final String[] STOP_REQUIRED = {"stop_id", "stop_lat", "stop_lon"};
+	public static final String[] STOP_OPTIONAL = {"stop_name", "stop_desc"};
+	public static final String[] STOP_TIME_REQUIRED = {"trip_id", "stop_id", "stop_sequence"};
+	public static final String[] STOP_TIME_OPTIONAL = {"arrival_time", "departure_time", "stop_headsign",
+			"pickup_type", "drop_off_type"};
+	public static final String[] CALENDAR_REQUIRED = {"service_id", "monday", "tuesday", "wednesday", "thursday",
+			"friday", "saturday", "sunday", "start_date", "end_date"};
+	public static final String[] CALENDAR_DATE_REQUIRED = {"service_id", "date", "exception_type"};
+	public static final String[] NO_COLUMNS = {};
+
+	//wanted column names, and where each one is in the file (-1 if the file does not have it)
+	private final String[] columns;
+	private final int numRequired;
+	private final int[] columnPositions;
+
+	//for each column of the file, which wanted column it is (-1 if it is not wanted)
+	private final int[] fieldSlots;
+
+	//position of the last wanted column in the file, after which a row does not need to be scanned any further
+	private final int lastPosition;
+
+	/**
+	 * Reads the header of a GTFS file.
+	 *
+	 * @param headerLine the first line of the file
+	 * @param requiredColumns names of the columns the file must have
+	 * @param optionalColumns names of the columns that are used if the file has them
+	 */
+	public GtfsSchema(String headerLine, String[] requiredColumns, String[] optionalColumns) {
+		numRequired = requiredColumns.length;
+		columns = Arrays.copyOf(requiredColumns, numRequired + optionalColumns.length);
+		System.arraycopy(optionalColumns, 0, columns, numRequired, optionalColumns.length);
+
+		String[] headerNames = splitHeader(headerLine);
+		HashMap<String, Integer> headerPositions = new HashMap<>(headerNames.length * 2);
+		for (int i = headerNames.length - 1; i >= 0; i--) {
+			headerPositions.put(headerNames[i], i);
+		}
+
+		columnPositions = new int[columns.length];
+		fieldSlots = new int[headerNames.length];
+		Arrays.fill(fieldSlots, -1);
+		int last = -1;
+		for (int slot = 0; slot < columns.length; slot++) {
+			Integer position = headerPositions.get(columns[slot]);
+			columnPositions[slot] = position == null ? -1 : position;
+			if (position != null) {
+				fieldSlots[position] = slot;
+				last = Math.max(last, position);
+			}
+		}
+		lastPosition = last;
+	}
+
+	/**
+	 * Splits a header into its trimmed column names, dropping any quotes and the byte order mark some editors add.
+	 */
+	private static String[] splitHeader(String headerLine) {
+		if (headerLine == null) {
+			return new String[0];
+		}
+		if (headerLine.startsWith("\uFEFF")) {
+			headerLine = headerLine.substring(1);
+		}
+		String[] headerNames = headerLine.split(",", -1);
+		for (int i = 0; i < headerNames.length; i++) {
+			headerNames[i] = headerNames[i].replace("\"", "").trim();
+		}
+		return headerNames;
+	}
+
+	/**
+	 * This method checks whether a header has every required column, wherever they are.
+	 *
+	 * @param headerLine the first line of a GTFS file
+	 * @param requiredColumns names of the columns the file must have
+	 * @return true if the header names every required column
+	 */
+	public static boolean hasColumns(String headerLine, String[] requiredColumns) {
+		return new GtfsSchema(headerLine, requiredColumns, NO_COLUMNS).isValid();
+	}
+
+	/**
+	 * @return true if the file has every required column
+	 */
+	public boolean isValid() {
+		return getMissingColumns().isEmpty();
+	}
+
+	/**
+	 * @return names of the required columns the file does not have
+	 */
+	public ArrayList<String> getMissingColumns() {
+		ArrayList<String> missingColumns = new ArrayList<>();
+		for (int slot = 0; slot < numRequired; slot++) {
+			if (columnPositions[slot] < 0) {
+				missingColumns.add(columns[slot]);
+			}
+		}
+		return missingColumns;
+	}
+
+	/**
+	 * This method cuts the wanted columns out of a single row. Commas inside of quotes do not end a column, and
+	 * quotes are kept as they are. Wanted columns the file does not have are left empty.
+	 *
+	 * @param line a row of the file
+	 * @param fields receives the wanted columns, required ones first, and must be "getColumnCount()" long
+	 * @return true if the row reached every wanted column the file has, false if it ended too early
+	 */
+	public boolean readRow(String line, String[] fields) {
+		Arrays.fill(fields, "");
+		int length = line.length();
+		int column = 0;
+		int start = 0;
+		boolean quoted = false;
+		for (int i = 0; i < length && column <= lastPosition; i++) {
+			char character = line.charAt(i);
+			if (character == '"') {
+				quoted = !quoted;
+			} else if (character == ',' && !quoted) {
+				if (fieldSlots[column] >= 0) {
+					fields[fieldSlots[column]] = line.substring(start, i);
+				}
+				column++;
+				start = i + 1;
+			}
+		}
+
+		//the rest of the line is the final column
+		if (column <= lastPosition) {
+			if (column < fieldSlots.length && fieldSlots[column] >= 0) {
+				fields[fieldSlots[column]] = line.substring(start);
+			}
+			column++;
+		}
+		return column > lastPosition;
+	}
+
+	//getters
+	public int getColumnCount() { return columns.length; }
+	public int getColumnPosition(int slot) { return columnPositions[slot]; }
+}
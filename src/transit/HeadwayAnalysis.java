@@ -0,0 +1,236 @@
+/**
+ * This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ * This class analyzes how often Trips run. Trips are grouped by Route, direction and service_id, ordered by their
+ * first departure, and the headway of each Trip is the time since the Trip before it in its group departed. The
+ * headways are then summarized for each window of the service day (one hour by default).
+ *
+ * Runs of at least MIN_RUN_TRIPS Trips of a group that depart at an even headway, visit the same Stops and take the
+ * same time between each Stop are also found and reported the way GTFS "frequencies.txt" would describe them: a first
+ * departure, a last departure, a headway and a Trip the others follow. The runs are only reported; every Trip of a
+ * run is still stored in the Timetable with its own StopTimes.
+ */
+package transit;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+public class HeadwayAnalysis {
+	//length of each window headways are summarized over, in seconds
+	public static final int DEFAULT_WINDOW_SECONDS = 3600;
+
+	//fewest Trips making up a frequency run, since any two Trips are evenly spaced
+	public static final int MIN_RUN_TRIPS = 3;
+
+	private final Timetable timetable;
+	private final int windowSeconds;
+	private final ArrayList<Headway> headways = new ArrayList<>();
+	private final ArrayList<FrequencyRun> frequencyRuns = new ArrayList<>();
+
+	/**
+	 * Analyzes the headways and frequency runs of every Trip in a Timetable.
+	 *
+	 * @param timetable the Timetable to analyze
+	 * @param windowSeconds length of each window headways are summarized over, in seconds
+	 */
+	public HeadwayAnalysis(Timetable timetable, int windowSeconds) {
+		if (windowSeconds <= 0) {
+			throw new IllegalArgumentException("The headway window must be at least one second long.");
+		}
+		this.timetable = timetable;
+		this.windowSeconds = windowSeconds;
+
+		//group the Trips by Route, direction and service_id, in the order each group is first seen
+		LinkedHashMap<List<Object>, ArrayList<Integer>> groups = new LinkedHashMap<>();
+		for (int t = 0; t < timetable.getTripCount(); t++) {
+			Trip trip = timetable.getTrip(t);
+			groups.computeIfAbsent(Arrays.asList(trip.getRouteID(), trip.getDirectionID(), trip.getServiceID()),
+					key -> new ArrayList<>()).add(t);
+		}
+
+		for (ArrayList<Integer> group : groups.values()) {
+			group.sort((a, b) -> Integer.compare(firstDeparture(a), firstDeparture(b)));
+			int[] trips = new int[group.size()];
+			for (int i = 0; i < trips.length; i++) {
+				trips[i] = group.get(i);
+			}
+			summarizeHeadways(trips);
+			findFrequencyRuns(trips);
+		}
+	}
+
+	/**
+	 * Summarizes the headways of one group of Trips, ordered by first departure, for each window a Trip departs in.
+	 */
+	private void summarizeHeadways(int[] trips) {
+		Trip first = timetable.getTrip(trips[0]);
+		int window = -1;
+		int tripCount = 0;
+		int minHeadway = Integer.MAX_VALUE;
+		int maxHeadway = 0;
+		long totalHeadway = 0;
+		int numHeadways = 0;
+		for (int i = 0; i < trips.length; i++) {
+			int departure = firstDeparture(trips[i]);
+			if (departure / windowSeconds != window) {
+				if (tripCount > 0) {
+					headways.add(new Headway(first, window * windowSeconds, windowSeconds, tripCount, minHeadway,
+							maxHeadway, numHeadways == 0 ? -1 : (int) (totalHeadway / numHeadways)));
+				}
+				window = departure / windowSeconds;
+				tripCount = 0;
+				minHeadway = Integer.MAX_VALUE;
+				maxHeadway = 0;
+				totalHeadway = 0;
+				numHeadways = 0;
+			}
+			tripCount++;
+
+			//the first Trip of a window is timed from the last Trip of the window before it
+			if (i > 0) {
+				int headway = departure - firstDeparture(trips[i - 1]);
+				minHeadway = Math.min(minHeadway, headway);
+				maxHeadway = Math.max(maxHeadway, headway);
+				totalHeadway += headway;
+				numHeadways++;
+			}
+		}
+		headways.add(new Headway(first, window * windowSeconds, windowSeconds, tripCount, minHeadway, maxHeadway,
+				numHeadways == 0 ? -1 : (int) (totalHeadway / numHeadways)));
+	}
+
+	/**
+	 * Finds the runs of evenly spaced Trips with the same Stops and times within one group of Trips, ordered by first
+	 * departure. Runs never overlap.
+	 */
+	private void findFrequencyRuns(int[] trips) {
+		int i = 0;
+		while (i < trips.length - 1) {
+			int headway = firstDeparture(trips[i + 1]) - firstDeparture(trips[i]);
+			int end = i + 1;
+			if (headway > 0 && sameTimes(trips[i], trips[end])) {
+				while (end + 1 < trips.length
+						&& firstDeparture(trips[end + 1]) - firstDeparture(trips[end]) == headway
+						&& sameTimes(trips[i], trips[end + 1])) {
+					end++;
+				}
+			}
+			if (headway > 0 && end - i + 1 >= MIN_RUN_TRIPS) {
+				frequencyRuns.add(new FrequencyRun(timetable, Arrays.copyOfRange(trips, i, end + 1), headway));
+				i = end + 1;
+			} else {
+				i++;
+			}
+		}
+	}
+
+	/**
+	 * Checks whether two Trips visit the same Stops with the same time from their first departure to each Stop.
+	 */
+	private boolean sameTimes(int tripA, int tripB) {
+		int firstA = timetable.getFirstStopTime(tripA);
+		int firstB = timetable.getFirstStopTime(tripB);
+		int length = timetable.getEndStopTime(tripA) - firstA;
+		if (timetable.getEndStopTime(tripB) - firstB != length) {
+			return false;
+		}
+		int shift = timetable.getDeparture(firstB) - timetable.getDeparture(firstA);
+		for (int s = 0; s < length; s++) {
+			if (timetable.getStopIndex(firstA + s) != timetable.getStopIndex(firstB + s)
+					|| timetable.getArrival(firstA + s) + shift != timetable.getArrival(firstB + s)
+					|| timetable.getDeparture(firstA + s) + shift != timetable.getDeparture(firstB + s)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private int firstDeparture(int trip) {
+		return timetable.getDeparture(timetable.getFirstStopTime(trip));
+	}
+
+	//getters
+	public int getWindowSeconds() { return windowSeconds; }
+	public List<Headway> getHeadways() { return Collections.unmodifiableList(headways); }
+	public List<FrequencyRun> getFrequencyRuns() { return Collections.unmodifiableList(frequencyRuns); }
+
+	/**
+	 * The headways of the Trips of one Route, direction and service_id departing within one window of the day.
+	 * Headways are in seconds; a window with a single Trip that is also the first Trip of its group has no headway,
+	 * which is given as -1.
+	 */
+	public static final class Headway {
+		private final String routeID;
+		private final int directionID;
+		private final String serviceID;
+		private final int windowStart;
+		private final int windowEnd;
+		private final int tripCount;
+		private final int minHeadway;
+		private final int maxHeadway;
+		private final int averageHeadway;
+
+		private Headway(Trip trip, int windowStart, int windowSeconds, int tripCount, int minHeadway,
+						int maxHeadway, int averageHeadway) {
+			this.routeID = trip.getRouteID();
+			this.directionID = trip.getDirectionID();
+			this.serviceID = trip.getServiceID();
+			this.windowStart = windowStart;
+			this.windowEnd = windowStart + windowSeconds;
+			this.tripCount = tripCount;
+			this.minHeadway = averageHeadway < 0 ? -1 : minHeadway;
+			this.maxHeadway = averageHeadway < 0 ? -1 : maxHeadway;
+			this.averageHeadway = averageHeadway;
+		}
+
+		//getters
+		public String getRouteID() { return routeID; }
+		public int getDirectionID() { return directionID; }
+		public String getServiceID() { return serviceID; }
+		public int getWindowStart() { return windowStart; }
+		public int getWindowEnd() { return windowEnd; }
+		public int getTripCount() { return tripCount; }
+		public int getMinHeadway() { return minHeadway; }
+		public int getMaxHeadway() { return maxHeadway; }
+		public int getAverageHeadway() { return averageHeadway; }
+	}
+
+	/**
+	 * Trips of one Route, direction and service_id departing at an even headway and visiting the same Stops at the
+	 * same times after their departure, as a row of GTFS "frequencies.txt" would describe them.
+	 */
+	public static final class FrequencyRun {
+		private final Timetable timetable;
+		private final int[] trips;
+		private final int startTime;
+		private final int headway;
+
+		private FrequencyRun(Timetable timetable, int[] trips, int headway) {
+			this.timetable = timetable;
+			this.trips = trips;
+			this.startTime = timetable.getDeparture(timetable.getFirstStopTime(trips[0]));
+			this.headway = headway;
+		}
+
+		//getters
+		public Trip getTrip(int run) { return timetable.getTrip(trips[run]); }
+		public int getTripCount() { return trips.length; }
+		public int getStartTime() { return startTime; }
+		public int getEndTime() { return startTime + (trips.length - 1) * headway; }
+		public int getHeadway() { return headway; }
+	}
+}
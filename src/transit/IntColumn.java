@@ -0,0 +1,199 @@
+/**
+ * This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ * This class is a fixed, read-only column of ints, such as the arrival time of every StopTime in a Timetable. The
+ * values are kept in an ordinary int array, or compressed.
+ *
+ * A compressed column Its values are split into blocks of BLOCK_SIZE values, and each value is stored
+ * as the difference from the value before it, in as few bytes as that difference needs (a "varint"). Times within a
+ * Trip only grow by a few minutes from one StopTime to the next, and stop events and connections are sorted by
+ * time, so most values take one or two bytes instead of four. Reading a single value decodes its block up to that
+ * value, which is slower than the other storages, while copying a range decodes each block in one pass.
+ *
+ * Values never change once the column is created, so any number of threads may read a column at the same time.
+ */
+package transit;
+
+import java.util.Arrays;
+
+public final class IntColumn {
+	/**
+	 * Where the values of a column are kept.
+	 */
+	public enum Storage {
+		//an int array
+		HEAP,
+		//delta and varint encoded bytes
+		COMPRESSED
+	}
+
+	//number of values in each block of a compressed column, a power of two so a block is found with a shift
+	public static final int BLOCK_SIZE = 32;
+	private static final int BLOCK_SHIFT = Integer.numberOfTrailingZeros(BLOCK_SIZE);
+
+	//values of an uncompressed column, or null if the column is compressed
+	private final int[] values;
+	private final Storage storage;
+
+	//encoded values of a compressed column, and the position in them where each block starts
+	private final byte[] packed;
+	private final int[] blockStarts;
+	private final int size;
+
+	private IntColumn(int[] values) {
+		this.values = values;
+		this.storage = Storage.HEAP;
+		this.packed = null;
+		this.blockStarts = null;
+		this.size = values.length;
+	}
+
+	private IntColumn(byte[] packed, int[] blockStarts, int size) {
+		this.values = null;
+		this.storage = Storage.COMPRESSED;
+		this.packed = packed;
+		this.blockStarts = blockStarts;
+		this.size = size;
+	}
+
+	/**
+	 * This method creates a column holding the given values. A heap column keeps the array itself, so the array
+	 * must not be changed afterwards.
+	 *
+	 * @param values the values of the column
+	 * @param storage how to keep the values
+	 * @return the new column
+	 */
+	public static IntColumn of(int[] values, Storage storage) {
+		return storage == Storage.COMPRESSED ? compress(values) : new IntColumn(values);
+	}
+
+	/**
+	 * Encodes the values block by block. The first value of a block is stored as its difference from zero, so any
+	 * block can be decoded without the blocks before it. Differences are zigzag encoded first, which gives small
+	 * negative differences (such as from the last StopTime of one Trip to the first StopTime of the next) small
+	 * codes as well.
+	 */
+	private static IntColumn compress(int[] values) {
+		int[] blockStarts = new int[(values.length + BLOCK_SIZE - 1) >>> BLOCK_SHIFT];
+		byte[] packed = new byte[Math.max(16, values.length * 2)];
+		int length = 0;
+		int previous = 0;
+		for (int i = 0; i < values.length; i++) {
+			if ((i & (BLOCK_SIZE - 1)) == 0) {
+				blockStarts[i >>> BLOCK_SHIFT] = length;
+				previous = 0;
+			}
+			//a varint of an int takes at most five bytes
+			if (length + 5 > packed.length) {
+				packed = Arrays.copyOf(packed, Math.max(packed.length * 3 / 2, length + 5));
+			}
+			int delta = values[i] - previous;
+			int code = (delta << 1) ^ (delta >> 31);
+			while ((code & ~0x7F) != 0) {
+				packed[length++] = (byte) ((code & 0x7F) | 0x80);
+				code >>>= 7;
+			}
+			packed[length++] = (byte) code;
+			previous = values[i];
+		}
+		return new IntColumn(Arrays.copyOf(packed, length), blockStarts, values.length);
+	}
+
+	/**
+	 * Decodes values of a compressed column into an array, from the start of the block holding "start" up to and
+	 * including "end", keeping only the values from "start" onwards.
+	 *
+	 * @return the last value decoded
+	 */
+	private int decode(int start, int end, int[] target, int targetStart) {
+		int position = 0;
+		int value = 0;
+		for (int i = start & -BLOCK_SIZE; i <= end; i++) {
+			if ((i & (BLOCK_SIZE - 1)) == 0) {
+				position = blockStarts[i >>> BLOCK_SHIFT];
+				value = 0;
+			}
+			int code = 0;
+			int shift = 0;
+			byte b;
+			do {
+				b = packed[position++];
+				code |= (b & 0x7F) << shift;
+				shift += 7;
+			} while (b < 0);
+			value += (code >>> 1) ^ -(code & 1);
+			if (target != null && i >= start) {
+				target[targetStart + i - start] = value;
+			}
+		}
+		return value;
+	}
+
+	/**
+	 * @param index position of a value
+	 * @return the value at that position
+	 */
+	public int get(int index) {
+		if (packed != null) {
+			if (index < 0 || index >= size) {
+				throw new IndexOutOfBoundsException("Index " + index + " is outside of a column of " + size);
+			}
+			return decode(index, index, null, 0);
+		}
+		return values[index];
+	}
+
+	/**
+	 * This method copies part of the column into an array, like "System.arraycopy()".
+	 *
+	 * @param start position of the first value to copy
+	 * @param target array to copy into
+	 * @param targetStart position in the array of the first copied value
+	 * @param length number of values to copy
+	 */
+	public void copyTo(int start, int[] target, int targetStart, int length) {
+		if (packed != null) {
+			if (start < 0 || length < 0 || start + length > size) {
+				throw new IndexOutOfBoundsException("Values " + start + " to " + (start + length)
+						+ " are outside of a column of " + size);
+			}
+			if (length > 0) {
+				decode(start, start + length - 1, target, targetStart);
+			}
+			return;
+		}
+		System.arraycopy(values, start, target, targetStart, length);
+	}
+
+	/**
+	 * @return a copy of every value of the column, on the heap
+	 */
+	public int[] toArray() {
+		int[] copy = new int[size()];
+		copyTo(0, copy, 0, copy.length);
+		return copy;
+	}
+
+	/**
+	 * @return number of bytes the values of the column take up
+	 */
+	public long getByteSize() {
+		return packed != null ? packed.length + (long) blockStarts.length * Integer.BYTES : (long) size * Integer.BYTES;
+	}
+
+	//getters
+	public int size() { return size; }
+	public Storage getStorage() { return storage; }
+}
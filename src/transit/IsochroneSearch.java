@@ -0,0 +1,185 @@
+/**
+ * This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ * This class finds every Stop that can be reached from an origin Stop within a time budget (an isochrone). The
+ * search scans the Timetable's connections in order of departure time (the Connection Scan Algorithm), so each
+ * hop of each Trip is looked at no more than once per search. Riders may transfer between Trips at any shared Stop
+ * and may walk along a single footpath of the FootpathGraph after arriving at a Stop.
+ *
+ * A search only reads the Timetable and FootpathGraph, so several searches may run at the same time.
+ */
+package transit;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+public class IsochroneSearch {
+	private static final int UNREACHED = Integer.MAX_VALUE;
+
+	private final Timetable timetable;
+	private final FootpathGraph footpathGraph;
+
+	//Timetable stop index <-> FootpathGraph stop index (-1 when the Stop is missing on the other side)
+	private final int[] footpathIndexes;
+	private final int[] timetableIndexes;
+
+	/**
+	 * Creates a search over the given Timetable and walking transfers.
+	 *
+	 * @param timetable the Timetable to search
+	 * @param footpathGraph walking transfers between Stops
+	 */
+	public IsochroneSearch(Timetable timetable, FootpathGraph footpathGraph) {
+		this.timetable = timetable;
+		this.footpathGraph = footpathGraph;
+		footpathIndexes = new int[timetable.getStopCount()];
+		for (int i = 0; i < footpathIndexes.length; i++) {
+			footpathIndexes[i] = footpathGraph.indexOf(timetable.getStopID(i));
+		}
+		timetableIndexes = new int[footpathGraph.getStopCount()];
+		for (int i = 0; i < timetableIndexes.length; i++) {
+			timetableIndexes[i] = timetable.indexOfStop(footpathGraph.getStopID(i));
+		}
+	}
+
+	/**
+	 * This method finds every Stop reachable from the origin Stop within the time budget.
+	 *
+	 * @param originStopID the stop_id to start from
+	 * @param startTime number of seconds since the start of the service day at which the rider starts
+	 * @param budget number of seconds the rider is willing to travel
+	 * @return stop_id(s) of the reachable Stops mapped to their earliest arrival time, ordered by arrival time
+	 */
+	public LinkedHashMap<String, Integer> search(String originStopID, int startTime, int budget) {
+		return search(originStopID, null, startTime, budget);
+	}
+
+	/**
+	 * This method finds every Stop reachable from the origin Stop within the time budget on a certain date, only
+	 * riding Trips whose service runs on that date.
+	 *
+	 * @param originStopID the stop_id to start from
+	 * @param date the service date, or null to ride every Trip regardless of its service
+	 * @param startTime number of seconds since the start of the service day at which the rider starts
+	 * @param budget number of seconds the rider is willing to travel
+	 * @return stop_id(s) of the reachable Stops mapped to their earliest arrival time, ordered by arrival time
+	 */
+	public LinkedHashMap<String, Integer> search(String originStopID, LocalDate date, int startTime, int budget) {
+		LinkedHashMap<String, Integer> reachable = new LinkedHashMap<>();
+		int origin = timetable.indexOfStop(originStopID);
+		if (origin < 0 || budget < 0) {
+			return reachable;
+		}
+		int limit = startTime + budget;
+
+		int[] earliestArrival = new int[timetable.getStopCount()];
+		Arrays.fill(earliestArrival, UNREACHED);
+		boolean[] tripBoarded = new boolean[timetable.getTripCount()];
+		BitSet activeTrips = date == null ? null : timetable.findActiveTrips(date);
+
+		earliestArrival[origin] = startTime;
+		walkFrom(origin, startTime, limit, earliestArrival);
+
+		//scan every connection departing within the time budget in order of departure, one block at a time
+		int numConnections = timetable.getConnectionCount();
+		int[] departures = new int[IntColumn.BLOCK_SIZE];
+		int[] trips = new int[IntColumn.BLOCK_SIZE];
+		int[] stopTimes = new int[IntColumn.BLOCK_SIZE];
+		scan:
+		for (int c = timetable.findFirstConnection(startTime); c < numConnections; ) {
+			//blocks end where the column's blocks end, so a compressed column never decodes a block twice
+			int length = Math.min(IntColumn.BLOCK_SIZE - (c & (IntColumn.BLOCK_SIZE - 1)), numConnections - c);
+			timetable.copyConnections(c, departures, trips, stopTimes, length);
+			c += length;
+
+			for (int i = 0; i < length; i++) {
+				int departure = departures[i];
+				if (departure > limit) {
+					break scan;
+				}
+
+				int trip = trips[i];
+				if (activeTrips != null && !activeTrips.get(trip)) {
+					continue;
+				}
+				int stopTime = stopTimes[i];
+
+				//a Trip can be used if the rider is already on it or has reached the Stop before it departs
+				if (tripBoarded[trip] || earliestArrival[timetable.getStopIndex(stopTime)] <= departure) {
+					tripBoarded[trip] = true;
+
+					int nextStop = timetable.getStopIndex(stopTime + 1);
+					int arrival = timetable.getArrival(stopTime + 1);
+					if (arrival <= limit && arrival < earliestArrival[nextStop]) {
+						earliestArrival[nextStop] = arrival;
+						walkFrom(nextStop, arrival, limit, earliestArrival);
+					}
+				}
+			}
+		}
+
+		//order the reachable Stops by arrival time
+		ArrayList<Integer> reachedStops = new ArrayList<>();
+		for (int s = 0; s < earliestArrival.length; s++) {
+			if (earliestArrival[s] != UNREACHED) {
+				reachedStops.add(s);
+			}
+		}
+		reachedStops.sort((a, b) -> Integer.compare(earliestArrival[a], earliestArrival[b]));
+		for (int s : reachedStops) {
+			reachable.put(timetable.getStopID(s), earliestArrival[s]);
+		}
+		return reachable;
+	}
+
+	/**
+	 * This method computes the isochrones of several origin Stops at once. Each origin is searched independently,
+	 * so the searches are spread across all available processor cores.
+	 *
+	 * @param originStopIDs the stop_id(s) to start from
+	 * @param date the service date, or null to ride every Trip regardless of its service
+	 * @param startTime number of seconds since the start of the service day at which riders start
+	 * @param budget number of seconds riders are willing to travel
+	 * @return the result of "search()" for each origin, keyed by origin stop_id
+	 */
+	public Map<String, LinkedHashMap<String, Integer>> searchAll(Collection<String> originStopIDs, LocalDate date,
+			int startTime, int budget) {
+		return originStopIDs.parallelStream().distinct().collect(Collectors.toConcurrentMap(
+				originStopID -> originStopID,
+				originStopID -> search(originStopID, date, startTime, budget)));
+	}
+
+	/**
+	 * Relaxes every footpath leaving the given Stop.
+	 */
+	private void walkFrom(int stop, int arrival, int limit, int[] earliestArrival) {
+		int footpathStop = footpathIndexes[stop];
+		if (footpathStop < 0) {
+			return;
+		}
+		for (int e = footpathGraph.getFirstEdge(footpathStop); e < footpathGraph.getEndEdge(footpathStop); e++) {
+			int neighbor = timetableIndexes[footpathGraph.getNeighbor(e)];
+			int walkArrival = arrival + footpathGraph.getWalkingSeconds(e);
+			if (neighbor >= 0 && walkArrival <= limit && walkArrival < earliestArrival[neighbor]) {
+				earliestArrival[neighbor] = walkArrival;
+			}
+		}
+	}
+}
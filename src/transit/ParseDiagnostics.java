@@ -0,0 +1,124 @@
+/**
+ * This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ * This class collects the problems found while parsing GTFS files. Logging every malformed line as it is found
+ * makes a badly formatted feed with millions of lines take far longer to load than a good one, so the parsers only
+ * record each problem here: a count per file and kind of problem, plus the first few offending lines as examples.
+ * Nothing is written anywhere until the load is over and a single summary is asked for.
+ */
+package transit;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+
+public class ParseDiagnostics {
+	//kinds of problems found while parsing
+	public static final String MISSING_COLUMNS = "missing required columns";
+	public static final String TOO_FEW_COLUMNS = "too few columns";
+	public static final String INVALID_NUMBER = "invalid number";
+	public static final String INVALID_DATE = "invalid date";
+	public static final String INVALID_VALUE = "invalid value";
+	public static final String UNKNOWN_TRIP = "unknown trip_id";
+	public static final String READ_ERROR = "read error";
+
+	//number of offending lines kept as examples, and how much of each line is kept
+	public static final int MAX_SAMPLES = 20;
+	private static final int MAX_SAMPLE_LENGTH = 200;
+
+	//number of problems per file and kind, kept sorted so the summary is always in the same order
+	private final ConcurrentSkipListMap<String, LongAdder> counts = new ConcurrentSkipListMap<>();
+	private final ArrayList<String> samples = new ArrayList<>();
+
+	/**
+	 * This method records a single problem.
+	 *
+	 * @param fileName name of the file the problem is in
+	 * @param kind kind of problem, such as TOO_FEW_COLUMNS
+	 * @param lineNumber line the problem is on (1 is the header)
+	 * @param line the offending line, kept if there is still room for examples (may be null)
+	 */
+	public void record(String fileName, String kind, int lineNumber, String line) {
+		counts.computeIfAbsent(fileName + ": " + kind, k -> new LongAdder()).increment();
+		synchronized (samples) {
+			if (samples.size() < MAX_SAMPLES) {
+				String sample = line == null ? "" : line.length() > MAX_SAMPLE_LENGTH
+						? line.substring(0, MAX_SAMPLE_LENGTH) + "..." : line;
+				samples.add(fileName + " line #" + lineNumber + " (" + kind + "): " + sample);
+			}
+		}
+	}
+
+	/**
+	 * This method forgets every recorded problem, ready for the next load.
+	 */
+	public void clear() {
+		counts.clear();
+		synchronized (samples) {
+			samples.clear();
+		}
+	}
+
+	/**
+	 * @return total number of problems recorded
+	 */
+	public long getProblemCount() {
+		long total = 0;
+		for (LongAdder count : counts.values()) {
+			total += count.sum();
+		}
+		return total;
+	}
+
+	/**
+	 * @param fileName name of a file
+	 * @param kind kind of problem
+	 * @return number of problems of that kind recorded in that file
+	 */
+	public long getProblemCount(String fileName, String kind) {
+		LongAdder count = counts.get(fileName + ": " + kind);
+		return count == null ? 0 : count.sum();
+	}
+
+	/**
+	 * @return the first offending lines, each with the file, line number and kind of problem
+	 */
+	public List<String> getSamples() {
+		synchronized (samples) {
+			return Collections.unmodifiableList(new ArrayList<>(samples));
+		}
+	}
+
+	/**
+	 * @return a report listing how many problems of each kind were found in each file, followed by examples
+	 */
+	public String summarize() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("GTFS load found ").append(getProblemCount()).append(" problem(s):\n");
+		for (Map.Entry<String, LongAdder> entry : counts.entrySet()) {
+			builder.append("  ").append(entry.getKey()).append(" x").append(entry.getValue().sum()).append('\n');
+		}
+		List<String> currentSamples = getSamples();
+		if (!currentSamples.isEmpty()) {
+			builder.append("First ").append(currentSamples.size()).append(" problem line(s):\n");
+			for (String sample : currentSamples) {
+				builder.append("  ").append(sample).append('\n');
+			}
+		}
+		return builder.toString();
+	}
+}
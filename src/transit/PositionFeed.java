@@ -0,0 +1,408 @@
+/**
+ * This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ * This class ingests live VehiclePositions and keeps the latest position of every Bus. Positions can be submitted
+ * directly or read from a file or socket, one "bus_id,trip_id,route_id,lat,lon,timestamp" line per position.
+ *
+ * Producers only ever add to a lock-free queue, so submitting never waits on a lock. The queue is bounded: a position
+ * submitted while it is full is dropped and counted rather than letting a slow applier grow it without limit. A
+ * single applier thread parks while the queue is empty and is woken by the next submit, then drains it in batches, stores the newest position of each Bus in a
+ * ConcurrentHashMap (which readers can query without locking), moves the Bus onto its reported location and Route,
+ * and hands each batch to every subscribed PositionListener. Every listener has its own delivery
+ * thread and a bounded backlog: a listener that falls too far behind skips batches instead of slowing everyone else
+ * down, and can always catch up through "getLatestPositions()".
+ */
+package transit;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+
+public class PositionFeed {
+	//maximum number of positions applied (and delivered to listeners) at once
+	public static final int BATCH_SIZE = 4096;
+
+	//maximum number of batches waiting to be delivered to a single listener
+	public static final int MAX_PENDING_BATCHES = 64;
+
+	//default maximum number of positions waiting to be applied
+	public static final int MAX_QUEUED_POSITIONS = 1 << 20;
+
+	private final TransitData transitData;
+	private final int maxQueuedPositions;
+	private final ConcurrentLinkedQueue<VehiclePosition> pendingPositions = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger queuedCount = new AtomicInteger();
+	private final ConcurrentHashMap<String, VehiclePosition> latestPositions = new ConcurrentHashMap<>();
+	private final CopyOnWriteArrayList<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+	private final Object applyLock = new Object();
+
+	private final AtomicLong numReceived = new AtomicLong();
+	private final AtomicLong numApplied = new AtomicLong();
+	private final AtomicLong numRejected = new AtomicLong();
+	private final AtomicLong numDropped = new AtomicLong();
+
+	private volatile Thread applierThread;
+	private volatile boolean running;
+
+	//set while the applier is about to park, so a submit only wakes it when it may be asleep
+	private volatile boolean applierWaiting;
+
+	/**
+	 * Creates a PositionFeed that moves the Buses of the given TransitData as positions arrive.
+	 *
+	 * @param transitData the data store whose Buses should be kept up to date
+	 */
+	public PositionFeed(TransitData transitData) {
+		this(transitData, MAX_QUEUED_POSITIONS);
+	}
+
+	/**
+	 * Creates a PositionFeed holding at most the given number of positions waiting to be applied.
+	 *
+	 * @param transitData the data store whose Buses should be kept up to date
+	 * @param maxQueuedPositions maximum number of positions waiting to be applied
+	 */
+	PositionFeed(TransitData transitData, int maxQueuedPositions) {
+		this.transitData = transitData;
+		this.maxQueuedPositions = maxQueuedPositions;
+	}
+
+	/**
+	 * Starts the background thread that applies submitted positions. Does nothing if it is already running.
+	 */
+	public synchronized void start() {
+		if (running) {
+			return;
+		}
+		running = true;
+		applierThread = new Thread(this::applyLoop, "position-feed-applier");
+		applierThread.setDaemon(true);
+		applierThread.start();
+	}
+
+	/**
+	 * Stops the background thread after it applies every position that was already submitted.
+	 */
+	public synchronized void stop() {
+		running = false;
+		if (applierThread != null) {
+			applierThread.interrupt();
+			try {
+				applierThread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			applierThread = null;
+		}
+		applyPendingPositions();
+	}
+
+	/**
+	 * This method queues a single position to be applied. It never blocks: if the queue is full, the position is
+	 * dropped and counted.
+	 *
+	 * @param position the position to apply
+	 */
+	public void submit(VehiclePosition position) {
+		numReceived.incrementAndGet();
+		if (queuedCount.incrementAndGet() > maxQueuedPositions) {
+			queuedCount.decrementAndGet();
+			numDropped.incrementAndGet();
+			return;
+		}
+		pendingPositions.offer(position);
+		if (applierWaiting) {
+			Thread applier = applierThread;
+			if (applier != null) {
+				LockSupport.unpark(applier);
+			}
+		}
+	}
+
+	/**
+	 * This method reads positions line by line and queues every correctly formatted one. Incorrectly formatted lines
+	 * are counted and skipped.
+	 *
+	 * @param reader the source of position lines
+	 * @return the number of positions queued
+	 * @throws IOException thrown if the source cannot be read
+	 */
+	public long ingest(Reader reader) throws IOException {
+		long numQueued = 0;
+		BufferedReader bufferedReader = new BufferedReader(reader, 1 << 16);
+		String line;
+		while ((line = bufferedReader.readLine()) != null) {
+			if (line.isEmpty() || line.startsWith("bus_id")) {
+				continue;
+			}
+			VehiclePosition position = VehiclePosition.parse(line);
+			if (position != null) {
+				submit(position);
+				numQueued++;
+			} else {
+				numRejected.incrementAndGet();
+			}
+		}
+		return numQueued;
+	}
+
+	/**
+	 * This method queues every position found in a file.
+	 *
+	 * @param file a text file of position lines
+	 * @return the number of positions queued
+	 * @throws IOException thrown if the file cannot be read
+	 */
+	public long ingestFile(File file) throws IOException {
+		try (Reader reader = new FileReader(file)) {
+			return ingest(reader);
+		}
+	}
+
+	/**
+	 * This method accepts connections on a local port and queues every position line sent through them. Each
+	 * connection is read on its own thread until the server socket is closed.
+	 *
+	 * @param port the local port to listen on (0 picks any free port)
+	 * @return the listening socket, which should be closed to stop accepting positions
+	 * @throws IOException thrown if the port cannot be opened
+	 */
+	public ServerSocket listen(int port) throws IOException {
+		ServerSocket serverSocket = new ServerSocket(port);
+		Thread acceptThread = new Thread(() -> {
+			while (!serverSocket.isClosed()) {
+				try {
+					Socket socket = serverSocket.accept();
+					Thread readerThread = new Thread(() -> {
+						try (Socket connection = socket) {
+							ingest(new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8));
+						} catch (IOException e) {
+							TransitController.LOGGER.log(Level.WARNING, "Position connection closed: " +
+									e.getMessage() + "\n");
+						}
+					}, "position-feed-reader");
+					readerThread.setDaemon(true);
+					readerThread.start();
+				} catch (IOException e) {
+					//the server socket was closed while waiting for a connection
+				}
+			}
+		}, "position-feed-listener");
+		acceptThread.setDaemon(true);
+		acceptThread.start();
+		return serverSocket;
+	}
+
+	/**
+	 * Body of the applier thread: wait for a position to arrive, then apply it along with every other queued one.
+	 * Once stopped, "stop()" applies whatever is still queued.
+	 */
+	private void applyLoop() {
+		while (running) {
+			VehiclePosition first = pollPosition();
+			if (first == null) {
+				applierWaiting = true;
+				//check again, since a position submitted before the flag was set does not wake the applier
+				first = pollPosition();
+				if (first == null) {
+					LockSupport.park(this);
+				}
+				applierWaiting = false;
+			}
+			if (first != null) {
+				applyPositions(first);
+			}
+		}
+	}
+
+	/**
+	 * @return the oldest queued position, or null if none is queued
+	 */
+	private VehiclePosition pollPosition() {
+		VehiclePosition position = pendingPositions.poll();
+		if (position != null) {
+			queuedCount.decrementAndGet();
+		}
+		return position;
+	}
+
+	/**
+	 * This method applies every position that has been queued so far, in batches of up to "BATCH_SIZE". It is run
+	 * by the applier thread but may also be called directly when the feed was never started.
+	 *
+	 * @return the number of positions applied
+	 */
+	public int applyPendingPositions() {
+		return applyPositions(pollPosition());
+	}
+
+	/**
+	 * Applies the given position, if any, followed by every other queued position.
+	 */
+	private int applyPositions(VehiclePosition first) {
+		int appliedNow = 0;
+		synchronized (applyLock) {
+			ArrayList<VehiclePosition> batch = new ArrayList<>();
+			for (VehiclePosition position = first; position != null; position = pollPosition()) {
+				if (applyPosition(position)) {
+					batch.add(position);
+				}
+				if (batch.size() == BATCH_SIZE) {
+					appliedNow += publish(batch);
+					batch = new ArrayList<>();
+				}
+			}
+			if (!batch.isEmpty()) {
+				appliedNow += publish(batch);
+			}
+		}
+		return appliedNow;
+	}
+
+	/**
+	 * Stores a position unless a newer one is already known for the same Bus, and moves the Bus onto the reported
+	 * location and Route. Only the applier writes to the map, so a plain get/put is enough.
+	 */
+	private boolean applyPosition(VehiclePosition position) {
+		VehiclePosition previous = latestPositions.get(position.getBusID());
+		if (previous != null && previous.getTimestamp() > position.getTimestamp()) {
+			return false;
+		}
+		latestPositions.put(position.getBusID(), position);
+
+		Bus bus = transitData.searchBuses(position.getBusID());
+		if (bus != null) {
+			bus.updateLocation(position.getLatitude(), position.getLongitude());
+			String routeID = position.getRouteID();
+			Route route = bus.getCurrentRoute();
+			if (routeID != null && !routeID.isEmpty() && (route == null || !route.getRouteID().equals(routeID))) {
+				Route newRoute = transitData.findRoute(routeID);
+				if (newRoute != null) {
+					bus.updateCurrentRoute(newRoute);
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Hands an applied batch to every listener without waiting for any of them.
+	 */
+	private int publish(ArrayList<VehiclePosition> batch) {
+		List<VehiclePosition> readOnlyBatch = Collections.unmodifiableList(batch);
+		for (Subscription subscription : subscriptions) {
+			subscription.deliver(readOnlyBatch);
+		}
+		numApplied.addAndGet(batch.size());
+		return batch.size();
+	}
+
+	/**
+	 * This method subscribes a listener to every batch applied from now on.
+	 *
+	 * @param listener the listener to notify
+	 */
+	public void subscribe(PositionListener listener) {
+		subscriptions.add(new Subscription(listener));
+	}
+
+	/**
+	 * This method stops notifying a listener.
+	 *
+	 * @param listener the listener that should no longer be notified
+	 */
+	public void unsubscribe(PositionListener listener) {
+		for (Subscription subscription : subscriptions) {
+			if (subscription.listener == listener) {
+				subscriptions.remove(subscription);
+				subscription.executor.shutdown();
+			}
+		}
+	}
+
+	/**
+	 * @param busID the ID of a Bus
+	 * @return the newest known position of the Bus, or null if it has not reported yet
+	 */
+	public VehiclePosition getLatestPosition(String busID) {
+		return latestPositions.get(busID);
+	}
+
+	/**
+	 * @return a read-only live view of the newest known position of every Bus, keyed by bus ID
+	 */
+	public Map<String, VehiclePosition> getLatestPositions() {
+		return Collections.unmodifiableMap(latestPositions);
+	}
+
+	//getters
+	public long getReceivedCount() { return numReceived.get(); }
+	public long getAppliedCount() { return numApplied.get(); }
+	public long getRejectedCount() { return numRejected.get(); }
+	public long getDroppedCount() { return numDropped.get(); }
+
+	/**
+	 * A listener together with its own delivery thread and backlog counter.
+	 */
+	private static class Subscription {
+		private final PositionListener listener;
+		private final ExecutorService executor;
+		private final AtomicInteger pendingBatches = new AtomicInteger();
+
+		private Subscription(PositionListener listener) {
+			this.listener = listener;
+			this.executor = Executors.newSingleThreadExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "position-feed-listener-delivery");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+
+		private void deliver(List<VehiclePosition> batch) {
+			//skip the batch if the listener is too far behind, it can catch up from the latest positions
+			if (pendingBatches.incrementAndGet() > MAX_PENDING_BATCHES) {
+				pendingBatches.decrementAndGet();
+				return;
+			}
+			executor.execute(() -> {
+				try {
+					listener.positionsUpdated(batch);
+				} catch (RuntimeException e) {
+					TransitController.LOGGER.log(Level.WARNING, "Position listener failed: " + e.getMessage() + "\n");
+				} finally {
+					pendingBatches.decrementAndGet();
+				}
+			});
+		}
+	}
+}
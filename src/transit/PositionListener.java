@@ -0,0 +1,30 @@
+/**
+ * This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ * PositionListeners subscribe to a PositionFeed to be told about every batch of live VehiclePositions it applies.
+ */
+package transit;
+
+import java.util.List;
+
+public interface PositionListener {
+
+	/**
+	 * This method is called on the listener's own delivery thread with each batch of VehiclePositions applied by
+	 * the PositionFeed, in the order they were applied.
+	 *
+	 * @param positions the newly applied VehiclePositions
+	 */
+	void positionsUpdated(List<VehiclePosition> positions);
+}
@@ -0,0 +1,220 @@
+/**
+ * This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ * This class is a bounded cache for the results of repeated queries, such as a departure board asking for the next
+ * Trips at the same Stop many times a minute. Each result expires after a fixed time to live, and once the cache is
+ * full the least recently used result is evicted.
+ *
+ * The cache is split into segments by key, each guarded by its own lock, so queries from many threads rarely wait on
+ * each other. Eviction happens per segment, so the evicted result is the least recently used one of its segment
+ * rather than of the whole cache. Results are computed outside of any lock. Invalidating the cache (after the feed
+ * is reloaded) also discards any result still being computed from the old feed.
+ */
+package transit;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+public class QueryCache<K, V> {
+	//upper limit on the number of independently locked segments, and the fewest results each segment holds
+	private static final int MAX_SEGMENTS = 16;
+	private static final int MIN_SEGMENT_SIZE = 64;
+
+	private final Segment<K, V>[] segments;
+	private final long timeToLive;
+	private final LongSupplier clock;
+
+	//bumped by every invalidation so results computed from an older feed are not stored
+	private final AtomicLong generation = new AtomicLong();
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+
+	/**
+	 * Creates an empty cache.
+	 *
+	 * @param maxSize maximum number of results kept at once
+	 * @param timeToLive how long a result may be used for
+	 * @param unit unit of "timeToLive"
+	 */
+	public QueryCache(int maxSize, long timeToLive, TimeUnit unit) {
+		this(maxSize, unit.toNanos(timeToLive), System::nanoTime);
+	}
+
+	/**
+	 * Creates an empty cache with its own clock, so tests can control when results expire.
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	QueryCache(int maxSize, long timeToLiveNanos, LongSupplier clock) {
+		if (maxSize < 1) {
+			throw new IllegalArgumentException("A QueryCache must hold at least one result.");
+		}
+		int numSegments = Math.max(1, Math.min(MAX_SEGMENTS, maxSize / MIN_SEGMENT_SIZE));
+		segments = new Segment[numSegments];
+		for (int i = 0; i < numSegments; i++) {
+			//spread the size over the segments, giving the remainder to the first few
+			segments[i] = new Segment<>(maxSize / numSegments + (i < maxSize % numSegments ? 1 : 0), evictions);
+		}
+		this.timeToLive = timeToLiveNanos;
+		this.clock = clock;
+	}
+
+	/**
+	 * This method returns the cached result for a key, computing and caching it first if it is missing or expired.
+	 *
+	 * @param key the query being asked
+	 * @param loader computes the result of the query when it is not cached
+	 * @return the result of the query
+	 */
+	public V get(K key, Function<? super K, ? extends V> loader) {
+		V value = getIfPresent(key);
+		if (value != null) {
+			return value;
+		}
+
+		long startGeneration = generation.get();
+		value = loader.apply(key);
+		if (value != null) {
+			segmentFor(key).put(key, new CachedResult<>(value, clock.getAsLong() + timeToLive), generation, startGeneration);
+		}
+		return value;
+	}
+
+	/**
+	 * @param key the query being asked
+	 * @return the cached result of the query, or null if it is missing or expired
+	 */
+	public V getIfPresent(K key) {
+		CachedResult<V> entry = segmentFor(key).get(key, clock.getAsLong());
+		if (entry == null) {
+			misses.increment();
+			return null;
+		}
+		hits.increment();
+		return entry.value;
+	}
+
+	/**
+	 * This method discards every cached result, along with any result currently being computed.
+	 */
+	public void invalidateAll() {
+		generation.incrementAndGet();
+		for (Segment<K, V> segment : segments) {
+			segment.clear();
+		}
+	}
+
+	private Segment<K, V> segmentFor(K key) {
+		int hash = key.hashCode();
+		hash ^= hash >>> 16;
+		return segments[(hash & Integer.MAX_VALUE) % segments.length];
+	}
+
+	/**
+	 * @return number of results currently cached, including expired ones not yet evicted
+	 */
+	public int getSize() {
+		int size = 0;
+		for (Segment<K, V> segment : segments) {
+			size += segment.size();
+		}
+		return size;
+	}
+
+	/**
+	 * @return fraction of lookups that found a cached result, or 0 if there have been none
+	 */
+	public double getHitRate() {
+		long numHits = hits.sum();
+		long numLookups = numHits + misses.sum();
+		return numLookups == 0 ? 0 : (double) numHits / numLookups;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("hits=%d misses=%d evictions=%d size=%d hitRate=%.2f",
+				getHitCount(), getMissCount(), getEvictionCount(), getSize(), getHitRate());
+	}
+
+	//getters
+	public long getHitCount() { return hits.sum(); }
+	public long getMissCount() { return misses.sum(); }
+	public long getEvictionCount() { return evictions.sum(); }
+
+	/**
+	 * A cached result along with the time it expires at.
+	 */
+	private static final class CachedResult<V> {
+		private final V value;
+		private final long expiresAt;
+
+		private CachedResult(V value, long expiresAt) {
+			this.value = value;
+			this.expiresAt = expiresAt;
+		}
+	}
+
+	/**
+	 * One independently locked part of the cache, kept in least recently used order.
+	 */
+	private static final class Segment<K, V> {
+		private final LinkedHashMap<K, CachedResult<V>> entries;
+
+		private Segment(int maxSize, LongAdder evictions) {
+			entries = new LinkedHashMap<K, CachedResult<V>>(16, 0.75f, true) {
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<K, CachedResult<V>> eldest) {
+					if (size() > maxSize) {
+						evictions.increment();
+						return true;
+					}
+					return false;
+				}
+			};
+		}
+
+		private synchronized CachedResult<V> get(K key, long now) {
+			CachedResult<V> entry = entries.get(key);
+			if (entry != null && now - entry.expiresAt >= 0) {
+				entries.remove(key);
+				return null;
+			}
+			return entry;
+		}
+
+		/**
+		 * Stores a result unless the cache was invalidated since it started being computed. Checking under the
+		 * segment's lock means an invalidation either rejects the result or clears it right after.
+		 */
+		private synchronized void put(K key, CachedResult<V> entry, AtomicLong generation, long startGeneration) {
+			if (generation.get() == startGeneration) {
+				entries.put(key, entry);
+			}
+		}
+
+		private synchronized void clear() {
+			entries.clear();
+		}
+
+		private synchronized int size() {
+			return entries.size();
+		}
+	}
+}
@@ -0,0 +1,497 @@
+/**
+ * This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ * This class is a small HTTP server answering queries about a loaded feed with JSON, so kiosks and other apps can
+ * ask for departures, Routes and Trips without the JavaFX interface. It is built on the HTTP server that comes with
+ * the JDK and answers GET requests on these paths:
+ *
+ *   /departures?stop=ID[&date=YYYY-MM-DD][&after=HH:MM:SS][&limit=N]   next Trips arriving at a Stop
+ *   /routes?stop=ID                                                    Routes serving a Stop
+ *   /stops?route=ID                                                    Stops on a Route
+ *   /trip?id=ID                                                        a Trip and its StopTimes
+ *   /trip/stats?id=ID                                                  distance and average speed of a Trip
+ *
+ * Every request is answered on its own thread: a virtual thread when the JVM has them (Java 21 and later), or
+ * otherwise a thread from a pool that grows with the number of clients. Queries read the TransitData's current
+ * Timetable and caches, and responses are written straight to the client as they are produced instead of being
+ * built in memory first.
+ */
+package transit;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+
+public class QueryServer {
+	//number of connections the operating system may queue while every thread is busy
+	private static final int BACKLOG = 1024;
+
+	//size of the buffer between the JSON and the connection
+	private static final int BUFFER_SIZE = 1 << 13;
+
+	//number of departures returned when the request does not ask for a number
+	private static final int DEFAULT_DEPARTURES = 20;
+
+	private final TransitData transitData;
+	private final HttpServer server;
+	private final ExecutorService executor;
+
+	/**
+	 * Creates a server for the given data store. Nothing is answered until the server is started.
+	 *
+	 * @param transitData the data store to answer queries from
+	 * @param port the port to listen on, or 0 to use any free port
+	 * @throws IOException thrown if the port cannot be opened
+	 */
+	public QueryServer(TransitData transitData, int port) throws IOException {
+		this.transitData = transitData;
+		server = HttpServer.create(new InetSocketAddress(port), BACKLOG);
+		executor = createExecutor();
+		server.setExecutor(executor);
+		server.createContext("/departures", exchange -> answer(exchange, "/departures", this::findDepartures));
+		server.createContext("/routes", exchange -> answer(exchange, "/routes", this::findRoutes));
+		server.createContext("/stops", exchange -> answer(exchange, "/stops", this::findStops));
+		server.createContext("/trip", exchange -> answer(exchange, "/trip", this::findTrip));
+		server.createContext("/trip/stats", exchange -> answer(exchange, "/trip/stats", this::findTripStats));
+	}
+
+	/**
+	 * Creates the executor requests are answered on: one virtual thread per request when the JVM has virtual
+	 * threads, or otherwise a pool of daemon threads that grows as needed and reuses idle threads.
+	 */
+	private static ExecutorService createExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return Executors.newCachedThreadPool(task -> {
+				Thread thread = new Thread(task, "query-server");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+	}
+
+	/**
+	 * This method starts answering requests.
+	 */
+	public void start() {
+		server.start();
+		TransitController.LOGGER.log(Level.INFO, "Query server listening on port " + getPort() + "\n");
+	}
+
+	/**
+	 * This method stops answering requests, closing the port.
+	 */
+	public void stop() {
+		server.stop(0);
+		executor.shutdown();
+	}
+
+	/**
+	 * @return the port the server listens on
+	 */
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+
+	/**
+	 * Answers a single request. The query is looked up before anything is sent, so problems with the request can
+	 * still be answered with an error status; the response body is then written straight to the client.
+	 */
+	private void answer(HttpExchange exchange, String path, Query query) throws IOException {
+		try {
+			Response response;
+			int status = 200;
+			try {
+				if (!"GET".equals(exchange.getRequestMethod())) {
+					throw new QueryException(405, "Only GET requests are answered.");
+				}
+				if (!exchange.getRequestURI().getPath().equals(path)) {
+					throw new QueryException(404, "Unknown path " + exchange.getRequestURI().getPath());
+				}
+				response = query.find(parseParameters(exchange.getRequestURI().getRawQuery()));
+			} catch (QueryException e) {
+				status = e.status;
+				response = json -> json.beginObject().name("error").value(e.getMessage()).endObject();
+			}
+
+			exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+			//a length of 0 sends the body in chunks, as it is written
+			exchange.sendResponseHeaders(status, 0);
+			try (Writer writer = new BufferedWriter(
+					new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8), BUFFER_SIZE)) {
+				response.write(new JsonOutput(writer));
+			}
+		} catch (IOException | RuntimeException e) {
+			TransitController.LOGGER.log(Level.WARNING, "Query server could not answer "
+					+ exchange.getRequestURI() + ": " + e + "\n");
+		} finally {
+			exchange.close();
+		}
+	}
+
+	/**
+	 * Splits the query of a request into its decoded parameters.
+	 */
+	static Map<String, String> parseParameters(String rawQuery) throws UnsupportedEncodingException {
+		HashMap<String, String> parameters = new HashMap<>();
+		if (rawQuery == null || rawQuery.isEmpty()) {
+			return parameters;
+		}
+		for (String pair : rawQuery.split("&")) {
+			int equals = pair.indexOf('=');
+			String name = equals < 0 ? pair : pair.substring(0, equals);
+			String value = equals < 0 ? "" : pair.substring(equals + 1);
+			try {
+				parameters.put(URLDecoder.decode(name, "UTF-8"), URLDecoder.decode(value, "UTF-8"));
+			} catch (IllegalArgumentException e) {
+				throw new QueryException(400, "Badly encoded parameter: " + pair);
+			}
+		}
+		return parameters;
+	}
+
+	/**
+	 * Gets a parameter the request must have.
+	 */
+	private static String require(Map<String, String> parameters, String name) {
+		String value = parameters.get(name);
+		if (value == null || value.isEmpty()) {
+			throw new QueryException(400, "Missing parameter \"" + name + "\".");
+		}
+		return value;
+	}
+
+	/**
+	 * Answers "/departures": the Trips arriving at a Stop after a time (now by default), soonest first.
+	 */
+	private Response findDepartures(Map<String, String> parameters) {
+		String stopID = require(parameters, "stop");
+		if (transitData.getTimetable().indexOfStop(stopID) < 0) {
+			throw new QueryException(404, "No Stop was found with this stop_id: " + stopID);
+		}
+		LocalDate date;
+		int afterTime;
+		int limit;
+		try {
+			date = parameters.containsKey("date") ? LocalDate.parse(parameters.get("date")) : LocalDate.now();
+			afterTime = parameters.containsKey("after") ? Timetable.parseTime(parameters.get("after"))
+					: LocalTime.now().toSecondOfDay();
+			limit = parameters.containsKey("limit") ? Integer.parseInt(parameters.get("limit")) : DEFAULT_DEPARTURES;
+		} catch (DateTimeParseException | NumberFormatException e) {
+			throw new QueryException(400, "Badly formatted parameter: " + e.getMessage());
+		}
+		if (afterTime < 0 || limit < 0) {
+			throw new QueryException(400, "\"after\" must be HH:MM:SS and \"limit\" cannot be negative.");
+		}
+
+		ArrayList<Integer> arrivalTimes = new ArrayList<>();
+		ArrayList<Trip> trips = transitData.findUpcomingTrips(stopID, date, afterTime, arrivalTimes);
+		int numDepartures = Math.min(limit, trips.size());
+		return json -> {
+			json.beginObject().name("stop_id").value(stopID).name("date").value(date.toString());
+			json.name("departures").beginArray();
+			for (int i = 0; i < numDepartures; i++) {
+				Trip trip = trips.get(i);
+				json.beginObject()
+						.name("trip_id").value(trip.getTripID())
+						.name("route_id").value(trip.getRouteID())
+						.name("headsign").value(trip.getTripHeadsign())
+						.name("arrival_time").value(Timetable.formatTime(arrivalTimes.get(i)))
+						.endObject();
+			}
+			json.endArray().endObject();
+		};
+	}
+
+	/**
+	 * Answers "/routes": every Route with a Trip stopping at a Stop.
+	 */
+	private Response findRoutes(Map<String, String> parameters) {
+		String stopID = require(parameters, "stop");
+		if (transitData.getTimetable().indexOfStop(stopID) < 0) {
+			throw new QueryException(404, "No Stop was found with this stop_id: " + stopID);
+		}
+		ArrayList<Route> routes = transitData.findRoutesWithStop(stopID);
+		return json -> {
+			json.beginObject().name("stop_id").value(stopID).name("routes").beginArray();
+			for (Route route : routes) {
+				json.beginObject()
+						.name("route_id").value(route.getRouteID())
+						.name("route_color").value(route.getColorHex())
+						.endObject();
+			}
+			json.endArray().endObject();
+		};
+	}
+
+	/**
+	 * Answers "/stops": every Stop visited by a Route's Trips.
+	 */
+	private Response findStops(Map<String, String> parameters) {
+		String routeID = require(parameters, "route");
+		if (transitData.findRoute(routeID) == null) {
+			throw new QueryException(404, "No Route was found with this route_id: " + routeID);
+		}
+		ArrayList<Stop> stops = transitData.findAllStops(routeID);
+		return json -> {
+			json.beginObject().name("route_id").value(routeID).name("stops").beginArray();
+			for (Stop stop : stops) {
+				if (stop != null) {
+					writeStop(json, stop);
+				}
+			}
+			json.endArray().endObject();
+		};
+	}
+
+	/**
+	 * Answers "/trip": a Trip along with every one of its StopTimes.
+	 */
+	private Response findTrip(Map<String, String> parameters) {
+		Trip trip = requireTrip(parameters);
+		return json -> {
+			json.beginObject()
+					.name("trip_id").value(trip.getTripID())
+					.name("route_id").value(trip.getRouteID())
+					.name("service_id").value(trip.getServiceID())
+					.name("headsign").value(trip.getTripHeadsign())
+					.name("direction_id").value(trip.getDirectionID())
+					.name("block_id").value(trip.getBlockID());
+			json.name("stop_times").beginArray();
+			for (StopTime stopTime : new ArrayList<>(trip.getStopSequence())) {
+				json.beginObject()
+						.name("stop_id").value(stopTime.getStopID())
+						.name("stop_sequence").value(stopTime.getStopSequence())
+						.name("arrival_time").value(stopTime.getArrivalTime())
+						.name("departure_time").value(stopTime.getDepartureTime())
+						.endObject();
+			}
+			json.endArray().endObject();
+		};
+	}
+
+	/**
+	 * Answers "/trip/stats": the distance and average speed of a Trip.
+	 */
+	private Response findTripStats(Map<String, String> parameters) {
+		Trip trip = requireTrip(parameters);
+		double distance = trip.calcTotalDistance();
+		double averageSpeed = trip.calcAverageTripSpeed();
+		return json -> json.beginObject()
+				.name("trip_id").value(trip.getTripID())
+				.name("distance").value(distance)
+				.name("average_speed").value(averageSpeed)
+				.endObject();
+	}
+
+	/**
+	 * Finds the Trip named by the "id" parameter, through the Timetable's index when the Trip has StopTimes.
+	 */
+	private Trip requireTrip(Map<String, String> parameters) {
+		String tripID = require(parameters, "id");
+		Timetable timetable = transitData.getTimetable();
+		int tripIndex = timetable.indexOfTrip(tripID);
+		Trip trip = tripIndex >= 0 ? timetable.getTrip(tripIndex) : transitData.searchTrips(tripID);
+		if (trip == null) {
+			throw new QueryException(404, "No Trip was found with this trip_id: " + tripID);
+		}
+		return trip;
+	}
+
+	/**
+	 * Writes the fields of a Stop as a JSON object.
+	 */
+	private static void writeStop(JsonOutput json, Stop stop) throws IOException {
+		json.beginObject()
+				.name("stop_id").value(stop.getStopID())
+				.name("name").value(stop.getName())
+				.name("latitude").value(stop.getLatitude())
+				.name("longitude").value(stop.getLongitude())
+				.endObject();
+	}
+
+	/**
+	 * Starts a server for a single feed folder, for running without the JavaFX interface.
+	 *
+	 * @param args the feed folder, then optionally the port (8080 by default)
+	 * @throws IOException thrown if the feed cannot be read or the port cannot be opened
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1) {
+			System.out.println("Usage: QueryServer <feed folder> [port]");
+			return;
+		}
+		File feedFolder = new File(args[0]);
+		TransitData feed = new FeedRegistry().loadFeed(feedFolder.getName(), feedFolder);
+		new QueryServer(feed, args.length > 1 ? Integer.parseInt(args[1]) : 8080).start();
+	}
+
+	/**
+	 * Looks up the answer to a query, throwing a QueryException if the request cannot be answered.
+	 */
+	private interface Query {
+		Response find(Map<String, String> parameters);
+	}
+
+	/**
+	 * Writes the body of an answer.
+	 */
+	private interface Response {
+		void write(JsonOutput json) throws IOException;
+	}
+
+	/**
+	 * A request that cannot be answered, along with the HTTP status to answer it with.
+	 */
+	private static final class QueryException extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		private final int status;
+
+		private QueryException(int status, String message) {
+			super(message);
+			this.status = status;
+		}
+	}
+
+	/**
+	 * Writes JSON straight to a Writer, adding the commas between values.
+	 */
+	static final class JsonOutput {
+		private final Writer writer;
+
+		//whether the object or array being written still has no values, one entry per level of nesting
+		private final List<Boolean> empty = new ArrayList<>();
+		private boolean afterName;
+
+		JsonOutput(Writer writer) {
+			this.writer = writer;
+		}
+
+		JsonOutput beginObject() throws IOException {
+			return begin('{');
+		}
+
+		JsonOutput endObject() throws IOException {
+			return end('}');
+		}
+
+		JsonOutput beginArray() throws IOException {
+			return begin('[');
+		}
+
+		JsonOutput endArray() throws IOException {
+			return end(']');
+		}
+
+		JsonOutput name(String name) throws IOException {
+			separate();
+			writeString(name);
+			writer.write(':');
+			afterName = true;
+			return this;
+		}
+
+		JsonOutput value(String value) throws IOException {
+			separate();
+			if (value == null) {
+				writer.write("null");
+			} else {
+				writeString(value);
+			}
+			return this;
+		}
+
+		JsonOutput value(int value) throws IOException {
+			separate();
+			writer.write(Integer.toString(value));
+			return this;
+		}
+
+		JsonOutput value(double value) throws IOException {
+			separate();
+			writer.write(Double.isNaN(value) || Double.isInfinite(value) ? "null" : Double.toString(value));
+			return this;
+		}
+
+		private JsonOutput begin(char bracket) throws IOException {
+			separate();
+			writer.write(bracket);
+			empty.add(true);
+			return this;
+		}
+
+		private JsonOutput end(char bracket) throws IOException {
+			empty.remove(empty.size() - 1);
+			writer.write(bracket);
+			return this;
+		}
+
+		/**
+		 * Writes the comma before a value, unless it is the first value of its object or array or follows a name.
+		 */
+		private void separate() throws IOException {
+			if (afterName) {
+				afterName = false;
+				return;
+			}
+			int level = empty.size() - 1;
+			if (level >= 0) {
+				if (!empty.get(level)) {
+					writer.write(',');
+				}
+				empty.set(level, false);
+			}
+		}
+
+		/**
+		 * Writes a quoted String, escaping quotes, backslashes and control characters.
+		 */
+		private void writeString(String value) throws IOException {
+			writer.write('"');
+			for (int i = 0; i < value.length(); i++) {
+				char character = value.charAt(i);
+				if (character == '"' || character == '\\') {
+					writer.write('\\');
+					writer.write(character);
+				} else if (character < 0x20) {
+					writer.write(String.format("\\u%04x", (int) character));
+				} else {
+					writer.write(character);
+				}
+			}
+			writer.write('"');
+		}
+	}
+}
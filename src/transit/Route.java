@@ -18,14 +18,19 @@
  */
 package transit;
 
-import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.Objects;
+import java.util.Set;
 import java.awt.Color;
 
 public class Route {
 	private String routeID;
 	private String colorHex;
 	private Color color;
-	private ArrayList<String> tripsInRoute = new ArrayList<>();
+	private String shortName;
+	private String longName;
+	private String routeType;
+	private LinkedHashSet<String> tripsInRoute = new LinkedHashSet<>();
 
 	/**
 	 * Basic constructor for a Route object.
@@ -33,9 +38,25 @@ public class Route {
 	 * @param colorHex String representing the color of a Route using 6-digit hexadecimal
 	 */
 	public Route(String routeID, String colorHex) {
+		this(routeID, colorHex, "", "", "");
+	}
+
+	/**
+	 * Constructor for a Route object read from a GTFS feed, which keeps the columns needed to write the Route back
+	 * out.
+	 * @param routeID String used to uniquely identify a Route object
+	 * @param colorHex String representing the color of a Route using 6-digit hexadecimal
+	 * @param shortName the route_short_name, such as "1"
+	 * @param longName the route_long_name, such as "South Ave"
+	 * @param routeType the route_type, such as "3" for a bus Route, or empty if it is not known
+	 */
+	public Route(String routeID, String colorHex, String shortName, String longName, String routeType) {
 		this.routeID = routeID;
 		this.colorHex = colorHex;
 		this.color = createColor(colorHex);
+		this.shortName = shortName;
+		this.longName = longName;
+		this.routeType = routeType;
 	}
 
 	/**
@@ -56,31 +77,26 @@ public class Route {
 	}
 
 	/**
-	 * Override the equals method to only verify that each object field has the same value.
+	 * Two Routes are equal when they have the same route_id. The Trips along each Route are not compared, since the
+	 * route_id already identifies a Route.
 	 * @param obj Route object to be compared
-	 * @return true if the two Route objects have the same field attributes
+	 * @return true if the other object is a Route with the same route_id
 	 */
 	@Override
 	public boolean equals(Object obj){
-		Route route = (Route)obj;
-		boolean tripsInRouteMismatch = false;
-
-		//verify each Route has the same trip_id(s)
-		ArrayList<String> tripIDList = route.tripsInRoute;
-
-		for(String tripID : this.tripsInRoute){
-			//check to see if they both contain the same trip_id(s)
-			if(!tripIDList.contains(tripID)){
-				tripsInRouteMismatch = true;
-			}
-		}
-
-		if(this.routeID.equals(route.routeID) && this.colorHex.equals(route.colorHex) && !tripsInRouteMismatch){
+		if(this == obj){
 			return true;
 		}
-		return false;
+		if(obj == null || getClass() != obj.getClass()){
+			return false;
+		}
+		return Objects.equals(routeID, ((Route)obj).routeID);
 	}
 
+	@Override
+	public int hashCode(){
+		return Objects.hashCode(routeID);
+	}
 
 	/**
 	 * This method inserts the given trip_id String into the Routes list of trip_id(s)
@@ -91,9 +107,21 @@ public class Route {
 		this.tripsInRoute.add(tripID);
 	}
 
+	/**
+	 * This method checks whether a Trip is along this Route.
+	 * @param tripID the ID of a Trip
+	 * @return true if the trip_id has been inserted into this Route
+	 */
+	public boolean containsTrip(String tripID){
+		return tripsInRoute.contains(tripID);
+	}
+
 	//getters
 	public String getRouteID() { return routeID; }
 	public String getColorHex() { return colorHex; }
 	public Color getColor() { return color; }
-	public ArrayList<String> getTripsInRoute() { return tripsInRoute; }
+	public String getShortName() { return shortName; }
+	public String getLongName() { return longName; }
+	public String getRouteType() { return routeType; }
+	public Set<String> getTripsInRoute() { return tripsInRoute; }
 }
\ No newline at end of file
@@ -0,0 +1,222 @@
+/**
+ * This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ * This class is the network of segments the Trips of a feed run over. A segment (or edge) joins two Stops that some
+ * Trip visits one right after the other. Hundreds of Trips usually run over the same segment, so each segment is kept
+ * once, with its length and the travel times observed on it, and every stop pattern is described by the segments it
+ * runs over. The distance of a Trip is then the sum of the lengths of its pattern's segments.
+ *
+ * Segments are numbered in order of the Stop they leave from, then the Stop they lead to, so the segments leaving a
+ * Stop are numbered firstOutgoingEdge to endOutgoingEdge - 1. Stops are numbered the way the Timetable numbers them,
+ * and stop_ids that are not a known Stop are skipped, the same way a Trip's distance skips them.
+ */
+package transit;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+
+public class SegmentGraph {
+	private final Timetable timetable;
+
+	//Stops each segment joins, as (from << 32 | to), sorted so a segment is found with a binary search
+	private final long[] edgeKeys;
+	private final double[] edgeLengths;
+
+	//travel times observed on each segment, in seconds
+	private final int[] travelCounts;
+	private final int[] minTravelTimes;
+	private final int[] maxTravelTimes;
+	private final long[] totalTravelTimes;
+
+	//first segment leaving each Stop, with one extra entry for the end of the last Stop's segments
+	private final int[] edgeOffsets;
+
+	//segments each stop pattern runs over, in order
+	private final HashMap<StopPattern, int[]> patternEdges;
+
+	/**
+	 * Extracts every segment run over by the given stop patterns and gathers the travel times of the Trips of a
+	 * Timetable on them.
+	 *
+	 * @param patterns every stop pattern of the feed
+	 * @param timetable Timetable of the same feed, which numbers the Stops and provides the times
+	 */
+	public SegmentGraph(Collection<StopPattern> patterns, Timetable timetable) {
+		this.timetable = timetable;
+
+		//number the known Stops of each pattern and collect every pair of Stops visited one after the other
+		HashMap<StopPattern, int[]> patternStops = new HashMap<>(patterns.size() * 2);
+		long[] keys = new long[16];
+		int numKeys = 0;
+		for (StopPattern pattern : patterns) {
+			int[] stops = new int[pattern.getStopCount()];
+			int numStops = 0;
+			for (int i = 0; i < pattern.getStopCount(); i++) {
+				int stopIndex = timetable.indexOfStop(pattern.getStopID(i));
+				if (stopIndex >= 0) {
+					stops[numStops++] = stopIndex;
+				}
+			}
+			stops = Arrays.copyOf(stops, numStops);
+			patternStops.put(pattern, stops);
+			for (int i = 0; i + 1 < numStops; i++) {
+				if (numKeys == keys.length) {
+					keys = Arrays.copyOf(keys, numKeys * 2);
+				}
+				keys[numKeys++] = key(stops[i], stops[i + 1]);
+			}
+		}
+
+		//keep each pair once, in order
+		Arrays.sort(keys, 0, numKeys);
+		int numEdges = 0;
+		for (int i = 0; i < numKeys; i++) {
+			if (numEdges == 0 || keys[i] != keys[numEdges - 1]) {
+				keys[numEdges++] = keys[i];
+			}
+		}
+		edgeKeys = Arrays.copyOf(keys, numEdges);
+
+		edgeLengths = new double[numEdges];
+		edgeOffsets = new int[timetable.getStopCount() + 1];
+		for (int e = 0; e < numEdges; e++) {
+			int from = getFromStop(e);
+			int to = getToStop(e);
+			edgeLengths[e] = Trip.calcCoordinateDistance(timetable.getStopLatitude(from),
+					timetable.getStopLongitude(from), timetable.getStopLatitude(to), timetable.getStopLongitude(to));
+			edgeOffsets[from + 1]++;
+		}
+		for (int s = 0; s < timetable.getStopCount(); s++) {
+			edgeOffsets[s + 1] += edgeOffsets[s];
+		}
+
+		patternEdges = new HashMap<>(patternStops.size() * 2);
+		for (StopPattern pattern : patterns) {
+			int[] stops = patternStops.get(pattern);
+			int[] edges = new int[Math.max(0, stops.length - 1)];
+			for (int i = 0; i < edges.length; i++) {
+				edges[i] = findEdge(stops[i], stops[i + 1]);
+			}
+			patternEdges.put(pattern, edges);
+		}
+
+		//gather the time each Trip takes between two Stops it visits one after the other
+		travelCounts = new int[numEdges];
+		minTravelTimes = new int[numEdges];
+		maxTravelTimes = new int[numEdges];
+		totalTravelTimes = new long[numEdges];
+		Arrays.fill(minTravelTimes, Integer.MAX_VALUE);
+		for (int t = 0; t < timetable.getTripCount(); t++) {
+			for (int s = timetable.getFirstStopTime(t); s + 1 < timetable.getEndStopTime(t); s++) {
+				//the Timetable leaves out StopTimes without times, so its hops may not be a segment
+				int edge = findEdge(timetable.getStopIndex(s), timetable.getStopIndex(s + 1));
+				if (edge >= 0) {
+					int travelTime = timetable.getArrival(s + 1) - timetable.getDeparture(s);
+					travelCounts[edge]++;
+					minTravelTimes[edge] = Math.min(minTravelTimes[edge], travelTime);
+					maxTravelTimes[edge] = Math.max(maxTravelTimes[edge], travelTime);
+					totalTravelTimes[edge] += travelTime;
+				}
+			}
+		}
+	}
+
+	private static long key(int fromStop, int toStop) {
+		return ((long) fromStop << 32) | toStop;
+	}
+
+	/**
+	 * @param fromStop Timetable index of the Stop the segment leaves from
+	 * @param toStop Timetable index of the Stop the segment leads to
+	 * @return the segment joining the two Stops, or -1 if no Trip visits them one after the other
+	 */
+	public int findEdge(int fromStop, int toStop) {
+		int edge = Arrays.binarySearch(edgeKeys, key(fromStop, toStop));
+		return edge >= 0 ? edge : -1;
+	}
+
+	/**
+	 * @param fromStopID stop_id of the Stop the segment leaves from
+	 * @param toStopID stop_id of the Stop the segment leads to
+	 * @return the segment joining the two Stops, or -1 if no Trip visits them one after the other
+	 */
+	public int findEdge(String fromStopID, String toStopID) {
+		int fromStop = timetable.indexOfStop(fromStopID);
+		int toStop = timetable.indexOfStop(toStopID);
+		return fromStop < 0 || toStop < 0 ? -1 : findEdge(fromStop, toStop);
+	}
+
+	/**
+	 * @param pattern a stop pattern
+	 * @return the segments the pattern runs over, in order, or null if the pattern is not part of this graph
+	 */
+	public int[] getPatternEdges(StopPattern pattern) {
+		int[] edges = patternEdges.get(pattern);
+		return edges == null ? null : edges.clone();
+	}
+
+	/**
+	 * @param pattern a stop pattern
+	 * @return the total length in kilometers of the segments the pattern runs over, or -1 if the pattern is not part
+	 *         of this graph
+	 */
+	public double calcPatternDistance(StopPattern pattern) {
+		int[] edges = patternEdges.get(pattern);
+		if (edges == null) {
+			return -1;
+		}
+		double distance = 0.0;
+		for (int edge : edges) {
+			distance += edgeLengths[edge];
+		}
+		return distance;
+	}
+
+	/**
+	 * @param edge a segment
+	 * @return the average time in seconds Trips take to run over the segment, or -1 if no times were observed
+	 */
+	public double getAverageTravelTime(int edge) {
+		return travelCounts[edge] == 0 ? -1 : (double) totalTravelTimes[edge] / travelCounts[edge];
+	}
+
+	/**
+	 * @param edge a segment
+	 * @return the shortest time in seconds a Trip took to run over the segment, or -1 if no times were observed
+	 */
+	public int getMinTravelTime(int edge) {
+		return travelCounts[edge] == 0 ? -1 : minTravelTimes[edge];
+	}
+
+	/**
+	 * @param edge a segment
+	 * @return the longest time in seconds a Trip took to run over the segment, or -1 if no times were observed
+	 */
+	public int getMaxTravelTime(int edge) {
+		return travelCounts[edge] == 0 ? -1 : maxTravelTimes[edge];
+	}
+
+	//getters
+	public int getEdgeCount() { return edgeKeys.length; }
+	public int getPatternCount() { return patternEdges.size(); }
+	public int getFromStop(int edge) { return (int) (edgeKeys[edge] >>> 32); }
+	public int getToStop(int edge) { return (int) edgeKeys[edge]; }
+	public String getFromStopID(int edge) { return timetable.getStopID(getFromStop(edge)); }
+	public String getToStopID(int edge) { return timetable.getStopID(getToStop(edge)); }
+	public double getLength(int edge) { return edgeLengths[edge]; }
+	public int getTravelCount(int edge) { return travelCounts[edge]; }
+	public int getFirstOutgoingEdge(int stopIndex) { return edgeOffsets[stopIndex]; }
+	public int getEndOutgoingEdge(int stopIndex) { return edgeOffsets[stopIndex + 1]; }
+}
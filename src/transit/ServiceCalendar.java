@@ -0,0 +1,290 @@
+/**
+ * This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ * This class describes which days each "service_id" runs on. In GTFS, "calendar.txt" gives every service a weekly
+ * pattern between a start and end date, and "calendar_dates.txt" adds or removes single dates on top of that.
+ *
+ * Once both are known, every service is resolved into a bitset with one bit per day (starting at the earliest date
+ * in either file), so checking whether a Trip runs on a certain date is a single bit test. When no calendar has been
+ * loaded at all, every service is treated as running every day.
+ *
+ * Resolving gives a new calendar and leaves the one it was resolved from as it was, so a calendar shared with a
+ * Timetable never changes while queries read it. New rows are added to a copy, which is then resolved in turn.
+ */
+package transit;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+
+public class ServiceCalendar {
+	//exception types used by "calendar_dates.txt"
+	public static final int SERVICE_ADDED = 1;
+	public static final int SERVICE_REMOVED = 2;
+
+	//raw rows from "calendar.txt" (weekly patterns) and "calendar_dates.txt" (single date exceptions)
+	private final LinkedHashMap<String, boolean[]> weeklyDays = new LinkedHashMap<>();
+	private final HashMap<String, LocalDate[]> weeklyRanges = new HashMap<>();
+	private final ArrayList<String> exceptionServices = new ArrayList<>();
+	private final ArrayList<LocalDate> exceptionDates = new ArrayList<>();
+	private final ArrayList<Integer> exceptionTypes = new ArrayList<>();
+
+	//resolved bitsets, one per service, where bit "d" means the service runs "d" days after "firstEpochDay"
+	private HashMap<String, Integer> serviceIndexes = new HashMap<>();
+	private String[] serviceIDs = new String[0];
+	private BitSet[] activeDays = new BitSet[0];
+	private long firstEpochDay;
+
+	/**
+	 * Creates an empty calendar, on which every service runs every day.
+	 */
+	public ServiceCalendar() {
+	}
+
+	/**
+	 * Creates a calendar with the same weekly patterns and exceptions as another, ready to be changed and resolved
+	 * without touching the other one. Nothing is resolved yet, so every service runs every day until "build()".
+	 *
+	 * @param calendar the calendar to copy the rows of
+	 */
+	public ServiceCalendar(ServiceCalendar calendar) {
+		for (String serviceID : calendar.weeklyDays.keySet()) {
+			weeklyDays.put(serviceID, calendar.weeklyDays.get(serviceID).clone());
+		}
+		weeklyRanges.putAll(calendar.weeklyRanges);
+		exceptionServices.addAll(calendar.exceptionServices);
+		exceptionDates.addAll(calendar.exceptionDates);
+		exceptionTypes.addAll(calendar.exceptionTypes);
+	}
+
+	/**
+	 * This method adds the weekly pattern of a service (a single line of "calendar.txt").
+	 *
+	 * @param serviceID the "service_id" being described
+	 * @param days whether the service runs on each day of the week, starting with Monday
+	 * @param startDate first date of the pattern (inclusive)
+	 * @param endDate last date of the pattern (inclusive)
+	 */
+	public void addWeeklyService(String serviceID, boolean[] days, LocalDate startDate, LocalDate endDate) {
+		weeklyDays.put(serviceID, days.clone());
+		weeklyRanges.put(serviceID, new LocalDate[]{startDate, endDate});
+	}
+
+	/**
+	 * This method adds or removes a single date of a service (a single line of "calendar_dates.txt").
+	 *
+	 * @param serviceID the "service_id" being changed
+	 * @param date the date that is added or removed
+	 * @param exceptionType SERVICE_ADDED or SERVICE_REMOVED
+	 */
+	public void addException(String serviceID, LocalDate date, int exceptionType) {
+		exceptionServices.add(serviceID);
+		exceptionDates.add(date);
+		exceptionTypes.add(exceptionType);
+	}
+
+	/**
+	 * This method forgets every weekly pattern loaded from "calendar.txt".
+	 */
+	public void clearWeeklyServices() {
+		weeklyDays.clear();
+		weeklyRanges.clear();
+	}
+
+	/**
+	 * This method forgets every exception loaded from "calendar_dates.txt".
+	 */
+	public void clearExceptions() {
+		exceptionServices.clear();
+		exceptionDates.clear();
+		exceptionTypes.clear();
+	}
+
+	/**
+	 * This method resolves every weekly pattern and exception into one bitset of active days per service. This
+	 * calendar is left unchanged; the result is a new calendar with the same rows.
+	 *
+	 * @return a new calendar answering "isActive()" from the current patterns and exceptions
+	 */
+	public ServiceCalendar build() {
+		ServiceCalendar built = new ServiceCalendar(this);
+		built.resolve();
+		return built;
+	}
+
+	/**
+	 * Fills in the bitsets of a calendar that has not been shared yet.
+	 */
+	private void resolve() {
+		//find the first date mentioned anywhere so bit 0 is the earliest day of service
+		long first = Long.MAX_VALUE;
+		for (LocalDate[] range : weeklyRanges.values()) {
+			first = Math.min(first, range[0].toEpochDay());
+		}
+		for (LocalDate date : exceptionDates) {
+			first = Math.min(first, date.toEpochDay());
+		}
+		firstEpochDay = first == Long.MAX_VALUE ? 0 : first;
+
+		LinkedHashMap<String, BitSet> resolved = new LinkedHashMap<>();
+		for (String serviceID : weeklyDays.keySet()) {
+			boolean[] days = weeklyDays.get(serviceID);
+			LocalDate[] range = weeklyRanges.get(serviceID);
+			BitSet bits = new BitSet();
+			for (LocalDate date = range[0]; !date.isAfter(range[1]); date = date.plusDays(1)) {
+				if (days[date.getDayOfWeek().getValue() - 1]) {
+					bits.set(dayIndex(date));
+				}
+			}
+			resolved.put(serviceID, bits);
+		}
+
+		//apply exceptions in file order on top of the weekly patterns
+		for (int i = 0; i < exceptionServices.size(); i++) {
+			BitSet bits = resolved.computeIfAbsent(exceptionServices.get(i), k -> new BitSet());
+			if (exceptionTypes.get(i) == SERVICE_ADDED) {
+				bits.set(dayIndex(exceptionDates.get(i)));
+			} else if (exceptionTypes.get(i) == SERVICE_REMOVED) {
+				bits.clear(dayIndex(exceptionDates.get(i)));
+			}
+		}
+
+		serviceIDs = resolved.keySet().toArray(new String[0]);
+		activeDays = resolved.values().toArray(new BitSet[0]);
+		serviceIndexes = new HashMap<>(resolved.size() * 2);
+		for (int i = 0; i < serviceIDs.length; i++) {
+			serviceIndexes.put(serviceIDs[i], i);
+		}
+	}
+
+	/**
+	 * Number of days between the first day of service and the given date.
+	 */
+	private int dayIndex(LocalDate date) {
+		return (int) (date.toEpochDay() - firstEpochDay);
+	}
+
+	/**
+	 * @param serviceID a "service_id"
+	 * @return the index of the service, or -1 if no calendar mentions it
+	 */
+	public int indexOf(String serviceID) {
+		Integer serviceIndex = serviceIndexes.get(serviceID);
+		return serviceIndex == null ? -1 : serviceIndex;
+	}
+
+	/**
+	 * This method checks whether a service runs on a certain date.
+	 *
+	 * @param serviceIndex index of the service from "indexOf()"
+	 * @param date the date to check
+	 * @return true if the service runs on the date, or if no calendar has been loaded
+	 */
+	public boolean isActive(int serviceIndex, LocalDate date) {
+		if (isEmpty()) {
+			return true;
+		}
+		if (serviceIndex < 0) {
+			return false;
+		}
+		long day = date.toEpochDay() - firstEpochDay;
+		return day >= 0 && day <= Integer.MAX_VALUE && activeDays[serviceIndex].get((int) day);
+	}
+
+	/**
+	 * @param serviceID a "service_id"
+	 * @param date the date to check
+	 * @return true if the service runs on the date, or if no calendar has been loaded
+	 */
+	public boolean isActive(String serviceID, LocalDate date) {
+		return isActive(indexOf(serviceID), date);
+	}
+
+	/**
+	 * This method lists which services run on a certain date, so a whole list of Trips can be filtered by date
+	 * with one bit test per Trip.
+	 *
+	 * @param date the date to check
+	 * @return a bitset with the bit of every service index running on that date set
+	 */
+	public BitSet findActiveServices(LocalDate date) {
+		BitSet active = new BitSet(serviceIDs.length);
+		for (int i = 0; i < serviceIDs.length; i++) {
+			if (isActive(i, date)) {
+				active.set(i);
+			}
+		}
+		return active;
+	}
+
+	/**
+	 * @return the first date any service runs on, or null if no service runs on any date
+	 */
+	public LocalDate getFirstDate() {
+		LocalDate first = null;
+		for (BitSet days : activeDays) {
+			if (!days.isEmpty()) {
+				LocalDate date = LocalDate.ofEpochDay(firstEpochDay + days.nextSetBit(0));
+				first = first == null || date.isBefore(first) ? date : first;
+			}
+		}
+		return first;
+	}
+
+	/**
+	 * @return the last date any service runs on, or null if no service runs on any date
+	 */
+	public LocalDate getLastDate() {
+		LocalDate last = null;
+		for (BitSet days : activeDays) {
+			if (!days.isEmpty()) {
+				LocalDate date = LocalDate.ofEpochDay(firstEpochDay + days.length() - 1);
+				last = last == null || date.isAfter(last) ? date : last;
+			}
+		}
+		return last;
+	}
+
+	/**
+	 * @return true if neither "calendar.txt" nor "calendar_dates.txt" provided any services
+	 */
+	public boolean isEmpty() {
+		return serviceIDs.length == 0;
+	}
+
+	/**
+	 * This method parses the "0"/"1" day flags of a "calendar.txt" line, starting with Monday.
+	 *
+	 * @param flags the seven day columns of the line
+	 * @return whether the service runs on each day of the week, or null if a flag is not "0" or "1"
+	 */
+	public static boolean[] parseWeekdays(String[] flags) {
+		boolean[] days = new boolean[DayOfWeek.values().length];
+		for (int i = 0; i < days.length; i++) {
+			String flag = flags[i].trim();
+			if (!flag.equals("0") && !flag.equals("1")) {
+				return null;
+			}
+			days[i] = flag.equals("1");
+		}
+		return days;
+	}
+
+	//getters
+	public int getServiceCount() { return serviceIDs.length; }
+	public String getServiceID(int serviceIndex) { return serviceIDs[serviceIndex]; }
+}
@@ -18,6 +18,8 @@
  */
 package transit;
 
+import java.util.Objects;
+
 public class Stop {
 	private String stopID;
 	private String name;
@@ -52,6 +54,28 @@ public class Stop {
 		this.longitude = longitude;
 	}
 
+	/**
+	 * Stops are compared by stop_id alone, so moving a Stop with "updateStopLocation()" does not change which Stop
+	 * it is.
+	 * @param obj Stop object to be compared
+	 * @return true if the other object is a Stop with the same stop_id
+	 */
+	@Override
+	public boolean equals(Object obj){
+		if(this == obj){
+			return true;
+		}
+		if(obj == null || getClass() != obj.getClass()){
+			return false;
+		}
+		return Objects.equals(stopID, ((Stop)obj).stopID);
+	}
+
+	@Override
+	public int hashCode(){
+		return Objects.hashCode(stopID);
+	}
+
 	//getters
 	public String getStopID() { return stopID; }
 	public String getName() { return name; }
@@ -0,0 +1,373 @@
+/**
+ * This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ * This class indexes the names and stop_id(s) of every Stop for autocomplete, so a Stop can be found by typing the
+ * start of each word of its name ("water st" finds "Water Street & 3rd Ave") or the start of its stop_id. Letters
+ * are compared without case or accents, so typing "cafe" also finds a name spelled with an accented "e".
+ *
+ * Results are ranked with exact stop_id matches first, then names or stop_id(s) starting with the whole typed text,
+ * then any other match; shorter names come first within each rank.
+ *
+ * Every word of every name is kept in one sorted array along with the Stop it came from, and so are the whole names
+ * and the whole stop_id(s). The keys starting with some text are then a single range of an array, found with two
+ * binary searches. A tree over each array holding the smallest name rank under each node gives the Stops of a range
+ * best match first, so a lookup stops as soon as enough Stops are found instead of checking every Stop in the
+ * range. This keeps each lookup well under a millisecond even on feeds with a hundred thousand Stops.
+ */
+package transit;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.function.IntPredicate;
+import java.util.regex.Pattern;
+
+public class StopNameIndex {
+	//number of suggestions given when no limit is asked for
+	public static final int DEFAULT_LIMIT = 10;
+
+	private static final Pattern ACCENTS = Pattern.compile("\\p{M}+");
+
+	private final Stop[] stops;
+	private final String[] normalizedIDs;
+	private final String[][] stopWords;
+
+	//rank of each Stop when sorted by the length of its name then by its name, used to order equally good matches
+	private final int[] nameRanks;
+
+	//every word of every name, every whole name and every whole stop_id, each sorted
+	private final SortedKeys words;
+	private final SortedKeys names;
+	private final SortedKeys ids;
+
+	//Stops by stop_id (the last Stop is kept if several share a stop_id)
+	private final HashMap<String, Stop> stopsByID;
+
+	/**
+	 * Indexes the names and stop_id(s) of the given Stops.
+	 *
+	 * @param stops the Stops to index
+	 */
+	public StopNameIndex(List<Stop> stops) {
+		int numStops = stops.size();
+		this.stops = stops.toArray(new Stop[0]);
+		normalizedIDs = new String[numStops];
+		String[] normalizedNames = new String[numStops];
+		stopWords = new String[numStops][];
+		stopsByID = new HashMap<>(numStops * 2);
+
+		ArrayList<String> allWords = new ArrayList<>(numStops * 4);
+		ArrayList<Integer> allWordStops = new ArrayList<>(numStops * 4);
+		ArrayList<Integer> allStops = new ArrayList<>(numStops);
+		for (int i = 0; i < numStops; i++) {
+			Stop stop = this.stops[i];
+			stopsByID.put(stop.getStopID(), stop);
+			normalizedIDs[i] = normalize(stop.getStopID());
+			normalizedNames[i] = normalize(stop.getName());
+			allStops.add(i);
+
+			//words of the stop_id count as much as words of the name
+			LinkedHashSet<String> wordSet = new LinkedHashSet<>(splitWords(normalizedNames[i]));
+			wordSet.addAll(splitWords(normalizedIDs[i]));
+			stopWords[i] = wordSet.toArray(new String[0]);
+			for (String word : stopWords[i]) {
+				allWords.add(word);
+				allWordStops.add(i);
+			}
+		}
+
+		words = new SortedKeys(allWords, allWordStops);
+		names = new SortedKeys(Arrays.asList(normalizedNames), allStops);
+		ids = new SortedKeys(Arrays.asList(normalizedIDs), allStops);
+
+		//shorter names come first when Stops match equally well, so the names already in order are placed by length
+		int maxLength = 0;
+		for (String name : normalizedNames) {
+			maxLength = Math.max(maxLength, name.length());
+		}
+		int[] lengthStarts = new int[maxLength + 2];
+		for (String name : normalizedNames) {
+			lengthStarts[name.length() + 1]++;
+		}
+		for (int length = 1; length < lengthStarts.length; length++) {
+			lengthStarts[length] += lengthStarts[length - 1];
+		}
+		nameRanks = new int[numStops];
+		for (int k = 0; k < numStops; k++) {
+			int stopIndex = names.getStop(k);
+			nameRanks[stopIndex] = lengthStarts[normalizedNames[stopIndex].length()]++;
+		}
+
+		words.rankStops(nameRanks);
+		names.rankStops(nameRanks);
+		ids.rankStops(nameRanks);
+	}
+
+	/**
+	 * This method lowers the case of text and takes the accents off of its letters, so that text can be compared the
+	 * way a person typing it would expect.
+	 *
+	 * @param text the text to normalize
+	 * @return the normalized text, or an empty String for null
+	 */
+	public static String normalize(String text) {
+		if (text == null) {
+			return "";
+		}
+		boolean ascii = true;
+		for (int i = 0; i < text.length() && ascii; i++) {
+			ascii = text.charAt(i) < 128;
+		}
+		if (ascii) {
+			return text.toLowerCase(Locale.ROOT).trim();
+		}
+		String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+		return ACCENTS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT).trim();
+	}
+
+	/**
+	 * Splits normalized text into its words, dropping spaces and punctuation.
+	 */
+	private static List<String> splitWords(String normalized) {
+		ArrayList<String> split = new ArrayList<>(4);
+		int wordStart = -1;
+		for (int i = 0; i <= normalized.length(); i++) {
+			boolean inWord = i < normalized.length() && Character.isLetterOrDigit(normalized.charAt(i));
+			if (inWord && wordStart < 0) {
+				wordStart = i;
+			} else if (!inWord && wordStart >= 0) {
+				split.add(normalized.substring(wordStart, i));
+				wordStart = -1;
+			}
+		}
+		return split;
+	}
+
+	/**
+	 * This method finds the Stops best matching what has been typed so far. A Stop matches if its name or stop_id
+	 * starts with the whole text, or if every typed word is the start of a word of its name or stop_id.
+	 *
+	 * @param query the text typed so far
+	 * @param limit largest number of Stops to give back
+	 * @return the matching Stops, best match first
+	 */
+	public ArrayList<Stop> autocomplete(String query, int limit) {
+		ArrayList<Stop> results = new ArrayList<>();
+		String normalizedQuery = normalize(query);
+		if (normalizedQuery.isEmpty() || limit <= 0) {
+			return results;
+		}
+		BitSet found = new BitSet(stops.length);
+
+		//exact stop_id(s) first, which sort before every longer stop_id starting with the same text
+		int[] idRange = ids.findRange(normalizedQuery);
+		for (int k = idRange[0]; k < idRange[1] && results.size() < limit; k++) {
+			if (!ids.getKey(k).equals(normalizedQuery)) {
+				break;
+			}
+			found.set(ids.getStop(k));
+			results.add(stops[ids.getStop(k)]);
+		}
+
+		//then names and stop_id(s) starting with the whole text, by name
+		int[] nameRange = names.findRange(normalizedQuery);
+		ArrayList<Integer> prefixMatches = new ArrayList<>();
+		int wanted = limit - results.size();
+		for (SortedKeys keys : new SortedKeys[]{names, ids}) {
+			int[] range = keys == names ? nameRange : idRange;
+			int[] numFound = {0};
+			keys.visitByName(range[0], range[1], stopIndex -> {
+				if (!found.get(stopIndex)) {
+					prefixMatches.add(stopIndex);
+					numFound[0]++;
+				}
+				return numFound[0] < wanted;
+			});
+		}
+		prefixMatches.sort(Comparator.comparingInt(stopIndex -> nameRanks[stopIndex]));
+		for (int stopIndex : prefixMatches) {
+			if (results.size() < limit && !found.get(stopIndex)) {
+				found.set(stopIndex);
+				results.add(stops[stopIndex]);
+			}
+		}
+
+		//then every other Stop having a word starting with each typed word, taken from the typed word that fewest
+		//words of any Stop start with (every typed word must match, so any one of them will do)
+		List<String> queryWords = splitWords(normalizedQuery);
+		int[] wordRange = null;
+		for (String queryWord : queryWords) {
+			int[] range = words.findRange(queryWord);
+			if (wordRange == null || range[1] - range[0] < wordRange[1] - wordRange[0]) {
+				wordRange = range;
+			}
+		}
+		if (wordRange != null && results.size() < limit) {
+			words.visitByName(wordRange[0], wordRange[1], stopIndex -> {
+				if (!found.get(stopIndex) && matchesAllWords(stopIndex, queryWords)) {
+					found.set(stopIndex);
+					results.add(stops[stopIndex]);
+				}
+				return results.size() < limit;
+			});
+		}
+		return results;
+	}
+
+	/**
+	 * Checks whether every typed word is the start of a word of a Stop's name or stop_id.
+	 */
+	private boolean matchesAllWords(int stopIndex, List<String> queryWords) {
+		for (String queryWord : queryWords) {
+			boolean matched = false;
+			for (String word : stopWords[stopIndex]) {
+				if (word.startsWith(queryWord)) {
+					matched = true;
+					break;
+				}
+			}
+			if (!matched) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @param stopID the ID of a Stop
+	 * @return the Stop with exactly that stop_id, or null if there is none
+	 */
+	public Stop findStop(String stopID) {
+		return stopsByID.get(stopID);
+	}
+
+	//getters
+	public int getStopCount() { return stops.length; }
+
+	/**
+	 * Keys (such as words or names) in sorted order, each with the Stop it came from. A binary tree over the keys
+	 * holds the smallest name rank of any Stop under each node, so the Stops of a range of keys can be visited in
+	 * name order without looking at the rest of the range.
+	 */
+	private static final class SortedKeys {
+		private final String[] keys;
+		private final int[] keyStops;
+
+		//the tree, with its root at 1, the children of node "n" at 2n and 2n + 1, and key "k" at leaves + k
+		private final int[] minimumRanks;
+		private final int leaves;
+
+		SortedKeys(List<String> unsortedKeys, List<Integer> unsortedStops) {
+
+			//sort the distinct keys only, then place every key after the keys sorted before it (a counting sort)
+			HashMap<String, Integer> keyCounts = new HashMap<>();
+			for (String key : unsortedKeys) {
+				keyCounts.merge(key, 1, Integer::sum);
+			}
+			String[] distinctKeys = keyCounts.keySet().toArray(new String[0]);
+			Arrays.sort(distinctKeys);
+			HashMap<String, Integer> keyStarts = new HashMap<>(distinctKeys.length * 2);
+			int position = 0;
+			for (String key : distinctKeys) {
+				keyStarts.put(key, position);
+				position += keyCounts.get(key);
+			}
+			keys = new String[unsortedKeys.size()];
+			keyStops = new int[unsortedKeys.size()];
+			for (int i = 0; i < keys.length; i++) {
+				String key = unsortedKeys.get(i);
+				int start = keyStarts.merge(key, 1, Integer::sum) - 1;
+				keys[start] = key;
+				keyStops[start] = unsortedStops.get(i);
+			}
+
+			leaves = Integer.highestOneBit(Math.max(1, keys.length - 1)) << 1;
+			minimumRanks = new int[leaves * 2];
+		}
+
+		/**
+		 * Fills the tree with the name rank of each key's Stop.
+		 */
+		void rankStops(int[] nameRanks) {
+			Arrays.fill(minimumRanks, Integer.MAX_VALUE);
+			for (int k = 0; k < keys.length; k++) {
+				minimumRanks[leaves + k] = nameRanks[keyStops[k]];
+			}
+			for (int node = leaves - 1; node > 0; node--) {
+				minimumRanks[node] = Math.min(minimumRanks[2 * node], minimumRanks[2 * node + 1]);
+			}
+		}
+
+		/**
+		 * @return the first position and the position after the last of the keys starting with the given text
+		 */
+		int[] findRange(String prefix) {
+			return new int[]{lowerBound(prefix), lowerBound(prefix + Character.MAX_VALUE)};
+		}
+
+		private int lowerBound(String text) {
+			int low = 0;
+			int high = keys.length;
+			while (low < high) {
+				int middle = (low + high) >>> 1;
+				if (keys[middle].compareTo(text) < 0) {
+					low = middle + 1;
+				} else {
+					high = middle;
+				}
+			}
+			return low;
+		}
+
+		/**
+		 * Visits the Stops of the keys from "start" up to "end" in name order until the visitor gives back false. A
+		 * Stop with several keys in the range is visited once for each.
+		 */
+		void visitByName(int start, int end, IntPredicate visitor) {
+			//nodes waiting to be visited, as their smallest name rank followed by the node itself
+			PriorityQueue<Long> pending = new PriorityQueue<>();
+			for (int low = start + leaves, high = end + leaves; low < high; low >>>= 1, high >>>= 1) {
+				if ((low & 1) == 1) {
+					pending.add(((long) minimumRanks[low] << 32) | low);
+					low++;
+				}
+				if ((high & 1) == 1) {
+					high--;
+					pending.add(((long) minimumRanks[high] << 32) | high);
+				}
+			}
+			while (!pending.isEmpty()) {
+				int node = (int) (long) pending.poll();
+				if (node >= leaves) {
+					if (!visitor.test(keyStops[node - leaves])) {
+						return;
+					}
+				} else {
+					pending.add(((long) minimumRanks[2 * node] << 32) | (2 * node));
+					pending.add(((long) minimumRanks[2 * node + 1] << 32) | (2 * node + 1));
+				}
+			}
+		}
+
+		String getKey(int position) { return keys[position]; }
+		int getStop(int position) { return keyStops[position]; }
+	}
+}
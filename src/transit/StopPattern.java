@@ -0,0 +1,90 @@
+/**
+ * This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ * This class is a stop pattern: a sequence of Stops that one or more Trips visit in exactly the same order. Most
+ * Trips of a Route only differ from each other by their times, so a feed with thousands of Trips usually has only a
+ * few dozen patterns. Questions about which Stops a Trip visits can then be answered once per pattern instead of
+ * once per Trip, and every Trip of a pattern shares the pattern's stop_id Strings.
+ *
+ * The sequence of Stops never changes. A Trip whose Stops are edited is moved to the pattern of its new sequence.
+ * Once TransitData has published a pattern, its Trips never change either, since searches may be reading them on
+ * other threads; moving a Trip replaces the patterns it leaves and joins with changed copies instead.
+ */
+package transit;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+public class StopPattern {
+	private final String[] stopIDs;
+
+	//Trips visiting this sequence of Stops, in the order they were assigned
+	private final LinkedHashSet<Trip> trips = new LinkedHashSet<>();
+
+	/**
+	 * Creates a pattern for the given sequence of Stops, with no Trips yet.
+	 *
+	 * @param stopIDs stop_id(s) in the order they are visited
+	 */
+	public StopPattern(List<String> stopIDs) {
+		this.stopIDs = stopIDs.toArray(new String[0]);
+	}
+
+	/**
+	 * Creates a copy of a pattern with the same Trips, sharing its stop_id Strings, so Trips can be added to or
+	 * removed from the copy while the original is still being read.
+	 *
+	 * @param pattern the pattern to copy
+	 */
+	StopPattern(StopPattern pattern) {
+		this.stopIDs = pattern.stopIDs;
+		trips.addAll(pattern.trips);
+	}
+
+	/**
+	 * @param stopID the ID of a Stop
+	 * @return true if the pattern visits the Stop
+	 */
+	public boolean containsStop(String stopID) {
+		for (String patternStopID : stopIDs) {
+			if (patternStopID.equals(stopID)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	void addTrip(Trip trip) {
+		trips.add(trip);
+	}
+
+	void removeTrip(Trip trip) {
+		trips.remove(trip);
+	}
+
+	/**
+	 * @return the sequence of Stops as a key, equal for every pattern visiting the same Stops in the same order
+	 */
+	List<String> getKey() {
+		return Collections.unmodifiableList(Arrays.asList(stopIDs));
+	}
+
+	//getters
+	public int getStopCount() { return stopIDs.length; }
+	public String getStopID(int position) { return stopIDs[position]; }
+	public Set<Trip> getTrips() { return Collections.unmodifiableSet(trips); }
+}
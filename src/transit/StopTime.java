@@ -15,6 +15,11 @@
  *  This class describes a StopTime. A StopTime in the context of a GTFS system is when a Stop is visited in a Trip.
  *  StopTimes are used to determine things such as what order Stops are visited in a Trip as well as what Stops are
  *  even visited in a Trip. Furthermore, attributes such as Trip distance and speed can be determined with StopTimes.
+ *
+ *  Feeds have millions of StopTimes but only a handful of different "stop_headsign", "pickup_type" and
+ *  "drop_off_type" values, which hardly anything reads. Those columns are stored as codes into dictionaries shared by
+ *  the StopTimes of the same "stop_times.txt" rather than as a String per StopTime. Each parse gets new dictionaries,
+ *  so the values of a feed that is reloaded or dropped go away along with its StopTimes.
  */
 package transit;
 
@@ -24,12 +29,17 @@ public class StopTime {
 	private String departureTime;
 	private String stopID;
 	private String stopSequence;
-	private String stopHeadsign;
-	private String pickupType;
-	private String dropoffType;
+
+	//rarely read columns, kept as dictionary codes and only turned back into Strings by their getters
+	private final int stopHeadsignCode;
+	private final int pickupTypeCode;
+	private final int dropoffTypeCode;
+
+	//distinct values of the rarely read columns, shared by the StopTimes parsed along with this one
+	private final Dictionaries dictionaries;
 
 	/**
-	 * Basic constructor for a StopTime object.
+	 * Basic constructor for a StopTime object, which keeps its rarely read columns in dictionaries of its own.
 	 * TODO: describe each of this objects attribute in minor detail
 	 * @param tripID
 	 * @param arrivalTime
@@ -43,14 +53,56 @@ public class StopTime {
 	public StopTime(String tripID, String arrivalTime, String departureTime, String stopID,
 					String stopSequence, String stopHeadsign, String pickupType,
 					String dropoffType) {
+		this(tripID, arrivalTime, departureTime, stopID, stopSequence, stopHeadsign, pickupType, dropoffType,
+				new Dictionaries());
+	}
+
+	/**
+	 * Constructor for a StopTime object parsed along with many others, which share the same dictionaries.
+	 * TODO: describe each of this objects attribute in minor detail
+	 * @param tripID
+	 * @param arrivalTime
+	 * @param departureTime
+	 * @param stopID
+	 * @param stopSequence
+	 * @param stopHeadsign
+	 * @param pickupType
+	 * @param dropoffType
+	 * @param dictionaries dictionaries of the "stop_times.txt" being parsed
+	 */
+	public StopTime(String tripID, String arrivalTime, String departureTime, String stopID,
+					String stopSequence, String stopHeadsign, String pickupType,
+					String dropoffType, Dictionaries dictionaries) {
+		this.dictionaries = dictionaries;
 		this.tripID = tripID;
 		this.arrivalTime = arrivalTime;
 		this.departureTime = departureTime;
 		this.stopID = stopID;
 		this.stopSequence = stopSequence;
-		this.stopHeadsign = stopHeadsign;
-		this.pickupType = pickupType;
-		this.dropoffType = dropoffType;
+		this.stopHeadsignCode = dictionaries.headsigns.encode(stopHeadsign);
+		this.pickupTypeCode = dictionaries.boardingTypes.encode(pickupType);
+		this.dropoffTypeCode = dictionaries.boardingTypes.encode(dropoffType);
+	}
+
+	/**
+	 * Copies a StopTime with other times and another Stop, keeping its rarely read columns. Edits make copies rather
+	 * than changing a StopTime, since other threads may be reading it.
+	 *
+	 * @param original the StopTime being edited
+	 * @param arrivalTime the new arrival time
+	 * @param departureTime the new departure time
+	 * @param stopID the new stop_id
+	 */
+	StopTime(StopTime original, String arrivalTime, String departureTime, String stopID) {
+		this.dictionaries = original.dictionaries;
+		this.tripID = original.tripID;
+		this.arrivalTime = arrivalTime;
+		this.departureTime = departureTime;
+		this.stopID = stopID;
+		this.stopSequence = original.stopSequence;
+		this.stopHeadsignCode = original.stopHeadsignCode;
+		this.pickupTypeCode = original.pickupTypeCode;
+		this.dropoffTypeCode = original.dropoffTypeCode;
 	}
 
 	//getters
@@ -59,7 +111,26 @@ public class StopTime {
 	public String getDepartureTime() { return departureTime; }
 	public String getStopID() { return stopID; }
 	public String getStopSequence() { return stopSequence; }
-	public String getStopHeadsign() { return stopHeadsign; }
-	public String getPickupType() { return pickupType; }
-	public String getDropoffType() { return dropoffType; }
+	public String getStopHeadsign() { return dictionaries.headsigns.decode(stopHeadsignCode); }
+	public String getPickupType() { return dictionaries.boardingTypes.decode(pickupTypeCode); }
+	public String getDropoffType() { return dictionaries.boardingTypes.decode(dropoffTypeCode); }
+	public Dictionaries getDictionaries() { return dictionaries; }
+
+	//setters
+	public void setArrivalTime(String arrivalTime) { this.arrivalTime = arrivalTime; }
+	public void setDepartureTime(String departureTime) { this.departureTime = departureTime; }
+	public void setStopID(String stopID) { this.stopID = stopID; }
+
+	/**
+	 * The distinct "stop_headsign" values and the distinct "pickup_type" and "drop_off_type" values of the
+	 * StopTimes sharing it.
+	 */
+	public static final class Dictionaries {
+		private final FieldDictionary headsigns = new FieldDictionary();
+		private final FieldDictionary boardingTypes = new FieldDictionary();
+
+		//getters
+		public FieldDictionary getHeadsigns() { return headsigns; }
+		public FieldDictionary getBoardingTypes() { return boardingTypes; }
+	}
 }
\ No newline at end of file
@@ -0,0 +1,684 @@
+/**
+ * This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ * This class is a primitive, read-only copy of every Trip's sequence of StopTimes. Trips, Stops and StopTimes are
+ * convenient for displaying data, but searching them means comparing Strings and following object references. The
+ * Timetable instead numbers every Stop and Trip and keeps their times as seconds in flat int arrays, which is what
+ * the search algorithms (such as isochrones) work against. A new Timetable is built whenever the feed changes, and
+ * edits to a group of Trips produce a new Timetable that shares every array the edits did not touch.
+ *
+ * Stop indexes follow the order of the list of Stops the Timetable was built from. The StopTimes of Trip "t" are
+ * found at positions tripOffsets[t] to tripOffsets[t + 1] - 1 of the stop, arrival and departure arrays. The
+ * StopTimes at Stop "s" are also listed in order of arrival at positions stopEventOffsets[s] to
+ * stopEventOffsets[s + 1] - 1 of the stop event array, for answering "what arrives here next" with a binary search.
+ *
+ * The columns with one value per StopTime or per connection grow with the size of the feed, so they are kept as
+ * IntColumns, which may be compressed to fit very large feeds into less memory. The columns with one value per Stop or per Trip stay on the heap along with
+ * the Stops and Trips themselves.
+ *
+ * Busy Stops may also get a minute table: the first stop event of each minute of the service day, so the next
+ * arrival at the Stop is found with one lookup and a short scan instead of a binary search.
+ */
+package transit;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+
+public class Timetable {
+	//minute tables cover two service days, since GTFS times run past midnight; later times use a binary search
+	public static final int MINUTE_TABLE_LENGTH = 2 * 24 * 60;
+
+	//most entries all minute tables may hold together, so memory stays bounded however many Stops are busy
+	public static final int MINUTE_TABLE_BUDGET = 1 << 20;
+
+	private final String[] stopIDs;
+	private final HashMap<String, Integer> stopIndexes;
+	private final double[] stopLatitudes;
+	private final double[] stopLongitudes;
+	private final Trip[] trips;
+	private final HashMap<String, Integer> tripIndexes;
+
+	//ServiceCalendar index of every Trip's "service_id"
+	private final ServiceCalendar serviceCalendar;
+	private final int[] tripServices;
+
+	//where the per StopTime and per connection columns are kept
+	private final IntColumn.Storage storage;
+
+	//flattened StopTimes, grouped by Trip
+	private final int[] tripOffsets;
+	private final IntColumn stopTimeStops;
+	private final IntColumn arrivals;
+	private final IntColumn departures;
+	private final IntColumn stopTimeTrips;
+
+	//StopTime positions grouped by Stop and sorted by arrival time
+	private final int[] stopEventOffsets;
+	private final IntColumn stopEvents;
+
+	//every hop between two consecutive StopTimes of a Trip, sorted by departure time
+	private final IntColumn connectionTrips;
+	private final IntColumn connectionStopTimes;
+	private final IntColumn connectionDepartures;
+
+	//first stop event of every minute at each Stop with at least "minuteTableThreshold" events (null elsewhere)
+	private final int[][] minuteTables;
+	private final int minuteTableThreshold;
+
+	/**
+	 * Builds a Timetable from the given Stops and Trips where every Trip runs every day.
+	 *
+	 * @param stops every known Stop
+	 * @param trips every known Trip
+	 */
+	public Timetable(List<Stop> stops, List<Trip> trips) {
+		this(stops, trips, new ServiceCalendar());
+	}
+
+	/**
+	 * Builds a Timetable from the given Stops and Trips. StopTimes that refer to unknown Stops or have badly
+	 * formatted times are left out.
+	 *
+	 * @param stops every known Stop
+	 * @param trips every known Trip
+	 * @param serviceCalendar the days each "service_id" runs on
+	 */
+	public Timetable(List<Stop> stops, List<Trip> trips, ServiceCalendar serviceCalendar) {
+		this(stops, trips, serviceCalendar, IntColumn.Storage.HEAP);
+	}
+
+	/**
+	 * Builds a Timetable from the given Stops and Trips, keeping its largest columns in the given storage, plain or compressed.
+	 *
+	 * @param stops every known Stop
+	 * @param trips every known Trip
+	 * @param serviceCalendar the days each "service_id" runs on
+	 * @param storage how to keep the columns with one value per StopTime or per connection
+	 */
+	public Timetable(List<Stop> stops, List<Trip> trips, ServiceCalendar serviceCalendar, IntColumn.Storage storage) {
+		this.serviceCalendar = serviceCalendar;
+		this.storage = storage;
+		minuteTables = new int[stops.size()][];
+		minuteTableThreshold = 0;
+		int numStops = stops.size();
+		stopIDs = new String[numStops];
+		stopIndexes = new HashMap<>(numStops * 2);
+		stopLatitudes = new double[numStops];
+		stopLongitudes = new double[numStops];
+		for (int i = 0; i < numStops; i++) {
+			Stop stop = stops.get(i);
+			stopIDs[i] = stop.getStopID();
+			stopIndexes.put(stopIDs[i], i);
+			stopLatitudes[i] = stop.getLatitude();
+			stopLongitudes[i] = stop.getLongitude();
+		}
+
+		//count the StopTimes first so every array can be allocated once
+		int numStopTimes = 0;
+		for (Trip trip : trips) {
+			numStopTimes += trip.getStopSequence().size();
+		}
+
+		ArrayList<Trip> keptTrips = new ArrayList<>(trips.size());
+		int[] offsets = new int[trips.size() + 1];
+		int[] flatStops = new int[numStopTimes];
+		int[] flatArrivals = new int[numStopTimes];
+		int[] flatDepartures = new int[numStopTimes];
+		int position = 0;
+		for (Trip trip : trips) {
+			int tripStart = position;
+			for (StopTime stopTime : trip.getStopSequence()) {
+				Integer stopIndex = stopIndexes.get(stopTime.getStopID());
+				int arrival = parseTime(stopTime.getArrivalTime());
+				int departure = parseTime(stopTime.getDepartureTime());
+				if (stopIndex == null || (arrival < 0 && departure < 0)) {
+					continue;
+				}
+
+				//GTFS allows one of the two times to be left out, so fall back on the other one
+				flatStops[position] = stopIndex;
+				flatArrivals[position] = arrival < 0 ? departure : arrival;
+				flatDepartures[position] = departure < 0 ? arrival : departure;
+				position++;
+			}
+
+			//only keep Trips that visit at least one known Stop
+			if (position > tripStart) {
+				keptTrips.add(trip);
+				offsets[keptTrips.size()] = position;
+			}
+		}
+
+		this.trips = keptTrips.toArray(new Trip[0]);
+		tripIndexes = new HashMap<>(this.trips.length * 2);
+		tripServices = new int[this.trips.length];
+		for (int t = 0; t < this.trips.length; t++) {
+			tripIndexes.put(this.trips[t].getTripID(), t);
+			tripServices[t] = serviceCalendar.indexOf(this.trips[t].getServiceID());
+		}
+		tripOffsets = Arrays.copyOf(offsets, this.trips.length + 1);
+		flatStops = Arrays.copyOf(flatStops, position);
+		flatArrivals = Arrays.copyOf(flatArrivals, position);
+		flatDepartures = Arrays.copyOf(flatDepartures, position);
+
+		//create a connection for every hop and sort them by departure time
+		int numConnections = position - this.trips.length;
+		long[] sortKeys = new long[numConnections];
+		int[] flatTrips = new int[position];
+		int c = 0;
+		for (int t = 0; t < this.trips.length; t++) {
+			for (int s = tripOffsets[t]; s < tripOffsets[t + 1]; s++) {
+				flatTrips[s] = t;
+				//departure in the upper bits, StopTime position in the lower bits
+				if (s < tripOffsets[t + 1] - 1) {
+					sortKeys[c++] = ((long) flatDepartures[s] << 32) | s;
+				}
+			}
+		}
+		Arrays.sort(sortKeys);
+		int[] hopTrips = new int[numConnections];
+		int[] hopStopTimes = new int[numConnections];
+		int[] hopDepartures = new int[numConnections];
+		for (int i = 0; i < numConnections; i++) {
+			int s = (int) sortKeys[i];
+			hopStopTimes[i] = s;
+			hopTrips[i] = flatTrips[s];
+			hopDepartures[i] = flatDepartures[s];
+		}
+
+		//group the StopTimes by Stop, then sort each Stop's StopTimes by arrival time
+		stopEventOffsets = new int[numStops + 1];
+		for (int s = 0; s < position; s++) {
+			stopEventOffsets[flatStops[s] + 1]++;
+		}
+		for (int i = 0; i < numStops; i++) {
+			stopEventOffsets[i + 1] += stopEventOffsets[i];
+		}
+		long[] eventKeys = new long[position];
+		int[] nextEvent = Arrays.copyOf(stopEventOffsets, numStops);
+		for (int s = 0; s < position; s++) {
+			eventKeys[nextEvent[flatStops[s]]++] = ((long) flatArrivals[s] << 32) | s;
+		}
+		int[] events = new int[position];
+		for (int i = 0; i < numStops; i++) {
+			Arrays.sort(eventKeys, stopEventOffsets[i], stopEventOffsets[i + 1]);
+		}
+		for (int e = 0; e < position; e++) {
+			events[e] = (int) eventKeys[e];
+		}
+
+		//the arrays above are only needed until they are stored
+		stopTimeStops = IntColumn.of(flatStops, storage);
+		arrivals = IntColumn.of(flatArrivals, storage);
+		departures = IntColumn.of(flatDepartures, storage);
+		stopTimeTrips = IntColumn.of(flatTrips, storage);
+		stopEvents = IntColumn.of(events, storage);
+		connectionTrips = IntColumn.of(hopTrips, storage);
+		connectionStopTimes = IntColumn.of(hopStopTimes, storage);
+		connectionDepartures = IntColumn.of(hopDepartures, storage);
+	}
+
+	/**
+	 * This method turns a GTFS time ("HH:MM:SS") into the number of seconds since the start of the service day.
+	 * Unlike LocalTime, hours past 23 are allowed since GTFS uses them for Trips that run past midnight.
+	 *
+	 * @param time the time to convert, such as "7:15:00" or "25:10:00"
+	 * @return number of seconds since the start of the service day, or -1 if the time is missing or malformed
+	 */
+	public static int parseTime(String time) {
+		if (time == null) {
+			return -1;
+		}
+		int seconds = 0;
+		int field = 0;
+		int numFields = 0;
+		int numDigits = 0;
+		for (int i = 0; i < time.length(); i++) {
+			char character = time.charAt(i);
+			if (character >= '0' && character <= '9') {
+				field = field * 10 + (character - '0');
+				numDigits++;
+			} else if (character == ':' && numDigits > 0) {
+				seconds = seconds * 60 + field;
+				field = 0;
+				numDigits = 0;
+				numFields++;
+			} else if (character != ' ' && character != '"') {
+				return -1;
+			}
+		}
+		if (numDigits == 0 || numFields != 2) {
+			return -1;
+		}
+		return seconds * 60 + field;
+	}
+
+	/**
+	 * This method turns a number of seconds since the start of the service day back into a GTFS time ("HH:MM:SS").
+	 *
+	 * @param seconds number of seconds since the start of the service day, which may be past 24 hours
+	 * @return the time formatted the way GTFS files write it
+	 */
+	public static String formatTime(int seconds) {
+		int hours = seconds / 3600;
+		int minutes = seconds / 60 % 60;
+		int remainder = seconds % 60;
+		return (hours < 10 ? "0" : "") + hours + (minutes < 10 ? ":0" : ":") + minutes
+				+ (remainder < 10 ? ":0" : ":") + remainder;
+	}
+
+	/**
+	 * Copies a Timetable, sharing every array the update below does not change.
+	 */
+	private Timetable(Timetable base, IntColumn stopTimeStops, IntColumn arrivals, IntColumn departures,
+					  int[] stopEventOffsets, IntColumn stopEvents, IntColumn connectionTrips,
+					  IntColumn connectionStopTimes, IntColumn connectionDepartures, int[][] minuteTables,
+					  int minuteTableThreshold) {
+		storage = base.storage;
+		stopIDs = base.stopIDs;
+		stopIndexes = base.stopIndexes;
+		stopLatitudes = base.stopLatitudes;
+		stopLongitudes = base.stopLongitudes;
+		trips = base.trips;
+		tripIndexes = base.tripIndexes;
+		serviceCalendar = base.serviceCalendar;
+		tripServices = base.tripServices;
+		tripOffsets = base.tripOffsets;
+		stopTimeTrips = base.stopTimeTrips;
+		this.stopTimeStops = stopTimeStops;
+		this.arrivals = arrivals;
+		this.departures = departures;
+		this.stopEventOffsets = stopEventOffsets;
+		this.stopEvents = stopEvents;
+		this.connectionTrips = connectionTrips;
+		this.connectionStopTimes = connectionStopTimes;
+		this.connectionDepartures = connectionDepartures;
+		this.minuteTables = minuteTables;
+		this.minuteTableThreshold = minuteTableThreshold;
+	}
+
+	/**
+	 * This method gives busy Stops a minute table, so their next arrival is found in constant time. Stops are
+	 * given tables from the busiest down, until the tables would hold more than MINUTE_TABLE_BUDGET entries.
+	 *
+	 * @param threshold fewest stop events a Stop must have to get a table, or 0 to build no tables
+	 * @return a Timetable sharing every column with this one, with minute tables for the busy Stops
+	 */
+	public Timetable withMinuteTables(int threshold) {
+		int numStops = stopIDs.length;
+		int[][] tables = new int[numStops][];
+		if (threshold > 0) {
+			//order the busy Stops by their number of events, busiest first
+			long[] busyStops = new long[numStops];
+			int numBusy = 0;
+			for (int i = 0; i < numStops; i++) {
+				int numEvents = stopEventOffsets[i + 1] - stopEventOffsets[i];
+				if (numEvents >= threshold) {
+					busyStops[numBusy++] = ((long) numEvents << 32) | i;
+				}
+			}
+			Arrays.sort(busyStops, 0, numBusy);
+
+			int budget = MINUTE_TABLE_BUDGET;
+			for (int b = numBusy - 1; b >= 0 && budget > 0; b--) {
+				int stopIndex = (int) busyStops[b];
+				int[] table = buildMinuteTable(stopIndex, arrivals, stopEventOffsets, stopEvents);
+				if (table.length <= budget) {
+					tables[stopIndex] = table;
+					budget -= table.length;
+				}
+			}
+		}
+		return new Timetable(this, stopTimeStops, arrivals, departures, stopEventOffsets, stopEvents,
+				connectionTrips, connectionStopTimes, connectionDepartures, tables, threshold);
+	}
+
+	/**
+	 * Builds the minute table of a Stop: for each minute up to the Stop's last arrival (at most MINUTE_TABLE_LENGTH
+	 * minutes), the position of the first stop event arriving during or after that minute.
+	 */
+	private static int[] buildMinuteTable(int stopIndex, IntColumn arrivals, int[] stopEventOffsets,
+										  IntColumn stopEvents) {
+		int start = stopEventOffsets[stopIndex];
+		int end = stopEventOffsets[stopIndex + 1];
+		int lastMinute = start == end ? 0 : arrivals.get(stopEvents.get(end - 1)) / 60;
+		int[] table = new int[Math.min(MINUTE_TABLE_LENGTH, Math.max(0, lastMinute) + 1)];
+		int event = start;
+		for (int minute = 0; minute < table.length; minute++) {
+			while (event < end && arrivals.get(stopEvents.get(event)) < minute * 60) {
+				event++;
+			}
+			table[minute] = event;
+		}
+		return table;
+	}
+
+	/**
+	 * This method applies one batch of edits to a group of Trips: shifting all of their times and/or moving their
+	 * visits from one Stop to another. The Timetable itself is never changed, since searches may be reading it on
+	 * other threads; instead a new Timetable is returned that shares everything the edits do not touch. Only the
+	 * StopTimes of the edited Trips are rewritten, only the departures of the edited Trips are merged back into the
+	 * connections, and only the Stops the edited Trips visit have their stop events sorted again.
+	 *
+	 * @param tripIndexes indexes of the Trips to edit
+	 * @param shiftSeconds number of seconds to move every time by (may be negative or zero)
+	 * @param stopRemap new index of every Stop visited by the edited Trips (indexed by old Stop index), or null to
+	 *                  leave their Stops alone
+	 * @return the edited Timetable
+	 */
+	public Timetable updateTrips(int[] tripIndexes, int shiftSeconds, int[] stopRemap) {
+		int numStops = stopIDs.length;
+		BitSet editedTrips = new BitSet(trips.length);
+		BitSet affectedStops = new BitSet(numStops);
+		int numEditedStopTimes = 0;
+		int numEditedConnections = 0;
+		for (int t : tripIndexes) {
+			if (!editedTrips.get(t)) {
+				editedTrips.set(t);
+				numEditedStopTimes += tripOffsets[t + 1] - tripOffsets[t];
+				numEditedConnections += tripOffsets[t + 1] - tripOffsets[t] - 1;
+			}
+		}
+
+		//rewrite the StopTimes of the edited Trips in heap copies of the columns they change
+		int[] newStops = stopTimeStops.toArray();
+		int[] newArrivals = shiftSeconds == 0 ? null : arrivals.toArray();
+		int[] newDepartures = shiftSeconds == 0 ? null : departures.toArray();
+		int[] editedStopTimes = new int[numEditedStopTimes];
+		int e = 0;
+		for (int t = editedTrips.nextSetBit(0); t >= 0; t = editedTrips.nextSetBit(t + 1)) {
+			for (int s = tripOffsets[t]; s < tripOffsets[t + 1]; s++) {
+				editedStopTimes[e++] = s;
+				int oldStop = stopTimeStops.get(s);
+				affectedStops.set(oldStop);
+				if (stopRemap != null) {
+					newStops[s] = stopRemap[oldStop];
+					affectedStops.set(newStops[s]);
+				}
+				if (shiftSeconds != 0) {
+					newArrivals[s] += shiftSeconds;
+					newDepartures[s] += shiftSeconds;
+				}
+			}
+		}
+		IntColumn arrivalColumn = newArrivals == null ? arrivals : IntColumn.of(newArrivals, storage);
+		IntColumn departureColumn = newDepartures == null ? departures : IntColumn.of(newDepartures, storage);
+
+		//connections only depend on departures, so moving Stops leaves them alone
+		IntColumn newConnectionTrips = connectionTrips;
+		IntColumn newConnectionStopTimes = connectionStopTimes;
+		IntColumn newConnectionDepartures = connectionDepartures;
+		if (shiftSeconds != 0) {
+			long[] editedKeys = new long[numEditedConnections];
+			int c = 0;
+			for (int t = editedTrips.nextSetBit(0); t >= 0; t = editedTrips.nextSetBit(t + 1)) {
+				for (int s = tripOffsets[t]; s < tripOffsets[t + 1] - 1; s++) {
+					editedKeys[c++] = ((long) newDepartures[s] << 32) | s;
+				}
+			}
+			Arrays.sort(editedKeys);
+
+			//merge the re-sorted connections of the edited Trips with the untouched ones, which are still in order
+			int numConnections = connectionTrips.size();
+			int[] mergedTrips = new int[numConnections];
+			int[] mergedStopTimes = new int[numConnections];
+			int[] mergedDepartures = new int[numConnections];
+			int next = 0;
+			int old = 0;
+			int edited = 0;
+			while (next < numConnections) {
+				while (old < numConnections && editedTrips.get(connectionTrips.get(old))) {
+					old++;
+				}
+				boolean takeOld = old < numConnections && (edited == editedKeys.length
+						|| (((long) connectionDepartures.get(old) << 32) | connectionStopTimes.get(old)) < editedKeys[edited]);
+				int s = takeOld ? connectionStopTimes.get(old++) : (int) editedKeys[edited++];
+				mergedTrips[next] = stopTimeTrips.get(s);
+				mergedStopTimes[next] = s;
+				mergedDepartures[next] = newDepartures[s];
+				next++;
+			}
+			newConnectionTrips = IntColumn.of(mergedTrips, storage);
+			newConnectionStopTimes = IntColumn.of(mergedStopTimes, storage);
+			newConnectionDepartures = IntColumn.of(mergedDepartures, storage);
+		}
+
+		//moving Stops changes how many events each Stop has, so the offsets have to be counted again
+		int[] newEventOffsets = stopEventOffsets;
+		if (stopRemap != null) {
+			int[] counts = new int[numStops];
+			for (int s : editedStopTimes) {
+				counts[stopTimeStops.get(s)]--;
+				counts[newStops[s]]++;
+			}
+			newEventOffsets = new int[numStops + 1];
+			for (int i = 0; i < numStops; i++) {
+				newEventOffsets[i + 1] = newEventOffsets[i] + stopEventOffsets[i + 1] - stopEventOffsets[i] + counts[i];
+			}
+		}
+
+		//copy the events of untouched Stops as they are, and sort the events of affected Stops again
+		int numEvents = stopEvents.size();
+		int[] newEvents = new int[numEvents];
+		long[] eventKeys = new long[numEvents];
+		int[] nextEvent = new int[numStops];
+		for (int i = 0; i < numStops; i++) {
+			if (!affectedStops.get(i)) {
+				stopEvents.copyTo(stopEventOffsets[i], newEvents, newEventOffsets[i],
+						stopEventOffsets[i + 1] - stopEventOffsets[i]);
+				continue;
+			}
+			nextEvent[i] = newEventOffsets[i];
+			for (int event = stopEventOffsets[i]; event < stopEventOffsets[i + 1]; event++) {
+				int s = stopEvents.get(event);
+				if (!editedTrips.get(stopTimeTrips.get(s))) {
+					eventKeys[nextEvent[i]++] = ((long) arrivalColumn.get(s) << 32) | s;
+				}
+			}
+		}
+		for (int s : editedStopTimes) {
+			eventKeys[nextEvent[newStops[s]]++] = ((long) arrivalColumn.get(s) << 32) | s;
+		}
+		for (int i = affectedStops.nextSetBit(0); i >= 0; i = affectedStops.nextSetBit(i + 1)) {
+			Arrays.sort(eventKeys, newEventOffsets[i], newEventOffsets[i + 1]);
+			for (int event = newEventOffsets[i]; event < newEventOffsets[i + 1]; event++) {
+				newEvents[event] = (int) eventKeys[event];
+			}
+		}
+
+		//affected Stops that had a minute table get a new one, unless they are no longer busy enough, while the events
+		//of untouched Stops may have moved along with the offsets, so their tables are moved by the same amount
+		IntColumn eventColumn = IntColumn.of(newEvents, storage);
+		int[][] newMinuteTables = minuteTables.clone();
+		for (int i = 0; i < numStops; i++) {
+			int[] table = newMinuteTables[i];
+			if (table == null) {
+				continue;
+			}
+			if (affectedStops.get(i)) {
+				newMinuteTables[i] = newEventOffsets[i + 1] - newEventOffsets[i] < minuteTableThreshold ? null
+						: buildMinuteTable(i, arrivalColumn, newEventOffsets, eventColumn);
+			} else if (newEventOffsets[i] != stopEventOffsets[i]) {
+				int shift = newEventOffsets[i] - stopEventOffsets[i];
+				int[] movedTable = new int[table.length];
+				for (int minute = 0; minute < table.length; minute++) {
+					movedTable[minute] = table[minute] + shift;
+				}
+				newMinuteTables[i] = movedTable;
+			}
+		}
+
+		return new Timetable(this, stopRemap == null ? stopTimeStops : IntColumn.of(newStops, storage),
+				arrivalColumn, departureColumn, newEventOffsets, eventColumn,
+				newConnectionTrips, newConnectionStopTimes, newConnectionDepartures, newMinuteTables,
+				minuteTableThreshold);
+	}
+
+	/**
+	 * This method copies a range of connections into arrays, so scans over the connections read them a block at a
+	 * time instead of one value at a time (which is much faster when the columns are compressed).
+	 *
+	 * @param start position of the first connection to copy
+	 * @param departureTarget array receiving the departure time of each connection
+	 * @param tripTarget array receiving the Trip index of each connection
+	 * @param stopTimeTarget array receiving the departing StopTime of each connection
+	 * @param length number of connections to copy
+	 */
+	public void copyConnections(int start, int[] departureTarget, int[] tripTarget, int[] stopTimeTarget, int length) {
+		connectionDepartures.copyTo(start, departureTarget, 0, length);
+		connectionTrips.copyTo(start, tripTarget, 0, length);
+		connectionStopTimes.copyTo(start, stopTimeTarget, 0, length);
+	}
+
+	/**
+	 * @return number of bytes taken up by the columns with one value per StopTime or per connection
+	 */
+	public long getColumnByteSize() {
+		return stopTimeStops.getByteSize() + arrivals.getByteSize() + departures.getByteSize()
+				+ stopTimeTrips.getByteSize() + stopEvents.getByteSize() + connectionTrips.getByteSize()
+				+ connectionStopTimes.getByteSize() + connectionDepartures.getByteSize();
+	}
+
+	/**
+	 * Finds the first connection departing at or after the given time.
+	 *
+	 * @param seconds number of seconds since the start of the service day
+	 * @return position of the connection, or the number of connections if none depart that late
+	 */
+	public int findFirstConnection(int seconds) {
+		int low = 0;
+		int high = connectionDepartures.size();
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (connectionDepartures.get(mid) < seconds) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Finds the first StopTime at a Stop arriving strictly after the given time.
+	 *
+	 * @param stopIndex index of the Stop
+	 * @param seconds number of seconds since the start of the service day
+	 * @return position in the stop event array, or "getEndStopEvent(stopIndex)" if nothing arrives that late
+	 */
+	public int findFirstStopEventAfter(int stopIndex, int seconds) {
+		//with a minute table, jump to the first event of the minute and skip the few that arrive too early
+		int[] table = minuteTables[stopIndex];
+		if (table != null && seconds >= 0 && seconds / 60 < table.length) {
+			int event = table[seconds / 60];
+			int end = stopEventOffsets[stopIndex + 1];
+			while (event < end && arrivals.get(stopEvents.get(event)) <= seconds) {
+				event++;
+			}
+			return event;
+		}
+
+		int low = stopEventOffsets[stopIndex];
+		int high = stopEventOffsets[stopIndex + 1];
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (arrivals.get(stopEvents.get(mid)) <= seconds) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * This method checks whether a Trip runs on a certain date.
+	 *
+	 * @param tripIndex index of the Trip
+	 * @param date the service date
+	 * @return true if the Trip's service runs on the date (always true when no calendar is loaded)
+	 */
+	public boolean isTripActive(int tripIndex, LocalDate date) {
+		return serviceCalendar.isActive(tripServices[tripIndex], date);
+	}
+
+	/**
+	 * This method lists every Trip running on a certain date, so searches can skip the others with one bit test.
+	 *
+	 * @param date the service date
+	 * @return a bitset with the bit of every running Trip index set
+	 */
+	public BitSet findActiveTrips(LocalDate date) {
+		BitSet activeTrips = new BitSet(trips.length);
+		if (serviceCalendar.isEmpty()) {
+			activeTrips.set(0, trips.length);
+			return activeTrips;
+		}
+		BitSet activeServices = serviceCalendar.findActiveServices(date);
+		for (int t = 0; t < trips.length; t++) {
+			if (tripServices[t] >= 0 && activeServices.get(tripServices[t])) {
+				activeTrips.set(t);
+			}
+		}
+		return activeTrips;
+	}
+
+	/**
+	 * @param stopID the ID of a Stop
+	 * @return the Stop's index in the Timetable or -1 if it is unknown
+	 */
+	public int indexOfStop(String stopID) {
+		Integer stopIndex = stopIndexes.get(stopID);
+		return stopIndex == null ? -1 : stopIndex;
+	}
+
+	/**
+	 * @param tripID the ID of a Trip
+	 * @return the Trip's index in the Timetable or -1 if it is unknown or has no usable StopTimes
+	 */
+	public int indexOfTrip(String tripID) {
+		Integer tripIndex = tripIndexes.get(tripID);
+		return tripIndex == null ? -1 : tripIndex;
+	}
+
+	//getters
+	public int getStopCount() { return stopIDs.length; }
+	public String getStopID(int stopIndex) { return stopIDs[stopIndex]; }
+	public double getStopLatitude(int stopIndex) { return stopLatitudes[stopIndex]; }
+	public double getStopLongitude(int stopIndex) { return stopLongitudes[stopIndex]; }
+	public int getTripCount() { return trips.length; }
+	public Trip getTrip(int tripIndex) { return trips[tripIndex]; }
+	public int getFirstStopTime(int tripIndex) { return tripOffsets[tripIndex]; }
+	public int getEndStopTime(int tripIndex) { return tripOffsets[tripIndex + 1]; }
+	public int getStopTimeCount() { return stopTimeStops.size(); }
+	public int getStopIndex(int stopTime) { return stopTimeStops.get(stopTime); }
+	public int getArrival(int stopTime) { return arrivals.get(stopTime); }
+	public int getDeparture(int stopTime) { return departures.get(stopTime); }
+	public int getStopTimeTrip(int stopTime) { return stopTimeTrips.get(stopTime); }
+	public int getFirstStopEvent(int stopIndex) { return stopEventOffsets[stopIndex]; }
+	public int getEndStopEvent(int stopIndex) { return stopEventOffsets[stopIndex + 1]; }
+	public int getStopEvent(int event) { return stopEvents.get(event); }
+	public ServiceCalendar getServiceCalendar() { return serviceCalendar; }
+	public IntColumn.Storage getStorage() { return storage; }
+	public boolean hasMinuteTable(int stopIndex) { return minuteTables[stopIndex] != null; }
+	public int getMinuteTableThreshold() { return minuteTableThreshold; }
+	public int getConnectionCount() { return connectionTrips.size(); }
+	public int getConnectionTrip(int connection) { return connectionTrips.get(connection); }
+	public int getConnectionStopTime(int connection) { return connectionStopTimes.get(connection); }
+	public int getConnectionDeparture(int connection) { return connectionDepartures.get(connection); }
+}
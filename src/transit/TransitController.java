@@ -21,6 +21,7 @@ package transit;
 
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
+import javafx.geometry.Side;
 import javafx.scene.control.*;
 import javafx.stage.FileChooser;
 
@@ -39,6 +40,16 @@ public class TransitController implements Observer {
     //Tab FXML
     @FXML
     TabPane tabPane = new TabPane();
+    @FXML
+    Tab tab_F1 = new Tab();
+    @FXML
+    Tab tab_F2 = new Tab();
+    @FXML
+    Tab tab_F3 = new Tab();
+    @FXML
+    Tab tab_F4 = new Tab();
+    @FXML
+    Tab tab_F13 = new Tab();
 
     //Feature #1 FXML
     @FXML
@@ -75,6 +86,10 @@ public class TransitController implements Observer {
     TextField stopSearchBar_F5 = new TextField();
     @FXML
     Button stopSearchButton_F5 = new Button();
+    @FXML
+    ProgressIndicator spinner_F5 = new ProgressIndicator();
+    @FXML
+    Label timing_F5 = new Label();
 
     //Feature #6 FXML
     @FXML
@@ -83,6 +98,10 @@ public class TransitController implements Observer {
     TextField routeSearchBar_F6 = new TextField();
     @FXML
     Button routeSearchButton_F6 = new Button();
+    @FXML
+    ProgressIndicator spinner_F6 = new ProgressIndicator();
+    @FXML
+    Label timing_F6 = new Label();
 
     //Feature #8 FXML
     @FXML
@@ -91,6 +110,10 @@ public class TransitController implements Observer {
     TextField stopSearchBar_F8 = new TextField();
     @FXML
     Button stopSearchButton_F8 = new Button();
+    @FXML
+    ProgressIndicator spinner_F8 = new ProgressIndicator();
+    @FXML
+    Label timing_F8 = new Label();
 
     //Feature #12 FXML
     @FXML
@@ -100,17 +123,45 @@ public class TransitController implements Observer {
     @FXML
     Button stopSearchButton_F12 = new Button();
     @FXML
+    ProgressIndicator spinner_F12 = new ProgressIndicator();
+    @FXML
+    Label timing_F12 = new Label();
+    @FXML
     Button updateTripsButton_F12 = new Button();
+    @FXML
+    TextField shiftMinutesBar_F12 = new TextField();
+    @FXML
+    TextField oldStopBar_F12 = new TextField();
+    @FXML
+    TextField newStopBar_F12 = new TextField();
+
+    //Feature #13 FXML
+    @FXML
+    TextArea textArea_F13 = new TextArea();
+    @FXML
+    Button headwayButton_F13 = new Button();
+
+    //Stops suggested while typing into a stop_id search bar
+    private final ContextMenu stopSuggestions = new ContextMenu();
+
+    //searches of each search bar, created once the FXML components exist
+    private BackgroundSearch search_F5;
+    private BackgroundSearch search_F6;
+    private BackgroundSearch search_F8;
+    private BackgroundSearch search_F12;
+
+    //Tabs showing something worked out from all of the data, with the method that works it out and displays it
+    private final LinkedHashMap<Tab, Runnable> tabRenderers = new LinkedHashMap<>();
+
+    //Tabs whose content no longer matches the data, which is only worked out again once the Tab is selected
+    private final HashSet<Tab> staleTabs = new HashSet<>();
+
+    //Trips found by the last Feature #12 search, which "Update Trips" edits
+    private ArrayList<Trip> tripGroup_F12 = new ArrayList<>();
 
     //use single instance of TransitData
     private TransitData transitData = TransitData.getInstance();
 
-    //Strings representing the valid first lines of each type of file
-    private static String ROUTE_FIRST_LINE = "route_id,agency_id,route_short_name,route_long_name,route_desc,route_type,route_url,route_color,route_text_color";
-    private static String TRIP_FIRST_LINE = "route_id,service_id,trip_id,trip_headsign,direction_id,block_id,shape_id";
-    private static String STOP_FIRST_LINE = "stop_id,stop_name,stop_desc,stop_lat,stop_lon";
-    private static String STOP_TIME_FIRST_LINE = "trip_id,arrival_time,departure_time,stop_id,stop_sequence,stop_headsign,pickup_type,drop_off_type";
-
     /**
      * This method runs after the start of the program. This differs from a constructor in the FXML components have
      * been created at this point.
@@ -119,63 +170,167 @@ public class TransitController implements Observer {
     public void initialize() {
         //provide the Controller to TransitData
         transitData.attach(this);
+
+        //run each search bar's searches in the background, showing a spinner and how long they took
+        search_F5 = new BackgroundSearch("transit-search-F5", spinner_F5, timing_F5);
+        search_F6 = new BackgroundSearch("transit-search-F6", spinner_F6, timing_F6);
+        search_F8 = new BackgroundSearch("transit-search-F8", spinner_F8, timing_F8);
+        search_F12 = new BackgroundSearch("transit-search-F12", spinner_F12, timing_F12);
+
+        //work out each Tab's content only once it is selected, and again only after the data changes
+        tabRenderers.put(tab_F1, this::renderAllData);
+        tabRenderers.put(tab_F2, this::renderAllTripDistances);
+        tabRenderers.put(tab_F3, this::renderAllTripSpeeds);
+        tabRenderers.put(tab_F4, this::renderNumTripsPerStop);
+        tabRenderers.put(tab_F13, this::renderHeadways);
+        staleTabs.addAll(tabRenderers.keySet());
+        tabPane.getSelectionModel().selectedItemProperty().addListener(
+                (observable, oldTab, newTab) -> renderIfStale(newTab));
+
+        //suggest Stops by name or stop_id while typing into the stop_id search bars
+        attachStopAutocomplete(stopSearchBar_F5, this::routesContainingStopSearch);
+        attachStopAutocomplete(stopSearchBar_F8, this::upcomingTripsSearch);
+    }
+
+    /**
+     * Shows the Stops best matching the text of a search bar in a list under it whenever the text changes. Picking a
+     * Stop from the list fills in its stop_id and runs the search.
+     *
+     * @param searchBar the TextField a stop_id is typed into
+     * @param search the search run when a suggested Stop is picked
+     */
+    private void attachStopAutocomplete(TextField searchBar, Runnable search) {
+        searchBar.textProperty().addListener((observable, oldText, newText) -> {
+            stopSuggestions.getItems().clear();
+            ArrayList<Stop> matches = transitData.autocompleteStops(newText, StopNameIndex.DEFAULT_LIMIT);
+
+            //nothing to suggest once a known stop_id has been typed out (or picked)
+            if (matches.isEmpty() || matches.get(0).getStopID().equals(newText)) {
+                stopSuggestions.hide();
+                return;
+            }
+            for (Stop stop : matches) {
+                MenuItem suggestion = new MenuItem(stop.getStopID() + " - " + stop.getName());
+                suggestion.setOnAction(event -> {
+                    searchBar.setText(stop.getStopID());
+                    stopSuggestions.hide();
+                    search.run();
+                });
+                stopSuggestions.getItems().add(suggestion);
+            }
+            if (!stopSuggestions.isShowing()) {
+                stopSuggestions.show(searchBar, Side.BOTTOM, 0, 0);
+            }
+        });
+    }
+
+    /**
+     * Cancels every search bar's search and makes a change to the data once none is still running. The searches
+     * read the lists of Routes, Trips and Stops without locking, so they must be stopped before a list is changed.
+     *
+     * @param change the change to the data, run later on the JavaFX thread
+     */
+    private void stopSearchesThen(Runnable change) {
+        BackgroundSearch.cancelThen(change, search_F5, search_F6, search_F8, search_F12);
+    }
+
+    /**
+     * Cancels every search bar's search without waiting for it, so none shows a result from before a change.
+     */
+    private void cancelSearches() {
+        search_F5.cancel();
+        search_F6.cancel();
+        search_F8.cancel();
+        search_F12.cancel();
+    }
+
+    /**
+     * Turns what was typed into a stop_id search bar into a stop_id: a known stop_id is kept as it is, while
+     * anything else (such as part of a Stop's name) becomes the stop_id of the best matching Stop, if any.
+     */
+    private String resolveStopID(String userEntry) {
+        if (transitData.searchStops(userEntry) != null) {
+            return userEntry;
+        }
+        ArrayList<Stop> matches = transitData.autocompleteStops(userEntry, 1);
+        return matches.isEmpty() ? userEntry : matches.get(0).getStopID();
     }
 
     /**
      * This method handles all aspects of importing GTFS files into the program so that they can be parsed. First,
-     * it is validated that 4 files were selected. Next, it is made sure that there is at least one of each type of file
+     * it is validated that 4 to 6 files were selected (calendar.txt and calendar_dates.txt are optional). Next, it is made sure that there is at least one of each type of file
      * based on its name. After that, the first line of each file denoting each field is checked. Once the whole set is
      * validated, the set is sorted in order of parsing priority. Lastly, each file in the set is parsed into objects.
      *
      * @author Declan Bruce
      */
     public void importFiles() {
-        try {
-            //create a FileChooser for handling opening text files
-            FileChooser fileChooser = new FileChooser();
-
-            //only allow the user to select .txt files in the FileChooser
-            FileChooser.ExtensionFilter txt = new
-                    FileChooser.ExtensionFilter("GTFS File", "*.txt");
-            fileChooser.getExtensionFilters().addAll(txt);
-
-            List<File> fileList;
-            fileList = fileChooser.showOpenMultipleDialog(null);
-
-            //check to see if the user selected any files
-            if (fileList != null && fileList.size() == 4) {
-                if (validatedImportedFiles(fileList)) {
-                    //sort the file set to be in the correct parsing order
-                    List<File> sortedFileList = sortImportedFiles(fileList);
-
-                    //import each respective text file in a specific order (Routes, Trips, Stops, StopTimes)
-                    for (File file : sortedFileList) {
-                        parseFile(file);
-                    }
-
-                    //with a valid file set being provided, allow users to access other program features
-                    ObservableList<Tab> tabList = tabPane.getTabs();
-                    for(Tab tab : tabList){
-                        tab.setDisable(false);
-                    }
-                } else {
-                    //create an alert to notify the user that they did not select the correct number of text files
-                    Alert errorAlert = new Alert(Alert.AlertType.ERROR);
-                    errorAlert.setTitle("File Validation Error");
-                    errorAlert.setHeaderText("Invalid File Name/Format:");
-                    errorAlert.setContentText("Please verify that all files are formatted correctly.");
-                    errorAlert.showAndWait();
-                }
+        //create a FileChooser for handling opening text files
+        FileChooser fileChooser = new FileChooser();
+
+        //only allow the user to select .txt files in the FileChooser
+        FileChooser.ExtensionFilter txt = new
+                FileChooser.ExtensionFilter("GTFS File", "*.txt");
+        fileChooser.getExtensionFilters().addAll(txt);
+
+        List<File> fileList;
+        fileList = fileChooser.showOpenMultipleDialog(null);
+
+        //check to see if the user selected any files
+        if (fileList != null && fileList.size() >= 4 && fileList.size() <= 6) {
+            if (validatedImportedFiles(fileList)) {
+                //sort the file set to be in the correct parsing order
+                List<File> sortedFileList = sortImportedFiles(fileList);
+
+                //the searches read the lists the files are parsed into, so none may run while they change
+                stopSearchesThen(() -> loadFiles(sortedFileList));
             } else {
                 //create an alert to notify the user that they did not select the correct number of text files
                 Alert errorAlert = new Alert(Alert.AlertType.ERROR);
-                errorAlert.setTitle("File Import Error");
-                errorAlert.setHeaderText("Too Many/Too Few Files:");
-                errorAlert.setContentText("Please select 4 files, one of each type (stops, routes, trips, and stop_times).");
+                errorAlert.setTitle("File Validation Error");
+                errorAlert.setHeaderText("Invalid File Name/Format:");
+                errorAlert.setContentText("Please verify that all files are formatted correctly.");
                 errorAlert.showAndWait();
             }
+        } else {
+            //create an alert to notify the user that they did not select the correct number of text files
+            Alert errorAlert = new Alert(Alert.AlertType.ERROR);
+            errorAlert.setTitle("File Import Error");
+            errorAlert.setHeaderText("Too Many/Too Few Files:");
+            errorAlert.setContentText("Please select 4 files, one of each type (stops, routes, trips, and stop_times), " +
+                    "plus calendar.txt and/or calendar_dates.txt if available.");
+            errorAlert.showAndWait();
+        }
+
+        fileChooser.getExtensionFilters().removeAll(txt);
+    }
+
+    /**
+     * Parses a validated file set, already sorted in parsing order, and lets the user into the other features.
+     *
+     * @param sortedFileList the files to parse
+     */
+    private void loadFiles(List<File> sortedFileList) {
+        try {
+            //import each respective text file in a specific order (Routes, Trips, Stops, StopTimes, Calendars),
+            //reporting the problems found in the whole file set together
+            transitData.startLoad();
+            try {
+                for (File file : sortedFileList) {
+                    parseFile(file);
+                }
+            } finally {
+                transitData.finishLoad();
+            }
 
-            fileChooser.getExtensionFilters().removeAll(txt);
+            //with a valid file set being provided, allow users to access other program features
+            ObservableList<Tab> tabList = tabPane.getTabs();
+            for(Tab tab : tabList){
+                tab.setDisable(false);
+            }
+
+            //display the new data in the selected Tab, which was put off while the files were parsed
+            renderIfStale(tabPane.getSelectionModel().getSelectedItem());
         } catch (FileNotFoundException e) {
             LOGGER.log(Level.SEVERE, "File Parsing Error: FileNotFoundException\n");
 
@@ -197,40 +352,51 @@ public class TransitController implements Observer {
      * @author Declan Bruce
      */
     private List<File> sortImportedFiles(List<File> validImportedFiles) {
-        //create an array that holds 4 files
-        File[] sortedFileSet = new File[4];
-
-        //repeat process 4 times to place each file in its correct location
-        for (int i = 0; i < 4; i++) {
-            //iterate over every file in the the given file set
-            for (File file : validImportedFiles) {
-                //obtain the name of the file
-                String fileName = file.getName();
-                String[] filePath = fileName.split("\\.");
-
-                //determine which file is being handled based on its name (each file given WILL be one of these names)
-                switch (filePath[0].toLowerCase()) {
-                    case "routes":
-                        //"routes.txt" should be parsed first
-                        sortedFileSet[0] = file;
-                        break;
-                    case "trips":
-                        //"trips.txt" should be parsed second
-                        sortedFileSet[1] = file;
-                        break;
-                    case "stops":
-                        //"stops.txt" should be parsed third
-                        sortedFileSet[2] = file;
-                        break;
-                    case "stop_times":
-                        //"stop_times.txt" should be parsed fourth
-                        sortedFileSet[3] = file;
-                        break;
-                }
+        //create an array that holds up to 6 files
+        File[] sortedFileSet = new File[6];
+
+        //iterate over every file in the the given file set
+        for (File file : validImportedFiles) {
+            //obtain the name of the file
+            String fileName = file.getName();
+            String[] filePath = fileName.split("\\.");
+
+            //determine which file is being handled based on its name (each file given WILL be one of these names)
+            switch (filePath[0].toLowerCase()) {
+                case "routes":
+                    //"routes.txt" should be parsed first
+                    sortedFileSet[0] = file;
+                    break;
+                case "trips":
+                    //"trips.txt" should be parsed second
+                    sortedFileSet[1] = file;
+                    break;
+                case "stops":
+                    //"stops.txt" should be parsed third
+                    sortedFileSet[2] = file;
+                    break;
+                case "stop_times":
+                    //"stop_times.txt" should be parsed fourth
+                    sortedFileSet[3] = file;
+                    break;
+                case "calendar":
+                    //"calendar.txt" is optional and parsed after the required files
+                    sortedFileSet[4] = file;
+                    break;
+                case "calendar_dates":
+                    //"calendar_dates.txt" is optional and parsed last since it changes the weekly calendar
+                    sortedFileSet[5] = file;
+                    break;
             }
         }
-        //convert the sorted File array into an ArrayList
-        return new ArrayList<>(Arrays.asList(sortedFileSet));
+        //convert the sorted File array into an ArrayList, leaving out optional files that were not given
+        ArrayList<File> sortedFileList = new ArrayList<>();
+        for (File file : sortedFileSet) {
+            if (file != null) {
+                sortedFileList.add(file);
+            }
+        }
+        return sortedFileList;
     }
 
     /**
@@ -256,6 +422,9 @@ public class TransitController implements Observer {
         boolean stopFirstLineValid = false;
         boolean stopTimeFirstLineValid = false;
 
+        //optional files are only invalid if they were given with a bad first line
+        boolean calendarFilesValid = true;
+
         for (File file : importedFiles) {
             //obtain the name of the file
             String fileName = file.getName();
@@ -270,41 +439,54 @@ public class TransitController implements Observer {
                     case "routes":
                         routeFileFound = true;
 
-                        //check the first line of "routes.txt" (as long as the file is not empty)
-                        if (file.length() != 0 && fileScanner.nextLine().equals(ROUTE_FIRST_LINE)) {
+                        //check that the first line of "routes.txt" names every required column (as long as the file is not empty)
+                        if (file.length() != 0 && GtfsSchema.hasColumns(fileScanner.nextLine(), GtfsSchema.ROUTE_REQUIRED)) {
                             routeFirstLineValid = true;
                         }
                         break;
                     case "trips":
                         tripFileFound = true;
 
-                        //check the first line of "trips.txt" (as long as the file is not empty)
-                        if (file.length() != 0 && fileScanner.nextLine().equals(TRIP_FIRST_LINE)) {
+                        //check that the first line of "trips.txt" names every required column (as long as the file is not empty)
+                        if (file.length() != 0 && GtfsSchema.hasColumns(fileScanner.nextLine(), GtfsSchema.TRIP_REQUIRED)) {
                             tripFirstLineValid = true;
                         }
                         break;
                     case "stops":
                         stopFileFound = true;
 
-                        //check the first line of "stops.txt" (as long as the file is not empty)
-                        if (file.length() != 0 && fileScanner.nextLine().equals(STOP_FIRST_LINE)) {
+                        //check that the first line of "stops.txt" names every required column (as long as the file is not empty)
+                        if (file.length() != 0 && GtfsSchema.hasColumns(fileScanner.nextLine(), GtfsSchema.STOP_REQUIRED)) {
                             stopFirstLineValid = true;
                         }
                         break;
                     case "stop_times":
                         stopTimeFileFound = true;
 
-                        //check the first line of "stop_times.txt" (as long as the file is not empty)
-                        if (file.length() != 0 && fileScanner.nextLine().equals(STOP_TIME_FIRST_LINE)) {
+                        //check that the first line of "stop_times.txt" names every required column (as long as the file is not empty)
+                        if (file.length() != 0 && GtfsSchema.hasColumns(fileScanner.nextLine(), GtfsSchema.STOP_TIME_REQUIRED)) {
                             stopTimeFirstLineValid = true;
                         }
                         break;
+                    case "calendar":
+                        //check that the first line of "calendar.txt" names every required column (as long as the file is not empty)
+                        if (file.length() != 0 && !GtfsSchema.hasColumns(fileScanner.nextLine(), GtfsSchema.CALENDAR_REQUIRED)) {
+                            calendarFilesValid = false;
+                        }
+                        break;
+                    case "calendar_dates":
+                        //check that the first line of "calendar_dates.txt" names every required column (as long as the file is not empty)
+                        if (file.length() != 0 && !GtfsSchema.hasColumns(fileScanner.nextLine(), GtfsSchema.CALENDAR_DATE_REQUIRED)) {
+                            calendarFilesValid = false;
+                        }
+                        break;
                     default:
                         //create an alert to notify the user that they provided a file with an invalid name
                         Alert errorAlert = new Alert(Alert.AlertType.ERROR);
                         errorAlert.setTitle("File Import Error");
                         errorAlert.setHeaderText("Incorrect File Name:");
-                        errorAlert.setContentText("Acceptable File Names: routes.txt, trips.txt, stops.txt, stop_times.txt");
+                        errorAlert.setContentText("Acceptable File Names: routes.txt, trips.txt, stops.txt, stop_times.txt, " +
+                                "calendar.txt, calendar_dates.txt");
                         errorAlert.showAndWait();
                 }
             } catch (IOException e) {
@@ -314,7 +496,8 @@ public class TransitController implements Observer {
 
         //there is one of each file existing and the all first lines are valid, the imported file set is valid
         if (routeFileFound && tripFileFound && stopFileFound && stopTimeFileFound &&
-                routeFirstLineValid && tripFirstLineValid && stopFirstLineValid && stopTimeFirstLineValid) {
+                routeFirstLineValid && tripFirstLineValid && stopFirstLineValid && stopTimeFirstLineValid &&
+                calendarFilesValid) {
             validImportedFiles = true;
         }
         return validImportedFiles;
@@ -346,15 +529,29 @@ public class TransitController implements Observer {
                 break;
             case "stop_times":
                 transitData.parseStopTimes(file);
+                break;
+            case "calendar":
+                transitData.parseCalendar(file);
+                break;
+            case "calendar_dates":
+                transitData.parseCalendarDates(file);
         }
     }
 
     /**
-     * Displays the calculated average trip speed of every known Trip into a TextArea.
+     * Displays the calculated average trip speed of every known Trip into a TextArea. The speeds are only worked
+     * out again if the data changed since they were last displayed.
      *
      * @author Declan Bruce
      */
     public void displayAllTripSpeeds() {
+        renderIfStale(tab_F3);
+    }
+
+    /**
+     * Does the work of "displayAllTripSpeeds()" when the Feature 3 Tab is stale.
+     */
+    private void renderAllTripSpeeds() {
         textArea_F3.clear();
         if (!transitData.getAllTrips().isEmpty()) {
             StringBuilder builder = new StringBuilder();
@@ -383,11 +580,19 @@ public class TransitController implements Observer {
     }
 
     /**
-     * Displays the calculated average trip speed of every known Trip into a TextArea.
+     * Displays the calculated distance of every known Trip into a TextArea. The distances are only worked out again
+     * if the data changed since they were last displayed.
      *
      * @author Declan Bruce
      */
     public void displayAllTripDistances() {
+        renderIfStale(tab_F2);
+    }
+
+    /**
+     * Does the work of "displayAllTripDistances()" when the Feature 2 Tab is stale.
+     */
+    private void renderAllTripDistances() {
         textArea_F2.clear();
         if (!transitData.getAllTrips().isEmpty()) {
             StringBuilder builder = new StringBuilder();
@@ -416,11 +621,19 @@ public class TransitController implements Observer {
     }
 
     /**
-     * Displays the number of Trips each Stop appears in, including 0 (suggesting an unused Stop).
+     * Displays the number of Trips each Stop appears in, including 0 (suggesting an unused Stop). The numbers are
+     * only worked out again if the data changed since they were last displayed.
      *
      * @author Declan Bruce
      */
     public void displayNumTripsPerStop() {
+        renderIfStale(tab_F4);
+    }
+
+    /**
+     * Does the work of "displayNumTripsPerStop()" when the Feature 4 Tab is stale.
+     */
+    private void renderNumTripsPerStop() {
         tripsPerStopTextArea.clear();
         if (!transitData.getAllTrips().isEmpty() || !transitData.getAllStops().isEmpty()) {
             StringBuilder builder = new StringBuilder();
@@ -455,6 +668,66 @@ public class TransitController implements Observer {
         }
     }
 
+    /**
+     * Displays the headways of every Route in each direction, service_id and hour of the day, followed by the runs
+     * of evenly spaced Trips that could be described as frequencies. The headways are only worked out again if the
+     * data changed since they were last displayed.
+     */
+    public void displayHeadways() {
+        renderIfStale(tab_F13);
+    }
+
+    /**
+     * Does the work of "displayHeadways()" when the Feature 13 Tab is stale.
+     */
+    private void renderHeadways() {
+        textArea_F13.clear();
+        if (!transitData.getAllTrips().isEmpty()) {
+            StringBuilder builder = new StringBuilder();
+            HeadwayAnalysis analysis = transitData.analyzeHeadways();
+
+            builder.append("______________________________________________" + "\n");
+            for (HeadwayAnalysis.Headway headway : analysis.getHeadways()) {
+                builder.append("Route ID: " + headway.getRouteID() + "\tDirection: " + headway.getDirectionID()
+                        + "\tService ID: " + headway.getServiceID() + "\n");
+                builder.append("Window: " + Timetable.formatTime(headway.getWindowStart()) + " - "
+                        + Timetable.formatTime(headway.getWindowEnd()) + "\t# of Trips: " + headway.getTripCount()
+                        + "\n");
+                if (headway.getAverageHeadway() >= 0) {
+                    builder.append("Headway (min/avg/max): " + formatMinutes(headway.getMinHeadway()) + " / "
+                            + formatMinutes(headway.getAverageHeadway()) + " / "
+                            + formatMinutes(headway.getMaxHeadway()) + "\n");
+                } else {
+                    builder.append("Headway: first Trip of the day\n");
+                }
+                builder.append("______________________________________________" + "\n");
+            }
+
+            builder.append("\nFrequency Runs\n");
+            builder.append("______________________________________________" + "\n");
+            for (HeadwayAnalysis.FrequencyRun run : analysis.getFrequencyRuns()) {
+                Trip first = run.getTrip(0);
+                builder.append("Route ID: " + first.getRouteID() + "\tDirection: " + first.getDirectionID()
+                        + "\tService ID: " + first.getServiceID() + "\n");
+                builder.append(run.getTripCount() + " Trips every " + formatMinutes(run.getHeadway()) + " from "
+                        + Timetable.formatTime(run.getStartTime()) + " to " + Timetable.formatTime(run.getEndTime())
+                        + ", like Trip " + first.getTripID() + "\n");
+                builder.append("______________________________________________" + "\n");
+            }
+
+            textArea_F13.setText(builder.toString());
+        } else {
+            textArea_F13.setText("*** No Available Trips ***");
+        }
+    }
+
+    /**
+     * Formats a number of seconds as minutes, with seconds only when there are any.
+     */
+    private static String formatMinutes(int seconds) {
+        return seconds % 60 == 0 ? seconds / 60 + " min" : seconds / 60 + " min " + seconds % 60 + " s";
+    }
+
     /**
      * Method for generically applying a list of Routes to a given TextArea.
      *
@@ -603,28 +876,30 @@ public class TransitController implements Observer {
     /**
      * This method handles when the search button is pressed for the Feature 5 Tab. This searches for all Routes
      * containing the Stop signified by the stop_id provided by the user. All Routes found will be displayed to
-     * an appropriate TextArea in the Feature 5 Tab.
+     * an appropriate TextArea in the Feature 5 Tab. The search runs in the background, replacing any search of
+     * the Feature 5 Tab still running.
      */
     public void routesContainingStopSearch() {
         String userEntry = stopSearchBar_F5.getText();
 
         //check if the user entered anything into the TextField
         if (userEntry != null && !userEntry.isEmpty()) {
-            ArrayList<Route> routesWithStop = transitData.findRoutesWithStop(userEntry);
-
-            //check to see if the search returned any Routes
-            if (!routesWithStop.isEmpty()) {
-                //display each of the Routes found to contain the Stop
-                displayRouteList(textArea_F5, routesWithStop);
-            } else {
-                //the search found no appropriate Routes, notify the user
-                Alert errorAlert = new Alert(Alert.AlertType.INFORMATION);
-                errorAlert.setTitle("Search Results");
-                errorAlert.setHeaderText("Search Results Inconclusive:");
-                errorAlert.setContentText("No Routes were found to contain the specified Stop.");
-                errorAlert.showAndWait();
-            }
+            search_F5.start(() -> transitData.findRoutesWithStop(resolveStopID(userEntry)), routesWithStop -> {
+                //check to see if the search returned any Routes
+                if (!routesWithStop.isEmpty()) {
+                    //display each of the Routes found to contain the Stop
+                    displayRouteList(textArea_F5, routesWithStop);
+                } else {
+                    //the search found no appropriate Routes, notify the user
+                    Alert errorAlert = new Alert(Alert.AlertType.INFORMATION);
+                    errorAlert.setTitle("Search Results");
+                    errorAlert.setHeaderText("Search Results Inconclusive:");
+                    errorAlert.setContentText("No Routes were found to contain the specified Stop.");
+                    errorAlert.showAndWait();
+                }
+            }, this::showSearchFailure);
         } else {
+            search_F5.cancel();
             //the user pressed the search button without entering anything into the TextField
             Alert errorAlert = new Alert(Alert.AlertType.ERROR);
             errorAlert.setTitle("Search Input");
@@ -635,18 +910,32 @@ public class TransitController implements Observer {
     }
 
     /**
-     * Handles when the F6 search button is pressed. Will display all stop_id's of a Route in the Feature 6 Tab.
+     * Handles when the F6 search button is pressed. Will display all stop_id's of a Route in the Feature 6 Tab. The
+     * search runs in the background, replacing any search of the Feature 6 Tab still running.
      *
      * @author Anthony Bartman
      */
     public void routeSearchButton_F6() {
+        String routeID = routeSearchBar_F6.getText();
         //Checks if user has something in the TextField
-        if (routeSearchBar_F6.getText() != null && !routeSearchBar_F6.getText().isEmpty()) {
+        if (routeID != null && !routeID.isEmpty()) {
             //Finds all stops that correspond to the indicated route id that the user will type in on the graphical user interface that we created becuase we are awesome... Declan xD
-            ArrayList<Stop> allRouteStops = transitData.findAllStops(routeSearchBar_F6.getText());
-            //display to GUI
-            displayStopList(textArea_F6, allRouteStops);
+            search_F6.start(() -> {
+                return transitData.searchRoutes(routeID) == null ? null : transitData.findAllStops(routeID);
+            }, allRouteStops -> {
+                if (allRouteStops != null) {
+                    //display to GUI
+                    displayStopList(textArea_F6, allRouteStops);
+                } else { //No routes found with indicated routeId
+                    Alert errorAlert = new Alert(Alert.AlertType.ERROR);
+                    errorAlert.setTitle("Invalid Route ID");
+                    errorAlert.setHeaderText("Route was not found");
+                    errorAlert.setContentText("No Route was Found With This Route_ID : " + routeID);
+                    errorAlert.showAndWait();
+                }
+            }, this::showSearchFailure);
         } else {  //User put nothing in the search bar
+            search_F6.cancel();
             Alert errorAlert = new Alert(Alert.AlertType.ERROR);
             errorAlert.setTitle("Search Input");
             errorAlert.setHeaderText("Invalid Search Input:");
@@ -656,19 +945,33 @@ public class TransitController implements Observer {
     }
 
     /**
-     * Handles when the F8 search button is pressed. Will display the closest trips to the user inputted stop_id.
+     * Handles when the F8 search button is pressed. Will display the closest trips to the user inputted stop_id. The
+     * search runs in the background, replacing any search of the Feature 8 Tab still running.
      *
      * @author Anthony Bartman
      */
     public void upcomingTripsSearch() {
+        String userEntry = stopSearchBar_F8.getText();
         //Checks if user has something in the textfield
-        if (stopSearchBar_F8.getText() != null && !stopSearchBar_F8.getText().isEmpty()) {
+        if (userEntry != null && !userEntry.isEmpty()) {
             //Search for the closest trip to the stop_id (Feature 8 - Bartman)
-            ArrayList<Trip> closestTrips = transitData.findNextTrip(stopSearchBar_F8.getText());
-
-            //display to GUI
-            displayTripList(textArea_F8, closestTrips);
+            search_F8.start(() -> {
+                String stopID = resolveStopID(userEntry);
+                return transitData.searchStops(stopID) == null ? null : transitData.findNextTrip(stopID);
+            }, closestTrips -> {
+                if (closestTrips != null) {
+                    //display to GUI
+                    displayTripList(textArea_F8, closestTrips);
+                } else { //No Stop was found with that Stop_ID
+                    Alert errorAlert = new Alert(Alert.AlertType.ERROR);
+                    errorAlert.setTitle("Invalid Stop ID");
+                    errorAlert.setHeaderText("Stop was not found");
+                    errorAlert.setContentText("No Stop was Found With This Stop_ID : " + userEntry);
+                    errorAlert.showAndWait();
+                }
+            }, this::showSearchFailure);
         } else {  //User put nothing in the search bar
+            search_F8.cancel();
             Alert errorAlert = new Alert(Alert.AlertType.ERROR);
             errorAlert.setTitle("Search Input");
             errorAlert.setHeaderText("Invalid Search Input:");
@@ -681,50 +984,119 @@ public class TransitController implements Observer {
 
     /*
      * This method handles when the search button is pressed for the Feature 12 Tab. This searches for all Trips in
-     * the same Trip group (same stop sequence). This list of similar Trips can then be edited by the user.
+     * the same Trip group (same stop sequence). This list of similar Trips can then be edited by the user. The search
+     * runs in the background, replacing any search of the Feature 12 Tab still running.
      *
      * @author Anthony Bartman
      */
     public void searchButton_F12() {
-        StringBuilder builder = new StringBuilder();
-        //Gets all trips with indicated trip ID
-        Trip selectedTrip = transitData.searchTrips(stopSearchBar_F12.getText());
-        if (selectedTrip != null) {
-            builder.append("______________________________________________" + "\n");
-            builder.append("\t\tStop Sequence for Trip: " + stopSearchBar_F12.getText() + "\n");
-            builder.append("______________________________________________" + "\n");
-            builder.append("  Stop Id \t\tArrival \t\tDeparture" + "\n");
+        String tripID = stopSearchBar_F12.getText();
+        //Gets all trips with indicated trip ID, which is empty if no Trip has that trip_id
+        search_F12.start(() -> {
+            ArrayList<Trip> tripGroup = transitData.findTripGroup(tripID);
+            if (tripGroup.isEmpty()) {
+                //a Trip without usable StopTimes is in no Trip group, but it is still shown on its own
+                Trip trip = transitData.searchTrips(tripID);
+                if (trip != null) {
+                    tripGroup.add(trip);
+                }
+            }
+            return tripGroup;
+        }, tripGroup -> {
+            tripGroup_F12 = tripGroup;
+            if (!tripGroup.isEmpty()) {
+                displayTripGroup(tripID, tripGroup);
+            } else {
+                Alert errorAlert = new Alert(Alert.AlertType.ERROR);
+                errorAlert.setTitle("Invalid Trip ID");
+                errorAlert.setHeaderText("Trip was not found");
+                errorAlert.setContentText("No Trip was Found With This Trip_Id : " + tripID);
+                errorAlert.showAndWait();
+            }
+        }, this::showSearchFailure);
+    }
 
-            for (StopTime stopTime : selectedTrip.getStopSequence()) {
-                builder.append("\t" + stopTime.getStopID() + "\t\t" + stopTime.getArrivalTime()
-                        + "\t\t" + stopTime.getDepartureTime() + "\n");
+    /**
+     * Displays the stop sequence of a Trip, followed by every Trip sharing it, to the Feature 12 TextArea.
+     *
+     * @param tripID trip_id that was searched for
+     * @param tripGroup the Trip group of that Trip, which includes it
+     */
+    private void displayTripGroup(String tripID, ArrayList<Trip> tripGroup) {
+        StringBuilder builder = new StringBuilder();
+        Trip selectedTrip = tripGroup.get(0);
+        for (Trip trip : tripGroup) {
+            if (trip.getTripID().equals(tripID)) {
+                selectedTrip = trip;
             }
-            //Outputs string to transit data
-            textArea_F12.setText(builder.toString());
-        } else {
-            Alert errorAlert = new Alert(Alert.AlertType.ERROR);
-            errorAlert.setTitle("Invalid Trip ID");
-            errorAlert.setHeaderText("Trip was not found");
-            errorAlert.setContentText("No Trip was Found With This Trip_Id : " + stopSearchBar_F12.getText());
-            errorAlert.showAndWait();
         }
+        builder.append("______________________________________________" + "\n");
+        builder.append("\t\tStop Sequence for Trip: " + tripID + "\n");
+        builder.append("______________________________________________" + "\n");
+        builder.append("  Stop Id \t\tArrival \t\tDeparture" + "\n");
+
+        for (StopTime stopTime : selectedTrip.getStopSequence()) {
+            builder.append("\t" + stopTime.getStopID() + "\t\t" + stopTime.getArrivalTime()
+                    + "\t\t" + stopTime.getDepartureTime() + "\n");
+        }
+
+        //list every Trip sharing the same stop sequence, which "Update Trips" will edit together
+        builder.append("______________________________________________" + "\n");
+        builder.append("\t\tTrips in Trip Group: " + tripGroup.size() + "\n");
+        builder.append("______________________________________________" + "\n");
+        for (Trip trip : tripGroup) {
+            String departure = trip.getStopSequence().isEmpty() ? "-"
+                    : trip.getStopSequence().get(0).getDepartureTime();
+            builder.append("\t" + trip.getTripID() + "\t\t" + departure + "\n");
+        }
+        //Outputs string to transit data
+        textArea_F12.setText(builder.toString());
+    }
+
+    /**
+     * Notifies the user that a search failed unexpectedly.
+     *
+     * @param e the reason the search failed
+     */
+    private void showSearchFailure(Exception e) {
+        Alert errorAlert = new Alert(Alert.AlertType.ERROR);
+        errorAlert.setTitle("Search Error");
+        errorAlert.setHeaderText("The search could not be completed:");
+        errorAlert.setContentText(String.valueOf(e.getMessage()));
+        errorAlert.showAndWait();
     }
 
     /**
-     * TODO: implement this method
-     * TODO: describe this method
-     * This method handles when the "Update" button is pressed in the Feature 12 Tab.
+     * This method handles when the "Update" button is pressed in the Feature 12 Tab. Every Trip in the Trip group
+     * found by the last search is edited in one batch: all of their times are shifted by the entered number of
+     * minutes, and every visit to the entered old stop_id is moved to the new stop_id. Either edit may be left blank.
      *
      * @author Anthony Bartman
      */
     public void tripGroupUpdate() {
         //verify that something has already been printed to the Feature 12 TextArea
-        if (textArea_F12.getText() != null && !textArea_F12.getText().isEmpty()) {
-            Alert errorAlert = new Alert(Alert.AlertType.INFORMATION);
-            errorAlert.setTitle("Feature 12 Error");
-            errorAlert.setHeaderText("Feature 12 Not Yet Implemented");
-            errorAlert.setContentText("METHOD IMPLEMENTATION IN PROGRESS");
-            errorAlert.showAndWait();
+        if (textArea_F12.getText() != null && !textArea_F12.getText().isEmpty() && !tripGroup_F12.isEmpty()) {
+            try {
+                String shiftText = shiftMinutesBar_F12.getText() == null ? "" : shiftMinutesBar_F12.getText().trim();
+                int shiftMinutes = shiftText.isEmpty() ? 0 : Integer.parseInt(shiftText);
+                //the edit replaces StopTimes and stop patterns with copies rather than changing them, so searches
+                //still running only need to be kept from showing results from before it
+                cancelSearches();
+                transitData.updateTripGroup(tripGroup_F12, shiftMinutes, oldStopBar_F12.getText(),
+                        newStopBar_F12.getText());
+
+                //show the edited Trip group
+                stopSearchBar_F12.setText(tripGroup_F12.get(0).getTripID());
+                searchButton_F12();
+            } catch (IllegalArgumentException e) {
+                //NumberFormatException is also an IllegalArgumentException
+                Alert errorAlert = new Alert(Alert.AlertType.ERROR);
+                errorAlert.setTitle("Update Input");
+                errorAlert.setHeaderText("Invalid Update Input:");
+                errorAlert.setContentText("Please enter a whole number of minutes and an existing stop_id. "
+                        + e.getMessage());
+                errorAlert.showAndWait();
+            }
         } else {
             //user has not searched for a trip yet
             Alert errorAlert = new Alert(Alert.AlertType.ERROR);
@@ -736,22 +1108,90 @@ public class TransitController implements Observer {
     }
 
     /**
-     * TODO: implement this method
+     * This method handles when "Export GTFS Files" is selected from the File menu. The user picks where to save the
+     * feed; choosing a ".zip" file exports every GTFS file into that archive, while any other name exports
+     * "routes.txt", "trips.txt", "stops.txt" and "stop_times.txt" into the chosen folder.
+     */
+    public void exportAllFiles() {
+        FileChooser fileChooser = new FileChooser();
+        FileChooser.ExtensionFilter zip = new FileChooser.ExtensionFilter("GTFS Archive", "*.zip");
+        FileChooser.ExtensionFilter txt = new FileChooser.ExtensionFilter("GTFS Files", "*.txt");
+        fileChooser.getExtensionFilters().addAll(zip, txt);
+        fileChooser.setInitialFileName("gtfs.zip");
+
+        File target = fileChooser.showSaveDialog(null);
+        if (target != null) {
+            ArrayList<File> GTFSFiles = new ArrayList<>();
+            if (target.getName().toLowerCase().endsWith(".zip")) {
+                GTFSFiles.add(target);
+            } else {
+                File folder = target.getAbsoluteFile().getParentFile();
+                for (String fileName : GtfsExporter.FILE_NAMES) {
+                    GTFSFiles.add(new File(folder, fileName));
+                }
+            }
+            exportFiles(GTFSFiles);
+        }
+    }
+
+    /**
+     * This method exports the loaded data as GTFS files. A single ".zip" file receives every GTFS file as an entry;
+     * otherwise, each file in the list is written with the GTFS file matching its name.
      *
-     * @param GTFSFiles
+     * @param GTFSFiles the files to export to
      */
     public void exportFiles(ArrayList<File> GTFSFiles) {
+        GtfsExporter exporter = new GtfsExporter(transitData);
+        try {
+            if (GTFSFiles.size() == 1 && GTFSFiles.get(0).getName().toLowerCase().endsWith(".zip")) {
+                exporter.exportZip(GTFSFiles.get(0));
+            } else {
+                exporter.exportFiles(GTFSFiles);
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "File Export Error: " + e.getMessage() + "\n");
+
+            //create an alert to notify the user that the files could not be written
+            Alert errorAlert = new Alert(Alert.AlertType.ERROR);
+            errorAlert.setTitle("File Export Error");
+            errorAlert.setHeaderText("Files Could Not Be Written:");
+            errorAlert.setContentText("Please select a location that can be written to.");
+            errorAlert.showAndWait();
+        }
     }
 
     /**
      * This method determines what needs to be updated whenever a significant change is specified by a Subject.
      * In the context of this program, the only Subject being observed is TransitData, the single instance
-     * data store for the entire program. Appropriate GUI components are updated to show the new data.
+     * data store for the entire program. Every Tab showing something worked out from the data is marked stale, and
+     * only the selected one is displayed again right away; the others are displayed once they are selected. Nothing
+     * is displayed while files are still being parsed.
      *
      * @author Declan Bruce
      */
     @Override
     public void update() {
+        staleTabs.addAll(tabRenderers.keySet());
+        if (!transitData.isLoading()) {
+            renderIfStale(tabPane.getSelectionModel().getSelectedItem());
+        }
+    }
+
+    /**
+     * Works out and displays the content of a Tab if the data changed since it was last displayed.
+     *
+     * @param tab the Tab to display, which may be null or a Tab without content worked out from the data
+     */
+    private void renderIfStale(Tab tab) {
+        if (tab != null && staleTabs.remove(tab)) {
+            tabRenderers.get(tab).run();
+        }
+    }
+
+    /**
+     * Displays every Route, Trip, Stop and StopTime in the Feature 1 Tab.
+     */
+    private void renderAllData() {
         //update each overall data display
         displayRouteList(allRoutesTextArea, transitData.getAllRoutes());
         displayTripList(allTripsTextArea, transitData.getAllTrips());
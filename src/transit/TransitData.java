@@ -20,15 +20,28 @@
  */
 package transit;
 
-import javafx.scene.control.Alert;
-
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.IOException;
+import java.time.LocalDate;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.Scanner;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.IntFunction;
 import java.util.logging.Level;
 
 public class TransitData extends Subject {
@@ -39,6 +52,49 @@ public class TransitData extends Subject {
     private ArrayList<Trip> allTrips;
     private ArrayList<Observer> dataObservers;
 
+    //walking transfers between nearby Stops, rebuilt whenever Stops are parsed
+    private double walkingRadius = FootpathGraph.DEFAULT_WALKING_RADIUS;
+    private FootpathGraph footpathGraph = new FootpathGraph(new ArrayList<>(), walkingRadius);
+
+    //days each "service_id" runs on, from the optional calendar.txt and calendar_dates.txt, replaced as a whole
+    private volatile ServiceCalendar serviceCalendar = new ServiceCalendar();
+
+    //every distinct sequence of Stops visited by a Trip, keyed by its stop_id(s), replaced whenever StopTimes change
+    private volatile LinkedHashMap<List<String>, StopPattern> stopPatterns = new LinkedHashMap<>();
+
+    //names and stop_id(s) of every Stop for autocomplete, rebuilt whenever the Stops change
+    private volatile StopNameIndex stopNameIndex = new StopNameIndex(new ArrayList<>());
+
+    //primitive copy of every Trip's StopTimes used by the search algorithms, rebuilt whenever the feed changes
+    private IntColumn.Storage timetableStorage = IntColumn.Storage.HEAP;
+    private int minuteTableThreshold = DEFAULT_MINUTE_TABLE_THRESHOLD;
+    private volatile Timetable timetable = new Timetable(new ArrayList<>(), new ArrayList<>());
+    private volatile IsochroneSearch isochroneSearch = new IsochroneSearch(timetable, footpathGraph);
+    private volatile VehicleSchedule vehicleSchedule = new VehicleSchedule(timetable);
+
+    //every pair of Stops visited one after the other, with its length and travel times, rebuilt with the Timetable
+    private volatile SegmentGraph segmentGraph = new SegmentGraph(new ArrayList<>(), timetable);
+
+    //results of repeated departure and route queries, cleared whenever the feed changes
+    private final QueryCache<String, ArrayList<Trip>> departureCache =
+            new QueryCache<>(DEPARTURE_CACHE_SIZE, DEPARTURE_CACHE_SECONDS, TimeUnit.SECONDS);
+    private final QueryCache<String, ArrayList<Route>> routesWithStopCache =
+            new QueryCache<>(ROUTE_CACHE_SIZE, ROUTE_CACHE_SECONDS, TimeUnit.SECONDS);
+    private final QueryCache<String, ArrayList<Stop>> routeStopsCache =
+            new QueryCache<>(ROUTE_CACHE_SIZE, ROUTE_CACHE_SECONDS, TimeUnit.SECONDS);
+
+    //problems found while parsing, reported once per load, and whether the Timetable is to be rebuilt once the load
+    //is finished
+    private final ParseDiagnostics parseDiagnostics = new ParseDiagnostics();
+    private int loadDepth;
+    private boolean rebuildPending;
+
+    //Buses and Routes by ID, replaced as a whole so the live position feed can read them from its own thread
+    private volatile HashMap<String, Bus> busesByID = new HashMap<>();
+    private volatile HashMap<String, Route> routesByID = new HashMap<>();
+    private final PositionFeed positionFeed = new PositionFeed(this);
+    private final ArrivalPredictor arrivalPredictor = new ArrivalPredictor(this);
+
     //private constructor for singleton behavior
     private TransitData(ArrayList<Bus> allBuses, ArrayList<Route> allRoutes, ArrayList<Stop>
             allStops, ArrayList<Trip> allTrips) {
@@ -47,6 +103,9 @@ public class TransitData extends Subject {
         this.allStops = allStops;
         this.allTrips = allTrips;
         dataObservers = new ArrayList<>();
+
+        //keep arrival predictions up to date with every live position
+        positionFeed.subscribe(arrivalPredictor);
     }
 
     //single instance of TransitData
@@ -65,175 +124,372 @@ public class TransitData extends Subject {
         return transitData;
     }
 
-    //constant representing number of expected fields in each object's text file line
-    private static int NUM_STOP_TIME_FIELDS = 8;
-    private static int NUM_ROUTE_FIELDS = 9;
-    private static int NUM_TRIP_FIELDS = 7;
-    private static int NUM_STOP_FIELDS = 5;
-
     /**
-     * This method parses each line of a text file into individual StopTime objects.
+     * Creates a new, empty data store that is separate from the single instance, so several feeds can be loaded and
+     * queried at the same time without sharing any data (see "FeedRegistry").
      *
-     * @param file stop_times.txt
-     * @throws FileNotFoundException thrown if an invalid file is put in while creating a Scanner
+     * @return a new TransitData holding no data
      */
-    public void parseStopTimes(File file) throws FileNotFoundException {
-        Scanner fileScanner = new Scanner(file);
+    public static TransitData createStore() {
+        return new TransitData(new ArrayList<>(), new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+    }
 
-        //counter to keep track of the current line number (skip line #1)
-        int lineNumber = 2;
+    //fewest arrivals a Stop must have for the Timetable to give it a minute table
+    public static final int DEFAULT_MINUTE_TABLE_THRESHOLD = 256;
 
-        if (file.length() != 0) {
-            //skip the first line which shows each fields description
-            fileScanner.nextLine();
+    //number of seconds in a service day
+    private static final int SECONDS_PER_DAY = 24 * 60 * 60;
 
-            //clear all old data before parsing new data
-            for (Trip trip : allTrips) {
-                trip.getStopSequence().clear();
-            }
+    //departure queries are cached per minute of the day and only briefly, since the next Trips change as time passes
+    private static final int DEPARTURE_BUCKET_SECONDS = 60;
+    private static final int DEPARTURE_CACHE_SIZE = 4096;
+    private static final long DEPARTURE_CACHE_SECONDS = 60;
+
+    //Routes and their Stops only change when the feed does
+    private static final int ROUTE_CACHE_SIZE = 1024;
+    private static final long ROUTE_CACHE_SECONDS = 10 * 60;
+
+    //size of the buffer GTFS files are read through
+    private static final int READ_BUFFER_SIZE = 1 << 16;
+
+    /**
+     * This method starts a load of one or more GTFS files. Problems found in every file parsed until the matching
+     * "finishLoad()" are collected together and reported once at the end, and the Timetable and the structures built
+     * from it are rebuilt once at the end instead of after every file. Each "parse" method starts and finishes its
+     * own load, so calling this is only needed to load several files together.
+     */
+    public synchronized void startLoad() {
+        if (loadDepth++ == 0) {
+            parseDiagnostics.clear();
         }
+    }
 
-        while (fileScanner.hasNextLine()) {
-            /*
-             * Take in next line as String and split into Strings by commas, ignore commas in quotes as well
-             * https://stackoverflow.com/questions/1757065/java-splitting-a-comma-separated-string-but-ignoring-commas-in-quotes
-             */
-            String[] currentLineFields = fileScanner.nextLine().split(",(?=(?:[^\"]*\"[^\"]*\")*[^\"]*$)", NUM_STOP_TIME_FIELDS);
-
-            //check for the number of expected fields for a single StopTime object
-            if (currentLineFields.length == NUM_STOP_TIME_FIELDS) {
-                //check to see if the StopTime belongs to an existing Trip
-                if (searchTrips(currentLineFields[0]) != null) {
-                    //create a new StopTime object and add it to its respective Trip
-                    StopTime stopTime = new StopTime(currentLineFields[0], currentLineFields[1],
-                            currentLineFields[2],
-                            currentLineFields[3],
-                            currentLineFields[4],
-                            currentLineFields[5],
-                            currentLineFields[6],
-                            currentLineFields[7]
-                    );
-                    Trip foundTrip = searchTrips(currentLineFields[0]);
-                    foundTrip.insertNextStopTime(stopTime);
-                }
-            } else {
-                //log the case in which a line is not properly formatted
-                TransitController.LOGGER.log(Level.WARNING, "stop_times.txt line #" + lineNumber +
-                        " was incorrectly formatted.\n");
-                System.out.println("WARNING: stop_times.txt line #" + lineNumber +
-                        " was incorrectly formatted.\n");
+    /**
+     * This method finishes a load started by "startLoad()", logging a single summary of every problem found and
+     * rebuilding the Timetable if any file parsed during the load changed it.
+     */
+    public void finishLoad() {
+        synchronized (this) {
+            if (--loadDepth > 0) {
+                return;
             }
-            lineNumber++;
+            if (parseDiagnostics.getProblemCount() > 0) {
+                TransitController.LOGGER.log(Level.WARNING, parseDiagnostics.summarize());
+            }
+            if (!rebuildPending) {
+                return;
+            }
+            rebuildPending = false;
         }
-        fileScanner.close();
+        rebuildTimetable();
 
-        //notify Observers that new data has potentially been created
+        //notify Observers that the search structures now match the loaded files
         notifyObservers();
     }
 
     /**
-     * This method parses each line of a text file into individual Route objects.
-     *
-     * @param file routes.txt
-     * @throws FileNotFoundException thrown if an invalid file is put in while creating a Scanner
+     * Rebuilds the Timetable after a file was parsed, or once the load is finished if several files are being loaded
+     * together.
      */
-    public void parseRoutes(File file) throws FileNotFoundException {
-        Scanner fileScanner = new Scanner(file);
+    private void rebuildAfterParse() {
+        synchronized (this) {
+            if (loadDepth > 0) {
+                rebuildPending = true;
+                return;
+            }
+        }
+        rebuildTimetable();
+    }
 
-        //counter to keep track of the current line number (skip line #1)
-        int lineNumber = 2;
+    /**
+     * @return true while a load started by "startLoad()" has not finished yet
+     */
+    public synchronized boolean isLoading() {
+        return loadDepth > 0;
+    }
 
-        if (file.length() != 0) {
-            //skip the first line which shows each fields description
-            fileScanner.nextLine();
+    /**
+     * This method reads a GTFS file row by row. The header is read first to find the wanted columns wherever they
+     * are in the file, then every following row is handed to "parseRow" with just those columns, required ones
+     * first. Rows that end too early, or that "parseRow" rejects, are recorded in the parse diagnostics, which are
+     * only reported once the load is finished.
+     *
+     * @param file the file to read
+     * @param fileLabel name of the file used when reporting problems
+     * @param requiredColumns columns the file must have
+     * @param optionalColumns columns that are left empty if the file does not have them
+     * @param clearOldData clears the old data, once the header shows the file can be used
+     * @param parseRow turns the columns of one row into objects, returning the kind of problem if the row is
+     *                 incorrectly formatted or null if it was parsed
+     * @throws FileNotFoundException thrown if an invalid file is put in
+     */
+    private void parseRows(File file, String fileLabel, String[] requiredColumns, String[] optionalColumns,
+                           Runnable clearOldData, Function<String[], String> parseRow) throws FileNotFoundException {
+        startLoad();
+        try (BufferedReader reader = new BufferedReader(new FileReader(file), READ_BUFFER_SIZE)) {
+            String headerLine = reader.readLine();
+            if (headerLine == null) {
+                return;
+            }
+
+            //find every wanted column once, so the rows do not depend on the column order
+            GtfsSchema schema = new GtfsSchema(headerLine, requiredColumns, optionalColumns);
+            if (!schema.isValid()) {
+                parseDiagnostics.record(fileLabel, ParseDiagnostics.MISSING_COLUMNS, 1,
+                        schema.getMissingColumns().toString());
+                return;
+            }
 
             //clear all old data before parsing new data
-            allRoutes.clear();
+            clearOldData.run();
+
+            //counter to keep track of the current line number (skip line #1)
+            int lineNumber = 2;
+            String[] currentLineFields = new String[schema.getColumnCount()];
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isEmpty()) {
+                    String problem = schema.readRow(line, currentLineFields)
+                            ? parseRow.apply(currentLineFields) : ParseDiagnostics.TOO_FEW_COLUMNS;
+                    if (problem != null) {
+                        //record the case in which a line is not properly formatted
+                        parseDiagnostics.record(fileLabel, problem, lineNumber, line);
+                    }
+                }
+                lineNumber++;
+            }
+        } catch (FileNotFoundException e) {
+            throw e;
+        } catch (IOException e) {
+            parseDiagnostics.record(fileLabel, ParseDiagnostics.READ_ERROR, 0, e.getMessage());
+        } finally {
+            finishLoad();
         }
+    }
 
-        while (fileScanner.hasNextLine()) {
-            /*
-             * Take in next line as String and split into Strings by commas, ignore commas in quotes as well
-             * https://stackoverflow.com/questions/1757065/java-splitting-a-comma-separated-string-but-ignoring-commas-in-quotes
-             */
-            String[] currentLineFields = fileScanner.nextLine().split(",(?=(?:[^\"]*\"[^\"]*\")*[^\"]*$)", NUM_ROUTE_FIELDS);
+    /**
+     * This method parses each line of a text file into individual StopTime objects.
+     *
+     * @param file stop_times.txt
+     * @throws FileNotFoundException thrown if an invalid file is put in
+     */
+    public void parseStopTimes(File file) throws FileNotFoundException {
+        //look Trips up by trip_id instead of searching the list for every line
+        HashMap<String, Trip> tripsByID = mapTripsByID();
+
+        //times, stop_id(s) and stop_sequence(s) repeat across Trips, so each distinct value is kept only once
+        HashMap<String, String> sharedValues = new HashMap<>();
 
-            //check for the number of expected fields for a single Route object
-            if (currentLineFields.length == NUM_ROUTE_FIELDS) {
-                //create a new Route object and add it to our overall list of Routes
-                allRoutes.add(new Route(currentLineFields[0],
-                        currentLineFields[7]
+        //the rarely read columns are kept as codes into dictionaries belonging to this parse only
+        StopTime.Dictionaries dictionaries = new StopTime.Dictionaries();
+
+        parseRows(file, "stop_times.txt", GtfsSchema.STOP_TIME_REQUIRED, GtfsSchema.STOP_TIME_OPTIONAL, () -> {
+            for (Trip trip : allTrips) {
+                trip.getStopSequence().clear();
+            }
+        }, currentLineFields -> {
+            //check to see if the StopTime belongs to an existing Trip
+            Trip foundTrip = tripsByID.get(currentLineFields[0]);
+            if (foundTrip != null) {
+                //create a new StopTime object and add it to its respective Trip, sharing the Trip's trip_id String
+                foundTrip.insertNextStopTime(new StopTime(foundTrip.getTripID(),
+                        share(sharedValues, currentLineFields[3]),
+                        share(sharedValues, currentLineFields[4]),
+                        share(sharedValues, currentLineFields[1]),
+                        share(sharedValues, currentLineFields[2]),
+                        currentLineFields[5],
+                        currentLineFields[6],
+                        currentLineFields[7],
+                        dictionaries
                 ));
-            } else {
-                //log the case in which a line is not properly formatted
-                TransitController.LOGGER.log(Level.WARNING, "routes.txt line #" + lineNumber +
-                        " was incorrectly formatted.\n");
-                System.out.println("WARNING: routes.txt line #" + lineNumber +
-                        " was incorrectly formatted.\n");
+                return null;
             }
-            lineNumber++;
-        }
-        fileScanner.close();
+            return ParseDiagnostics.UNKNOWN_TRIP;
+        });
+
+        //group the Trips by the Stops they visit, then rebuild the search structures from the new StopTimes
+        assignStopPatterns();
+        rebuildAfterParse();
 
         //notify Observers that new data has potentially been created
         notifyObservers();
     }
 
     /**
-     * This method parses each line of a text file into individual Trip objects.
-     *
-     * @param file trips.txt
-     * @throws FileNotFoundException thrown if an invalid file is put in while creating a Scanner
+     * Gives back the copy of a value already kept in the pool, or adds the value to the pool if it is new.
      */
-    public void parseTrips(File file) throws FileNotFoundException {
-        Scanner fileScanner = new Scanner(file);
-
-        //counter to keep track of the current line number (skip line #1)
-        int lineNumber = 2;
-
-        if (file.length() != 0) {
-            //skip the first line which shows each fields description
-            fileScanner.nextLine();
+    private static String share(HashMap<String, String> pool, String value) {
+        String shared = pool.putIfAbsent(value, value);
+        return shared == null ? value : shared;
+    }
 
-            //clear all old data before parsing new data
-            allTrips.clear();
+    /**
+     * This method groups every Trip into a stop pattern with the other Trips visiting exactly the same sequence of
+     * Stops. The StopTimes of each Trip are pointed at the stop_id Strings of their pattern, so a stop_id is kept
+     * once per pattern rather than once per StopTime. Trips without StopTimes are left out of every pattern. Every
+     * pattern is complete before any Trip is pointed at it.
+     */
+    private void assignStopPatterns() {
+        LinkedHashMap<List<String>, StopPattern> newStopPatterns = new LinkedHashMap<>();
+        for (Trip trip : allTrips) {
+            List<String> key = findPatternKey(trip);
+            if (key != null) {
+                newStopPatterns.computeIfAbsent(key, StopPattern::new).addTrip(trip);
+            } else {
+                trip.setStopPattern(null);
+            }
+        }
+        stopPatterns = newStopPatterns;
+        for (StopPattern pattern : newStopPatterns.values()) {
+            pointTripsAtPattern(pattern);
         }
+    }
 
-        while (fileScanner.hasNextLine()) {
-            /*
-             * Take in next line as String and split into Strings by commas, ignore commas in quotes as well
-             * https://stackoverflow.com/questions/1757065/java-splitting-a-comma-separated-string-but-ignoring-commas-in-quotes
-             */
-            String[] currentLineFields = fileScanner.nextLine().split(",(?=(?:[^\"]*\"[^\"]*\")*[^\"]*$)", NUM_TRIP_FIELDS);
+    /**
+     * @return the stop_id(s) a Trip visits in order, or null if it has no StopTimes
+     */
+    private static List<String> findPatternKey(Trip trip) {
+        ArrayList<StopTime> stopSequence = trip.getStopSequence();
+        if (stopSequence.isEmpty()) {
+            return null;
+        }
+        ArrayList<String> stopIDs = new ArrayList<>(stopSequence.size());
+        for (StopTime stopTime : stopSequence) {
+            stopIDs.add(stopTime.getStopID());
+        }
+        return stopIDs;
+    }
 
-            //check for the number of expected fields for a single Trip object
-            if (currentLineFields.length == NUM_TRIP_FIELDS) {
-                //check to see if numeric "trip_headsign" is empty or not
-                if (currentLineFields[4].isEmpty()) {
-                    currentLineFields[4] = "0";
-                }
+    /**
+     * Points every Trip of a pattern, and the stop_id(s) of their StopTimes, at the pattern.
+     */
+    private static void pointTripsAtPattern(StopPattern pattern) {
+        for (Trip trip : pattern.getTrips()) {
+            ArrayList<StopTime> stopSequence = trip.getStopSequence();
+            for (int i = 0; i < stopSequence.size(); i++) {
+                stopSequence.get(i).setStopID(pattern.getStopID(i));
+            }
+            trip.setStopPattern(pattern);
+        }
+    }
 
-                //create a new Trip object and add it to our overall list of Trips
-                allTrips.add(new Trip(currentLineFields[0], currentLineFields[1],
-                        currentLineFields[2],
-                        currentLineFields[3],
-                        Integer.parseInt(currentLineFields[4]),
-                        currentLineFields[5],
-                        currentLineFields[6]
-                ));
+    /**
+     * Moves the given Trips into the patterns matching their current StopTimes. A pattern that has been published is
+     * never changed, since searches may be reading it on other threads: every pattern the Trips leave or join is
+     * replaced by a copy, a pattern left without Trips is dropped, and the Trips are pointed at the copies once the
+     * new patterns are published.
+     */
+    private void reassignStopPatterns(Collection<Trip> trips) {
+        LinkedHashMap<List<String>, StopPattern> newStopPatterns = new LinkedHashMap<>(stopPatterns);
+        HashMap<List<String>, StopPattern> copies = new HashMap<>();
+        ArrayList<Trip> tripsWithoutPattern = new ArrayList<>();
+        for (Trip trip : trips) {
+            StopPattern oldPattern = trip.getStopPattern();
+            if (oldPattern != null) {
+                copyStopPattern(oldPattern.getKey(), newStopPatterns, copies).removeTrip(trip);
+            }
+            List<String> key = findPatternKey(trip);
+            if (key != null) {
+                copyStopPattern(key, newStopPatterns, copies).addTrip(trip);
+            } else {
+                tripsWithoutPattern.add(trip);
+            }
+        }
+        for (Map.Entry<List<String>, StopPattern> copy : copies.entrySet()) {
+            if (copy.getValue().getTrips().isEmpty()) {
+                newStopPatterns.remove(copy.getKey());
             } else {
-                //log the case in which a line is not properly formatted
-                TransitController.LOGGER.log(Level.WARNING, "trips.txt line #" + lineNumber +
-                        " was incorrectly formatted.\n");
-                System.out.println("WARNING: trips.txt line #" + lineNumber +
-                        " was incorrectly formatted.\n");
+                newStopPatterns.put(copy.getKey(), copy.getValue());
             }
-            lineNumber++;
         }
+        stopPatterns = newStopPatterns;
+        for (StopPattern copy : copies.values()) {
+            pointTripsAtPattern(copy);
+        }
+        for (Trip trip : tripsWithoutPattern) {
+            trip.setStopPattern(null);
+        }
+    }
+
+    /**
+     * @return the copy of the pattern with the given stop_id(s), made the first time it is asked for, which is empty
+     *         if there is no such pattern yet
+     */
+    private static StopPattern copyStopPattern(List<String> key, LinkedHashMap<List<String>, StopPattern> patterns,
+                                               HashMap<List<String>, StopPattern> copies) {
+        return copies.computeIfAbsent(key, stopIDs -> {
+            StopPattern pattern = patterns.get(stopIDs);
+            return pattern == null ? new StopPattern(stopIDs) : new StopPattern(pattern);
+        });
+    }
+
+    /**
+     * @return every distinct sequence of Stops visited by a Trip, in the order of the first Trip visiting each
+     */
+    public Collection<StopPattern> getStopPatterns() {
+        return Collections.unmodifiableCollection(stopPatterns.values());
+    }
+
+    /**
+     * This method parses each line of a text file into individual Route objects.
+     *
+     * @param file routes.txt
+     * @throws FileNotFoundException thrown if an invalid file is put in
+     */
+    public void parseRoutes(File file) throws FileNotFoundException {
+        parseRows(file, "routes.txt", GtfsSchema.ROUTE_REQUIRED, GtfsSchema.ROUTE_OPTIONAL, allRoutes::clear,
+                currentLineFields -> {
+                    //create a new Route object and add it to our overall list of Routes
+                    allRoutes.add(new Route(currentLineFields[0], currentLineFields[1], currentLineFields[2],
+                            currentLineFields[3], currentLineFields[4]));
+                    return null;
+                });
+
+        //cached Route queries refer to the old Routes
+        invalidateQueryCaches();
+
+        //notify Observers that new data has potentially been created
+        notifyObservers();
+    }
+
+    /**
+     * This method parses each line of a text file into individual Trip objects.
+     *
+     * @param file trips.txt
+     * @throws FileNotFoundException thrown if an invalid file is put in
+     */
+    public void parseTrips(File file) throws FileNotFoundException {
+        parseRows(file, "trips.txt", GtfsSchema.TRIP_REQUIRED, GtfsSchema.TRIP_OPTIONAL, allTrips::clear,
+                currentLineFields -> {
+                    //check to see if numeric "direction_id" is empty or not
+                    String directionID = currentLineFields[4].trim();
+                    if (directionID.isEmpty()) {
+                        directionID = "0";
+                    }
+                    try {
+                        //create a new Trip object and add it to our overall list of Trips
+                        Trip trip = new Trip(currentLineFields[0], currentLineFields[1],
+                                currentLineFields[2],
+                                currentLineFields[3],
+                                Integer.parseInt(directionID),
+                                currentLineFields[5],
+                                currentLineFields[6]
+                        );
+                        trip.setTransitData(this);
+                        allTrips.add(trip);
+                        return null;
+                    } catch (NumberFormatException e) {
+                        return ParseDiagnostics.INVALID_NUMBER;
+                    }
+                });
 
         //add trip_id(s) of every Trip to their appropriate Route
+        HashMap<String, Route> routesByID = new HashMap<>(allRoutes.size() * 2);
+        for (Route route : allRoutes) {
+            routesByID.putIfAbsent(route.getRouteID(), route);
+        }
         for (Trip trip : allTrips) {
-            Route route = searchRoutes(trip.getRouteID());
+            Route route = routesByID.get(trip.getRouteID());
 
             //if a vaild Route is found, add this Trip's trip_id into the Route
             if (route != null) {
@@ -241,6 +497,10 @@ public class TransitData extends Subject {
             }
         }
 
+        //the old Trips are gone, so their stop patterns and the search structures must be rebuilt
+        assignStopPatterns();
+        rebuildAfterParse();
+
         //notify Observers that new data has potentially been created
         notifyObservers();
     }
@@ -249,52 +509,247 @@ public class TransitData extends Subject {
      * This method takes in "stops.txt" and parses each of its lines into individual Stop objects.
      *
      * @param file stops.txt
-     * @throws FileNotFoundException thrown if an invalid file is put in while creating a Scanner
+     * @throws FileNotFoundException thrown if an invalid file is put in
      */
     public void parseStops(File file) throws FileNotFoundException {
-        Scanner fileScanner = new Scanner(file);
+        parseRows(file, "stops.txt", GtfsSchema.STOP_REQUIRED, GtfsSchema.STOP_OPTIONAL, allStops::clear,
+                currentLineFields -> {
+                    try {
+                        //create a new Stop object and add it to our overall list of Stops
+                        allStops.add(new Stop(currentLineFields[0], currentLineFields[3],
+                                currentLineFields[4],
+                                Double.parseDouble(currentLineFields[1]),
+                                Double.parseDouble(currentLineFields[2])
+                        ));
+                        return null;
+                    } catch (NumberFormatException e) {
+                        return ParseDiagnostics.INVALID_NUMBER;
+                    }
+                });
 
-        //counter to keep track of the current line number (skip line #1)
-        int lineNumber = 2;
+        //link Stops that are within walking distance of each other, and index their names for autocomplete
+        footpathGraph = new FootpathGraph(allStops, walkingRadius);
+        stopNameIndex = new StopNameIndex(allStops);
+        rebuildAfterParse();
 
-        if (file.length() != 0) {
-            //skip the first line which shows each fields description
-            fileScanner.nextLine();
+        //notify Observers that new data has potentially been created
+        notifyObservers();
+    }
 
-            //clear all old data before parsing new data
-            allStops.clear();
-        }
-
-        while (fileScanner.hasNextLine()) {
-            /*
-             * Take in next line as String and split into Strings by commas, ignore commas in quotes as well
-             * https://stackoverflow.com/questions/1757065/java-splitting-a-comma-separated-string-but-ignoring-commas-in-quotes
-             */
-            String[] currentLineFields = fileScanner.nextLine().split(",(?=(?:[^\"]*\"[^\"]*\")*[^\"]*$)", NUM_STOP_FIELDS);
-
-            //check for the number of expected fields for a single Stop object
-            if (currentLineFields.length == NUM_STOP_FIELDS) {
-                //create a new Stop object and add it to our overall list of Stops
-                allStops.add(new Stop(currentLineFields[0], currentLineFields[1],
-                        currentLineFields[2],
-                        Double.parseDouble(currentLineFields[3]),
-                        Double.parseDouble(currentLineFields[4])
-                ));
-            } else {
-                //log the case in which a line is not properly formatted
-                TransitController.LOGGER.log(Level.WARNING, "stops.txt line #" + lineNumber +
-                        " was incorrectly formatted.\n");
-                System.out.println("WARNING: stops.txt line #" + lineNumber +
-                        " was incorrectly formatted.\n");
-            }
-            lineNumber++;
-        }
-        fileScanner.close();
+    /**
+     * This method parses each line of "calendar.txt" into the weekly pattern of a service.
+     *
+     * @param file calendar.txt
+     * @throws FileNotFoundException thrown if an invalid file is put in
+     */
+    public void parseCalendar(File file) throws FileNotFoundException {
+        //the rows go into a copy, since the current Timetable reads the calendar it was built with
+        ServiceCalendar calendar = new ServiceCalendar(serviceCalendar);
+        parseRows(file, "calendar.txt", GtfsSchema.CALENDAR_REQUIRED, GtfsSchema.NO_COLUMNS,
+                calendar::clearWeeklyServices, currentLineFields -> {
+                    boolean[] days = ServiceCalendar.parseWeekdays(Arrays.copyOfRange(currentLineFields, 1, 8));
+                    if (days == null) {
+                        return ParseDiagnostics.INVALID_VALUE;
+                    }
+                    LocalDate startDate = parseDate(currentLineFields[8]);
+                    LocalDate endDate = parseDate(currentLineFields[9]);
+                    if (startDate == null || endDate == null) {
+                        return ParseDiagnostics.INVALID_DATE;
+                    }
+                    calendar.addWeeklyService(currentLineFields[0], days, startDate, endDate);
+                    return null;
+                });
+
+        //resolve the services into per-day bitsets and rebuild the search structures that use them
+        serviceCalendar = calendar.build();
+        rebuildAfterParse();
 
         //notify Observers that new data has potentially been created
         notifyObservers();
     }
 
+    /**
+     * This method parses each line of "calendar_dates.txt" into a date added to or removed from a service.
+     *
+     * @param file calendar_dates.txt
+     * @throws FileNotFoundException thrown if an invalid file is put in
+     */
+    public void parseCalendarDates(File file) throws FileNotFoundException {
+        //the rows go into a copy, since the current Timetable reads the calendar it was built with
+        ServiceCalendar calendar = new ServiceCalendar(serviceCalendar);
+        parseRows(file, "calendar_dates.txt", GtfsSchema.CALENDAR_DATE_REQUIRED, GtfsSchema.NO_COLUMNS,
+                calendar::clearExceptions, currentLineFields -> {
+                    LocalDate date = parseDate(currentLineFields[1]);
+                    if (date == null) {
+                        return ParseDiagnostics.INVALID_DATE;
+                    }
+                    String exceptionType = currentLineFields[2].trim();
+                    if (!exceptionType.equals("1") && !exceptionType.equals("2")) {
+                        return ParseDiagnostics.INVALID_VALUE;
+                    }
+                    calendar.addException(currentLineFields[0], date, Integer.parseInt(exceptionType));
+                    return null;
+                });
+
+        //resolve the services into per-day bitsets and rebuild the search structures that use them
+        serviceCalendar = calendar.build();
+        rebuildAfterParse();
+
+        //notify Observers that new data has potentially been created
+        notifyObservers();
+    }
+
+    /**
+     * Parses a GTFS date ("YYYYMMDD").
+     *
+     * @param date the date to parse
+     * @return the parsed date, or null if it is incorrectly formatted
+     */
+    private static LocalDate parseDate(String date) {
+        try {
+            return LocalDate.parse(date.trim(), DateTimeFormatter.BASIC_ISO_DATE);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * This method changes how far apart two Stops may be while still being linked by a walking transfer. The walking
+     * graph is rebuilt immediately for the Stops that are already loaded.
+     *
+     * @param walkingRadius maximum walking distance in meters
+     */
+    public void setWalkingRadius(double walkingRadius) {
+        if (walkingRadius < 0) {
+            throw new IllegalArgumentException("Walking radius cannot be negative.");
+        }
+        this.walkingRadius = walkingRadius;
+        footpathGraph = new FootpathGraph(allStops, walkingRadius);
+        isochroneSearch = new IsochroneSearch(timetable, footpathGraph);
+    }
+
+    /**
+     * This method changes how the Timetable keeps its largest columns. Compressing them fits very large feeds into
+     * less memory at the cost of slower lookups. The Timetable is rebuilt immediately for the feed that is already
+     * loaded.
+     *
+     * @param timetableStorage how to keep the columns with one value per StopTime or per connection
+     */
+    public void setTimetableStorage(IntColumn.Storage timetableStorage) {
+        if (timetableStorage == null) {
+            throw new IllegalArgumentException("Timetable storage cannot be null.");
+        }
+        this.timetableStorage = timetableStorage;
+        rebuildTimetable();
+    }
+
+    /**
+     * This method changes how busy a Stop must be for the Timetable to keep a minute table for it, which finds the
+     * Stop's next arrival in constant time. The Timetable is rebuilt immediately for the feed that is already loaded.
+     *
+     * @param minuteTableThreshold fewest arrivals a Stop must have to get a minute table, or 0 for no tables
+     */
+    public void setMinuteTableThreshold(int minuteTableThreshold) {
+        if (minuteTableThreshold < 0) {
+            throw new IllegalArgumentException("Minute table threshold cannot be negative.");
+        }
+        this.minuteTableThreshold = minuteTableThreshold;
+        rebuildTimetable();
+    }
+
+    /**
+     * This method rebuilds the primitive Timetable (and the searches that depend on it) from the current Stops and
+     * Trips. It should be called whenever Stops, Trips or StopTimes are replaced.
+     */
+    public void rebuildTimetable() {
+        timetable = new Timetable(allStops, allTrips, serviceCalendar, timetableStorage)
+                .withMinuteTables(minuteTableThreshold);
+        isochroneSearch = new IsochroneSearch(timetable, footpathGraph);
+        segmentGraph = new SegmentGraph(stopPatterns.values(), timetable);
+
+        HashMap<String, Route> newRoutesByID = new HashMap<>(allRoutes.size() * 2);
+        for (Route route : allRoutes) {
+            newRoutesByID.putIfAbsent(route.getRouteID(), route);
+        }
+        routesByID = newRoutesByID;
+
+        //group Trips into vehicle duties and create a Bus for each vehicle, keeping the Bus already tracking a
+        //vehicle so the location and Route reported by the live feed are not lost
+        vehicleSchedule = new VehicleSchedule(timetable);
+        HashMap<String, Bus> oldBusesByID = busesByID;
+        ArrayList<Bus> newBuses = vehicleSchedule.createBuses(timetable, allRoutes, allStops);
+        HashMap<String, Bus> newBusesByID = new HashMap<>(newBuses.size() * 2);
+        for (int i = 0; i < newBuses.size(); i++) {
+            Bus oldBus = oldBusesByID.get(newBuses.get(i).getBusID());
+            if (oldBus != null) {
+                Route oldRoute = oldBus.getCurrentRoute();
+                Route route = oldRoute == null ? null : newRoutesByID.get(oldRoute.getRouteID());
+                oldBus.updateCurrentRoute(route != null ? route : newBuses.get(i).getCurrentRoute());
+                newBuses.set(i, oldBus);
+            }
+            newBusesByID.put(newBuses.get(i).getBusID(), newBuses.get(i));
+        }
+        allBuses.clear();
+        allBuses.addAll(newBuses);
+        busesByID = newBusesByID;
+
+        //only once the new Timetable is published, so a query still reading the old one cannot cache its result
+        invalidateQueryCaches();
+    }
+
+    /**
+     * This method discards every cached query result. It is called whenever the feed changes, after the new data is
+     * in place, so no query answers from data that is no longer loaded. A query that started before the call may
+     * still be reading the old data, but its result is not cached.
+     */
+    public void invalidateQueryCaches() {
+        departureCache.invalidateAll();
+        routesWithStopCache.invalidateAll();
+        routeStopsCache.invalidateAll();
+    }
+
+    /**
+     * This method finds every Stop that can be reached from a Stop within a number of minutes, riding any Trips
+     * and transferring between them at shared or nearby Stops.
+     *
+     * @param stopID the stop_id to start from
+     * @param startTime number of seconds since the start of the service day at which the rider starts
+     * @param budgetMinutes number of minutes the rider is willing to travel
+     * @return stop_id(s) of the reachable Stops mapped to their earliest arrival time (in seconds), ordered by arrival
+     */
+    public LinkedHashMap<String, Integer> findReachableStops(String stopID, int startTime, int budgetMinutes) {
+        return isochroneSearch.search(stopID, startTime, budgetMinutes * 60);
+    }
+
+    /**
+     * This method finds every Stop that can be reached from a Stop within a number of minutes on a certain date,
+     * only riding Trips whose service runs on that date.
+     *
+     * @param stopID the stop_id to start from
+     * @param date the service date
+     * @param startTime number of seconds since the start of the service day at which the rider starts
+     * @param budgetMinutes number of minutes the rider is willing to travel
+     * @return stop_id(s) of the reachable Stops mapped to their earliest arrival time (in seconds), ordered by arrival
+     */
+    public LinkedHashMap<String, Integer> findReachableStops(String stopID, LocalDate date, int startTime,
+                                                             int budgetMinutes) {
+        return isochroneSearch.search(stopID, date, startTime, budgetMinutes * 60);
+    }
+
+    /**
+     * This method finds the reachable Stops of several starting Stops at once, searching them in parallel.
+     *
+     * @param stopIDs the stop_id(s) to start from
+     * @param date the service date, or null to ride every Trip regardless of its service
+     * @param startTime number of seconds since the start of the service day at which riders start
+     * @param budgetMinutes number of minutes riders are willing to travel
+     * @return the result of "findReachableStops()" for each starting stop_id
+     */
+    public Map<String, LinkedHashMap<String, Integer>> findReachableStops(Collection<String> stopIDs, LocalDate date,
+                                                                          int startTime, int budgetMinutes) {
+        return isochroneSearch.searchAll(stopIDs, date, startTime, budgetMinutes * 60);
+    }
+
     /**
      * search for a route with routeID
      *
@@ -325,6 +780,44 @@ public class TransitData extends Subject {
         return currentStop;
     }
 
+    /**
+     * This method suggests the Stops best matching what a user has typed so far into a search bar, by the start of
+     * their stop_id or of the words of their name. Case and accents are ignored.
+     *
+     * @param query the text typed so far
+     * @param limit largest number of Stops to suggest
+     * @return the matching Stops, best match first
+     */
+    public ArrayList<Stop> autocompleteStops(String query, int limit) {
+        StopNameIndex index = stopNameIndex;
+        if (index.getStopCount() != allStops.size()) {
+            //Stops were added without parsing a file, so index them now
+            index = new StopNameIndex(allStops);
+            stopNameIndex = index;
+        }
+        return index.autocomplete(query, limit);
+    }
+
+    /**
+     * Search for a bus based on busID
+     *
+     * @param busID ID of the desired Bus
+     */
+    public Bus searchBuses(String busID) {
+        return busesByID.get(busID);
+    }
+
+    /**
+     * Search for a Route based on routeID through the index published along with the Buses, so unlike
+     * "searchRoutes()" it may be called from any thread.
+     *
+     * @param routeID ID of the desired Route
+     * @return the Route, or null if there is none with that ID
+     */
+    public Route findRoute(String routeID) {
+        return routesByID.get(routeID);
+    }
+
     /**
      * Search for a trip based on tripID
      *
@@ -345,129 +838,307 @@ public class TransitData extends Subject {
      * closest trip object.
      *
      * @param stopID Used to view closest trip to this ID
-     * @return Closest trip to the parameter stop_id
+     * @return Closest trip to the parameter stop_id, or an empty list if no Stop has that stop_id
      * @author Bartman
      */
     public ArrayList<Trip> findNextTrip(String stopID) {
         ArrayList<Trip> closestTrips = new ArrayList<>();
-        ArrayList<Integer> arrivalTimes = new ArrayList<>();
         //Validates the stopId is connects to a stop
-        Stop stop = transitData.searchStops(stopID);
+        Stop stop = searchStops(stopID);
         if (stop != null) {
-            //Gets current time of computer
-            LocalTime currentTime = LocalTime.now();
-            //Searches through all trips and Gets a list of closest arrival trips, with the indicated stop_id
-            for (Trip trip : allTrips) {
-                //Searches through the stopSequence for all the stops inside the individual trip
-                ArrayList<StopTime> stopSequence = trip.getStopSequence();
-                for (StopTime stopTime : stopSequence) {
-                    LocalTime arrivalTime = currentTime;
-                    String stopATime = stopTime.getArrivalTime();
-                    //Checks if this stopTime in the trips stopSequence, has the stopID we are looking for
-                    if (stopTime.getStopID().equals(stopID)) {
-                        arrivalTime = formatTime(stopATime);
-                        //Checks if the arrival time of the matching stop, is after the current time
-                        if (arrivalTime.isAfter(currentTime)) {
-                            //List of arrivalTimes of all stops
-                            arrivalTimes.add(timeToSecond(arrivalTime.toString()));
-                            closestTrips.add(trip);
-                        }
-                    }
-                }
-            }
-            //Arranges all trips by closest to current time
-            if (closestTrips.size() > 1) {
-                closestTrips = arrangeTrips(closestTrips, arrivalTimes, timeToSecond(currentTime.toString()));
-            }
+            //Gets current date and time of computer, rounded down to the start of the minute so repeated
+            //queries within the same minute share a cached result
+            LocalDate today = LocalDate.now();
+            int now = LocalTime.now().toSecondOfDay();
+            int bucketStart = now - now % DEPARTURE_BUCKET_SECONDS;
+            closestTrips = new ArrayList<>(departureCache.get(stopID + '@' + today + '@' + bucketStart,
+                    key -> findUpcomingTrips(stopID, today, bucketStart)));
         } else { //No Stop was found with that Stop_ID
-            Alert errorAlert = new Alert(Alert.AlertType.ERROR);
-            errorAlert.setTitle("Invalid Stop ID");
-            errorAlert.setHeaderText("Stop was not found");
-            errorAlert.setContentText("No Stop was Found With This Stop_ID : " + stopID);
-            errorAlert.showAndWait();
+            TransitController.LOGGER.log(Level.INFO, "No Stop was found with stop_id " + stopID + ".");
         }
         return closestTrips;
     }
 
     /**
-     * This method will arrange the trips from closest trip with a stopId to
-     * farthest trip with stopId
+     * This method finds every Trip arriving at a Stop after a certain time on a certain date, ordered from the
+     * soonest arrival to the latest. Only Trips whose service runs on that date are included, along with Trips of
+     * the previous day's service that run past midnight.
      *
-     * @param trips       List of FoundTrips
-     * @param arrTimes    List of ArrivalTimes for found Stop_ids in trips
-     * @param currentTime Current system time
-     * @return Ordered arraylist
-     * @author Bartman
+     * @param stopID the ID of the Stop
+     * @param date the date to look at
+     * @param afterTime number of seconds since midnight; only arrivals after this time are included
+     * @return Trips arriving at the Stop, ordered by arrival time
      */
-    private ArrayList<Trip> arrangeTrips(ArrayList<Trip> trips, ArrayList<Integer> arrTimes, int currentTime) {
-        ArrayList<Trip> newTripList = new ArrayList<>();
-        int totalTrips = trips.size();
-        while (totalTrips != 0) {
-            int indexOfLT = -1; //Will select which index use
-            int lowestTime = Integer.MAX_VALUE;
-            for (int i = 0; i < arrTimes.size(); i++) {
-                int difference = arrTimes.get(i) - currentTime;
-                if (lowestTime >= difference) {
-                    lowestTime = difference;
-                    indexOfLT = i;
-                }
-            }
-            if (indexOfLT != -1) {
-                //Adds the trips to the new ordered trip list
-                newTripList.add(trips.get(indexOfLT));
-                totalTrips--;
-                arrTimes.remove(indexOfLT);
-                trips.remove(indexOfLT);
-            }
+    public ArrayList<Trip> findUpcomingTrips(String stopID, LocalDate date, int afterTime) {
+        return findUpcomingTrips(stopID, date, afterTime, null);
+    }
+
+    /**
+     * This method works like "findUpcomingTrips()", also giving the time each Trip arrives at the Stop, so results
+     * from several feeds can be merged in order of arrival.
+     *
+     * @param stopID the ID of the Stop
+     * @param date the date to look at
+     * @param afterTime number of seconds since midnight; only arrivals after this time are included
+     * @param arrivalTimes receives the arrival of every returned Trip, in seconds since midnight of "date" (may be
+     *                     null when the times are not needed)
+     * @return Trips arriving at the Stop, ordered by arrival time
+     */
+    public ArrayList<Trip> findUpcomingTrips(String stopID, LocalDate date, int afterTime, List<Integer> arrivalTimes) {
+        Timetable timetable = this.timetable;
+        int stopIndex = timetable.indexOfStop(stopID);
+        if (stopIndex < 0) {
+            return new ArrayList<>();
         }
-        return newTripList;
+        return collectUpcomingTrips(timetable, stopIndex, date, afterTime, arrivalTimes);
+    }
+
+    /**
+     * This method finds the upcoming Trips of many Stops at once, reading a single Timetable for the whole batch.
+     *
+     * @param stopIDs the IDs of the Stops
+     * @param date the date to look at
+     * @param afterTime number of seconds since midnight; only arrivals after this time are included
+     * @return the result of "findUpcomingTrips()" for each stop_id, in the order they were asked for (empty for an
+     *         unknown stop_id)
+     */
+    public LinkedHashMap<String, ArrayList<Trip>> findUpcomingTrips(Collection<String> stopIDs, LocalDate date,
+                                                                    int afterTime) {
+        Timetable timetable = this.timetable;
+        return collectPerStop(timetable, stopIDs, stopIndex ->
+                collectUpcomingTrips(timetable, stopIndex, date, afterTime, null));
     }
 
     /**
-     * Converts a time to seconds
+     * This method finds the next Trips of many Stops at once, like calling "findNextTrip()" for each of them.
+     * Results are shared with "findNextTrip()" through the same cache.
      *
-     * @param localTime toString local time object
-     * @return time in seconds
+     * @param stopIDs the IDs of the Stops
+     * @return Trips arriving at each Stop from the start of the current minute on, ordered by arrival time (empty
+     *         for an unknown stop_id), in the order the stop_id(s) were asked for
      */
-    private int timeToSecond(String localTime) {
-        //Take Strings and put them into ints
-        String[] times = localTime.split(":");
-        int time = 0;
+    public LinkedHashMap<String, ArrayList<Trip>> findNextTrips(Collection<String> stopIDs) {
+        LocalDate today = LocalDate.now();
+        int now = LocalTime.now().toSecondOfDay();
+        int bucketStart = now - now % DEPARTURE_BUCKET_SECONDS;
+        Timetable timetable = this.timetable;
+        return collectPerStop(timetable, stopIDs, stopIndex -> new ArrayList<>(departureCache.get(
+                timetable.getStopID(stopIndex) + '@' + today + '@' + bucketStart,
+                key -> collectUpcomingTrips(timetable, stopIndex, today, bucketStart, null))));
+    }
 
-        //Puts arrival time in terms of seconds
-        for (int i = 0; i < times.length; i++) {
-            if (!times[i].isEmpty()) {
-                double mult = Math.pow(60, (2 - i));
-                if (mult != 1) {
-                    time += Integer.parseInt(times[i]) * (int) mult;
-                } else {
-                    time += (int) Double.parseDouble(times[i]);
+    /**
+     * Runs a query for every known Stop of a batch, keeping the results in the order asked for. An unknown stop_id
+     * gets an empty result, the same as a Stop no Trip arrives at.
+     */
+    private static LinkedHashMap<String, ArrayList<Trip>> collectPerStop(Timetable timetable,
+                                                                         Collection<String> stopIDs,
+                                                                         IntFunction<ArrayList<Trip>> query) {
+        LinkedHashMap<String, ArrayList<Trip>> results = new LinkedHashMap<>();
+        for (String stopID : stopIDs) {
+            if (!results.containsKey(stopID)) {
+                int stopIndex = timetable.indexOfStop(stopID);
+                results.put(stopID, stopIndex >= 0 ? query.apply(stopIndex) : new ArrayList<>());
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Does the work of "findUpcomingTrips()" for a single Stop. Whether a Trip runs on the matching day is a single
+     * bit test of its service, made only for the arrivals actually visited.
+     */
+    private static ArrayList<Trip> collectUpcomingTrips(Timetable timetable, int stopIndex, LocalDate date,
+                                                        int afterTime, List<Integer> arrivalTimes) {
+        ArrayList<Trip> upcomingTrips = new ArrayList<>();
+        LocalDate previousDate = date.minusDays(1);
+
+        //today's service from "afterTime" on, and yesterday's service from "afterTime" + 24 hours on (past midnight)
+        int today = timetable.findFirstStopEventAfter(stopIndex, afterTime);
+        int yesterday = timetable.findFirstStopEventAfter(stopIndex, afterTime + SECONDS_PER_DAY);
+        int end = timetable.getEndStopEvent(stopIndex);
+
+        //merge both sorted runs of arrivals, skipping Trips that do not run on the matching day
+        while (today < end || yesterday < end) {
+            int todayArrival = today < end ? timetable.getArrival(timetable.getStopEvent(today)) : Integer.MAX_VALUE;
+            int yesterdayArrival = yesterday < end
+                    ? timetable.getArrival(timetable.getStopEvent(yesterday)) - SECONDS_PER_DAY : Integer.MAX_VALUE;
+            if (todayArrival <= yesterdayArrival) {
+                int trip = timetable.getStopTimeTrip(timetable.getStopEvent(today++));
+                if (timetable.isTripActive(trip, date)) {
+                    upcomingTrips.add(timetable.getTrip(trip));
+                    if (arrivalTimes != null) {
+                        arrivalTimes.add(todayArrival);
+                    }
+                }
+            } else {
+                int trip = timetable.getStopTimeTrip(timetable.getStopEvent(yesterday++));
+                if (timetable.isTripActive(trip, previousDate)) {
+                    upcomingTrips.add(timetable.getTrip(trip));
+                    if (arrivalTimes != null) {
+                        arrivalTimes.add(yesterdayArrival);
+                    }
                 }
             }
         }
-        return time;
+        return upcomingTrips;
     }
 
     /**
-     * This method will format a string time into a correctly formatted
-     * local time object
+     * This method finds the Trip group of a Trip: every Trip visiting exactly the same sequence of Stops.
      *
-     *  Used this link to help with Regex formatting
-     *  https://stackoverflow.com/questions/8318236/regex-pattern-for-hhmmss-time-string
+     * @param tripID the ID of a Trip in the group
+     * @return every Trip in the group, including the requested one, or an empty list if the Trip is unknown
+     */
+    public ArrayList<Trip> findTripGroup(String tripID) {
+        ArrayList<Trip> tripGroup = new ArrayList<>();
+        Timetable timetable = this.timetable;
+        int tripIndex = timetable.indexOfTrip(tripID);
+        if (tripIndex < 0) {
+            return tripGroup;
+        }
+
+        //the Trip's stop pattern already holds the group
+        StopPattern pattern = timetable.getTrip(tripIndex).getStopPattern();
+        if (pattern != null) {
+            tripGroup.addAll(pattern.getTrips());
+            return tripGroup;
+        }
+        int first = timetable.getFirstStopTime(tripIndex);
+        int length = timetable.getEndStopTime(tripIndex) - first;
+        for (int t = 0; t < timetable.getTripCount(); t++) {
+            int other = timetable.getFirstStopTime(t);
+            if (timetable.getEndStopTime(t) - other != length) {
+                continue;
+            }
+            int s = 0;
+            while (s < length && timetable.getStopIndex(first + s) == timetable.getStopIndex(other + s)) {
+                s++;
+            }
+            if (s == length) {
+                tripGroup.add(timetable.getTrip(t));
+            }
+        }
+        return tripGroup;
+    }
+
+    /**
+     * This method edits a group of Trips in one batch: every time of every Trip is shifted by a number of minutes,
+     * and/or every visit to one Stop is moved to another Stop. Each edited Trip gets a copy of its StopTimes with the
+     * changes, so queries on other threads keep reading the old ones whole, then the Timetable is updated for just
+     * the edited Trips and Stops instead of being rebuilt, and Observers are notified once for the whole batch. The
+     * Timetable is only rebuilt when the replaced Stop is one it does not know, since the StopTimes it left out then
+     * visit a known Stop. Only Trips of the current Timetable are edited: a Trip it does not hold (such as one
+     * from a group found before the feed was reloaded) is left alone, so the StopTimes and the Timetable always
+     * agree. Nothing is edited if any shifted time would fall before midnight.
      *
-     * @param time String to be formatted
-     * @return Formatted Local time object, "hh:mm:ss"
-     * @author Bartman
+     * @param trips the Trips to edit
+     * @param shiftMinutes number of minutes to move every time by (may be negative or zero)
+     * @param oldStopID the stop_id to replace, or null/empty to leave Stops alone
+     * @param newStopID the stop_id replacing it
+     * @throws IllegalArgumentException thrown if the new Stop is unknown or a time would move before midnight
      */
-    private LocalTime formatTime(String time) {
-        LocalTime formattedTime = null;
-        //Makes sure String time matches "HH:MM:SS"
-        if (time.matches("^([1-2]\\d)(?::([0-5]?\\d))?(?::([0-5]?\\d))?$")) {
-            formattedTime = LocalTime.parse(time, DateTimeFormatter.ISO_LOCAL_TIME);
+    public void updateTripGroup(Collection<Trip> trips, int shiftMinutes, String oldStopID, String newStopID) {
+        Timetable timetable = this.timetable;
+        int shiftSeconds = shiftMinutes * 60;
+        int[] tripIndexes = new int[trips.size()];
+        ArrayList<Trip> indexedTrips = new ArrayList<>(trips.size());
+        HashSet<Integer> seenTrips = new HashSet<>();
+        for (Trip trip : trips) {
+            int tripIndex = timetable.indexOfTrip(trip.getTripID());
+            if (tripIndex >= 0 && timetable.getTrip(tripIndex) == trip && seenTrips.add(tripIndex)) {
+                tripIndexes[indexedTrips.size()] = tripIndex;
+                indexedTrips.add(trip);
+            }
+        }
+
+        //check every time before changing any, so a rejected edit leaves the whole group as it was
+        if (shiftSeconds < 0) {
+            for (Trip trip : indexedTrips) {
+                for (StopTime stopTime : trip.getStopSequence()) {
+                    int arrival = Timetable.parseTime(stopTime.getArrivalTime());
+                    int departure = Timetable.parseTime(stopTime.getDepartureTime());
+                    if ((arrival >= 0 && arrival + shiftSeconds < 0)
+                            || (departure >= 0 && departure + shiftSeconds < 0)) {
+                        throw new IllegalArgumentException("Trip " + trip.getTripID()
+                                + " cannot have a time before midnight.");
+                    }
+                }
+            }
+        }
+
+        //every Stop maps to itself except the one being replaced
+        int[] stopRemap = null;
+        boolean replaceStop = oldStopID != null && !oldStopID.isEmpty();
+        if (replaceStop) {
+            int oldStop = timetable.indexOfStop(oldStopID);
+            int newStop = timetable.indexOfStop(newStopID);
+            if (newStop < 0) {
+                throw new IllegalArgumentException("No Stop was found with this stop_id: " + newStopID);
+            }
+            if (oldStop >= 0) {
+                stopRemap = new int[timetable.getStopCount()];
+                for (int i = 0; i < stopRemap.length; i++) {
+                    stopRemap[i] = i;
+                }
+                stopRemap[oldStop] = newStop;
+            }
+        }
+
+        boolean renamedStops = false;
+        for (Trip trip : indexedTrips) {
+            ArrayList<StopTime> stopSequence = trip.getStopSequence();
+            ArrayList<StopTime> editedSequence = new ArrayList<>(stopSequence.size());
+            for (StopTime stopTime : stopSequence) {
+                String stopID = stopTime.getStopID();
+                if (replaceStop && stopID.equals(oldStopID)) {
+                    stopID = newStopID;
+                    renamedStops = true;
+                }
+                String arrivalTime = stopTime.getArrivalTime();
+                String departureTime = stopTime.getDepartureTime();
+                if (shiftSeconds != 0) {
+                    int arrival = Timetable.parseTime(arrivalTime);
+                    int departure = Timetable.parseTime(departureTime);
+                    if (arrival >= 0) {
+                        arrivalTime = Timetable.formatTime(arrival + shiftSeconds);
+                    }
+                    if (departure >= 0) {
+                        departureTime = Timetable.formatTime(departure + shiftSeconds);
+                    }
+                }
+                editedSequence.add(new StopTime(stopTime, arrivalTime, departureTime, stopID));
+            }
+            trip.setStopSequence(editedSequence);
+        }
+
+        //Trips visiting the replaced Stop now follow a different sequence of Stops, even if the Timetable never
+        //knew the replaced Stop
+        if (renamedStops) {
+            reassignStopPatterns(indexedTrips);
+        }
+
+        if (renamedStops && stopRemap == null) {
+            //the Timetable left out the StopTimes of the unknown Stop, which now visit a known one
+            rebuildTimetable();
         } else {
-            formattedTime = LocalTime.parse("0" + time, DateTimeFormatter.ISO_LOCAL_TIME);
+            //only the edited Trips' times, connections and Stops change, and the Buses of each block stay the same
+            this.timetable = timetable.updateTrips(Arrays.copyOf(tripIndexes, indexedTrips.size()), shiftSeconds,
+                    stopRemap);
+            isochroneSearch = new IsochroneSearch(this.timetable, footpathGraph);
+            vehicleSchedule = new VehicleSchedule(this.timetable);
+
+            //shifting times moves both ends of every segment alike, so only new Stops change the segments
+            if (renamedStops) {
+                segmentGraph = new SegmentGraph(stopPatterns.values(), this.timetable);
+            }
+
+            //only once the new Timetable is published, so a query still reading the old one cannot cache its result
+            invalidateQueryCaches();
         }
-        return formattedTime;
+
+        //notify Observers once for the whole batch
+        notifyObservers();
     }
 
     /**
@@ -478,85 +1149,225 @@ public class TransitData extends Subject {
      * @return list of Routes that contain the desired Stop
      */
     public ArrayList<Route> findRoutesWithStop(String stopID) {
-        //obtain every Route we have
-        ArrayList<Route> allRoutes = transitData.getAllRoutes();
-
-        //create a list to hold all Routes found to have the requested Stop (found by stop_id)
-        ArrayList<Route> routesWithStop = new ArrayList<>();
+        return new ArrayList<>(routesWithStopCache.get(stopID, this::collectRoutesWithStop));
+    }
 
-        //iterate over every Route, checking which Trips and then which Stops are in such
-        for (Route route : allRoutes) {
-            //obtain the list of all known trip_ids per a single Route
-            ArrayList<String> tripsIDsInRoute = route.getTripsInRoute();
+    /**
+     * Does the work of "findRoutesWithStop()" when its result is not cached.
+     */
+    private ArrayList<Route> collectRoutesWithStop(String stopID) {
+        //look Trips up by trip_id instead of searching the list for every trip_id of every Route
+        HashMap<String, Trip> tripsByID = mapTripsByID();
+
+        //check the Stops of each distinct pattern once, rather than the Stops of every Trip
+        HashSet<StopPattern> patternsWithStop = new HashSet<>();
+        for (StopPattern pattern : stopPatterns.values()) {
+            if (pattern.containsStop(stopID)) {
+                patternsWithStop.add(pattern);
+            }
+        }
 
-            //create an empty list meant to host all known Trip objects for a known Route object
-            ArrayList<Trip> tripsInRoute = new ArrayList<>();
+        //create a set to hold all Routes found to have the requested Stop, which also keeps each Route only once
+        LinkedHashSet<Route> routesWithStop = new LinkedHashSet<>();
 
-            //obtain each Trip object which belongs to a single Route object via a trip_id search function
-            for (String tripID : tripsIDsInRoute) {
-                Trip trip = transitData.searchTrips(tripID);
-                if (trip != null) {
-                    tripsInRoute.add(trip);
+        //iterate over every Route, checking which Trips follow a pattern visiting the Stop
+        for (Route route : allRoutes) {
+            for (String tripID : route.getTripsInRoute()) {
+                Trip trip = tripsByID.get(tripID);
+                if (trip != null && patternsWithStop.contains(trip.getStopPattern())) {
+                    //one Trip visiting the Stop is enough, so move on to the next Route
+                    routesWithStop.add(route);
+                    break;
                 }
             }
+        }
+        //give back all of the Routes which were found to have to requested Stop (found by stop_id)
+        return new ArrayList<>(routesWithStop);
+    }
 
-            //now that we know every Trip object that belongs to a single Route object, we must find all Stops
-            for (Trip trip : tripsInRoute) {
-                //obtain the list of StopTimes for a single Trip (signifying which Stops are in a single Trip)
-                ArrayList<StopTime> stopSequence = trip.getStopSequence();
+    /**
+     * This method finds the Routes of many Stops at once, like calling "findRoutesWithStop()" for each of them.
+     * Stops whose Routes are not cached are all found in a single pass over the Trips, and their results are
+     * cached for later calls.
+     *
+     * @param stopIDs the IDs of the Stops whose Routes you would like to see
+     * @return the Routes containing each Stop, in the order the stop_id(s) were asked for (empty for an unknown
+     *         stop_id)
+     */
+    public LinkedHashMap<String, ArrayList<Route>> findRoutesWithStops(Collection<String> stopIDs) {
+        LinkedHashMap<String, ArrayList<Route>> results = new LinkedHashMap<>();
+        HashMap<String, LinkedHashSet<Route>> missing = new HashMap<>();
+        for (String stopID : stopIDs) {
+            ArrayList<Route> cached = routesWithStopCache.getIfPresent(stopID);
+            results.put(stopID, cached == null ? null : new ArrayList<>(cached));
+            if (cached == null) {
+                missing.put(stopID, new LinkedHashSet<>());
+            }
+        }
+        if (missing.isEmpty()) {
+            return results;
+        }
 
-                //iterate over every StopTime object, checking if the requested stop_id is in the Trip
-                for (StopTime stopTime : stopSequence) {
-                    if (stopTime.getStopID().equals(stopID)) {
-                        //avoid multiple entries of the same Route
-                        if (!routesWithStop.contains(route)) {
-                            //we have found a stopID that matches the requested stopID, return this Route
-                            routesWithStop.add(route);
-                        }
+        //one pass over the stop patterns of every Route, adding the Route to each requested Stop its Trips visit
+        HashMap<String, Trip> tripsByID = mapTripsByID();
+        for (Route route : allRoutes) {
+            for (StopPattern pattern : collectRoutePatterns(route, tripsByID)) {
+                for (int i = 0; i < pattern.getStopCount(); i++) {
+                    LinkedHashSet<Route> routes = missing.get(pattern.getStopID(i));
+                    if (routes != null) {
+                        routes.add(route);
                     }
                 }
             }
         }
-        //give back all of the Routes which were found to have to requested Stop (found by stop_id)
-        return routesWithStop;
+
+        //cache each Stop's Routes, which are already in the same order as "findRoutesWithStop()" gives them
+        for (Map.Entry<String, LinkedHashSet<Route>> entry : missing.entrySet()) {
+            ArrayList<Route> routes = new ArrayList<>(entry.getValue());
+            results.put(entry.getKey(), new ArrayList<>(routesWithStopCache.get(entry.getKey(), key -> routes)));
+        }
+        return results;
+    }
+
+    /**
+     * Lists the distinct stop patterns followed by the Trips of a Route, in the order of the first Trip following
+     * each. Trips without StopTimes follow no pattern and are left out.
+     */
+    private static LinkedHashSet<StopPattern> collectRoutePatterns(Route route, HashMap<String, Trip> tripsByID) {
+        LinkedHashSet<StopPattern> patterns = new LinkedHashSet<>();
+        for (String tripID : route.getTripsInRoute()) {
+            Trip trip = tripsByID.get(tripID);
+            if (trip != null && trip.getStopPattern() != null) {
+                patterns.add(trip.getStopPattern());
+            }
+        }
+        return patterns;
+    }
+
+    /**
+     * @return every Trip by trip_id (the first Trip is kept if several share a trip_id)
+     */
+    private HashMap<String, Trip> mapTripsByID() {
+        HashMap<String, Trip> tripsByID = new HashMap<>(allTrips.size() * 2);
+        for (Trip trip : allTrips) {
+            tripsByID.putIfAbsent(trip.getTripID(), trip);
+        }
+        return tripsByID;
     }
 
     /**
      * This method will return all the stop_ids on the indicated route_id
      *
      * @param routeId Route id used to return all stops
-     * @return List of stops that are in a valid routeID
+     * @return List of stops that are in a valid routeID, or an empty list if no Route has that route_id
      * @author Bartman
      */
     public ArrayList<Stop> findAllStops(String routeId) {
         ArrayList<Stop> allValidStops = new ArrayList<>();
         //verifies routeID is valid
-        Route route = transitData.searchRoutes(routeId);
+        Route route = searchRoutes(routeId);
         if (route != null) {
-            for (String tripId : route.getTripsInRoute()) {
-                Trip routeTrips = transitData.searchTrips(tripId);
-                if (routeTrips != null) { //verifies tripId is valid
-                    ArrayList<StopTime> tripStopTimes = routeTrips.getStopSequence();
-                    for (StopTime stopTime : tripStopTimes) {
-                        Stop stop = transitData.searchStops(stopTime.getStopID());
-                        //Checks to make sure we dont add duplicate stops
-                        if(!allValidStops.contains(stop)) {
-                            allValidStops.add(stop);
-                        }
+            allValidStops = new ArrayList<>(routeStopsCache.get(routeId, key -> collectRouteStops(route)));
+        } else { //No routes found with indicated routeId
+            TransitController.LOGGER.log(Level.INFO, "No Route was found with route_id " + routeId + ".");
+        }
+        return allValidStops;
+    }
+
+    /**
+     * Does the work of "findAllStops()" when its result is not cached.
+     */
+    private ArrayList<Stop> collectRouteStops(Route route) {
+        return collectRouteStops(route, mapTripsByID(), mapStopsByID());
+    }
+
+    /**
+     * This method finds the Stops of many Routes at once, like calling "findAllStops()" for each of them. The Trips
+     * and Stops are indexed once for the whole batch.
+     *
+     * @param routeIDs the IDs of the Routes
+     * @return the Stops of each Route, in the order the route_id(s) were asked for (empty for an unknown route_id)
+     */
+    public LinkedHashMap<String, ArrayList<Stop>> findAllStops(Collection<String> routeIDs) {
+        HashMap<String, Route> routesByID = new HashMap<>(allRoutes.size() * 2);
+        for (Route route : allRoutes) {
+            routesByID.putIfAbsent(route.getRouteID(), route);
+        }
+
+        //index the Trips and Stops only if a Route actually misses the cache
+        HashMap<String, Trip> tripsByID = new HashMap<>();
+        HashMap<String, Stop> stopsByID = new HashMap<>();
+        LinkedHashMap<String, ArrayList<Stop>> results = new LinkedHashMap<>();
+        for (String routeID : routeIDs) {
+            Route route = routesByID.get(routeID);
+            if (route == null) {
+                results.put(routeID, new ArrayList<>());
+            } else {
+                results.put(routeID, new ArrayList<>(routeStopsCache.get(routeID, key -> {
+                    if (tripsByID.isEmpty()) {
+                        tripsByID.putAll(mapTripsByID());
+                        stopsByID.putAll(mapStopsByID());
+                    }
+                    return collectRouteStops(route, tripsByID, stopsByID);
+                })));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * @return every Stop by stop_id (the first Stop is kept if several share a stop_id)
+     */
+    private HashMap<String, Stop> mapStopsByID() {
+        HashMap<String, Stop> stopsByID = new HashMap<>(allStops.size() * 2);
+        for (Stop stop : allStops) {
+            stopsByID.putIfAbsent(stop.getStopID(), stop);
+        }
+        return stopsByID;
+    }
+
+    /**
+     * Lists the Stops of a Route, given every Trip and Stop by ID.
+     */
+    private static ArrayList<Stop> collectRouteStops(Route route, HashMap<String, Trip> tripsByID,
+                                                     HashMap<String, Stop> stopsByID) {
+
+        //a set keeps each Stop only once without searching the Stops found so far
+        LinkedHashSet<Stop> allValidStops = new LinkedHashSet<>();
+
+        //Trips following the same stop pattern visit the same Stops, so each pattern is only listed once
+        HashSet<StopPattern> listedPatterns = new HashSet<>();
+        int missingTrips = 0;
+        for (String tripId : route.getTripsInRoute()) {
+            Trip routeTrips = tripsByID.get(tripId);
+            if (routeTrips != null) { //verifies tripId is valid
+                StopPattern pattern = routeTrips.getStopPattern();
+                if (pattern != null && listedPatterns.add(pattern)) {
+                    for (int i = 0; i < pattern.getStopCount(); i++) {
+                        allValidStops.add(stopsByID.get(pattern.getStopID(i)));
                     }
-                } else { //Trip was loaded in incorrectly, or incorrectly formatted
-                    TransitController.LOGGER.log(Level.WARNING, "WARNING: Trip " + tripId + " was incorrectly formatted.\n");
-                    System.out.println("WARNING: Trip " + tripId + " was incorrectly formatted.\n");
                 }
+            } else { //Trip was loaded in incorrectly, or incorrectly formatted
+                missingTrips++;
             }
-        } else { //No routes found with indicated routeId
-            Alert errorAlert = new Alert(Alert.AlertType.ERROR);
-            errorAlert.setTitle("Invalid Route ID");
-            errorAlert.setHeaderText("Route was not found");
-            errorAlert.setContentText("No Route was Found With This Route_ID : " + routeId);
-            errorAlert.showAndWait();
         }
-        return allValidStops;
+
+        //a single warning for the whole Route rather than one line of output per missing Trip
+        if (missingTrips > 0) {
+            TransitController.LOGGER.log(Level.WARNING, "WARNING: Route " + route.getRouteID() + " lists "
+                    + missingTrips + " trip_id(s) with no correctly formatted Trip.\n");
+        }
+        return new ArrayList<>(allValidStops);
+    }
+
+    /**
+     * This method analyzes how often the Trips of each Route run, in each direction, on each service_id and in each
+     * hour of the service day, and finds the runs of evenly spaced Trips that could be described as frequencies.
+     *
+     * @return the headways and frequency runs of every Trip
+     */
+    public HeadwayAnalysis analyzeHeadways() {
+        return new HeadwayAnalysis(timetable, HeadwayAnalysis.DEFAULT_WINDOW_SECONDS);
     }
 
 	/**
@@ -566,9 +1377,6 @@ public class TransitData extends Subject {
 	 * @author Declan Bruce
 	 */
 	public HashMap<String, Integer> findNumTripsPerStop(){
-		ArrayList<Stop> allStops = transitData.getAllStops();
-		ArrayList<Trip> allTrips = transitData.getAllTrips();
-
 		//create a HashMap filled with keys made of every known stop_id
 		HashMap<String,Integer> tripOccurrences = new HashMap<>(allStops.size());
 		for(Stop stop : allStops){
@@ -693,4 +1501,60 @@ public class TransitData extends Subject {
         return allTrips;
     }
 
+    public FootpathGraph getFootpathGraph() {
+        return footpathGraph;
+    }
+
+    public double getWalkingRadius() {
+        return walkingRadius;
+    }
+
+    public Timetable getTimetable() {
+        return timetable;
+    }
+
+    public SegmentGraph getSegmentGraph() {
+        return segmentGraph;
+    }
+
+    public IntColumn.Storage getTimetableStorage() {
+        return timetableStorage;
+    }
+
+    public int getMinuteTableThreshold() {
+        return minuteTableThreshold;
+    }
+
+    public ServiceCalendar getServiceCalendar() {
+        return serviceCalendar;
+    }
+
+    public VehicleSchedule getVehicleSchedule() {
+        return vehicleSchedule;
+    }
+
+    public PositionFeed getPositionFeed() {
+        return positionFeed;
+    }
+
+    public ArrivalPredictor getArrivalPredictor() {
+        return arrivalPredictor;
+    }
+
+    public ParseDiagnostics getParseDiagnostics() {
+        return parseDiagnostics;
+    }
+
+    public QueryCache<String, ArrayList<Trip>> getDepartureCache() {
+        return departureCache;
+    }
+
+    public QueryCache<String, ArrayList<Route>> getRoutesWithStopCache() {
+        return routesWithStopCache;
+    }
+
+    public QueryCache<String, ArrayList<Stop>> getRouteStopsCache() {
+        return routeStopsCache;
+    }
+
 }
\ No newline at end of file
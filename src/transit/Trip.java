@@ -23,6 +23,7 @@ import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.Objects;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 
@@ -35,12 +36,17 @@ public class Trip {
 	private String blockID;
 	private String shapeID;
 
-	//list for linking Stops, StopTimes, and Trips together
-	private ArrayList<StopTime> stopSequence = new ArrayList<>();
+	//list for linking Stops, StopTimes, and Trips together, replaced by an edited copy rather than changed once the
+	//Trip is published, so queries on other threads keep reading a whole sequence
+	private volatile ArrayList<StopTime> stopSequence = new ArrayList<>();
 
-	//use single instance of TransitData
+	//data store the Trip belongs to, which is the single instance unless the Trip was parsed into another feed
 	private TransitData transitData;
 
+	//sequence of Stops this Trip shares with every other Trip visiting the same Stops, null while it has no StopTimes,
+	//replaced rather than changed when the Trip's Stops are edited, so searches on other threads may read it
+	private volatile StopPattern stopPattern;
+
 	/**
 	 * Basic constructor for a Trip object.
 	 * TODO: describe these attributes
@@ -64,8 +70,29 @@ public class Trip {
 		this.transitData = TransitData.getInstance();
 	}
 
+	/**
+	 * Ties the Trip to the data store it was parsed into, so its Stops are looked up in the same feed.
+	 */
+	void setTransitData(TransitData transitData) {
+		this.transitData = transitData;
+	}
+
+	/**
+	 * Moves the Trip into the stop pattern matching its current StopTimes.
+	 */
+	void setStopPattern(StopPattern stopPattern) {
+		this.stopPattern = stopPattern;
+	}
+
+	/**
+	 * Replaces the Trip's StopTimes with an edited copy.
+	 */
+	void setStopSequence(ArrayList<StopTime> stopSequence) {
+		this.stopSequence = stopSequence;
+	}
+
 	//radius of the earth in meters (6,371,000m) for finding trip distance/average speed
-	private static int EARTH_RADIUS = 6371000;
+	static final int EARTH_RADIUS = 6371000;
 
 	/**
 	 * This method utilizes the longitude and latitude of both the first and last stop to find
@@ -78,12 +105,28 @@ public class Trip {
 	 * @return the distance between the two points in kilometers
 	 * @author Declan Bruce
 	 */
-	private double calcStopToStopDistance(Stop firstStop, Stop lastStop){
+	static double calcStopToStopDistance(Stop firstStop, Stop lastStop){
+		return calcCoordinateDistance(firstStop.getLatitude(), firstStop.getLongitude(),
+				lastStop.getLatitude(), lastStop.getLongitude());
+	}
+
+	/**
+	 * This method applies the Haversine formula to two raw latitude/longitude pairs. It is shared by anything that
+	 * needs a distance between locations that are not (yet) Stop objects, such as walking transfers or bus positions.
+	 *
+	 * @param startLatitude latitude of the first point in degrees
+	 * @param startLongitude longitude of the first point in degrees
+	 * @param endLatitude latitude of the second point in degrees
+	 * @param endLongitude longitude of the second point in degrees
+	 * @return the distance between the two points in kilometers
+	 */
+	static double calcCoordinateDistance(double startLatitude, double startLongitude,
+			double endLatitude, double endLongitude){
 		//obtain latitudes and longitudes, convert each to radians for trig functions
-		double startLatRadians = Math.toRadians(firstStop.getLatitude());
-		double startLongRadians = Math.toRadians(firstStop.getLongitude());
-		double endLatRadians = Math.toRadians(lastStop.getLatitude());
-		double endLongRadians = Math.toRadians(lastStop.getLongitude());
+		double startLatRadians = Math.toRadians(startLatitude);
+		double startLongRadians = Math.toRadians(startLongitude);
+		double endLatRadians = Math.toRadians(endLatitude);
+		double endLongRadians = Math.toRadians(endLongitude);
 
 		//find change in latitude and longitude, must be in radians for trig functions
 		double deltaLatitude = (endLatRadians - startLatRadians);
@@ -135,6 +178,7 @@ public class Trip {
 	 */
 	private double calcTripTime() throws ParseException {
 		//obtain the starting and ending time of the trip as Strings (from first/last StopTimes)
+		ArrayList<StopTime> stopSequence = this.stopSequence;
 		String startTimeStr = stopSequence.get(0).getArrivalTime();
 		String endTimeStr = stopSequence.get(stopSequence.size() - 1).getDepartureTime();
 
@@ -163,12 +207,20 @@ public class Trip {
 
 	/**
 	 * This calculates the cumulative distance of a Trip by adding up the individual distances between each of its
-	 * participating Stops.
+	 * participating Stops. Once the Trip's stop pattern is part of the feed's segment graph, the distance is the sum
+	 * of the lengths of the pattern's segments, which were each worked out once for every Trip running over them.
 	 *
 	 * @return the total distance of the Trip
 	 * @author Declan Bruce
 	 */
 	public double calcTotalDistance(){
+		if (stopPattern != null) {
+			double patternDistance = transitData.getSegmentGraph().calcPatternDistance(stopPattern);
+			if (patternDistance >= 0) {
+				return patternDistance;
+			}
+		}
+
 		double totalTripDistance = 0.0;
 
 		/*
@@ -241,6 +293,27 @@ public class Trip {
 		stopSequence.add(stopTime);
 	}
 
+	/**
+	 * Trips are compared by trip_id alone, so a Trip stays the same Trip while its StopTimes are being edited.
+	 * @param obj Trip object to be compared
+	 * @return true if the other object is a Trip with the same trip_id
+	 */
+	@Override
+	public boolean equals(Object obj){
+		if(this == obj){
+			return true;
+		}
+		if(obj == null || getClass() != obj.getClass()){
+			return false;
+		}
+		return Objects.equals(tripID, ((Trip)obj).tripID);
+	}
+
+	@Override
+	public int hashCode(){
+		return Objects.hashCode(tripID);
+	}
+
 	//getters
 	public String getRouteID() { return routeID; }
 	public String getServiceID() { return serviceID; }
@@ -250,4 +323,5 @@ public class Trip {
 	public int getDirectionID() { return directionID; }
 	public String getBlockID() { return blockID; }
 	public String getShapeID() { return shapeID; }
+	public StopPattern getStopPattern() { return stopPattern; }
 }
\ No newline at end of file
@@ -0,0 +1,57 @@
+/**
+ * This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ * This class describes a VehicleDuty. A VehicleDuty is the ordered list of Trips that a single vehicle drives over
+ * one service day. In GTFS, Trips driven by the same vehicle share a "block_id". Nothing says which vehicle drives
+ * Trips without a "block_id", so VehicleSchedule chains them onto vehicles of its own, which have no "block_id".
+ */
+package transit;
+
+import java.util.ArrayList;
+
+public class VehicleDuty {
+	private String blockID;
+	private String vehicleID;
+	private String serviceID;
+	private ArrayList<Trip> trips;
+	private int startTime;
+	private int endTime;
+
+	/**
+	 * Basic constructor for a VehicleDuty object.
+	 * @param blockID the "block_id" shared by every Trip in the duty, or empty if the Trips have none
+	 * @param vehicleID ID of the vehicle driving the duty, which is the "block_id" when there is one
+	 * @param serviceID the "service_id" of the days this duty is driven
+	 * @param trips the Trips of the duty, ordered by departure time
+	 * @param startTime departure time of the first Trip in seconds since the start of the service day
+	 * @param endTime arrival time of the last Trip in seconds since the start of the service day
+	 */
+	public VehicleDuty(String blockID, String vehicleID, String serviceID, ArrayList<Trip> trips, int startTime,
+			int endTime) {
+		this.blockID = blockID;
+		this.vehicleID = vehicleID;
+		this.serviceID = serviceID;
+		this.trips = trips;
+		this.startTime = startTime;
+		this.endTime = endTime;
+	}
+
+	//getters
+	public String getBlockID() { return blockID; }
+	public String getVehicleID() { return vehicleID; }
+	public String getServiceID() { return serviceID; }
+	public ArrayList<Trip> getTrips() { return trips; }
+	public int getStartTime() { return startTime; }
+	public int getEndTime() { return endTime; }
+}
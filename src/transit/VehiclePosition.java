@@ -0,0 +1,74 @@
+/**
+ * This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ *  This class describes a VehiclePosition. A VehiclePosition is a single live report of where a Bus was at a certain
+ *  moment, along with the Trip and Route it says it is serving. VehiclePositions never change once created, so they
+ *  can be handed between threads freely.
+ */
+package transit;
+
+public final class VehiclePosition {
+	private final String busID;
+	private final String tripID;
+	private final String routeID;
+	private final double latitude;
+	private final double longitude;
+	private final long timestamp;
+
+	/**
+	 * Basic constructor for a VehiclePosition object.
+	 * @param busID ID of the Bus that reported its position
+	 * @param tripID ID of the Trip the Bus is serving, empty if unknown
+	 * @param routeID ID of the Route the Bus is serving, empty if unknown
+	 * @param latitude double for coordinate placement
+	 * @param longitude double for coordinate placement
+	 * @param timestamp time of the report in seconds since the epoch (1970-01-01T00:00:00Z)
+	 */
+	public VehiclePosition(String busID, String tripID, String routeID, double latitude, double longitude,
+			long timestamp) {
+		this.busID = busID;
+		this.tripID = tripID;
+		this.routeID = routeID;
+		this.latitude = latitude;
+		this.longitude = longitude;
+		this.timestamp = timestamp;
+	}
+
+	/**
+	 * This method parses a single line of a position report ("bus_id,trip_id,route_id,lat,lon,timestamp").
+	 *
+	 * @param line the line to parse
+	 * @return the VehiclePosition described by the line, or null if the line is incorrectly formatted
+	 */
+	public static VehiclePosition parse(String line) {
+		String[] fields = line.split(",", -1);
+		if (fields.length != 6 || fields[0].isEmpty()) {
+			return null;
+		}
+		try {
+			return new VehiclePosition(fields[0], fields[1], fields[2], Double.parseDouble(fields[3]),
+					Double.parseDouble(fields[4]), Long.parseLong(fields[5].trim()));
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	//getters
+	public String getBusID() { return busID; }
+	public String getTripID() { return tripID; }
+	public String getRouteID() { return routeID; }
+	public double getLatitude() { return latitude; }
+	public double getLongitude() { return longitude; }
+	public long getTimestamp() { return timestamp; }
+}
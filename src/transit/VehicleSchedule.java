@@ -0,0 +1,321 @@
+/**
+ * This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ * This class groups every Trip of a Timetable into VehicleDuties and works out how many vehicles are needed to drive
+ * them (the fleet size). Trips sharing a "block_id" are driven by the same vehicle. Block IDs are only unique within
+ * a single service day, so Trips are grouped by both "service_id" and "block_id". Trips without a "block_id" are
+ * chained onto as few vehicles as possible: each one goes to the vehicle that has been free the longest by its
+ * departure, or to a new vehicle if none is free.
+ *
+ * Trips are sorted by departure time once, which leaves every VehicleDuty already in order as Trips are handed out.
+ * Several services usually run on the same day (such as a weekday service and a school service), so the vehicles
+ * in service are counted per calendar day, over the duties of every service the ServiceCalendar runs on that day,
+ * plus the duties of the previous day that run past midnight. Days running the same services share one sweep over
+ * the sorted start and end times of their duties, so building the schedule takes O(n log n) time for n Trips.
+ */
+package transit;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class VehicleSchedule {
+	//a duty of the previous day running past midnight is still in service this many seconds into the next day
+	private static final int SECONDS_PER_DAY = 24 * 60 * 60;
+
+	//prefix of the IDs given to vehicles driving Trips without a "block_id"
+	private static final String UNBLOCKED_VEHICLE_PREFIX = "vehicle-";
+
+	private final ServiceCalendar serviceCalendar;
+	private final ArrayList<VehicleDuty> duties = new ArrayList<>();
+	private final LinkedHashMap<String, ArrayList<VehicleDuty>> dutiesPerService = new LinkedHashMap<>();
+
+	//vehicles in service over a day, shared by every day running the same services today and yesterday
+	private final ConcurrentHashMap<String, DayProfile> dayProfiles = new ConcurrentHashMap<>();
+	private final int peakVehicles;
+
+	/**
+	 * Builds the vehicle schedule for every Trip in the given Timetable, on the days of the Timetable's
+	 * ServiceCalendar.
+	 *
+	 * @param timetable the Timetable whose Trips should be scheduled
+	 */
+	public VehicleSchedule(Timetable timetable) {
+		serviceCalendar = timetable.getServiceCalendar();
+		int numTrips = timetable.getTripCount();
+
+		//sort every Trip by its first departure: time in the upper bits, trip index in the lower bits
+		long[] tripOrder = new long[numTrips];
+		for (int t = 0; t < numTrips; t++) {
+			tripOrder[t] = ((long) timetable.getDeparture(timetable.getFirstStopTime(t)) << 32) | t;
+		}
+		Arrays.sort(tripOrder);
+
+		//hand out Trips to their duties in departure order so each duty stays sorted
+		LinkedHashMap<String, ArrayList<Integer>> tripsPerBlock = new LinkedHashMap<>();
+		ArrayList<ArrayList<Integer>> unblockedDuties = new ArrayList<>();
+		ArrayList<Integer> unblockedNumbers = new ArrayList<>();
+		HashMap<String, PriorityQueue<long[]>> freeVehicles = new HashMap<>();
+		HashMap<String, Integer> vehiclesPerService = new HashMap<>();
+		HashSet<String> blockIDs = new HashSet<>();
+		for (long key : tripOrder) {
+			int t = (int) key;
+			Trip trip = timetable.getTrip(t);
+			String blockID = trip.getBlockID();
+			if (blockID != null && !blockID.isEmpty()) {
+				blockIDs.add(blockID);
+				tripsPerBlock.computeIfAbsent(trip.getServiceID() + "\u0000" + blockID, k -> new ArrayList<>()).add(t);
+				continue;
+			}
+
+			//the vehicle of this service that finished its last Trip the earliest, as {end time, duty}
+			int departure = timetable.getDeparture(timetable.getFirstStopTime(t));
+			int arrival = timetable.getArrival(timetable.getEndStopTime(t) - 1);
+			PriorityQueue<long[]> free = freeVehicles.computeIfAbsent(trip.getServiceID(),
+					k -> new PriorityQueue<>((a, b) -> Long.compare(a[0], b[0])));
+			int duty;
+			if (!free.isEmpty() && free.peek()[0] <= departure) {
+				duty = (int) free.poll()[1];
+			} else {
+				duty = unblockedDuties.size();
+				unblockedDuties.add(new ArrayList<>());
+				unblockedNumbers.add(vehiclesPerService.merge(trip.getServiceID(), 1, Integer::sum));
+			}
+			unblockedDuties.get(duty).add(t);
+			free.add(new long[]{Math.max(arrival, departure), duty});
+		}
+
+		for (ArrayList<Integer> tripIndexes : tripsPerBlock.values()) {
+			String blockID = timetable.getTrip(tripIndexes.get(0)).getBlockID();
+			addDuty(timetable, tripIndexes, blockID, blockID);
+		}
+
+		//the n-th vehicle of every service without blocks is the same vehicle, named so no "block_id" is reused
+		ArrayList<String> unblockedVehicleIDs = new ArrayList<>();
+		int nextNumber = 1;
+		for (int d = 0; d < unblockedDuties.size(); d++) {
+			while (unblockedVehicleIDs.size() < unblockedNumbers.get(d)) {
+				while (blockIDs.contains(UNBLOCKED_VEHICLE_PREFIX + nextNumber)) {
+					nextNumber++;
+				}
+				unblockedVehicleIDs.add(UNBLOCKED_VEHICLE_PREFIX + nextNumber++);
+			}
+			addDuty(timetable, unblockedDuties.get(d), "", unblockedVehicleIDs.get(unblockedNumbers.get(d) - 1));
+		}
+
+		//the busiest day of the calendar, or any day at all when every service runs every day
+		int peak = 0;
+		LocalDate firstDate = serviceCalendar.getFirstDate();
+		if (serviceCalendar.isEmpty()) {
+			peak = findDayProfile(LocalDate.ofEpochDay(0)).peak;
+		} else if (firstDate != null) {
+			LocalDate lastDate = serviceCalendar.getLastDate().plusDays(1);
+			for (LocalDate date = firstDate; !date.isAfter(lastDate); date = date.plusDays(1)) {
+				peak = Math.max(peak, findDayProfile(date).peak);
+			}
+		}
+		peakVehicles = peak;
+	}
+
+	/**
+	 * Creates the VehicleDuty driving the given Trips, which are in order of departure.
+	 */
+	private void addDuty(Timetable timetable, ArrayList<Integer> tripIndexes, String blockID, String vehicleID) {
+		ArrayList<Trip> dutyTrips = new ArrayList<>(tripIndexes.size());
+		int endTime = 0;
+		for (int t : tripIndexes) {
+			dutyTrips.add(timetable.getTrip(t));
+			endTime = Math.max(endTime, timetable.getArrival(timetable.getEndStopTime(t) - 1));
+		}
+		VehicleDuty duty = new VehicleDuty(blockID, vehicleID, dutyTrips.get(0).getServiceID(), dutyTrips,
+				timetable.getDeparture(timetable.getFirstStopTime(tripIndexes.get(0))), endTime);
+		duties.add(duty);
+		dutiesPerService.computeIfAbsent(duty.getServiceID(), k -> new ArrayList<>()).add(duty);
+	}
+
+	/**
+	 * Finds the vehicles in service over a calendar day, which only depend on the services running that day and
+	 * the day before, so they are worked out once for every such combination.
+	 */
+	private DayProfile findDayProfile(LocalDate date) {
+		LocalDate previousDate = date.minusDays(1);
+		StringBuilder key = new StringBuilder(dutiesPerService.size());
+		for (String serviceID : dutiesPerService.keySet()) {
+			int running = (serviceCalendar.isActive(serviceID, date) ? 1 : 0)
+					+ (serviceCalendar.isActive(serviceID, previousDate) ? 2 : 0);
+			key.append((char) ('0' + running));
+		}
+		return dayProfiles.computeIfAbsent(key.toString(), this::sweep);
+	}
+
+	/**
+	 * Sweeps over the start and end times of every VehicleDuty of one calendar day to find the peak number of
+	 * vehicles in service at the same time. A vehicle finishing a duty at the exact time another one starts is
+	 * not counted twice.
+	 *
+	 * @param key for each service in turn, whether it runs on the day (1) and on the day before (2)
+	 */
+	private DayProfile sweep(String key) {
+		ArrayList<int[]> times = new ArrayList<>();
+		int s = 0;
+		for (ArrayList<VehicleDuty> serviceDuties : dutiesPerService.values()) {
+			int running = key.charAt(s++) - '0';
+			for (VehicleDuty duty : serviceDuties) {
+				if ((running & 1) != 0) {
+					times.add(new int[]{duty.getStartTime(), duty.getEndTime()});
+				}
+				if ((running & 2) != 0 && duty.getEndTime() > SECONDS_PER_DAY) {
+					times.add(new int[]{duty.getStartTime() - SECONDS_PER_DAY, duty.getEndTime() - SECONDS_PER_DAY});
+				}
+			}
+		}
+
+		int numDuties = times.size();
+		int[] starts = new int[numDuties];
+		int[] ends = new int[numDuties];
+		for (int i = 0; i < numDuties; i++) {
+			starts[i] = times.get(i)[0];
+			ends[i] = times.get(i)[1];
+		}
+		Arrays.sort(starts);
+		Arrays.sort(ends);
+
+		int inService = 0;
+		int peak = 0;
+		int peakTime = -1;
+		int e = 0;
+		for (int start : starts) {
+			while (e < numDuties && ends[e] <= start) {
+				inService--;
+				e++;
+			}
+			inService++;
+			if (inService > peak) {
+				peak = inService;
+				peakTime = Math.max(0, start);
+			}
+		}
+		return new DayProfile(starts, ends, peak, peakTime);
+	}
+
+	/**
+	 * This method counts how many vehicles are in service at a certain time of a calendar day, over every service
+	 * running that day and the Trips of the day before that run past midnight.
+	 *
+	 * @param date the calendar day
+	 * @param time number of seconds since midnight
+	 * @return number of VehicleDuties that have started but not yet finished at that time
+	 */
+	public int countVehiclesInService(LocalDate date, int time) {
+		DayProfile profile = findDayProfile(date);
+		return countAtOrBefore(profile.starts, time) - countAtOrBefore(profile.ends, time);
+	}
+
+	/**
+	 * Counts the values in a sorted array that are less than or equal to the given value.
+	 */
+	private static int countAtOrBefore(int[] sorted, int value) {
+		int low = 0;
+		int high = sorted.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (sorted[mid] <= value) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * This method creates one Bus for every vehicle in the schedule: one for each "block_id", and one for each of
+	 * the vehicles driving Trips without a "block_id". Each Bus starts out on the Route of the first Trip of its
+	 * earliest VehicleDuty, at that Trip's first Stop.
+	 *
+	 * @param timetable the Timetable the schedule was built from
+	 * @param routes every known Route
+	 * @param stops every known Stop, in the same order the Timetable was built from
+	 * @return a Bus for every vehicle, each with a different ID
+	 */
+	public ArrayList<Bus> createBuses(Timetable timetable, List<Route> routes, List<Stop> stops) {
+		HashMap<String, Route> routesByID = new HashMap<>(routes.size() * 2);
+		for (Route route : routes) {
+			routesByID.put(route.getRouteID(), route);
+		}
+
+		LinkedHashMap<String, Bus> buses = new LinkedHashMap<>();
+		for (VehicleDuty duty : duties) {
+			if (buses.containsKey(duty.getVehicleID())) {
+				continue;
+			}
+			Trip firstTrip = duty.getTrips().get(0);
+			Stop firstStop = stops.get(timetable.getStopIndex(
+					timetable.getFirstStopTime(timetable.indexOfTrip(firstTrip.getTripID()))));
+			buses.put(duty.getVehicleID(), new Bus(duty.getVehicleID(), routesByID.get(firstTrip.getRouteID()),
+					firstStop.getLatitude(), firstStop.getLongitude()));
+		}
+		return new ArrayList<>(buses.values());
+	}
+
+	/**
+	 * @return the highest number of vehicles in service at once on any day of the calendar
+	 */
+	public int getPeakVehicles() {
+		return peakVehicles;
+	}
+
+	/**
+	 * @param date a calendar day
+	 * @return the highest number of vehicles in service at once on that day
+	 */
+	public int getPeakVehicles(LocalDate date) {
+		return findDayProfile(date).peak;
+	}
+
+	/**
+	 * @param date a calendar day
+	 * @return the time (seconds since midnight) the peak of that day is first reached, or -1 if no vehicle is in
+	 *         service that day
+	 */
+	public int getPeakTime(LocalDate date) {
+		return findDayProfile(date).peakTime;
+	}
+
+	//getters
+	public ArrayList<VehicleDuty> getDuties() { return duties; }
+
+	/**
+	 * Sorted start and end times of the VehicleDuties in service over one calendar day, with that day's peak.
+	 */
+	private static final class DayProfile {
+		private final int[] starts;
+		private final int[] ends;
+		private final int peak;
+		private final int peakTime;
+
+		private DayProfile(int[] starts, int[] ends, int peak, int peakTime) {
+			this.starts = starts;
+			this.ends = ends;
+			this.peak = peak;
+			this.peakTime = peakTime;
+		}
+	}
+}
@@ -0,0 +1,136 @@
+/**
+ * This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ * This class hosts all tests for the "ArrivalPredictor" class. ArrivalPredictor matches live Bus positions to Trips
+ * and predicts when each Bus will reach its upcoming Stops. Tests here check the delay found for a late Bus and
+ * how that delay is carried to the Stops the Bus has not reached yet, including on Trips running past midnight, and
+ * matching a Bus only to the Trips of its block running on the day of the report.
+ */
+package transit;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ArrivalPredictorTest {
+
+    /**
+     * A Bus seen halfway between the first two Stops 5 minutes after it should have been there is 5 minutes late
+     * everywhere down the line.
+     */
+    @Test
+    void lateBusTest() {
+        ArrayList<Stop> stops = new ArrayList<>();
+        stops.add(new Stop("A", "A", "desc", 44.80, -91.50));
+        stops.add(new Stop("B", "B", "desc", 44.81, -91.50));
+        stops.add(new Stop("C", "C", "desc", 44.82, -91.50));
+
+        Trip trip = new Trip("rt1", "1", "t1", "one", 0, "block1", "");
+        trip.insertNextStopTime(new StopTime("t1", "08:00:00", "08:00:00", "A", "1", "", "", ""));
+        trip.insertNextStopTime(new StopTime("t1", "08:10:00", "08:10:00", "B", "2", "", "", ""));
+        trip.insertNextStopTime(new StopTime("t1", "08:20:00", "08:20:00", "C", "3", "", "", ""));
+        Timetable timetable = new Timetable(stops, Arrays.asList(trip));
+
+        ArrivalPredictor predictor = new ArrivalPredictor(TransitData.getInstance());
+        predictor.setTimeZone(ZoneOffset.UTC);
+
+        //halfway between "A" and "B" is scheduled for 08:05, the Bus is seen there at 08:10
+        long timestamp = LocalDate.of(2024, 1, 8).atTime(8, 10).toEpochSecond(ZoneOffset.UTC);
+        predictor.applyPosition(timetable, new VehiclePosition("block1", "", "rt1", 44.805, -91.50, timestamp));
+
+        assertEquals(trip, predictor.getMatchedTrip("block1"));
+        assertEquals(300, (int) predictor.getDelay("block1"));
+
+        LinkedHashMap<String, Integer> arrivals = predictor.predictArrivals("block1");
+        assertEquals(Arrays.asList("B", "C"), new ArrayList<>(arrivals.keySet()));
+        assertEquals(Timetable.parseTime("08:15:00"), (int) arrivals.get("B"));
+        assertEquals(Timetable.parseTime("08:25:00"), (int) arrivals.get("C"));
+        assertEquals(Timetable.parseTime("08:25:00"), (int) predictor.predictArrivalsAtStop("C").get("block1"));
+    }
+
+    /**
+     * A Trip running past midnight is scheduled at 24:00 and later, while its Bus reports times after midnight. The
+     * Bus should be matched to the Trip of the previous service day both by trip_id and by block.
+     */
+    @Test
+    void pastMidnightTest() {
+        ArrayList<Stop> stops = new ArrayList<>();
+        stops.add(new Stop("A", "A", "desc", 44.80, -91.50));
+        stops.add(new Stop("B", "B", "desc", 44.81, -91.50));
+        stops.add(new Stop("C", "C", "desc", 44.82, -91.50));
+
+        Trip trip = new Trip("rt1", "1", "late1", "one", 0, "block9", "");
+        trip.insertNextStopTime(new StopTime("late1", "24:50:00", "24:50:00", "A", "1", "", "", ""));
+        trip.insertNextStopTime(new StopTime("late1", "25:10:00", "25:10:00", "B", "2", "", "", ""));
+        trip.insertNextStopTime(new StopTime("late1", "25:30:00", "25:30:00", "C", "3", "", "", ""));
+        Timetable timetable = new Timetable(stops, Arrays.asList(trip));
+
+        //the Bus reaches "B" at 01:12 on the next calendar day, 2 minutes late
+        long timestamp = LocalDate.of(2024, 1, 9).atTime(1, 12).toEpochSecond(ZoneOffset.UTC);
+        for (String tripID : Arrays.asList("late1", "")) {
+            ArrivalPredictor predictor = new ArrivalPredictor(TransitData.getInstance());
+            predictor.setTimeZone(ZoneOffset.UTC);
+            predictor.applyPosition(timetable, new VehiclePosition("block9", tripID, "rt1", 44.81, -91.50,
+                    timestamp));
+
+            assertEquals(trip, predictor.getMatchedTrip("block9"));
+            assertEquals(120, (int) predictor.getDelay("block9"));
+            assertEquals(Timetable.parseTime("25:32:00"), (int) predictor.predictArrivals("block9").get("C"));
+        }
+    }
+
+    /**
+     * A block may have Trips at the same time on different services. A Bus reporting on a Saturday without a
+     * trip_id should be matched to the Saturday Trip, not to the weekday one of the same block.
+     */
+    @Test
+    void serviceDayTest() {
+        ArrayList<Stop> stops = new ArrayList<>();
+        stops.add(new Stop("A", "A", "desc", 44.80, -91.50));
+        stops.add(new Stop("B", "B", "desc", 44.81, -91.50));
+
+        Trip weekday = new Trip("rt1", "WEEKDAY", "w1", "one", 0, "block1", "");
+        weekday.insertNextStopTime(new StopTime("w1", "08:00:00", "08:00:00", "A", "1", "", "", ""));
+        weekday.insertNextStopTime(new StopTime("w1", "08:10:00", "08:10:00", "B", "2", "", "", ""));
+        Trip saturday = new Trip("rt1", "SATURDAY", "s1", "one", 0, "block1", "");
+        saturday.insertNextStopTime(new StopTime("s1", "08:05:00", "08:05:00", "A", "1", "", "", ""));
+        saturday.insertNextStopTime(new StopTime("s1", "08:15:00", "08:15:00", "B", "2", "", "", ""));
+
+        ServiceCalendar calendar = new ServiceCalendar();
+        calendar.addWeeklyService("WEEKDAY", new boolean[]{true, true, true, true, true, false, false},
+                LocalDate.of(2024, 1, 1), LocalDate.of(2024, 12, 31));
+        calendar.addWeeklyService("SATURDAY", new boolean[]{false, false, false, false, false, true, false},
+                LocalDate.of(2024, 1, 1), LocalDate.of(2024, 12, 31));
+        Timetable timetable = new Timetable(stops, Arrays.asList(weekday, saturday), calendar.build());
+
+        //08:02 is closer to the weekday Trip's schedule, but 2024-01-13 is a Saturday
+        long timestamp = LocalDate.of(2024, 1, 13).atTime(8, 2).toEpochSecond(ZoneOffset.UTC);
+        ArrivalPredictor predictor = new ArrivalPredictor(TransitData.getInstance());
+        predictor.setTimeZone(ZoneOffset.UTC);
+        predictor.applyPosition(timetable, new VehiclePosition("block1", "", "rt1", 44.80, -91.50, timestamp));
+        assertEquals(saturday, predictor.getMatchedTrip("block1"));
+        assertEquals(-180, (int) predictor.getDelay("block1"));
+
+        //on a Monday the same report belongs to the weekday Trip
+        timestamp = LocalDate.of(2024, 1, 8).atTime(8, 2).toEpochSecond(ZoneOffset.UTC);
+        predictor.applyPosition(timetable, new VehiclePosition("block1", "", "rt1", 44.80, -91.50, timestamp));
+        assertEquals(weekday, predictor.getMatchedTrip("block1"));
+    }
+}
@@ -0,0 +1,80 @@
+/**
+ * This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ * This class hosts all tests for the "FeedRegistry" class. Tests here include loading several feeds at once into
+ * separate data stores and querying one feed or every feed with namespaced IDs.
+ */
+package transit;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FeedRegistryTest {
+
+    /**
+     * Load the Eau Claire and La Crosse feeds in parallel, then check that they were kept apart from each other and
+     * from the single TransitData instance.
+     */
+    @Test
+    void loadFeedsTest() throws IOException {
+        FeedRegistry registry = new FeedRegistry();
+        Map<String, TransitData> loaded = registry.loadFeeds(Arrays.asList(
+                new File("./data_files/GTFS_EauClaire"), new File("./data_files/GTFS_LAX")));
+
+        assertEquals(Arrays.asList("GTFS_EauClaire", "GTFS_LAX"), new ArrayList<>(registry.getFeedNames()));
+        TransitData eauClaire = registry.getFeed("GTFS_EauClaire");
+        TransitData lax = registry.getFeed("GTFS_LAX");
+        assertTrue(eauClaire == loaded.get("GTFS_EauClaire"));
+        assertTrue(eauClaire != lax);
+        assertTrue(TransitData.getInstance() != eauClaire);
+
+        assertNotNull(eauClaire.searchStops("3F56F87E65"));
+        assertNull(lax.searchStops("3F56F87E65"));
+        assertTrue(lax.getTimetable().getStopTimeCount() > 0);
+    }
+
+    /**
+     * A namespaced stop_id only queries its own feed, while a plain stop_id queries every feed.
+     */
+    @Test
+    void namespacedQueryTest() throws IOException {
+        FeedRegistry registry = new FeedRegistry();
+        registry.loadFeeds(Arrays.asList(new File("./data_files/GTFS_EauClaire"), new File("./data_files/GTFS_LAX")));
+
+        LinkedHashMap<String, Route> routes = registry.findRoutesWithStop("3F56F87E65");
+        assertFalse(routes.isEmpty());
+        for (String routeID : routes.keySet()) {
+            assertTrue(routeID.startsWith("GTFS_EauClaire:"));
+        }
+        assertEquals(routes, registry.findRoutesWithStop(FeedRegistry.qualify("GTFS_EauClaire", "3F56F87E65")));
+        assertTrue(registry.findRoutesWithStop(FeedRegistry.qualify("GTFS_LAX", "3F56F87E65")).isEmpty());
+
+        //arrivals from a feed are merged in order of arrival
+        ArrayList<FeedRegistry.Arrival> arrivals = registry.findUpcomingTrips("0", LocalDate.of(2020, 3, 2), 0);
+        assertFalse(arrivals.isEmpty());
+        for (int i = 1; i < arrivals.size(); i++) {
+            assertTrue(arrivals.get(i - 1).getArrivalTime() <= arrivals.get(i).getArrivalTime());
+        }
+        assertEquals("GTFS_LAX", arrivals.get(0).getFeedName());
+    }
+}
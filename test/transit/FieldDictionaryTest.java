@@ -0,0 +1,122 @@
+/**
+ * This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ * This class hosts all tests for the "FieldDictionary" class. Tests here include encoding and decoding values,
+ * encoding from many threads at once and keeping the dictionaries of separate feeds apart.
+ */
+package transit;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FieldDictionaryTest {
+
+    /**
+     * Values get codes in the order they are first seen, the same value always gets the same code, and null or
+     * empty values are the empty String.
+     */
+    @Test
+    void encodeDecodeTest() {
+        FieldDictionary dictionary = new FieldDictionary();
+        assertEquals(1, dictionary.size());
+        assertEquals(FieldDictionary.EMPTY, dictionary.encode(""));
+        assertEquals(FieldDictionary.EMPTY, dictionary.encode(null));
+        assertEquals("", dictionary.decode(FieldDictionary.EMPTY));
+
+        int first = dictionary.encode("0");
+        int second = dictionary.encode("1");
+        assertEquals(1, first);
+        assertEquals(2, second);
+        assertEquals(first, dictionary.encode(new String("0")));
+        assertEquals("0", dictionary.decode(first));
+        assertEquals("1", dictionary.decode(second));
+
+        //the array of values grows past its first size
+        for (int i = 0; i < 100; i++) {
+            assertEquals("value" + i, dictionary.decode(dictionary.encode("value" + i)));
+        }
+        assertEquals(103, dictionary.size());
+    }
+
+    /**
+     * Threads encoding the same values at the same time should agree on every code, and every code should decode
+     * to its value.
+     */
+    @Test
+    void concurrentEncodeTest() throws InterruptedException, ExecutionException {
+        FieldDictionary dictionary = new FieldDictionary();
+        int numThreads = 8;
+        int numValues = 500;
+        ArrayList<Callable<int[]>> encoders = new ArrayList<>();
+        for (int t = 0; t < numThreads; t++) {
+            int offset = t * 37;
+            encoders.add(() -> {
+                int[] codes = new int[numValues];
+                for (int i = 0; i < numValues; i++) {
+                    int value = (i + offset) % numValues;
+                    codes[value] = dictionary.encode("headsign " + value);
+                    assertEquals("headsign " + value, dictionary.decode(codes[value]));
+                }
+                return codes;
+            });
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        try {
+            List<Future<int[]>> results = executor.invokeAll(encoders);
+            int[] expected = results.get(0).get();
+            HashSet<Integer> distinctCodes = new HashSet<>();
+            for (int code : expected) {
+                distinctCodes.add(code);
+            }
+            assertEquals(numValues, distinctCodes.size());
+            for (Future<int[]> result : results) {
+                assertArrayEquals(expected, result.get());
+            }
+            assertEquals(numValues + 1, dictionary.size());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * StopTimes parsed for one feed share dictionaries with each other but not with another feed, so reloading a
+     * feed starts over from empty dictionaries.
+     */
+    @Test
+    void perFeedTest() throws IOException {
+        TransitData first = new FeedRegistry().loadFeed("first", new File("./data_files/GTFS_EauClaire"));
+        TransitData second = new FeedRegistry().loadFeed("second", new File("./data_files/GTFS_EauClaire"));
+        StopTime firstStopTime = first.getAllTrips().get(0).getStopSequence().get(0);
+        StopTime lastStopTime = first.getAllTrips().get(first.getAllTrips().size() - 1).getStopSequence().get(0);
+        StopTime otherStopTime = second.getAllTrips().get(0).getStopSequence().get(0);
+
+        assertTrue(firstStopTime.getDictionaries() == lastStopTime.getDictionaries());
+        assertTrue(firstStopTime.getDictionaries() != otherStopTime.getDictionaries());
+        assertEquals(firstStopTime.getPickupType(), otherStopTime.getPickupType());
+        assertEquals(firstStopTime.getStopHeadsign(), otherStopTime.getStopHeadsign());
+    }
+}
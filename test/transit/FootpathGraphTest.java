@@ -0,0 +1,73 @@
+/**
+ * This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ * This class hosts all tests for the "FootpathGraph" class. FootpathGraph links Stops that are within walking
+ * distance of each other. Tests here make sure the grid-based construction finds exactly the same walking
+ * transfers as comparing every pair of Stops would.
+ */
+package transit;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FootpathGraphTest {
+
+    /**
+     * Two Stops across the street from each other should be linked while a Stop a few kilometers away should not.
+     */
+    @Test
+    void nearbyStopsTest() {
+        ArrayList<Stop> stops = new ArrayList<>();
+        stops.add(new Stop("north_side", "Water St North", "desc", 44.810060, -91.497640));
+        stops.add(new Stop("south_side", "Water St South", "desc", 44.810300, -91.497640));
+        stops.add(new Stop("far_away", "Walmart Supercenter", "desc", 44.775970, -91.429180));
+
+        FootpathGraph graph = new FootpathGraph(stops, 100);
+
+        assertEquals(Arrays.asList("south_side"), Arrays.asList(graph.findWalkableStops("north_side")));
+        assertEquals(Arrays.asList("north_side"), Arrays.asList(graph.findWalkableStops("south_side")));
+        assertEquals(0, graph.findWalkableStops("far_away").length);
+        assertEquals(0, graph.findWalkableStops("unknown").length);
+    }
+
+    /**
+     * Compare the walking transfers of a real feed against a brute force comparison of every pair of Stops.
+     */
+    @Test
+    void matchesAllPairsTest() throws FileNotFoundException {
+        TransitData transitData = TransitData.getInstance();
+        transitData.parseStops(new File("./data_files/GTFS_EauClaire/stops.txt"));
+        ArrayList<Stop> stops = transitData.getAllStops();
+
+        double radius = 400;
+        FootpathGraph graph = new FootpathGraph(stops, radius);
+
+        int expectedEdges = 0;
+        for (int i = 0; i < stops.size(); i++) {
+            for (int j = 0; j < stops.size(); j++) {
+                if (i != j && Trip.calcStopToStopDistance(stops.get(i), stops.get(j)) * 1000 <= radius) {
+                    expectedEdges++;
+                }
+            }
+        }
+        assertTrue(expectedEdges > 0, "The Eau Claire feed should contain nearby Stops.");
+        assertEquals(expectedEdges, graph.getEdgeCount());
+    }
+}
@@ -0,0 +1,118 @@
+/**
+ * This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ * This class hosts all tests for the "GtfsExporter" class. Tests here include exporting a feed and importing the
+ * exported files again, leaving other files alone and quoting fields.
+ */
+package transit;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GtfsExporterTest {
+
+    /**
+     * Export the Eau Claire feed to separate files and load them again. Every Route, Trip, Stop and StopTime should
+     * come back the same, and a target that is not a GTFS file should be left as it was.
+     */
+    @Test
+    void roundTripTest() throws IOException {
+        TransitData original = new FeedRegistry().loadFeed("original", new File("./data_files/GTFS_EauClaire"));
+        Path folder = Files.createTempDirectory("gtfs-export");
+        try {
+            File notes = folder.resolve("notes.txt").toFile();
+            Files.write(notes.toPath(), "keep me".getBytes(StandardCharsets.UTF_8));
+            List<File> targets = new ArrayList<>();
+            for (String fileName : GtfsExporter.FILE_NAMES) {
+                targets.add(folder.resolve(fileName).toFile());
+            }
+            targets.add(notes);
+            new GtfsExporter(original).exportFiles(targets);
+
+            assertEquals("keep me", new String(Files.readAllBytes(notes.toPath()), StandardCharsets.UTF_8));
+            assertEquals(GtfsExporter.ROUTE_FIRST_LINE, Files.readAllLines(folder.resolve("routes.txt")).get(0));
+
+            TransitData exported = new FeedRegistry().loadFeed("exported", folder.toFile());
+            assertEquals(original.getAllRoutes().size(), exported.getAllRoutes().size());
+            for (int i = 0; i < original.getAllRoutes().size(); i++) {
+                Route route = original.getAllRoutes().get(i);
+                Route exportedRoute = exported.getAllRoutes().get(i);
+                assertEquals(route, exportedRoute);
+                assertEquals(route.getColorHex(), exportedRoute.getColorHex());
+                assertEquals(route.getShortName(), exportedRoute.getShortName());
+                assertEquals(route.getLongName(), exportedRoute.getLongName());
+                assertEquals("3", exportedRoute.getRouteType());
+            }
+
+            assertEquals(original.getAllStops().size(), exported.getAllStops().size());
+            for (int i = 0; i < original.getAllStops().size(); i++) {
+                Stop stop = original.getAllStops().get(i);
+                Stop exportedStop = exported.getAllStops().get(i);
+                assertEquals(stop.getStopID(), exportedStop.getStopID());
+                assertEquals(stop.getName(), exportedStop.getName());
+                assertEquals(stop.getLatitude(), exportedStop.getLatitude(), 0.0);
+                assertEquals(stop.getLongitude(), exportedStop.getLongitude(), 0.0);
+            }
+
+            assertEquals(original.getAllTrips().size(), exported.getAllTrips().size());
+            for (int i = 0; i < original.getAllTrips().size(); i++) {
+                Trip trip = original.getAllTrips().get(i);
+                Trip exportedTrip = exported.getAllTrips().get(i);
+                assertEquals(trip.getTripID(), exportedTrip.getTripID());
+                assertEquals(trip.getRouteID(), exportedTrip.getRouteID());
+                assertEquals(trip.getServiceID(), exportedTrip.getServiceID());
+                assertEquals(trip.getBlockID(), exportedTrip.getBlockID());
+                assertEquals(trip.getStopSequence().size(), exportedTrip.getStopSequence().size());
+                for (int s = 0; s < trip.getStopSequence().size(); s++) {
+                    StopTime stopTime = trip.getStopSequence().get(s);
+                    StopTime exportedStopTime = exportedTrip.getStopSequence().get(s);
+                    assertEquals(stopTime.getStopID(), exportedStopTime.getStopID());
+                    assertEquals(stopTime.getArrivalTime(), exportedStopTime.getArrivalTime());
+                    assertEquals(stopTime.getDepartureTime(), exportedStopTime.getDepartureTime());
+                }
+            }
+            assertEquals(original.getTimetable().getStopTimeCount(), exported.getTimetable().getStopTimeCount());
+        } finally {
+            for (File file : folder.toFile().listFiles()) {
+                file.delete();
+            }
+            Files.delete(folder);
+        }
+    }
+
+    /**
+     * Fields with commas or quotes are quoted, fields already quoted are kept as they are, and empty fields write
+     * nothing.
+     */
+    @Test
+    void writeFieldTest() throws IOException {
+        StringWriter writer = new StringWriter();
+        for (String value : Arrays.asList("plain", "a,b", "say \"hi\"", "\"quoted, already\"", "", null)) {
+            GtfsExporter.writeField(writer, value);
+            writer.write('|');
+        }
+        assertEquals("plain|\"a,b\"|\"say \"\"hi\"\"\"|\"quoted, already\"|||", writer.toString());
+    }
+}
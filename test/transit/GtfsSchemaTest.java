@@ -0,0 +1,59 @@
+/**
+ * This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ * This class hosts all tests for the "GtfsSchema" class. GtfsSchema finds the columns the program uses in the header
+ * of a GTFS file. Tests here include files with reordered and extra columns, missing required and optional columns,
+ * and rows with quoted commas or too few columns.
+ */
+package transit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GtfsSchemaTest {
+
+    /**
+     * Columns should be found by name no matter where they are or what other columns the file has.
+     */
+    @Test
+    void reorderedColumnsTest() {
+        GtfsSchema schema = new GtfsSchema("\uFEFFstop_lon,zone_id,\"stop_id\",stop_lat,stop_name,wheelchair_boarding",
+                GtfsSchema.STOP_REQUIRED, GtfsSchema.STOP_OPTIONAL);
+        assertTrue(schema.isValid());
+
+        String[] fields = new String[schema.getColumnCount()];
+        assertTrue(schema.readRow("-91.49,Z1,424,44.81,\"Transfer Center, Bay A\",1", fields));
+        assertEquals(Arrays.asList("424", "44.81", "-91.49", "\"Transfer Center, Bay A\"", ""), Arrays.asList(fields));
+
+        //the row ends before "stop_name", the last column that is used
+        assertFalse(schema.readRow("-91.49,Z1,424,44.81", fields));
+    }
+
+    /**
+     * A header without a required column cannot be used, while missing optional columns are fine.
+     */
+    @Test
+    void missingColumnsTest() {
+        GtfsSchema schema = new GtfsSchema("trip_id,stop_id,arrival_time",
+                GtfsSchema.STOP_TIME_REQUIRED, GtfsSchema.STOP_TIME_OPTIONAL);
+        assertFalse(schema.isValid());
+        assertEquals(Arrays.asList("stop_sequence"), schema.getMissingColumns());
+
+        assertTrue(GtfsSchema.hasColumns("route_id,agency_id,route_short_name", GtfsSchema.ROUTE_REQUIRED));
+        assertFalse(GtfsSchema.hasColumns("", GtfsSchema.ROUTE_REQUIRED));
+    }
+}
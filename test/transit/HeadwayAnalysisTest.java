@@ -0,0 +1,83 @@
+/**
+ * This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ * This class hosts all tests for the "HeadwayAnalysis" class. Tests here include summarizing headways per window and
+ * finding runs of evenly spaced Trips with the same times.
+ */
+package transit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HeadwayAnalysisTest {
+
+    /**
+     * Creates a Trip from A to B departing at the given time and taking the given number of minutes.
+     */
+    private static Trip createTrip(String tripID, String serviceID, int departure, int minutes) {
+        Trip trip = new Trip("rt1", serviceID, tripID, "", 0, "", "");
+        trip.insertNextStopTime(new StopTime(tripID, Timetable.formatTime(departure), Timetable.formatTime(departure),
+                "A", "1", "", "", ""));
+        trip.insertNextStopTime(new StopTime(tripID, Timetable.formatTime(departure + minutes * 60),
+                Timetable.formatTime(departure + minutes * 60), "B", "2", "", "", ""));
+        return trip;
+    }
+
+    /**
+     * Four Trips every 15 minutes from 07:00, then a slower Trip, then a Trip on another service_id. The evenly
+     * spaced Trips make up one frequency run and each hour gets its own headways.
+     */
+    @Test
+    void headwayTest() {
+        ArrayList<Stop> stops = new ArrayList<>();
+        stops.add(new Stop("A", "A", "desc", 10, 10));
+        stops.add(new Stop("B", "B", "desc", 11, 11));
+        ArrayList<Trip> trips = new ArrayList<>();
+        //listed out of order, since Trips are ordered by first departure
+        trips.add(createTrip("t3", "wk", 7 * 3600 + 1800, 10));
+        trips.add(createTrip("t1", "wk", 7 * 3600, 10));
+        trips.add(createTrip("t2", "wk", 7 * 3600 + 900, 10));
+        trips.add(createTrip("t4", "wk", 7 * 3600 + 2700, 10));
+        trips.add(createTrip("t5", "wk", 8 * 3600, 12));
+        trips.add(createTrip("s1", "sat", 9 * 3600, 10));
+        Timetable timetable = new Timetable(stops, trips, new ServiceCalendar());
+
+        HeadwayAnalysis analysis = new HeadwayAnalysis(timetable, HeadwayAnalysis.DEFAULT_WINDOW_SECONDS);
+        List<HeadwayAnalysis.Headway> headways = analysis.getHeadways();
+        assertEquals(3, headways.size());
+        assertEquals(7 * 3600, headways.get(0).getWindowStart());
+        assertEquals(4, headways.get(0).getTripCount());
+        assertEquals(900, headways.get(0).getAverageHeadway());
+        //the 08:00 Trip is timed from the 07:45 Trip
+        assertEquals(8 * 3600, headways.get(1).getWindowStart());
+        assertEquals(900, headways.get(1).getMinHeadway());
+        //a lone Trip on another service_id has no headway
+        assertEquals("sat", headways.get(2).getServiceID());
+        assertEquals(-1, headways.get(2).getAverageHeadway());
+
+        //the slower 08:00 Trip does not belong to the run
+        assertEquals(1, analysis.getFrequencyRuns().size());
+        HeadwayAnalysis.FrequencyRun run = analysis.getFrequencyRuns().get(0);
+        assertEquals(4, run.getTripCount());
+        assertEquals(900, run.getHeadway());
+        assertEquals("t1", run.getTrip(0).getTripID());
+        assertEquals(7 * 3600, run.getStartTime());
+        assertEquals(7 * 3600 + 2700, run.getEndTime());
+        assertEquals("t4", run.getTrip(3).getTripID());
+    }
+}
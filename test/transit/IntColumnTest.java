@@ -0,0 +1,61 @@
+/**
+ * This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ * This class hosts all tests for the "IntColumn" class. Tests here include reading the same values back from every
+ * storage, across the blocks of a compressed column.
+ */
+package transit;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntColumnTest {
+
+    /**
+     * Values spanning several blocks, with growing times, drops between Trips and the largest and smallest ints,
+     * should read back the same from every storage, one at a time and as ranges.
+     */
+    @Test
+    void storageRoundTripTest() {
+        int[] values = new int[IntColumn.BLOCK_SIZE * 3 + 5];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i % 10 == 0 ? 6 * 3600 : values[i - 1] + 30;
+        }
+        values[7] = Integer.MAX_VALUE;
+        values[8] = Integer.MIN_VALUE;
+        values[9] = -1;
+
+        for (IntColumn.Storage storage : IntColumn.Storage.values()) {
+            IntColumn column = IntColumn.of(values.clone(), storage);
+            assertEquals(storage, column.getStorage());
+            assertEquals(values.length, column.size());
+            for (int i = 0; i < values.length; i++) {
+                assertEquals(values[i], column.get(i));
+            }
+            assertArrayEquals(values, column.toArray());
+
+            //a range starting and ending inside of blocks
+            int[] range = new int[IntColumn.BLOCK_SIZE + 10];
+            column.copyTo(IntColumn.BLOCK_SIZE - 3, range, 2, IntColumn.BLOCK_SIZE + 8);
+            for (int i = 0; i < IntColumn.BLOCK_SIZE + 8; i++) {
+                assertEquals(values[IntColumn.BLOCK_SIZE - 3 + i], range[2 + i]);
+            }
+        }
+
+        //times half a minute apart take a single byte each once compressed
+        IntColumn compressed = IntColumn.of(values, IntColumn.Storage.COMPRESSED);
+        assertTrue(compressed.getByteSize() < IntColumn.of(values, IntColumn.Storage.HEAP).getByteSize() / 2);
+    }
+}
@@ -0,0 +1,82 @@
+/**
+ * This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ * This class hosts all tests for the "IsochroneSearch" and "Timetable" classes. Tests here include converting GTFS
+ * times into seconds and finding every Stop reachable within a time budget, including transfers between Trips.
+ */
+package transit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IsochroneSearchTest {
+
+    /**
+     * GTFS times may have single digit hours or hours past midnight.
+     */
+    @Test
+    void parseTimeTest() {
+        assertEquals(7 * 3600 + 15 * 60, Timetable.parseTime("7:15:00"));
+        assertEquals(25 * 3600 + 10 * 60 + 5, Timetable.parseTime("25:10:05"));
+        assertEquals(-1, Timetable.parseTime(""));
+        assertEquals(-1, Timetable.parseTime("12:00"));
+        assertEquals(-1, Timetable.parseTime("noon"));
+    }
+
+    /**
+     * Build a small network where Stop "C" can only be reached by transferring from Trip "t1" to Trip "t2" at "B",
+     * then check which Stops are reachable with different time budgets.
+     */
+    @Test
+    void transferTest() {
+        ArrayList<Stop> stops = new ArrayList<>();
+        stops.add(new Stop("A", "A", "desc", 10, 10));
+        stops.add(new Stop("B", "B", "desc", 11, 11));
+        stops.add(new Stop("C", "C", "desc", 12, 12));
+        stops.add(new Stop("D", "D", "desc", 13, 13));
+
+        Trip trip1 = new Trip("rt1", "1", "t1", "one", 0, "", "");
+        trip1.insertNextStopTime(new StopTime("t1", "08:00:00", "08:00:00", "A", "1", "", "", ""));
+        trip1.insertNextStopTime(new StopTime("t1", "08:10:00", "08:10:00", "B", "2", "", "", ""));
+        Trip trip2 = new Trip("rt2", "1", "t2", "two", 0, "", "");
+        trip2.insertNextStopTime(new StopTime("t2", "08:15:00", "08:15:00", "B", "1", "", "", ""));
+        trip2.insertNextStopTime(new StopTime("t2", "08:30:00", "08:30:00", "C", "2", "", "", ""));
+        //departs "B" before Trip "t1" arrives there, so it cannot be used
+        Trip trip3 = new Trip("rt3", "1", "t3", "three", 0, "", "");
+        trip3.insertNextStopTime(new StopTime("t3", "08:05:00", "08:05:00", "B", "1", "", "", ""));
+        trip3.insertNextStopTime(new StopTime("t3", "08:07:00", "08:07:00", "D", "2", "", "", ""));
+
+        Timetable timetable = new Timetable(stops, Arrays.asList(trip1, trip2, trip3));
+        IsochroneSearch search = new IsochroneSearch(timetable, new FootpathGraph(stops, 0));
+        int start = Timetable.parseTime("07:55:00");
+
+        LinkedHashMap<String, Integer> halfHour = search.search("A", start, 30 * 60);
+        assertEquals(Arrays.asList("A", "B"), new ArrayList<>(halfHour.keySet()));
+        assertEquals(Timetable.parseTime("08:10:00"), (int) halfHour.get("B"));
+
+        LinkedHashMap<String, Integer> hour = search.search("A", start, 60 * 60);
+        assertEquals(Arrays.asList("A", "B", "C"), new ArrayList<>(hour.keySet()));
+        assertEquals(Timetable.parseTime("08:30:00"), (int) hour.get("C"));
+
+        Map<String, LinkedHashMap<String, Integer>> all = search.searchAll(Arrays.asList("A", "B"), null, start, 3600);
+        assertEquals(hour, all.get("A"));
+        assertTrue(all.get("B").containsKey("D"));
+    }
+}
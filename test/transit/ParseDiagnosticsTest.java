@@ -0,0 +1,48 @@
+/**
+ * This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ * This class hosts all tests for the "ParseDiagnostics" class. ParseDiagnostics collects the problems found while
+ * parsing GTFS files. Tests here check that problems are counted by file and kind while only a few example lines
+ * are kept.
+ */
+package transit;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParseDiagnosticsTest {
+
+    /**
+     * Every problem should be counted, but only the first few offending lines should be kept.
+     */
+    @Test
+    void boundedSamplesTest() {
+        ParseDiagnostics diagnostics = new ParseDiagnostics();
+        for (int line = 2; line < 10002; line++) {
+            diagnostics.record("stop_times.txt", ParseDiagnostics.TOO_FEW_COLUMNS, line, "t1,08:00:00");
+        }
+        diagnostics.record("stops.txt", ParseDiagnostics.INVALID_NUMBER, 7, "424,Transfer Center,,north,west");
+
+        assertEquals(10001, diagnostics.getProblemCount());
+        assertEquals(10000, diagnostics.getProblemCount("stop_times.txt", ParseDiagnostics.TOO_FEW_COLUMNS));
+        assertEquals(1, diagnostics.getProblemCount("stops.txt", ParseDiagnostics.INVALID_NUMBER));
+        assertEquals(ParseDiagnostics.MAX_SAMPLES, diagnostics.getSamples().size());
+        assertTrue(diagnostics.summarize().contains("stop_times.txt: too few columns x10000"));
+
+        diagnostics.clear();
+        assertEquals(0, diagnostics.getProblemCount());
+        assertTrue(diagnostics.getSamples().isEmpty());
+    }
+}
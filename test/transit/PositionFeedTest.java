@@ -0,0 +1,135 @@
+/**
+ * This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ * This class hosts all tests for the "PositionFeed" class. Tests here include moving Buses onto their reported
+ * location and Route, ignoring reports older than the newest one, keeping them across a rebuild of the Timetable,
+ * dropping positions once the queue is full and reading position lines.
+ */
+package transit;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PositionFeedTest {
+
+    /**
+     * Waits up to five seconds for the applier thread to apply the given number of positions.
+     */
+    private static void awaitApplied(PositionFeed feed, long count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (feed.getAppliedCount() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(count, feed.getAppliedCount());
+    }
+
+    /**
+     * A position submitted to a running feed moves its Bus and puts it on the reported Route, while an older
+     * position sent afterwards changes nothing. Listeners are handed every applied position.
+     */
+    @Test
+    void applyTest() throws IOException, InterruptedException {
+        TransitData transitData = new FeedRegistry().loadFeed("feed", new File("./data_files/GTFS_EauClaire"));
+        Bus bus = transitData.getAllBuses().get(0);
+        Route otherRoute = null;
+        for (Route route : transitData.getAllRoutes()) {
+            if (route != bus.getCurrentRoute()) {
+                otherRoute = route;
+            }
+        }
+        assertNotNull(otherRoute);
+
+        PositionFeed feed = new PositionFeed(transitData);
+        List<VehiclePosition> delivered = new CopyOnWriteArrayList<>();
+        feed.subscribe(delivered::addAll);
+        feed.start();
+        try {
+            feed.submit(new VehiclePosition(bus.getBusID(), "", otherRoute.getRouteID(), 44.5, -91.25, 1000));
+            awaitApplied(feed, 1);
+            Bus.Location location = bus.getLocation();
+            assertEquals(44.5, location.getLatitude(), 0.0);
+            assertEquals(-91.25, location.getLongitude(), 0.0);
+            assertTrue(bus.getCurrentRoute() == otherRoute);
+
+            //an unknown route_id leaves the Bus on its Route
+            feed.submit(new VehiclePosition(bus.getBusID(), "", "unknown", 44.6, -91.35, 1010));
+            awaitApplied(feed, 2);
+            assertEquals(44.6, bus.getLatitude(), 0.0);
+            assertTrue(bus.getCurrentRoute() == otherRoute);
+        } finally {
+            feed.stop();
+        }
+
+        //stopped, so the report is only applied on demand, and it is older than the one already applied
+        feed.submit(new VehiclePosition(bus.getBusID(), "", "", 40.0, -90.0, 500));
+        assertEquals(0, feed.applyPendingPositions());
+        assertEquals(44.6, bus.getLatitude(), 0.0);
+        assertEquals(1010, feed.getLatestPosition(bus.getBusID()).getTimestamp());
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (delivered.size() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(2, delivered.size());
+
+        //rebuilding the Timetable keeps the Bus and where the feed last saw it
+        transitData.rebuildTimetable();
+        assertTrue(transitData.searchBuses(bus.getBusID()) == bus);
+        assertTrue(transitData.getAllBuses().contains(bus));
+        assertEquals(44.6, bus.getLatitude(), 0.0);
+        assertEquals(otherRoute.getRouteID(), bus.getCurrentRoute().getRouteID());
+    }
+
+    /**
+     * Positions submitted while the queue is full are dropped and counted, and the rest are still applied.
+     */
+    @Test
+    void boundedQueueTest() {
+        PositionFeed feed = new PositionFeed(TransitData.createStore(), 3);
+        for (int i = 0; i < 5; i++) {
+            feed.submit(new VehiclePosition("b" + i, "", "", 44.5, -91.25, 1000));
+        }
+        assertEquals(5, feed.getReceivedCount());
+        assertEquals(2, feed.getDroppedCount());
+        assertEquals(3, feed.applyPendingPositions());
+
+        //applying made room again
+        feed.submit(new VehiclePosition("b5", "", "", 44.5, -91.25, 1000));
+        assertEquals(2, feed.getDroppedCount());
+        assertEquals(1, feed.applyPendingPositions());
+    }
+
+    /**
+     * Correctly formatted lines are queued, while the header and broken lines are skipped.
+     */
+    @Test
+    void ingestTest() throws IOException {
+        PositionFeed feed = new PositionFeed(TransitData.createStore());
+        String lines = "bus_id,trip_id,route_id,lat,lon,timestamp\n"
+                + "b1,t1,r1,44.5,-91.25,1000\n"
+                + "b2,t2,r2,not a number,-91.25,1000\n"
+                + "b3,t3,r3,44.6,-91.35,1005\n";
+        assertEquals(2, feed.ingest(new StringReader(lines)));
+        assertEquals(1, feed.getRejectedCount());
+        assertEquals(2, feed.applyPendingPositions());
+        assertEquals(-91.35, feed.getLatestPosition("b3").getLongitude(), 0.0);
+    }
+}
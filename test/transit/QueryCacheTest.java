@@ -0,0 +1,82 @@
+/**
+ * This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ * This class hosts all tests for the "QueryCache" class. QueryCache keeps the results of repeated queries for a
+ * limited time. Tests here include evicting the least recently used result, expiring old results, invalidating every
+ * result and counting hits and misses.
+ */
+package transit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryCacheTest {
+
+    /**
+     * Once the cache is full, the result that was used least recently should be the one evicted.
+     */
+    @Test
+    void evictionTest() {
+        QueryCache<String, String> cache = new QueryCache<>(2, Long.MAX_VALUE, () -> 0);
+        cache.get("a", key -> "A");
+        cache.get("b", key -> "B");
+        cache.get("a", key -> "not cached");
+        cache.get("c", key -> "C");
+
+        assertEquals("A", cache.getIfPresent("a"));
+        assertNull(cache.getIfPresent("b"));
+        assertEquals("C", cache.getIfPresent("c"));
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    /**
+     * Results should be computed again once their time to live has passed, and after the cache is invalidated.
+     */
+    @Test
+    void expiryTest() {
+        AtomicLong clock = new AtomicLong();
+        AtomicInteger numLoads = new AtomicInteger();
+        QueryCache<String, Integer> cache = new QueryCache<>(10, 100, clock::get);
+
+        assertEquals(1, (int) cache.get("stop", key -> numLoads.incrementAndGet()));
+        clock.set(99);
+        assertEquals(1, (int) cache.get("stop", key -> numLoads.incrementAndGet()));
+        clock.set(100);
+        assertEquals(2, (int) cache.get("stop", key -> numLoads.incrementAndGet()));
+
+        cache.invalidateAll();
+        assertEquals(3, (int) cache.get("stop", key -> numLoads.incrementAndGet()));
+
+        assertEquals(1, cache.getHitCount());
+        assertEquals(3, cache.getMissCount());
+        assertEquals(0.25, cache.getHitRate());
+    }
+
+    /**
+     * A result computed while the cache is being invalidated belongs to the old feed and should not be stored.
+     */
+    @Test
+    void invalidateWhileLoadingTest() {
+        QueryCache<String, String> cache = new QueryCache<>(10, Long.MAX_VALUE, () -> 0);
+        assertEquals("old", cache.get("stop", key -> {
+            cache.invalidateAll();
+            return "old";
+        }));
+        assertNull(cache.getIfPresent("stop"));
+    }
+}
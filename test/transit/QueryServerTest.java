@@ -0,0 +1,99 @@
+/**
+ * This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ * This class hosts all tests for the "QueryServer" class. Tests here include answering queries about a loaded feed
+ * over HTTP, and answering bad requests with the right error status.
+ */
+package transit;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryServerTest {
+
+    /**
+     * Sends a GET request to the server, returning the status followed by a new line and the body.
+     */
+    private static String get(QueryServer server, String pathAndQuery) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection)
+                new URL("http://localhost:" + server.getPort() + pathAndQuery).openConnection();
+        int status = connection.getResponseCode();
+        InputStream body = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = body.read(buffer)) > 0) {
+            bytes.write(buffer, 0, read);
+        }
+        body.close();
+        return status + "\n" + new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Load the Eau Claire feed and ask the server about one of its Stops and Trips.
+     */
+    @Test
+    void queryTest() throws IOException {
+        TransitData feed = new FeedRegistry().loadFeed("GTFS_EauClaire", new File("./data_files/GTFS_EauClaire"));
+        QueryServer server = new QueryServer(feed, 0);
+        server.start();
+        try {
+            String routes = get(server, "/routes?stop=3F56F87E65");
+            assertTrue(routes.startsWith("200\n{\"stop_id\":\"3F56F87E65\",\"routes\":[{\"route_id\":"));
+
+            String departures = get(server, "/departures?stop=3F56F87E65&date=2020-03-02&after=07:14:00&limit=2");
+            assertTrue(departures.startsWith("200\n"));
+            assertTrue(departures.contains("\"arrival_time\":\"07:15:00\""));
+
+            String trip = get(server, "/trip?id=1116B94971_R01_WKDY");
+            assertTrue(trip.contains("\"stop_times\":[{\"stop_id\":\"3F56F87E65\""));
+            assertTrue(get(server, "/trip/stats?id=1116B94971_R01_WKDY").contains("\"average_speed\":"));
+
+            //bad requests are answered with an error instead of data
+            assertTrue(get(server, "/routes?stop=nowhere").startsWith("404\n{\"error\":"));
+            assertTrue(get(server, "/departures?stop=nowhere").startsWith("404\n{\"error\":"));
+            assertTrue(get(server, "/stops?route=nowhere").startsWith("404\n{\"error\":"));
+            assertTrue(get(server, "/routes").startsWith("400\n"));
+            assertTrue(get(server, "/departures?stop=3F56F87E65&limit=many").startsWith("400\n"));
+            assertTrue(get(server, "/trips").startsWith("404\n"));
+        } finally {
+            server.stop();
+        }
+    }
+
+    /**
+     * JSON Strings escape quotes, backslashes and control characters, and commas only go between values.
+     */
+    @Test
+    void jsonOutputTest() throws IOException {
+        StringWriter writer = new StringWriter();
+        new QueryServer.JsonOutput(writer).beginObject()
+                .name("name").value("\"Transfer\\Center\"\n")
+                .name("list").beginArray().value(1).value(2.5).beginObject().endObject().endArray()
+                .name("missing").value((String) null)
+                .endObject();
+        assertEquals("{\"name\":\"\\\"Transfer\\\\Center\\\"\\u000a\",\"list\":[1,2.5,{}],\"missing\":null}",
+                writer.toString());
+    }
+}
@@ -0,0 +1,99 @@
+/**
+ * This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ * This class hosts all tests for the "SegmentGraph" class. Tests here include keeping each pair of Stops once,
+ * gathering travel times, working out pattern distances and finding the segments leaving a Stop.
+ */
+package transit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SegmentGraphTest {
+
+    /**
+     * Creates a Trip visiting the given Stops two minutes apart, plus the given number of extra seconds before the
+     * last Stop, and adds it to a stop pattern.
+     */
+    private static Trip createTrip(String tripID, int departure, int extraSeconds, StopPattern pattern) {
+        Trip trip = new Trip("rt1", "wk", tripID, "", 0, "", "");
+        for (int i = 0; i < pattern.getStopCount(); i++) {
+            int time = departure + i * 120 + (i == pattern.getStopCount() - 1 ? extraSeconds : 0);
+            trip.insertNextStopTime(new StopTime(tripID, Timetable.formatTime(time), Timetable.formatTime(time),
+                    pattern.getStopID(i), String.valueOf(i + 1), "", "", ""));
+        }
+        pattern.addTrip(trip);
+        trip.setStopPattern(pattern);
+        return trip;
+    }
+
+    /**
+     * Two patterns share the segments A-B and B-C; the second one goes on to D. A stop_id that is not a known Stop is
+     * skipped, so its neighbours are joined by a segment of their own.
+     */
+    @Test
+    void segmentTest() {
+        ArrayList<Stop> stops = new ArrayList<>();
+        stops.add(new Stop("A", "A", "desc", 43.00, -89.00));
+        stops.add(new Stop("B", "B", "desc", 43.01, -89.00));
+        stops.add(new Stop("C", "C", "desc", 43.02, -89.00));
+        stops.add(new Stop("D", "D", "desc", 43.02, -89.01));
+        StopPattern abc = new StopPattern(Arrays.asList("A", "B", "C"));
+        StopPattern abxcd = new StopPattern(Arrays.asList("A", "B", "unknown", "C", "D"));
+        ArrayList<Trip> trips = new ArrayList<>();
+        trips.add(createTrip("t1", 7 * 3600, 0, abc));
+        trips.add(createTrip("t2", 8 * 3600, 60, abc));
+        trips.add(createTrip("t3", 9 * 3600, 0, abxcd));
+        Timetable timetable = new Timetable(stops, trips, new ServiceCalendar());
+
+        SegmentGraph graph = new SegmentGraph(Arrays.asList(abc, abxcd), timetable);
+        assertEquals(3, graph.getEdgeCount());
+        assertEquals(2, graph.getPatternCount());
+
+        //A-B is run over by all three Trips
+        int ab = graph.findEdge("A", "B");
+        assertEquals("A", graph.getFromStopID(ab));
+        assertEquals("B", graph.getToStopID(ab));
+        assertEquals(3, graph.getTravelCount(ab));
+        assertEquals(120.0, graph.getAverageTravelTime(ab), 0.001);
+        assertEquals(Trip.calcStopToStopDistance(stops.get(0), stops.get(1)), graph.getLength(ab), 1e-9);
+
+        //t2 takes a minute longer to reach C, and t3 passes the unknown stop_id on the way
+        int bc = graph.findEdge("B", "C");
+        assertEquals(120, graph.getMinTravelTime(bc));
+        assertEquals(240, graph.getMaxTravelTime(bc));
+        assertEquals(180.0, graph.getAverageTravelTime(bc), 0.001);
+        assertEquals(-1, graph.findEdge("C", "B"));
+        assertEquals(-1, graph.findEdge("A", "unknown"));
+
+        //a pattern's distance is the sum of its segments, and matches adding up its Stops one by one
+        assertArrayEquals(new int[] {ab, bc, graph.findEdge("C", "D")}, graph.getPatternEdges(abxcd));
+        assertEquals(Trip.calcStopToStopDistance(stops.get(0), stops.get(1))
+                + Trip.calcStopToStopDistance(stops.get(1), stops.get(2))
+                + Trip.calcStopToStopDistance(stops.get(2), stops.get(3)), graph.calcPatternDistance(abxcd), 1e-9);
+        assertEquals(graph.getLength(ab) + graph.getLength(bc), graph.calcPatternDistance(abc), 1e-9);
+        assertEquals(-1.0, graph.calcPatternDistance(new StopPattern(Arrays.asList("A", "B"))), 0.0);
+
+        //C has a single segment leading on from it, and D has none
+        int c = timetable.indexOfStop("C");
+        assertEquals(1, graph.getEndOutgoingEdge(c) - graph.getFirstOutgoingEdge(c));
+        assertEquals("D", graph.getToStopID(graph.getFirstOutgoingEdge(c)));
+        int d = timetable.indexOfStop("D");
+        assertEquals(0, graph.getEndOutgoingEdge(d) - graph.getFirstOutgoingEdge(d));
+    }
+}
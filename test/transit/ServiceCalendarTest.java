@@ -0,0 +1,110 @@
+/**
+ * This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ * This class hosts all tests for the "ServiceCalendar" class. ServiceCalendar resolves "calendar.txt" and
+ * "calendar_dates.txt" into the days each service runs. Tests here include weekly patterns, added and removed
+ * dates, and only finding Trips whose service runs on the requested date.
+ */
+package transit;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ServiceCalendarTest {
+    private static final boolean[] WEEKDAYS = {true, true, true, true, true, false, false};
+    private static final boolean[] SATURDAYS = {false, false, false, false, false, true, false};
+
+    /**
+     * A weekday service should run Monday through Friday within its date range, except for removed dates, and on
+     * any added date.
+     */
+    @Test
+    void weeklyPatternTest() {
+        ServiceCalendar calendar = new ServiceCalendar();
+        calendar.addWeeklyService("WEEKDAY", WEEKDAYS, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 12, 31));
+        calendar.addException("WEEKDAY", LocalDate.of(2024, 7, 4), ServiceCalendar.SERVICE_REMOVED);
+        calendar.addException("WEEKDAY", LocalDate.of(2024, 7, 6), ServiceCalendar.SERVICE_ADDED);
+        calendar = calendar.build();
+
+        assertTrue(calendar.isActive("WEEKDAY", LocalDate.of(2024, 7, 3)));
+        assertFalse(calendar.isActive("WEEKDAY", LocalDate.of(2024, 7, 4)));
+        assertFalse(calendar.isActive("WEEKDAY", LocalDate.of(2024, 7, 7)));
+        assertTrue(calendar.isActive("WEEKDAY", LocalDate.of(2024, 7, 6)));
+        assertFalse(calendar.isActive("WEEKDAY", LocalDate.of(2025, 1, 1)));
+        assertFalse(calendar.isActive("UNKNOWN", LocalDate.of(2024, 7, 3)));
+    }
+
+    /**
+     * Without any calendar, every service is assumed to run every day.
+     */
+    @Test
+    void emptyCalendarTest() {
+        ServiceCalendar calendar = new ServiceCalendar().build();
+        assertTrue(calendar.isActive("ANYTHING", LocalDate.of(2024, 7, 4)));
+    }
+
+    /**
+     * Only the Trips of services running on the requested date should be active in the Timetable.
+     */
+    @Test
+    void activeTripsTest() {
+        ServiceCalendar calendar = new ServiceCalendar();
+        calendar.addWeeklyService("WEEKDAY", WEEKDAYS, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 12, 31));
+        calendar.addWeeklyService("SATURDAY", SATURDAYS, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 12, 31));
+        calendar = calendar.build();
+
+        ArrayList<Stop> stops = new ArrayList<>();
+        stops.add(new Stop("A", "A", "desc", 1, 1));
+        Trip weekdayTrip = new Trip("rt1", "WEEKDAY", "t1", "one", 0, "", "");
+        weekdayTrip.insertNextStopTime(new StopTime("t1", "08:00:00", "08:00:00", "A", "1", "", "", ""));
+        Trip saturdayTrip = new Trip("rt1", "SATURDAY", "t2", "two", 0, "", "");
+        saturdayTrip.insertNextStopTime(new StopTime("t2", "08:00:00", "08:00:00", "A", "1", "", "", ""));
+        Timetable timetable = new Timetable(stops, Arrays.asList(weekdayTrip, saturdayTrip), calendar);
+
+        BitSet wednesday = timetable.findActiveTrips(LocalDate.of(2024, 7, 3));
+        assertTrue(wednesday.get(timetable.indexOfTrip("t1")));
+        assertFalse(wednesday.get(timetable.indexOfTrip("t2")));
+        BitSet saturday = timetable.findActiveTrips(LocalDate.of(2024, 7, 6));
+        assertFalse(saturday.get(timetable.indexOfTrip("t1")));
+        assertTrue(saturday.get(timetable.indexOfTrip("t2")));
+    }
+
+    /**
+     * Building resolves into a new calendar, so a calendar that is already built never changes when rows are
+     * added to a copy of it and the copy is built.
+     */
+    @Test
+    void buildCopyTest() {
+        ServiceCalendar rows = new ServiceCalendar();
+        rows.addWeeklyService("WEEKDAY", WEEKDAYS, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 12, 31));
+        ServiceCalendar built = rows.build();
+        assertTrue(rows.isEmpty());
+        assertTrue(built.isActive("WEEKDAY", LocalDate.of(2024, 7, 3)));
+
+        ServiceCalendar changed = new ServiceCalendar(built);
+        changed.clearWeeklyServices();
+        changed.addWeeklyService("SATURDAY", SATURDAYS, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 12, 31));
+        changed = changed.build();
+        assertTrue(built.isActive("WEEKDAY", LocalDate.of(2024, 7, 3)));
+        assertFalse(built.isActive("SATURDAY", LocalDate.of(2024, 7, 6)));
+        assertFalse(changed.isActive("WEEKDAY", LocalDate.of(2024, 7, 3)));
+        assertTrue(changed.isActive("SATURDAY", LocalDate.of(2024, 7, 6)));
+    }
+}
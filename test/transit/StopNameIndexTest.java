@@ -0,0 +1,64 @@
+/**
+ * This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ * This class hosts all tests for the "StopNameIndex" class. Tests here include matching the start of each word of a
+ * name, ignoring case and accents, matching stop_id(s) and ranking the matches.
+ */
+package transit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StopNameIndexTest {
+
+    private static ArrayList<String> autocompleteIDs(StopNameIndex index, String query) {
+        ArrayList<String> stopIDs = new ArrayList<>();
+        for (Stop stop : index.autocomplete(query, StopNameIndex.DEFAULT_LIMIT)) {
+            stopIDs.add(stop.getStopID());
+        }
+        return stopIDs;
+    }
+
+    /**
+     * Typed words match the start of any word of a name in any order, without case or accents, and names starting
+     * with the whole text rank before other matches.
+     */
+    @Test
+    void autocompleteTest() {
+        StopNameIndex index = new StopNameIndex(Arrays.asList(
+                new Stop("101", "Water Street & 3rd Ave", "desc", 10, 10),
+                new Stop("102", "3rd Ave & Water St", "desc", 10, 10),
+                new Stop("103", "Waterfront Station", "desc", 10, 10),
+                new Stop("104", "Caf\u00e9 \u00c9cluse", "desc", 10, 10),
+                new Stop("NB:7", "Northbound 7th", "desc", 10, 10)));
+
+        //"Waterfront Station" also has words starting with "water" and "st"
+        assertEquals(Arrays.asList("101", "102", "103"), autocompleteIDs(index, "water st"));
+        assertEquals(Arrays.asList("101", "102", "103"), autocompleteIDs(index, "WATER ST"));
+        assertEquals(Arrays.asList("103", "101", "102"), autocompleteIDs(index, "water"));
+        assertEquals(Arrays.asList("104"), autocompleteIDs(index, "cafe ecl"));
+        assertTrue(autocompleteIDs(index, "water zzz").isEmpty());
+        assertTrue(autocompleteIDs(index, "  ").isEmpty());
+
+        //an exact stop_id comes first, and stop_id(s) with punctuation can be typed out
+        assertEquals("101", autocompleteIDs(index, "101").get(0));
+        assertEquals(Arrays.asList("NB:7"), autocompleteIDs(index, "nb:"));
+        assertEquals(1, index.autocomplete("water", 1).size());
+        assertEquals("103", index.findStop("103").getStopID());
+    }
+}
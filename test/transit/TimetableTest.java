@@ -0,0 +1,194 @@
+/**
+ * This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ * This class hosts all tests for the "Timetable" class. Tests here include keeping the Timetable compressed,
+ * finding the next arrival through minute tables, including after Trips are moved to other Stops, and editing a group
+ * of Trips without rebuilding the whole Timetable.
+ */
+package transit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimetableTest {
+
+    /**
+     * A compressed Timetable should answer exactly like one kept in plain arrays, including after an update.
+     */
+    @Test
+    void storageTest() {
+        ArrayList<Stop> stops = new ArrayList<>();
+        stops.add(new Stop("A", "A", "desc", 10, 10));
+        stops.add(new Stop("B", "B", "desc", 11, 11));
+        Trip trip1 = new Trip("rt1", "1", "t1", "one", 0, "", "");
+        trip1.insertNextStopTime(new StopTime("t1", "08:00:00", "08:00:00", "A", "1", "", "", ""));
+        trip1.insertNextStopTime(new StopTime("t1", "08:10:00", "08:12:00", "B", "2", "", "", ""));
+        Trip trip2 = new Trip("rt1", "1", "t2", "two", 0, "", "");
+        trip2.insertNextStopTime(new StopTime("t2", "07:55:00", "07:55:00", "B", "1", "", "", ""));
+        trip2.insertNextStopTime(new StopTime("t2", "08:05:00", "08:05:00", "A", "2", "", "", ""));
+        Timetable heap = new Timetable(stops, Arrays.asList(trip1, trip2), new ServiceCalendar());
+
+        for (IntColumn.Storage storage : IntColumn.Storage.values()) {
+            Timetable timetable = new Timetable(stops, Arrays.asList(trip1, trip2), new ServiceCalendar(), storage);
+            assertEquals(storage, timetable.getStorage());
+            Timetable updated = timetable.updateTrips(new int[]{1}, 60, null);
+            Timetable heapUpdated = heap.updateTrips(new int[]{1}, 60, null);
+            assertEquals(storage, updated.getStorage());
+            for (int s = 0; s < heap.getStopTimeCount(); s++) {
+                assertEquals(heap.getStopIndex(s), timetable.getStopIndex(s));
+                assertEquals(heap.getArrival(s), timetable.getArrival(s));
+                assertEquals(heap.getDeparture(s), timetable.getDeparture(s));
+                assertEquals(heap.getStopEvent(s), timetable.getStopEvent(s));
+                assertEquals(heapUpdated.getArrival(s), updated.getArrival(s));
+                assertEquals(heapUpdated.getStopEvent(s), updated.getStopEvent(s));
+            }
+            for (int c = 0; c < heap.getConnectionCount(); c++) {
+                assertEquals(heap.getConnectionDeparture(c), timetable.getConnectionDeparture(c));
+                assertEquals(heapUpdated.getConnectionStopTime(c), updated.getConnectionStopTime(c));
+            }
+            assertEquals(heap.findFirstConnection(Timetable.parseTime("08:00:00")),
+                    timetable.findFirstConnection(Timetable.parseTime("08:00:00")));
+        }
+    }
+
+    /**
+     * Looking the next arrival up through a minute table should give the same stop event as a binary search, for
+     * times within a minute, past midnight and past the end of the table, and again after an update.
+     */
+    @Test
+    void minuteTableTest() {
+        ArrayList<Stop> stops = new ArrayList<>();
+        stops.add(new Stop("A", "A", "desc", 10, 10));
+        stops.add(new Stop("B", "B", "desc", 11, 11));
+        ArrayList<Trip> trips = new ArrayList<>();
+        for (int t = 0; t < 40; t++) {
+            //several Trips share each minute, and the last ones run past midnight
+            String arrival = Timetable.formatTime(5 * 3600 + t * 1777 + (t % 3) * 20);
+            Trip trip = new Trip("rt1", "1", "t" + t, "", 0, "", "");
+            trip.insertNextStopTime(new StopTime("t" + t, arrival, arrival, "A", "1", "", "", ""));
+            trip.insertNextStopTime(new StopTime("t" + t, arrival, arrival, "B", "2", "", "", ""));
+            trips.add(trip);
+        }
+        Timetable plain = new Timetable(stops, trips);
+        Timetable tabled = plain.withMinuteTables(10);
+        assertTrue(tabled.hasMinuteTable(0));
+        assertFalse(plain.hasMinuteTable(0));
+        assertFalse(plain.withMinuteTables(41).hasMinuteTable(0));
+
+        Timetable updated = tabled.updateTrips(new int[]{3, 17}, 95, null);
+        Timetable plainUpdated = plain.updateTrips(new int[]{3, 17}, 95, null);
+        assertTrue(updated.hasMinuteTable(0));
+        for (int seconds = -60; seconds < 3 * 24 * 3600; seconds += 17) {
+            assertEquals(plain.findFirstStopEventAfter(0, seconds), tabled.findFirstStopEventAfter(0, seconds));
+            assertEquals(plainUpdated.findFirstStopEventAfter(1, seconds), updated.findFirstStopEventAfter(1, seconds));
+        }
+    }
+
+    /**
+     * Moving a Trip from Stop "A" to Stop "C" moves where the events of Stop "B" start, even though the Trip never
+     * visits "B". The minute table of "B" should follow them, so "B" still finds the same next arrival as a binary
+     * search.
+     */
+    @Test
+    void minuteTableStopRemapTest() {
+        ArrayList<Stop> stops = new ArrayList<>();
+        stops.add(new Stop("A", "A", "desc", 10, 10));
+        stops.add(new Stop("B", "B", "desc", 11, 11));
+        stops.add(new Stop("C", "C", "desc", 12, 12));
+        ArrayList<Trip> trips = new ArrayList<>();
+        Trip first = new Trip("rt1", "1", "t0", "", 0, "", "");
+        first.insertNextStopTime(new StopTime("t0", "08:50:00", "08:50:00", "A", "1", "", "", ""));
+        first.insertNextStopTime(new StopTime("t0", "08:55:00", "08:55:00", "C", "2", "", "", ""));
+        trips.add(first);
+        for (int t = 1; t < 5; t++) {
+            String arrival = Timetable.formatTime(9 * 3600 + t * 600);
+            Trip trip = new Trip("rt1", "1", "t" + t, "", 0, "", "");
+            trip.insertNextStopTime(new StopTime("t" + t, arrival, arrival, "B", "1", "", "", ""));
+            trips.add(trip);
+        }
+        Timetable plain = new Timetable(stops, trips);
+        Timetable tabled = plain.withMinuteTables(3);
+        assertTrue(tabled.hasMinuteTable(1));
+
+        //"A" becomes "C", so the events of "B" now start one position earlier
+        int[] stopRemap = {2, 1, 2};
+        Timetable updated = tabled.updateTrips(new int[]{plain.indexOfTrip("t0")}, 0, stopRemap);
+        Timetable plainUpdated = plain.updateTrips(new int[]{plain.indexOfTrip("t0")}, 0, stopRemap);
+        assertEquals(0, updated.getFirstStopEvent(1));
+        assertTrue(updated.hasMinuteTable(1));
+        for (int seconds = -60; seconds < 2 * 24 * 3600; seconds += 13) {
+            for (int stop = 0; stop < stops.size(); stop++) {
+                assertEquals(plainUpdated.findFirstStopEventAfter(stop, seconds),
+                        updated.findFirstStopEventAfter(stop, seconds));
+            }
+        }
+
+        //the 09:10 arrival at "B" is the next one after 09:00
+        int event = updated.findFirstStopEventAfter(1, Timetable.parseTime("09:00:00"));
+        assertEquals(Timetable.parseTime("09:10:00"), updated.getArrival(updated.getStopEvent(event)));
+    }
+
+    /**
+     * Shifting a Trip and moving one of its Stops should give the same Timetable as building it again from the
+     * edited StopTimes.
+     */
+    @Test
+    void updateTripsTest() {
+        ArrayList<Stop> stops = new ArrayList<>();
+        stops.add(new Stop("A", "A", "desc", 10, 10));
+        stops.add(new Stop("B", "B", "desc", 11, 11));
+        stops.add(new Stop("C", "C", "desc", 12, 12));
+
+        Trip trip1 = new Trip("rt1", "1", "t1", "one", 0, "", "");
+        trip1.insertNextStopTime(new StopTime("t1", "08:00:00", "08:00:00", "A", "1", "", "", ""));
+        trip1.insertNextStopTime(new StopTime("t1", "08:10:00", "08:10:00", "B", "2", "", "", ""));
+        Trip trip2 = new Trip("rt1", "1", "t2", "two", 0, "", "");
+        trip2.insertNextStopTime(new StopTime("t2", "08:05:00", "08:05:00", "A", "1", "", "", ""));
+        trip2.insertNextStopTime(new StopTime("t2", "08:15:00", "08:15:00", "B", "2", "", "", ""));
+        Timetable timetable = new Timetable(stops, Arrays.asList(trip1, trip2));
+
+        //move "t1" 10 minutes later and from "B" to "C"
+        Timetable updated = timetable.updateTrips(new int[]{timetable.indexOfTrip("t1")}, 600, new int[]{0, 2, 2});
+        trip1.getStopSequence().get(0).setArrivalTime("08:10:00");
+        trip1.getStopSequence().get(0).setDepartureTime("08:10:00");
+        trip1.getStopSequence().get(1).setArrivalTime("08:20:00");
+        trip1.getStopSequence().get(1).setDepartureTime("08:20:00");
+        trip1.getStopSequence().get(1).setStopID("C");
+        Timetable rebuilt = new Timetable(stops, Arrays.asList(trip1, trip2));
+
+        for (int s = 0; s < rebuilt.getStopTimeCount(); s++) {
+            assertEquals(rebuilt.getStopIndex(s), updated.getStopIndex(s));
+            assertEquals(rebuilt.getArrival(s), updated.getArrival(s));
+        }
+        for (int c = 0; c < rebuilt.getConnectionCount(); c++) {
+            assertEquals(rebuilt.getConnectionStopTime(c), updated.getConnectionStopTime(c));
+        }
+        for (int i = 0; i < rebuilt.getStopCount(); i++) {
+            assertEquals(rebuilt.getFirstStopEvent(i), updated.getFirstStopEvent(i));
+            assertEquals(rebuilt.getEndStopEvent(i), updated.getEndStopEvent(i));
+        }
+        for (int e = 0; e < rebuilt.getStopTimeCount(); e++) {
+            assertEquals(rebuilt.getStopEvent(e), updated.getStopEvent(e));
+        }
+
+        //the original Timetable is left untouched
+        assertEquals(Timetable.parseTime("08:00:00"), timetable.getArrival(timetable.getFirstStopTime(0)));
+        assertEquals("08:10:00", Timetable.formatTime(Timetable.parseTime("8:10:00")));
+        assertEquals("25:05:09", Timetable.formatTime(Timetable.parseTime("25:05:09")));
+    }
+}
@@ -24,7 +24,13 @@ package transit;
     import java.awt.*;
     import java.io.File;
     import java.io.FileNotFoundException;
+    import java.io.IOException;
+    import java.time.LocalDate;
     import java.util.ArrayList;
+    import java.util.Arrays;
+    import java.util.Collections;
+    import java.util.HashSet;
+    import java.util.LinkedHashMap;
     import static org.junit.jupiter.api.Assertions.*;
 
 class TransitDataTest {
@@ -65,6 +71,10 @@ class TransitDataTest {
 
         //check to see if there are no routes created after parsing a single invalid Route
         assertTrue(transitData.getAllRoutes().isEmpty());
+
+        //the invalid line should be counted once the load is over
+        assertEquals(1, transitData.getParseDiagnostics().getProblemCount("routes.txt",
+                ParseDiagnostics.TOO_FEW_COLUMNS));
     }
 
     /**
@@ -232,4 +242,198 @@ class TransitDataTest {
         Route foundRoute = transitData.searchRoutes(route2.getRouteID());
         assertEquals(foundRoute, route2);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testIdentityByID(){
+        //Routes, Trips and Stops with the same ID are the same object as far as sets and maps are concerned
+        Route route = new Route("rt1", "0xFFFFFF");
+        Route sameRoute = new Route("rt1", "0x000000");
+        assertEquals(route, sameRoute);
+        assertEquals(route.hashCode(), sameRoute.hashCode());
+
+        Stop stop = new Stop("st1", "First", "", 44.8, -91.5);
+        Stop movedStop = new Stop("st1", "First", "", 44.9, -91.4);
+        assertEquals(stop, movedStop);
+
+        HashSet<Route> routes = new HashSet<>();
+        routes.add(route);
+        routes.add(sameRoute);
+        routes.add(new Route("rt2", "0xFFFFFF"));
+        assertEquals(2, routes.size());
+
+        //trip membership ignores repeated trip_ids
+        route.insertTripID("trip1");
+        route.insertTripID("trip1");
+        assertTrue(route.containsTrip("trip1"));
+        assertEquals(1, route.getTripsInRoute().size());
+    }
+
+    @Test
+    public void testBatchQueries() throws IOException {
+        //load a whole feed into its own store, so the single instance used by the other tests is left alone
+        TransitData feed = new FeedRegistry().loadFeed("GTFS_EauClaire", new File("./data_files/GTFS_EauClaire"));
+        ArrayList<String> stopIDs = new ArrayList<>();
+        for (Stop stop : feed.getAllStops()) {
+            stopIDs.add(stop.getStopID());
+        }
+        stopIDs.add("unknown");
+
+        //batch results match one call per ID, keyed in the order asked for
+        LinkedHashMap<String, ArrayList<Route>> routes = feed.findRoutesWithStops(stopIDs);
+        assertEquals(stopIDs, new ArrayList<>(routes.keySet()));
+        feed.invalidateQueryCaches();
+        for (String stopID : stopIDs) {
+            assertEquals(feed.findRoutesWithStop(stopID), routes.get(stopID));
+        }
+
+        LocalDate date = LocalDate.of(2020, 3, 2);
+        LinkedHashMap<String, ArrayList<Trip>> upcoming = feed.findUpcomingTrips(stopIDs, date, 8 * 3600);
+        assertEquals(stopIDs, new ArrayList<>(upcoming.keySet()));
+        for (String stopID : upcoming.keySet()) {
+            assertEquals(feed.findUpcomingTrips(stopID, date, 8 * 3600), upcoming.get(stopID));
+        }
+        LinkedHashMap<String, ArrayList<Trip>> next = feed.findNextTrips(stopIDs);
+        assertEquals(stopIDs, new ArrayList<>(next.keySet()));
+
+        //unknown IDs are kept with an empty result, the same in every batch query
+        assertTrue(routes.get("unknown").isEmpty());
+        assertTrue(upcoming.get("unknown").isEmpty());
+        assertTrue(next.get("unknown").isEmpty());
+
+        Route route = feed.getAllRoutes().get(0);
+        LinkedHashMap<String, ArrayList<Stop>> stops = feed.findAllStops(Arrays.asList(route.getRouteID(), "unknown"));
+        assertEquals(Arrays.asList(route.getRouteID(), "unknown"), new ArrayList<>(stops.keySet()));
+        assertEquals(feed.findAllStops(route.getRouteID()), stops.get(route.getRouteID()));
+        assertTrue(stops.get("unknown").isEmpty());
+    }
+
+    @Test
+    public void testStopPatterns() throws IOException {
+        TransitData feed = new FeedRegistry().loadFeed("GTFS_EauClaire", new File("./data_files/GTFS_EauClaire"));
+
+        //far fewer patterns than Trips, and every Trip with StopTimes is in exactly one pattern
+        int patternTrips = 0;
+        for (StopPattern pattern : feed.getStopPatterns()) {
+            patternTrips += pattern.getTrips().size();
+            for (Trip trip : pattern.getTrips()) {
+                assertTrue(trip.getStopPattern() == pattern);
+                assertEquals(pattern.getStopCount(), trip.getStopSequence().size());
+                for (int i = 0; i < pattern.getStopCount(); i++) {
+                    //the StopTimes share the pattern's stop_id Strings
+                    assertTrue(trip.getStopSequence().get(i).getStopID() == pattern.getStopID(i));
+                }
+            }
+        }
+        assertEquals(feed.getAllTrips().size(), patternTrips);
+        assertTrue(feed.getStopPatterns().size() < feed.getAllTrips().size());
+
+        //a Trip group is the Trip's pattern
+        Trip trip = feed.getAllTrips().get(0);
+        assertEquals(new ArrayList<>(trip.getStopPattern().getTrips()), feed.findTripGroup(trip.getTripID()));
+
+        //replacing a Stop moves the edited Trip to a pattern of its own
+        StopPattern oldPattern = trip.getStopPattern();
+        ArrayList<Trip> oldGroup = new ArrayList<>(oldPattern.getTrips());
+        String oldStopID = oldPattern.getStopID(0);
+        String newStopID = feed.getAllStops().get(0).getStopID().equals(oldStopID)
+                ? feed.getAllStops().get(1).getStopID() : feed.getAllStops().get(0).getStopID();
+        feed.updateTripGroup(Collections.singletonList(trip), 0, oldStopID, newStopID);
+        assertTrue(trip.getStopPattern() != oldPattern);
+        assertEquals(newStopID, trip.getStopPattern().getStopID(0));
+        assertTrue(feed.findTripGroup(trip.getTripID()).contains(trip));
+        assertTrue(feed.findRoutesWithStop(newStopID).contains(feed.searchRoutes(trip.getRouteID())));
+
+        //the published pattern is left as it was, and the Trips staying behind move to a copy without the edited Trip
+        assertEquals(oldGroup, new ArrayList<>(oldPattern.getTrips()));
+        assertFalse(feed.getStopPatterns().contains(oldPattern));
+        for (Trip other : oldGroup) {
+            if (other != trip) {
+                assertTrue(other.getStopPattern() != oldPattern);
+                assertFalse(other.getStopPattern().getTrips().contains(trip));
+                assertTrue(feed.getStopPatterns().contains(other.getStopPattern()));
+            }
+        }
+
+        //a replaced stop_id the Timetable does not know still moves the Trip to the pattern of its new Stops
+        Trip unknownStopTrip = feed.getAllTrips().get(1);
+        unknownStopTrip.getStopSequence().get(0).setStopID("unknown");
+        feed.updateTripGroup(Collections.singletonList(unknownStopTrip), 0, "unknown", newStopID);
+        assertEquals(newStopID, unknownStopTrip.getStopPattern().getStopID(0));
+        assertTrue(unknownStopTrip.getStopPattern().getTrips().contains(unknownStopTrip));
+
+        //and the Timetable is rebuilt, since it only knew the StopTime at its old Stop
+        Timetable timetable = feed.getTimetable();
+        int firstStopTime = timetable.getFirstStopTime(timetable.indexOfTrip(unknownStopTrip.getTripID()));
+        assertEquals(newStopID, timetable.getStopID(timetable.getStopIndex(firstStopTime)));
+    }
+
+    /**
+     * Only Trips of the current Timetable are edited, and a shift that moves any time of the group before midnight
+     * is refused without changing anything. Edited Trips get new StopTimes instead of having theirs changed.
+     */
+    @Test
+    public void testUpdateTripGroup() throws IOException {
+        TransitData feed = new FeedRegistry().loadFeed("GTFS_EauClaire", new File("./data_files/GTFS_EauClaire"));
+        Trip trip = feed.getAllTrips().get(0);
+        StopTime firstStopTime = trip.getStopSequence().get(0);
+        String firstArrival = firstStopTime.getArrivalTime();
+
+        //a Trip with the same trip_id that is not the one in the Timetable, like one from before a reload
+        Trip stale = new Trip(trip.getRouteID(), trip.getServiceID(), trip.getTripID(), "", 0, "", "");
+        stale.insertNextStopTime(new StopTime(trip.getTripID(), "08:00:00", "08:00:00",
+                trip.getStopSequence().get(0).getStopID(), "1", "", "", ""));
+        feed.updateTripGroup(Arrays.asList(stale, trip), 1, null, null);
+        assertEquals("08:00:00", stale.getStopSequence().get(0).getArrivalTime());
+        assertEquals(Timetable.formatTime(Timetable.parseTime(firstArrival) + 60),
+                trip.getStopSequence().get(0).getArrivalTime());
+
+        //the edit is a copy, so a query still reading the old StopTimes sees them as they were
+        assertEquals(firstArrival, firstStopTime.getArrivalTime());
+        assertEquals(Timetable.parseTime(firstArrival) + 60,
+                feed.getTimetable().getArrival(feed.getTimetable().getFirstStopTime(
+                        feed.getTimetable().indexOfTrip(trip.getTripID()))));
+
+        //only a later StopTime would fall before midnight, and the whole group is left as it was
+        Trip other = feed.getAllTrips().get(1);
+        String otherArrival = other.getStopSequence().get(0).getArrivalTime();
+        StopTime last = trip.getStopSequence().get(trip.getStopSequence().size() - 1);
+        last.setArrivalTime("00:01:00");
+        Timetable before = feed.getTimetable();
+        boolean refused = false;
+        try {
+            feed.updateTripGroup(Arrays.asList(other, trip), -2, null, null);
+        } catch (IllegalArgumentException e) {
+            refused = true;
+        }
+        assertTrue(refused);
+        assertEquals(otherArrival, other.getStopSequence().get(0).getArrivalTime());
+        assertEquals("00:01:00", last.getArrivalTime());
+        assertTrue(feed.getTimetable() == before);
+    }
+
+    /**
+     * Files parsed within one load only rebuild the Timetable once the load is finished, while a file parsed on its
+     * own rebuilds it straight away.
+     */
+    @Test
+    public void testRebuildOncePerLoad() throws IOException {
+        File folder = new File("./data_files/GTFS_EauClaire");
+        TransitData feed = TransitData.createStore();
+        Timetable empty = feed.getTimetable();
+        feed.startLoad();
+        feed.parseRoutes(new File(folder, "routes.txt"));
+        feed.parseTrips(new File(folder, "trips.txt"));
+        feed.parseStops(new File(folder, "stops.txt"));
+        feed.parseStopTimes(new File(folder, "stop_times.txt"));
+        assertTrue(feed.getTimetable() == empty);
+        feed.finishLoad();
+
+        Timetable loaded = feed.getTimetable();
+        assertTrue(loaded != empty);
+        assertEquals(feed.getAllTrips().size(), loaded.getTripCount());
+        assertFalse(feed.getAllBuses().isEmpty());
+
+        feed.parseStops(new File(folder, "stops.txt"));
+        assertTrue(feed.getTimetable() != loaded);
+    }
+}
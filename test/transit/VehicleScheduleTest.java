@@ -0,0 +1,126 @@
+/**
+ * This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ * This class hosts all tests for the "VehicleSchedule" class. Tests here include counting the vehicles of every
+ * service running on the same day, chaining Trips without a block onto as few vehicles as possible and giving every
+ * Bus its own ID.
+ */
+package transit;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VehicleScheduleTest {
+    private static final boolean[] WEEKDAYS = {true, true, true, true, true, false, false};
+    private static final boolean[] SATURDAYS = {false, false, false, false, false, true, false};
+
+    //a Monday and the Saturday after it
+    private static final LocalDate MONDAY = LocalDate.of(2024, 3, 4);
+    private static final LocalDate SATURDAY = LocalDate.of(2024, 3, 9);
+
+    private static Trip createTrip(String tripID, String serviceID, String blockID, String departure,
+                                   String arrival) {
+        Trip trip = new Trip("rt1", serviceID, tripID, "", 0, blockID, "");
+        trip.insertNextStopTime(new StopTime(tripID, departure, departure, "A", "1", "", "", ""));
+        trip.insertNextStopTime(new StopTime(tripID, arrival, arrival, "B", "2", "", "", ""));
+        return trip;
+    }
+
+    private static ArrayList<Stop> createStops() {
+        ArrayList<Stop> stops = new ArrayList<>();
+        stops.add(new Stop("A", "A", "desc", 10, 10));
+        stops.add(new Stop("B", "B", "desc", 11, 11));
+        return stops;
+    }
+
+    /**
+     * A weekday and a school service both run on Monday, so their vehicles add up, while only the Saturday service
+     * runs on Saturday. A Trip of Friday running past midnight is still in service early on Saturday.
+     */
+    @Test
+    void peakPerDayTest() {
+        ServiceCalendar calendar = new ServiceCalendar();
+        calendar.addWeeklyService("WEEKDAY", WEEKDAYS, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 12, 31));
+        calendar.addWeeklyService("SCHOOL", WEEKDAYS, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 12, 31));
+        calendar.addWeeklyService("SATURDAY", SATURDAYS, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 12, 31));
+        calendar = calendar.build();
+
+        List<Trip> trips = Arrays.asList(
+                createTrip("w1", "WEEKDAY", "b1", "08:00:00", "09:00:00"),
+                createTrip("w2", "WEEKDAY", "b2", "08:30:00", "09:30:00"),
+                createTrip("late", "WEEKDAY", "b3", "24:10:00", "25:00:00"),
+                createTrip("s1", "SCHOOL", "b4", "08:15:00", "08:45:00"),
+                createTrip("sat", "SATURDAY", "b5", "10:00:00", "11:00:00"));
+        VehicleSchedule schedule = new VehicleSchedule(new Timetable(createStops(), trips, calendar));
+
+        assertEquals(3, schedule.getPeakVehicles(MONDAY));
+        assertEquals(Timetable.parseTime("08:30:00"), schedule.getPeakTime(MONDAY));
+        assertEquals(3, schedule.countVehiclesInService(MONDAY, Timetable.parseTime("08:40:00")));
+        assertEquals(1, schedule.getPeakVehicles(SATURDAY));
+        assertEquals(1, schedule.countVehiclesInService(SATURDAY, Timetable.parseTime("00:30:00")));
+        assertEquals(1, schedule.countVehiclesInService(SATURDAY, Timetable.parseTime("10:30:00")));
+        assertEquals(0, schedule.getPeakVehicles(LocalDate.of(2025, 3, 4)));
+        assertEquals(-1, schedule.getPeakTime(LocalDate.of(2025, 3, 4)));
+        assertEquals(3, schedule.getPeakVehicles());
+    }
+
+    /**
+     * Without any "block_id", a Trip is driven by a vehicle that has finished its previous Trip, so Trips one after
+     * the other need a single Bus and only Trips at the same time need more.
+     */
+    @Test
+    void unblockedTripsTest() {
+        List<Trip> trips = Arrays.asList(
+                createTrip("t1", "WEEKDAY", "", "08:00:00", "09:00:00"),
+                createTrip("t2", "WEEKDAY", "", "09:00:00", "10:00:00"),
+                createTrip("t3", "WEEKDAY", "", "09:30:00", "10:30:00"),
+                createTrip("t4", "WEEKDAY", "", "10:15:00", "11:00:00"));
+        Timetable timetable = new Timetable(createStops(), trips, new ServiceCalendar());
+        VehicleSchedule schedule = new VehicleSchedule(timetable);
+
+        assertEquals(2, schedule.getDuties().size());
+        assertEquals(2, schedule.getPeakVehicles());
+        assertEquals(Arrays.asList(trips.get(0), trips.get(1), trips.get(3)), schedule.getDuties().get(0).getTrips());
+        assertEquals("", schedule.getDuties().get(0).getBlockID());
+        assertEquals(2, schedule.createBuses(timetable, new ArrayList<>(), createStops()).size());
+    }
+
+    /**
+     * A "block_id" that looks like the name given to a vehicle without a block must not share its Bus.
+     */
+    @Test
+    void busIDTest() {
+        List<Trip> trips = Arrays.asList(
+                createTrip("t1", "WEEKDAY", "vehicle-1", "08:00:00", "09:00:00"),
+                createTrip("vehicle-2", "WEEKDAY", "", "08:00:00", "09:00:00"),
+                createTrip("t3", "WEEKDAY", "", "08:00:00", "09:00:00"));
+        Timetable timetable = new Timetable(createStops(), trips, new ServiceCalendar());
+        ArrayList<Bus> buses = new VehicleSchedule(timetable).createBuses(timetable, new ArrayList<>(), createStops());
+
+        HashSet<String> busIDs = new HashSet<>();
+        for (Bus bus : buses) {
+            busIDs.add(bus.getBusID());
+        }
+        assertEquals(3, buses.size());
+        assertEquals(3, busIDs.size());
+        assertTrue(busIDs.contains("vehicle-1"));
+    }
+}